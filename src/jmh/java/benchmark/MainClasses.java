@@ -0,0 +1,42 @@
+package benchmark;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * 访问 main 中位于默认包的类。
+ * JMH 不支持默认包中的基准类，而具名包又无法 import 默认包，因此通过 MethodHandle 调用；
+ * 句柄保存在 static final 字段中，JIT 会把调用内联，开销可以忽略。
+ */
+final class MainClasses {
+
+    private MainClasses() {
+    }
+
+    static Class<?> type(String className) {
+        try {
+            return Class.forName(className);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("Main class not found: " + className, e);
+        }
+    }
+
+    static MethodHandle staticMethod(String className, String methodName, Class<?> returnType, Class<?>... parameterTypes) {
+        try {
+            return MethodHandles.publicLookup().findStatic(type(className), methodName,
+                    MethodType.methodType(returnType, parameterTypes));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new IllegalStateException("Method not found: " + className + "." + methodName, e);
+        }
+    }
+
+    static MethodHandle virtualMethod(String className, String methodName, Class<?> returnType, Class<?>... parameterTypes) {
+        try {
+            return MethodHandles.publicLookup().findVirtual(type(className), methodName,
+                    MethodType.methodType(returnType, parameterTypes));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new IllegalStateException("Method not found: " + className + "." + methodName, e);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.invoke.MethodHandle;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Signature.signPrefixedMessage 和 isSignatureValid 的基准测试。
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SignatureBenchmark {
+
+    private static final String PRIVATE_KEY = "ad6bfebb055780013c24afdd167cceb96ef89ddf9e4eb8615a99e573531407b5";
+    private static final String WALLET_ADDRESS = "0x4dc2739b3de594754066357e54bfce70167b3f99";
+    private static final String MESSAGE = "2778f9e5-5992-4b06-8a8f-85135d687cff";
+
+    private static final MethodHandle SIGN_PREFIXED_MESSAGE = MainClasses.staticMethod(
+            "Signature", "signPrefixedMessage", String.class, String.class, String.class);
+    private static final MethodHandle IS_SIGNATURE_VALID = MainClasses.staticMethod(
+            "Signature", "isSignatureValid", Boolean.class, String.class, String.class, String.class);
+
+    private String signature;
+
+    @Setup
+    public void setUp() throws Throwable {
+        signature = (String) SIGN_PREFIXED_MESSAGE.invokeExact(PRIVATE_KEY, MESSAGE);
+    }
+
+    @Benchmark
+    public String signPrefixedMessage() throws Throwable {
+        return (String) SIGN_PREFIXED_MESSAGE.invokeExact(PRIVATE_KEY, MESSAGE);
+    }
+
+    @Benchmark
+    public Boolean isSignatureValid() throws Throwable {
+        return (Boolean) IS_SIGNATURE_VALID.invokeExact(signature, MESSAGE, WALLET_ADDRESS);
+    }
+}
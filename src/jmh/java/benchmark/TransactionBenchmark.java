@@ -0,0 +1,152 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.web3j.abi.FunctionEncoder;
+import org.web3j.abi.FunctionReturnDecoder;
+import org.web3j.abi.TypeReference;
+import org.web3j.abi.datatypes.Function;
+import org.web3j.abi.datatypes.Type;
+import org.web3j.abi.datatypes.generated.Uint256;
+import org.web3j.crypto.Credentials;
+import org.web3j.crypto.RawTransaction;
+import org.web3j.crypto.TransactionEncoder;
+import org.web3j.tx.gas.DefaultGasProvider;
+
+import java.lang.invoke.MethodHandle;
+import java.math.BigInteger;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 交易构造的基准测试：ContractInteraction 中的 ABI 编码和解码（web3j 通用路径与 PrecompiledFunction 对比），
+ * 以及 Transfer 中的交易签名。
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TransactionBenchmark {
+
+    private static final String PRIVATE_KEY = "ad6bfebb055780013c24afdd167cceb96ef89ddf9e4eb8615a99e573531407b5";
+    private static final String CONTRACT_ADDRESS = "0x1f9840a85d5af5bf1d1762f925bdaddc4201f984";
+    private static final String RECIPIENT_ADDRESS = "0x4dc2739b3de594754066357e54bfce70167b3f99";
+    private static final long CHAIN_ID = 11155420L;
+
+    private static final Class<?> PRECOMPILED = MainClasses.type("PrecompiledFunction");
+    private static final MethodHandle COMPILE = MainClasses.staticMethod(
+            "PrecompiledFunction", "compile", PRECOMPILED, String.class, String[].class);
+    private static final MethodHandle ENCODE = MainClasses.virtualMethod(
+            "PrecompiledFunction", "encode", String.class, Object[].class);
+    private static final MethodHandle DECODE_UINT256 = MainClasses.virtualMethod(
+            "PrecompiledFunction", "decodeUint256", BigInteger.class, String.class);
+
+    // 与 ContractInteraction 中相同的预编译函数
+    private static final Object SET_VALUE = compile("setValue(uint256)");
+    private static final Object GET_VALUE = compile("getValue()", "uint256");
+
+    // getValue() 返回 42 时 eth_call 的结果
+    private static final String GET_VALUE_RETURN =
+            "0x000000000000000000000000000000000000000000000000000000000000002a";
+
+    private final Credentials credentials = Credentials.create(PRIVATE_KEY);
+    private final BigInteger value = BigInteger.valueOf(42);
+    private final Object[] noArguments = new Object[0];
+    private final Object[] setValueArguments = {value};
+    private final Function getValueFunction = new Function("getValue", Collections.<Type>emptyList(),
+            Collections.<TypeReference<?>>singletonList(new TypeReference<Uint256>() {
+            }));
+
+    /**
+     * 与 ContractInteraction.callContract("getValue") 相同的编码。
+     */
+    @Benchmark
+    public String encodeGetValue() {
+        Function function = new Function("getValue", Collections.<Type>emptyList(),
+                Collections.<TypeReference<?>>singletonList(new TypeReference<Uint256>() {
+                }));
+        return FunctionEncoder.encode(function);
+    }
+
+    /**
+     * 与 ContractInteraction.sendTransaction("setValue", ...) 相同的编码。
+     */
+    @Benchmark
+    public String encodeSetValue() {
+        Function function = new Function("setValue", Collections.<Type>singletonList(new Uint256(value)),
+                Collections.<TypeReference<?>>emptyList());
+        return FunctionEncoder.encode(function);
+    }
+
+    /**
+     * ContractInteraction.getValue 使用的预编译编码。
+     */
+    @Benchmark
+    public String precompiledEncodeGetValue() throws Throwable {
+        return (String) ENCODE.invoke(GET_VALUE, noArguments);
+    }
+
+    /**
+     * ContractInteraction.setValueAsync 使用的预编译编码。
+     */
+    @Benchmark
+    public String precompiledEncodeSetValue() throws Throwable {
+        return (String) ENCODE.invoke(SET_VALUE, setValueArguments);
+    }
+
+    /**
+     * 通用路径解码 getValue() 的返回值。
+     */
+    @Benchmark
+    public BigInteger decodeGetValue() {
+        List<Type> values = FunctionReturnDecoder.decode(GET_VALUE_RETURN, getValueFunction.getOutputParameters());
+        return (BigInteger) values.get(0).getValue();
+    }
+
+    /**
+     * ContractInteraction.getValue 使用的预编译解码。
+     */
+    @Benchmark
+    public BigInteger precompiledDecodeGetValue() throws Throwable {
+        return (BigInteger) DECODE_UINT256.invoke(GET_VALUE, GET_VALUE_RETURN);
+    }
+
+    /**
+     * 与 Transfer.transfer 相同的 ETH 转账签名。
+     */
+    @Benchmark
+    public byte[] signEtherTransfer() {
+        RawTransaction rawTransaction = RawTransaction.createEtherTransaction(
+                BigInteger.ONE, DefaultGasProvider.GAS_PRICE, BigInteger.valueOf(21000), RECIPIENT_ADDRESS, value);
+        return TransactionEncoder.signMessage(rawTransaction, CHAIN_ID, credentials);
+    }
+
+    /**
+     * 合约调用交易的签名（编码 + 签名）。
+     */
+    @Benchmark
+    public byte[] signContractCall() {
+        RawTransaction rawTransaction = RawTransaction.createTransaction(
+                BigInteger.ONE, DefaultGasProvider.GAS_PRICE, DefaultGasProvider.GAS_LIMIT, CONTRACT_ADDRESS,
+                BigInteger.ZERO, encodeSetValue());
+        return TransactionEncoder.signMessage(rawTransaction, CHAIN_ID, credentials);
+    }
+
+    private static Object compile(String signature, String... outputTypes) {
+        try {
+            return COMPILE.invoke(signature, outputTypes);
+        } catch (Throwable e) {
+            throw new IllegalStateException("Failed to compile " + signature, e);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.web3j.abi.EventEncoder;
+import org.web3j.abi.FunctionReturnDecoder;
+import org.web3j.abi.TypeReference;
+import org.web3j.abi.datatypes.Address;
+import org.web3j.abi.datatypes.Event;
+import org.web3j.abi.datatypes.Type;
+import org.web3j.abi.datatypes.generated.Uint256;
+import org.web3j.protocol.core.methods.response.Log;
+
+import java.lang.invoke.MethodHandle;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * EventListener.processTransferEvent 中 Transfer 日志解码的基准测试：
+ * Erc20LogDecoder 与 web3j 通用 ABI 解码路径对比。
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TransferDecodingBenchmark {
+
+    private static final Event TRANSFER_EVENT = new Event("Transfer", Arrays.<TypeReference<?>>asList(
+            new TypeReference<Address>(true) {
+            },
+            new TypeReference<Address>(true) {
+            },
+            new TypeReference<Uint256>(false) {
+            }
+    ));
+
+    private static final MethodHandle DECODE = MainClasses.staticMethod(
+            "Erc20LogDecoder", "decode", MainClasses.type("TokenTransferRecord"), Log.class);
+    private static final MethodHandle AMOUNT = MainClasses.virtualMethod(
+            "TokenTransferRecord", "amount", BigInteger.class);
+
+    private final Log log = new Log(false, "0x1", "0x2", "0xabc", "0xdef", "0x10",
+            "0x1f9840a85d5af5bf1d1762f925bdaddc4201f984",
+            "0x00000000000000000000000000000000000000000000003635c9adc5dea00000",
+            null,
+            Arrays.asList(
+                    EventEncoder.encode(TRANSFER_EVENT),
+                    "0x0000000000000000000000004dc2739b3de594754066357e54bfce70167b3f99",
+                    "0x0000000000000000000000001f9840a85d5af5bf1d1762f925bdaddc4201f984"));
+
+    @Benchmark
+    public BigInteger erc20LogDecoder() throws Throwable {
+        Object record = DECODE.invoke(log);
+        return (BigInteger) AMOUNT.invoke(record);
+    }
+
+    @Benchmark
+    public BigInteger genericAbiDecoder() {
+        Address from = (Address) FunctionReturnDecoder.decodeIndexedValue(
+                log.getTopics().get(1), TRANSFER_EVENT.getIndexedParameters().get(0));
+        Address to = (Address) FunctionReturnDecoder.decodeIndexedValue(
+                log.getTopics().get(2), TRANSFER_EVENT.getIndexedParameters().get(1));
+        List<Type> values = FunctionReturnDecoder.decode(log.getData(), TRANSFER_EVENT.getNonIndexedParameters());
+        if (from == null || to == null || values.isEmpty()) {
+            return null;
+        }
+        return (BigInteger) values.get(0).getValue();
+    }
+}
@@ -0,0 +1,48 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.web3j.utils.Numeric;
+
+import java.lang.invoke.MethodHandle;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 私钥 → 地址派生的基准测试：Wallet 的字符串接口与 BulkKeyGenerator 的字节接口。
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WalletBenchmark {
+
+    private static final String PRIVATE_KEY = "ad6bfebb055780013c24afdd167cceb96ef89ddf9e4eb8615a99e573531407b5";
+
+    private static final MethodHandle GET_WALLET_ADDRESS = MainClasses.staticMethod(
+            "Wallet", "getWalletAddressFromPrivateKeyHex", String.class, String.class);
+    private static final MethodHandle DERIVE_ADDRESS = MainClasses.staticMethod(
+            "BulkKeyGenerator", "deriveAddress", void.class, byte[].class, byte[].class, int.class);
+
+    private final byte[] privateKeyBytes = Numeric.hexStringToByteArray(PRIVATE_KEY);
+    private final byte[] address = new byte[20];
+
+    @Benchmark
+    public String getWalletAddressFromPrivateKeyHex() throws Throwable {
+        return (String) GET_WALLET_ADDRESS.invokeExact(PRIVATE_KEY);
+    }
+
+    @Benchmark
+    public byte[] deriveAddressBytes() throws Throwable {
+        DERIVE_ADDRESS.invokeExact(privateKeyBytes, address, 0);
+        return address;
+    }
+}
@@ -0,0 +1,197 @@
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.BatchRequest;
+import org.web3j.protocol.core.BatchResponse;
+import org.web3j.protocol.core.DefaultBlockParameter;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.Response;
+import org.web3j.protocol.core.methods.response.EthGetBalance;
+import org.web3j.utils.Convert;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 通过 JSON-RPC 批量请求查询大量地址的 ETH 余额。
+ * 地址按批次打包为 eth_getBalance 批量请求，多个批次并发发送，所有查询固定在同一个区块高度。
+ */
+public class BatchBalanceFetcher {
+
+    public static final int DEFAULT_BATCH_SIZE = 100;
+    public static final int DEFAULT_CONCURRENCY = 4;
+    // 单个地址（或整个批次）的最大尝试次数
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final Web3j web3j;
+    private final int batchSize;
+    private final int concurrency;
+
+    public BatchBalanceFetcher(Web3j web3j) {
+        this(web3j, DEFAULT_BATCH_SIZE, DEFAULT_CONCURRENCY);
+    }
+
+    /**
+     * @param web3j       Web3j 实例
+     * @param batchSize   每个批量请求包含的地址数
+     * @param concurrency 同时发送的批量请求数
+     */
+    public BatchBalanceFetcher(Web3j web3j, int batchSize, int concurrency) {
+        if (batchSize <= 0 || concurrency <= 0) {
+            throw new IllegalArgumentException("batchSize and concurrency must be positive");
+        }
+        this.web3j = web3j;
+        this.batchSize = batchSize;
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * 在最新区块高度上查询所有地址的余额。
+     *
+     * @param addresses 钱包地址集合
+     * @return 查询结果，包含区块高度、成功的余额和失败的地址
+     * @throws IOException 如果无法获取区块高度
+     */
+    public Result fetch(Collection<String> addresses) throws IOException {
+        BigInteger blockNumber = web3j.ethBlockNumber().send().getBlockNumber();
+        return fetch(addresses, blockNumber);
+    }
+
+    /**
+     * 在指定区块高度上查询所有地址的余额。
+     * 批次内单个地址返回错误时只重试该地址，整个批次失败时重试整个批次。
+     *
+     * @param addresses   钱包地址集合
+     * @param blockNumber 区块高度
+     * @return 查询结果
+     */
+    public Result fetch(Collection<String> addresses, BigInteger blockNumber) {
+        DefaultBlockParameter block = DefaultBlockParameter.valueOf(blockNumber);
+        List<String> pending = new ArrayList<>(new LinkedHashSet<>(addresses));
+        Map<String, BigInteger> balances = new ConcurrentHashMap<>(pending.size() * 2);
+        Map<String, String> failures = new ConcurrentHashMap<>();
+
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        try {
+            for (int attempt = 1; attempt <= MAX_ATTEMPTS && !pending.isEmpty(); attempt++) {
+                failures.clear();
+                List<Future<?>> futures = new ArrayList<>();
+                for (int from = 0; from < pending.size(); from += batchSize) {
+                    List<String> chunk = pending.subList(from, Math.min(from + batchSize, pending.size()));
+                    futures.add(executor.submit(() -> sendBatch(chunk, block, balances, failures)));
+                }
+                for (Future<?> future : futures) {
+                    try {
+                        future.get();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IllegalStateException("Interrupted while fetching balances", e);
+                    } catch (ExecutionException e) {
+                        throw new IllegalStateException("Balance batch failed unexpectedly", e.getCause());
+                    }
+                }
+                pending = new ArrayList<>(failures.keySet());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // 按输入顺序整理结果
+        Map<String, BigDecimal> ordered = new LinkedHashMap<>(balances.size() * 2);
+        for (String address : addresses) {
+            BigInteger wei = balances.get(address);
+            if (wei != null) {
+                ordered.put(address, Convert.fromWei(new BigDecimal(wei), Convert.Unit.ETHER));
+            }
+        }
+        return new Result(blockNumber, ordered, new HashMap<>(failures));
+    }
+
+    /**
+     * 发送一个批量请求，并把结果写入 balances，失败的地址写入 failures。
+     */
+    private void sendBatch(List<String> chunk, DefaultBlockParameter block,
+                           Map<String, BigInteger> balances, Map<String, String> failures) {
+        BatchRequest batch = web3j.newBatch();
+        Map<Long, String> addressById = new HashMap<>(chunk.size() * 2);
+        for (String address : chunk) {
+            Request<?, EthGetBalance> request = web3j.ethGetBalance(address, block);
+            addressById.put(request.getId(), address);
+            batch.add(request);
+        }
+
+        BatchResponse batchResponse;
+        try {
+            batchResponse = batch.send();
+        } catch (IOException | RuntimeException e) {
+            for (String address : chunk) {
+                failures.put(address, "Batch request failed: " + e.getMessage());
+            }
+            return;
+        }
+
+        // 批量响应的顺序不保证与请求一致，按 id 对应
+        for (Response<?> response : batchResponse.getResponses()) {
+            String address = addressById.remove(response.getId());
+            if (address == null) {
+                continue;
+            }
+            if (response.hasError()) {
+                failures.put(address, response.getError().getMessage());
+            } else {
+                balances.put(address, ((EthGetBalance) response).getBalance());
+            }
+        }
+        for (String missing : addressById.values()) {
+            failures.put(missing, "No response in batch");
+        }
+    }
+
+    /**
+     * 批量余额查询结果。
+     */
+    public static class Result {
+        private final BigInteger blockNumber;
+        private final Map<String, BigDecimal> balances;
+        private final Map<String, String> failures;
+
+        Result(BigInteger blockNumber, Map<String, BigDecimal> balances, Map<String, String> failures) {
+            this.blockNumber = blockNumber;
+            this.balances = Collections.unmodifiableMap(balances);
+            this.failures = Collections.unmodifiableMap(failures);
+        }
+
+        /**
+         * 所有余额对应的区块高度。
+         */
+        public BigInteger getBlockNumber() {
+            return blockNumber;
+        }
+
+        /**
+         * 地址到 ETH 余额（Ether 单位）的映射，按输入顺序排列。
+         */
+        public Map<String, BigDecimal> getBalances() {
+            return balances;
+        }
+
+        /**
+         * 多次重试后仍然失败的地址及错误信息。
+         */
+        public Map<String, String> getFailures() {
+            return failures;
+        }
+    }
+}
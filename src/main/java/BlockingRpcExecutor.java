@@ -0,0 +1,160 @@
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 阻塞式 RPC 调用（web3j 的 send()）的执行器。
+ * 运行在 JDK 21+ 时每个调用使用一个虚拟线程，几万个并发读取不需要调整线程池；更早的 JDK 退回固定大小的平台线程池。
+ * invokeAll 按结构化并发的方式使用：提交一组调用，全部成功时按顺序返回结果，任一失败时取消其余调用并抛出第一个错误。
+ * 同时在途的 HTTP 请求数由 RoutingHttpService 的单节点上限控制，多余的虚拟线程在信号量上挂起，不占用平台线程。
+ * 虚拟线程模式下 Web3Utils 的 OkHttpClient 只使用 HTTP/1.1，见 {@link #isVirtualThreadsSupported()}。
+ */
+public class BlockingRpcExecutor implements AutoCloseable {
+
+    // 没有虚拟线程时的平台线程数
+    public static final int FALLBACK_THREADS = 256;
+
+    private final ExecutorService executor;
+    private final boolean virtualThreads;
+
+    /**
+     * 当前 JDK 是否能创建虚拟线程执行器。
+     * 能创建时共享的 OkHttpClient 只使用 HTTP/1.1：OkHttp 4.3.1 的 Http2Stream.takeHeaders 是 synchronized 方法，
+     * 虚拟线程在其中等待响应头时会钉住载体线程，几个慢请求就能占满所有载体线程；
+     * HTTP/1.1 下等待发生在 socket 读取上，虚拟线程可以正常卸载。
+     */
+    public static boolean isVirtualThreadsSupported() {
+        return VirtualThreadSupport.SUPPORTED;
+    }
+
+    public BlockingRpcExecutor() {
+        ExecutorService virtual = newVirtualThreadExecutor();
+        this.virtualThreads = virtual != null;
+        this.executor = virtual != null ? virtual : newPlatformThreadExecutor(FALLBACK_THREADS);
+    }
+
+    /**
+     * 通过反射创建虚拟线程执行器，使代码仍可按 Java 8 编译；当前 JDK 不支持时返回 null。
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // JDK 21 之前没有该方法，JDK 19/20 未开启预览特性时调用会失败
+            return null;
+        }
+    }
+
+    /**
+     * 首次使用时检测一次虚拟线程支持。
+     */
+    private static final class VirtualThreadSupport {
+        private static final boolean SUPPORTED = detect();
+
+        private static boolean detect() {
+            ExecutorService executor = newVirtualThreadExecutor();
+            if (executor == null) {
+                return false;
+            }
+            executor.shutdown();
+            return true;
+        }
+    }
+
+    private static ExecutorService newPlatformThreadExecutor(int threads) {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory factory = runnable -> {
+            Thread thread = new Thread(runnable, "blocking-rpc-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return Executors.newFixedThreadPool(threads, factory);
+    }
+
+    /**
+     * 是否使用虚拟线程。
+     */
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * 提交单个调用。
+     */
+    public <T> Future<T> submit(Callable<T> call) {
+        return executor.submit(call);
+    }
+
+    /**
+     * 并发执行一组调用并等待全部完成。
+     *
+     * @param calls 阻塞调用列表
+     * @return 与输入顺序一致的结果
+     * @throws IOException 第一个失败的调用抛出的 IOException（其他异常包装为 IOException）；此时其余调用已被取消
+     */
+    public <T> List<T> invokeAll(List<? extends Callable<T>> calls) throws IOException {
+        if (calls.isEmpty()) {
+            return Collections.emptyList();
+        }
+        CompletionService<T> completion = new ExecutorCompletionService<>(executor);
+        List<Future<T>> futures = new ArrayList<>(calls.size());
+        try {
+            for (Callable<T> call : calls) {
+                futures.add(completion.submit(call));
+            }
+            // 按完成顺序检查，第一个失败的调用立即触发取消
+            for (int i = 0; i < calls.size(); i++) {
+                completion.take().get();
+            }
+            List<T> results = new ArrayList<>(calls.size());
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            cancelAll(futures);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for RPC calls");
+        } catch (ExecutionException e) {
+            cancelAll(futures);
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException("RPC call failed: " + cause.getMessage(), cause);
+        } catch (RuntimeException e) {
+            // 执行器已关闭等提交失败的情况
+            cancelAll(futures);
+            throw e;
+        }
+    }
+
+    private static void cancelAll(List<? extends Future<?>> futures) {
+        for (Future<?> future : futures) {
+            // 中断正在阻塞的请求；OkHttp 会以 InterruptedIOException 结束
+            future.cancel(true);
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
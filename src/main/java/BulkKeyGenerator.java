@@ -0,0 +1,382 @@
+import org.bouncycastle.math.ec.ECPoint;
+import org.web3j.crypto.Hash;
+import org.web3j.crypto.Sign;
+import org.web3j.utils.Numeric;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 多核批量生成私钥和地址。
+ * 每个工作线程使用自己的 SecureRandom，直接在字节数组上计算公钥和地址，不经过十六进制字符串；
+ * 结果以定长记录（私钥 32 字节 + 地址 20 字节）写入输出流。
+ * 另外支持按地址前缀搜索（靓号模式），并定期输出进度和速率。
+ */
+public class BulkKeyGenerator {
+
+    public static final int PRIVATE_KEY_LENGTH = 32;
+    public static final int ADDRESS_LENGTH = 20;
+    public static final int RECORD_LENGTH = PRIVATE_KEY_LENGTH + ADDRESS_LENGTH;
+
+    private static final BigInteger CURVE_ORDER = Sign.CURVE_PARAMS.getN();
+    private static final ECPoint GENERATOR = Sign.CURVE_PARAMS.getG();
+    // 每个工作线程一次生成的记录数
+    private static final int BATCH_RECORDS = 1024;
+    private static final long REPORT_INTERVAL_SECONDS = 5;
+
+    private final int threads;
+
+    public BulkKeyGenerator() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param threads 工作线程数
+     */
+    public BulkKeyGenerator(int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("threads must be positive");
+        }
+        this.threads = threads;
+    }
+
+    /**
+     * 读取记录的回调。
+     */
+    public interface RecordHandler {
+        void onRecord(byte[] privateKey, byte[] address);
+    }
+
+    /**
+     * 靓号搜索结果。
+     */
+    public static final class VanityResult {
+        private final byte[] privateKey;
+        private final byte[] address;
+        private final long attempts;
+
+        private VanityResult(byte[] privateKey, byte[] address, long attempts) {
+            this.privateKey = privateKey;
+            this.address = address;
+            this.attempts = attempts;
+        }
+
+        public byte[] getPrivateKey() {
+            return privateKey;
+        }
+
+        public byte[] getAddress() {
+            return address;
+        }
+
+        /**
+         * 找到结果前尝试的地址数。
+         */
+        public long getAttempts() {
+            return attempts;
+        }
+
+        public String getPrivateKeyHex() {
+            return Numeric.toHexStringNoPrefix(privateKey);
+        }
+
+        public String getAddressHex() {
+            return Numeric.toHexString(address);
+        }
+    }
+
+    /**
+     * 根据私钥计算地址，写入 out[offset, offset + 20)。
+     *
+     * @param privateKey 32 字节私钥
+     */
+    public static void deriveAddress(byte[] privateKey, byte[] out, int offset) {
+        writeAddress(Sign.publicPointFromPrivate(new BigInteger(1, privateKey)), out, offset);
+    }
+
+    /**
+     * 生成 count 个私钥和地址，按定长记录写入输出流。记录之间的顺序不固定。
+     *
+     * @param count 生成数量
+     * @param out   输出流，方法不会关闭它
+     * @throws IOException 写入失败或生成线程出错
+     */
+    public void generate(long count, OutputStream out) throws IOException {
+        BlockingQueue<byte[]> queue = new ArrayBlockingQueue<>(threads * 4);
+        AtomicLong remaining = new AtomicLong(count);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> workers = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            workers.add(executor.submit(() -> {
+                SecureRandom random = new SecureRandom();
+                while (true) {
+                    long claimed = remaining.getAndAdd(-BATCH_RECORDS);
+                    if (claimed <= 0) {
+                        return null;
+                    }
+                    int records = (int) Math.min(BATCH_RECORDS, claimed);
+                    byte[] block = new byte[records * RECORD_LENGTH];
+                    for (int r = 0; r < records; r++) {
+                        fillRecord(random, block, r * RECORD_LENGTH);
+                    }
+                    queue.put(block);
+                }
+            }));
+        }
+
+        long written = 0;
+        long startNanos = System.nanoTime();
+        long nextReport = startNanos + TimeUnit.SECONDS.toNanos(REPORT_INTERVAL_SECONDS);
+        try {
+            while (written < count) {
+                byte[] block = queue.poll(1, TimeUnit.SECONDS);
+                if (block == null) {
+                    checkWorkers(workers);
+                    continue;
+                }
+                out.write(block);
+                written += block.length / RECORD_LENGTH;
+                if (System.nanoTime() >= nextReport) {
+                    report("Key generation", written, startNanos);
+                    nextReport += TimeUnit.SECONDS.toNanos(REPORT_INTERVAL_SECONDS);
+                }
+            }
+            out.flush();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Key generation interrupted", e);
+        } finally {
+            executor.shutdownNow();
+        }
+        report("Key generation finished", written, startNanos);
+    }
+
+    /**
+     * 生成 count 个私钥和地址写入文件。
+     */
+    public void generate(long count, Path file) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file), 1 << 16)) {
+            generate(count, out);
+        }
+    }
+
+    /**
+     * 依次读取 generate 写出的记录。
+     *
+     * @return 读取的记录数
+     */
+    public static long read(InputStream in, RecordHandler handler) throws IOException {
+        InputStream input = new BufferedInputStream(in, 1 << 16);
+        byte[] record = new byte[RECORD_LENGTH];
+        long count = 0;
+        while (true) {
+            int read = 0;
+            while (read < RECORD_LENGTH) {
+                int n = input.read(record, read, RECORD_LENGTH - read);
+                if (n < 0) {
+                    if (read == 0) {
+                        return count;
+                    }
+                    throw new EOFException("Truncated key record at index " + count);
+                }
+                read += n;
+            }
+            byte[] privateKey = new byte[PRIVATE_KEY_LENGTH];
+            byte[] address = new byte[ADDRESS_LENGTH];
+            System.arraycopy(record, 0, privateKey, 0, PRIVATE_KEY_LENGTH);
+            System.arraycopy(record, PRIVATE_KEY_LENGTH, address, 0, ADDRESS_LENGTH);
+            handler.onRecord(privateKey, address);
+            count++;
+        }
+    }
+
+    /**
+     * 搜索地址以指定前缀开头的私钥（不区分大小写）。
+     * 每个线程从一个随机私钥 k 开始，之后依次尝试 k+1、k+2……，公钥只需一次点加而不是完整的标量乘法。
+     *
+     * @param hexPrefix 地址前缀，可带 "0x"
+     * @return 找到的私钥和地址
+     */
+    public VanityResult findVanity(String hexPrefix) throws InterruptedException {
+        String prefix = Numeric.cleanHexPrefix(hexPrefix).toLowerCase();
+        if (prefix.length() > ADDRESS_LENGTH * 2 || !prefix.matches("[0-9a-f]*")) {
+            throw new IllegalArgumentException("Invalid address prefix: " + hexPrefix);
+        }
+        byte[] nibbles = new byte[prefix.length()];
+        for (int i = 0; i < nibbles.length; i++) {
+            nibbles[i] = (byte) Character.digit(prefix.charAt(i), 16);
+        }
+
+        CompletableFuture<VanityResult> result = new CompletableFuture<>();
+        AtomicBoolean found = new AtomicBoolean();
+        LongAdder attempts = new LongAdder();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int i = 0; i < threads; i++) {
+            executor.submit(() -> {
+                try {
+                    searchVanity(nibbles, found, attempts, result);
+                } catch (RuntimeException e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        }
+
+        long startNanos = System.nanoTime();
+        double expected = Math.pow(16, nibbles.length);
+        try {
+            while (true) {
+                try {
+                    VanityResult vanity = result.get(REPORT_INTERVAL_SECONDS, TimeUnit.SECONDS);
+                    report("Vanity search finished", vanity.getAttempts(), startNanos);
+                    return vanity;
+                } catch (TimeoutException e) {
+                    long tried = attempts.sum();
+                    report("Vanity search", tried, startNanos);
+                    System.out.printf("  prefix %s: expected ~%.0f attempts, %.1f%% of expectation%n",
+                            prefix, expected, tried * 100.0 / expected);
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("Vanity search failed", e.getCause());
+                }
+            }
+        } finally {
+            found.set(true);
+            executor.shutdownNow();
+        }
+    }
+
+    private static void searchVanity(byte[] nibbles, AtomicBoolean found, LongAdder attempts,
+                                     CompletableFuture<VanityResult> result) {
+        SecureRandom random = new SecureRandom();
+        byte[] address = new byte[ADDRESS_LENGTH];
+        BigInteger start = randomPrivateKey(random);
+        ECPoint point = Sign.publicPointFromPrivate(start);
+        long offset = 0;
+        long pending = 0;
+        while (!found.get()) {
+            writeAddress(point, address, 0);
+            pending++;
+            if (matches(address, nibbles)) {
+                attempts.add(pending);
+                if (found.compareAndSet(false, true)) {
+                    BigInteger key = start.add(BigInteger.valueOf(offset)).mod(CURVE_ORDER);
+                    result.complete(new VanityResult(Numeric.toBytesPadded(key, PRIVATE_KEY_LENGTH), address, attempts.sum()));
+                }
+                return;
+            }
+            if (pending == 256) {
+                attempts.add(pending);
+                pending = 0;
+            }
+            point = point.add(GENERATOR);
+            offset++;
+        }
+    }
+
+    private static boolean matches(byte[] address, byte[] nibbles) {
+        for (int i = 0; i < nibbles.length; i++) {
+            int b = address[i >> 1] & 0xFF;
+            int nibble = (i & 1) == 0 ? b >>> 4 : b & 0x0F;
+            if (nibble != nibbles[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void fillRecord(SecureRandom random, byte[] block, int offset) {
+        BigInteger privateKey = randomPrivateKey(random);
+        byte[] keyBytes = Numeric.toBytesPadded(privateKey, PRIVATE_KEY_LENGTH);
+        System.arraycopy(keyBytes, 0, block, offset, PRIVATE_KEY_LENGTH);
+        writeAddress(Sign.publicPointFromPrivate(privateKey), block, offset + PRIVATE_KEY_LENGTH);
+    }
+
+    /**
+     * 生成 [1, n) 范围内的随机私钥。
+     */
+    private static BigInteger randomPrivateKey(SecureRandom random) {
+        byte[] bytes = new byte[PRIVATE_KEY_LENGTH];
+        while (true) {
+            random.nextBytes(bytes);
+            BigInteger key = new BigInteger(1, bytes);
+            if (key.signum() > 0 && key.compareTo(CURVE_ORDER) < 0) {
+                return key;
+            }
+        }
+    }
+
+    /**
+     * 地址为未压缩公钥（去掉 0x04 前缀的 64 字节）keccak256 哈希的后 20 字节。
+     */
+    private static void writeAddress(ECPoint publicPoint, byte[] out, int offset) {
+        byte[] encoded = publicPoint.getEncoded(false);
+        byte[] hash = Hash.sha3(encoded, 1, 64);
+        System.arraycopy(hash, hash.length - ADDRESS_LENGTH, out, offset, ADDRESS_LENGTH);
+    }
+
+    private static void checkWorkers(List<Future<?>> workers) throws IOException, InterruptedException {
+        for (Future<?> worker : workers) {
+            if (worker.isDone()) {
+                try {
+                    worker.get();
+                } catch (ExecutionException e) {
+                    throw new IOException("Key generation worker failed", e.getCause());
+                }
+            }
+        }
+    }
+
+    private static void report(String stage, long count, long startNanos) {
+        double seconds = (System.nanoTime() - startNanos) / 1_000_000_000.0;
+        System.out.printf("%s: %d keys in %.1fs (%.0f keys/s)%n",
+                stage, count, seconds, seconds > 0 ? count / seconds : 0.0);
+    }
+
+    public static void main(String[] args) throws Exception {
+        BulkKeyGenerator generator = new BulkKeyGenerator();
+
+        // 批量生成地址并写入文件
+        Path file = Files.createTempFile("keys", ".bin");
+        generator.generate(10_000, file);
+
+        // 抽查第一条记录：与 Wallet 的结果一致
+        try (InputStream in = Files.newInputStream(file)) {
+            long[] checked = new long[1];
+            BulkKeyGenerator.read(in, (privateKey, address) -> {
+                if (checked[0]++ == 0) {
+                    String expected = Wallet.getWalletAddressFromPrivateKeyHex(Numeric.toHexStringNoPrefix(privateKey));
+                    System.out.println("First record " + Numeric.toHexString(address) + " matches Wallet: "
+                            + expected.equalsIgnoreCase(Numeric.toHexString(address)));
+                }
+            });
+            System.out.println("Read " + checked[0] + " records from " + file);
+        }
+        Files.delete(file);
+
+        // 靓号搜索
+        VanityResult vanity = generator.findVanity("0xbeef");
+        System.out.println("Vanity address " + vanity.getAddressHex() + " private key " + vanity.getPrivateKeyHex()
+                + ", Wallet address " + Wallet.getWalletAddressFromPrivateKeyHex(vanity.getPrivateKeyHex()));
+    }
+}
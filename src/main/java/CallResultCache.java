@@ -0,0 +1,249 @@
+import io.reactivex.disposables.Disposable;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameter;
+import org.web3j.protocol.core.methods.request.Transaction;
+import org.web3j.protocol.core.methods.response.EthCall;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 按区块缓存 eth_call 结果。
+ * 缓存键为（合约地址，调用数据，区块号），容量有限并按 LRU 淘汰；SharedBlockPoller 报告新区块时整体失效。
+ * 调用固定在最近观察到的区块上执行，与共享轮询的间隔（默认 2 秒）相比最多落后一个轮询周期。
+ * 相同的并发调用只会向节点发送一次请求。
+ */
+public class CallResultCache {
+
+    public static final int DEFAULT_MAX_ENTRIES = 1024;
+
+    private final Web3j web3j;
+    private final SharedBlockPoller blockPoller;
+    private final int maxEntries;
+    private final Map<Key, String> entries;
+    private final Map<Key, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder deduplicated = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    private volatile BigInteger currentBlock;
+    private Disposable blockSubscription;
+
+    public CallResultCache(Web3j web3j) {
+        this(web3j, DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * @param web3j      Web3j 实例，新区块来自 Web3Utils 中该实例共享的 SharedBlockPoller
+     * @param maxEntries 最大缓存条目数
+     */
+    public CallResultCache(Web3j web3j, int maxEntries) {
+        this(web3j, Web3Utils.getBlockPoller(web3j), maxEntries);
+    }
+
+    /**
+     * @param web3j       Web3j 实例
+     * @param blockPoller 新区块来源
+     * @param maxEntries  最大缓存条目数
+     */
+    public CallResultCache(Web3j web3j, SharedBlockPoller blockPoller, int maxEntries) {
+        this.web3j = web3j;
+        this.blockPoller = blockPoller;
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<Key, String>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, String> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * 开始监听新区块。首次调用 call 时会自动启动。
+     *
+     * @throws IOException 如果获取当前区块号失败
+     */
+    public synchronized void start() throws IOException {
+        if (blockSubscription != null) {
+            return;
+        }
+        onNewBlock(web3j.ethBlockNumber().send().getBlockNumber());
+        // 只关心最新的区块，处理不过来时丢弃积压的旧区块
+        blockSubscription = blockPoller.blockFlowable(1, SharedBlockPoller.OverflowPolicy.DROP_OLDEST).subscribe(
+                block -> onNewBlock(block.getBlock().getNumber()),
+                throwable -> System.err.println("Call cache block subscription error: " + throwable.getMessage())
+        );
+    }
+
+    /**
+     * 停止监听新区块。
+     */
+    public synchronized void stop() {
+        if (blockSubscription != null) {
+            blockSubscription.dispose();
+            blockSubscription = null;
+        }
+    }
+
+    /**
+     * 通知缓存出现了新区块；区块号大于当前值时清空所有缓存条目。
+     *
+     * @param blockNumber 新区块号
+     */
+    public void onNewBlock(BigInteger blockNumber) {
+        synchronized (entries) {
+            if (currentBlock == null || blockNumber.compareTo(currentBlock) > 0) {
+                currentBlock = blockNumber;
+                if (!entries.isEmpty()) {
+                    entries.clear();
+                    invalidations.increment();
+                }
+            }
+        }
+    }
+
+    /**
+     * 在当前区块上执行 eth_call，命中缓存时直接返回。
+     *
+     * @param from     调用方地址
+     * @param contract 合约地址
+     * @param data     编码后的调用数据
+     * @return 调用返回值；节点返回错误时为 null，且不缓存
+     * @throws IOException 如果调用失败
+     */
+    public String call(String from, String contract, String data) throws IOException {
+        if (blockSubscription == null) {
+            start();
+        }
+        BigInteger block = currentBlock;
+        Key key = new Key(contract.toLowerCase(), data, block);
+
+        String cached;
+        synchronized (entries) {
+            cached = entries.get(key);
+        }
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+
+        // 相同的调用已在途时等待其结果
+        CompletableFuture<String> mine = new CompletableFuture<>();
+        CompletableFuture<String> existing = inFlight.putIfAbsent(key, mine);
+        if (existing != null) {
+            deduplicated.increment();
+            return await(existing);
+        }
+
+        misses.increment();
+        try {
+            EthCall response = web3j.ethCall(
+                    Transaction.createEthCallTransaction(from, contract, data),
+                    DefaultBlockParameter.valueOf(block)
+            ).send();
+            String value = response.getValue();
+            if (!response.hasError() && value != null) {
+                synchronized (entries) {
+                    // 请求期间已经出现新区块时不再写入
+                    if (block.equals(currentBlock)) {
+                        entries.put(key, value);
+                    }
+                }
+            }
+            mine.complete(value);
+            return value;
+        } catch (IOException | RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    private static String await(CompletableFuture<String> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * 与在途请求合并、未单独发送的调用次数。
+     */
+    public long getDeduplicated() {
+        return deduplicated.sum();
+    }
+
+    /**
+     * 因新区块而清空缓存的次数。
+     */
+    public long getInvalidations() {
+        return invalidations.sum();
+    }
+
+    public BigInteger getCurrentBlock() {
+        return currentBlock;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("CallResultCache{block=%s, hits=%d, misses=%d, deduplicated=%d, invalidations=%d}",
+                currentBlock, getHits(), getMisses(), getDeduplicated(), getInvalidations());
+    }
+
+    private static final class Key {
+        private final String contract;
+        private final String data;
+        private final BigInteger block;
+        private final int hash;
+
+        private Key(String contract, String data, BigInteger block) {
+            this.contract = contract;
+            this.data = data;
+            this.block = block;
+            this.hash = Objects.hash(contract, data, block);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return contract.equals(other.contract) && data.equals(other.data) && block.equals(other.block);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,398 @@
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.reactivex.disposables.Disposable;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameter;
+import org.web3j.protocol.core.methods.request.EthFilter;
+import org.web3j.protocol.core.methods.response.EthBlock;
+import org.web3j.protocol.core.methods.response.EthLog;
+import org.web3j.protocol.core.methods.response.Log;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 防分叉的确认事件流。
+ * 用环形缓冲区记录最近的区块哈希，区块获得指定确认数后才发出其中的事件；
+ * 如果链重组替换了已发出的区块，会对这些区块中的事件发出撤回通知。
+ * 重组深度超过保留的历史时撤回所有保留的区块，按当前链继续，并通过 onHistoryGap 报告无法核对的范围。
+ */
+public class ConfirmedEventStream {
+
+    /**
+     * 区块链数据来源。可以是真实节点，也可以是用于测试的本地模拟链。
+     */
+    public interface ChainSource {
+        /**
+         * 当前最新区块号。
+         */
+        long latestBlockNumber() throws IOException;
+
+        /**
+         * 指定高度的区块头，不存在时返回 null。
+         */
+        BlockHeader header(long number) throws IOException;
+
+        /**
+         * 指定哈希的区块中符合条件的日志；节点上找不到该区块时返回 null。
+         */
+        List<Log> logs(long number, String blockHash) throws IOException;
+    }
+
+    /**
+     * 事件回调，所有回调都在轮询线程上按顺序执行。
+     */
+    public interface Listener {
+        default void onBlockConfirmed(BlockHeader header) {
+        }
+
+        default void onLogConfirmed(Log log) {
+        }
+
+        /**
+         * 已发出的日志所在区块被重组替换。
+         */
+        default void onLogRetracted(Log log) {
+        }
+
+        /**
+         * 已发出的区块被重组替换。
+         */
+        default void onBlockRetracted(BlockHeader header) {
+        }
+
+        /**
+         * 重组深度超过保留的历史，找不到分叉点。保留的区块已经撤回，之后从 resumeBlock 起按当前链重新发出；
+         * resumeBlock 之前已发出的区块可能也已被替换但无法撤回，需要调用方自行核对（如重新扫描这段范围）。
+         *
+         * @param resumeBlock 重新发出的第一个区块号
+         */
+        default void onHistoryGap(long resumeBlock) {
+        }
+    }
+
+    /**
+     * 区块头中与分叉检测相关的字段。
+     */
+    public static final class BlockHeader {
+        private final long number;
+        private final String hash;
+        private final String parentHash;
+
+        public BlockHeader(long number, String hash, String parentHash) {
+            this.number = number;
+            this.hash = hash;
+            this.parentHash = parentHash;
+        }
+
+        public long getNumber() {
+            return number;
+        }
+
+        public String getHash() {
+            return hash;
+        }
+
+        public String getParentHash() {
+            return parentHash;
+        }
+
+        @Override
+        public String toString() {
+            return "Block{" + number + ", " + hash + "}";
+        }
+    }
+
+    private final ChainSource source;
+    private final int confirmations;
+    private final Listener listener;
+    // 环形缓冲区：第 n 个区块保存在 n % capacity 位置
+    private final Slot[] slots;
+    private final long startBlock;
+
+    private long tip;
+    // 下一个待发出的区块号
+    private long emitCursor;
+    private ScheduledExecutorService scheduler;
+    private Disposable blockSubscription;
+
+    /**
+     * @param source        区块链数据来源
+     * @param confirmations 发出事件所需的确认数（1 表示区块出现后立即发出）
+     * @param historySize   保留的最近区块数，决定可处理的最大重组深度，须大于确认数
+     * @param startBlock    第一个需要处理的区块号
+     * @param listener      事件回调
+     */
+    public ConfirmedEventStream(ChainSource source, int confirmations, int historySize, long startBlock, Listener listener) {
+        if (confirmations < 1 || historySize <= confirmations) {
+            throw new IllegalArgumentException("historySize must be greater than confirmations (>= 1)");
+        }
+        this.source = source;
+        this.confirmations = confirmations;
+        this.listener = listener;
+        this.slots = new Slot[historySize];
+        this.startBlock = startBlock;
+        this.tip = startBlock - 1;
+        this.emitCursor = startBlock;
+    }
+
+    /**
+     * 基于 Web3j 的数据来源，日志按 template 中的合约地址和 topics 过滤。
+     * 日志用 EIP-234 的 blockHash 参数按区块哈希查询，返回的日志一定属于该区块，即使区块中没有日志也不会混入替换后的区块。
+     */
+    public static ChainSource web3jSource(Web3j web3j, EthFilter template) {
+        return new ChainSource() {
+            @Override
+            public long latestBlockNumber() throws IOException {
+                return web3j.ethBlockNumber().send().getBlockNumber().longValueExact();
+            }
+
+            @Override
+            public BlockHeader header(long number) throws IOException {
+                EthBlock.Block block = web3j.ethGetBlockByNumber(
+                        DefaultBlockParameter.valueOf(BigInteger.valueOf(number)), false).send().getBlock();
+                return block == null ? null : new BlockHeader(number, block.getHash(), block.getParentHash());
+            }
+
+            @Override
+            public List<Log> logs(long number, String blockHash) throws IOException {
+                if (template == null) {
+                    return Collections.emptyList();
+                }
+                EthFilter filter = new BlockHashFilter(blockHash, template.getAddress());
+                filter.getTopics().addAll(template.getTopics());
+                EthLog response = web3j.ethGetLogs(filter).send();
+                if (response.hasError()) {
+                    if (isUnknownBlock(response.getError().getMessage())) {
+                        return null;
+                    }
+                    throw new IOException("eth_getLogs failed for block " + number + ": " + response.getError().getMessage());
+                }
+                List<Log> logs = new ArrayList<>(response.getLogs().size());
+                for (EthLog.LogResult<?> result : response.getLogs()) {
+                    Log log = (Log) result.get();
+                    if (!blockHash.equalsIgnoreCase(log.getBlockHash())) {
+                        return null;
+                    }
+                    logs.add(log);
+                }
+                return logs;
+            }
+        };
+    }
+
+    /**
+     * 判断节点错误是否说明找不到指定哈希的区块。
+     */
+    static boolean isUnknownBlock(String message) {
+        if (message == null) {
+            return false;
+        }
+        String lower = message.toLowerCase();
+        return lower.contains("unknown block") || lower.contains("not found");
+    }
+
+    /**
+     * 按区块哈希查询的 eth_getLogs 过滤条件（EIP-234），不包含 fromBlock 和 toBlock。
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    static final class BlockHashFilter extends EthFilter {
+        private final String blockHash;
+
+        BlockHashFilter(String blockHash, List<String> address) {
+            super(null, null, address);
+            this.blockHash = blockHash;
+        }
+
+        public String getBlockHash() {
+            return blockHash;
+        }
+    }
+
+    /**
+     * 按固定间隔在后台轮询。
+     *
+     * @param interval 轮询间隔
+     * @param unit     时间单位
+     */
+    public synchronized void start(long interval, TimeUnit unit) {
+        if (scheduler != null || blockSubscription != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                poll();
+            } catch (Exception e) {
+                System.err.println("Confirmed event stream error: " + e.getMessage());
+            }
+        }, 0, interval, unit);
+    }
+
+    /**
+     * 每出现一个新区块轮询一次，与其他组件共用 SharedBlockPoller 的区块轮询，不再单独按间隔轮询。
+     *
+     * @param poller 新区块来源
+     */
+    public synchronized void start(SharedBlockPoller poller) {
+        if (scheduler != null || blockSubscription != null) {
+            return;
+        }
+        // 只关心有新区块，积压的区块通知合并成一次轮询
+        blockSubscription = poller.blockFlowable(1, SharedBlockPoller.OverflowPolicy.DROP_OLDEST).subscribe(
+                block -> {
+                    try {
+                        poll();
+                    } catch (Exception e) {
+                        System.err.println("Confirmed event stream error: " + e.getMessage());
+                    }
+                },
+                throwable -> System.err.println("Confirmed event stream block subscription error: " + throwable.getMessage()));
+    }
+
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+        if (blockSubscription != null) {
+            blockSubscription.dispose();
+            blockSubscription = null;
+        }
+    }
+
+    /**
+     * 拉取新区块，处理重组，并发出已达到确认数的事件。
+     *
+     * @throws IOException 如果与数据来源通信失败
+     */
+    public synchronized void poll() throws IOException {
+        // 当前最高区块被替换（同高度重组）
+        Slot tipSlot = slot(tip);
+        if (tipSlot != null) {
+            BlockHeader current = source.header(tip);
+            if (current == null || !current.getHash().equalsIgnoreCase(tipSlot.header.getHash())) {
+                rollback(tip);
+            }
+        }
+
+        long latest = source.latestBlockNumber();
+        while (tip < latest) {
+            long number = tip + 1;
+            BlockHeader header = source.header(number);
+            if (header == null) {
+                break;
+            }
+            Slot parent = slot(number - 1);
+            if (parent != null && !parent.header.getHash().equalsIgnoreCase(header.getParentHash())) {
+                rollback(number - 1);
+                continue;
+            }
+            slots[index(number)] = new Slot(header);
+            tip = number;
+            // 每前进一个区块就检查发出，避免追赶大量区块时未发出的区块被环形缓冲区覆盖
+            if (!emitConfirmed()) {
+                break;
+            }
+        }
+        emitConfirmed();
+    }
+
+    /**
+     * 从 fromNumber 开始向前查找与链上一致的区块（分叉点），撤回分叉点之后已发出的区块。
+     * 保留的历史中找不到分叉点时撤回全部保留的区块，从最早保留的区块开始按当前链重新同步。
+     */
+    private void rollback(long fromNumber) throws IOException {
+        long forkPoint = fromNumber;
+        boolean beyondHistory = false;
+        while (true) {
+            Slot slot = slot(forkPoint);
+            if (slot == null) {
+                // 起始区块之前没有历史，无需继续比较
+                beyondHistory = forkPoint >= startBlock;
+                break;
+            }
+            BlockHeader current = source.header(forkPoint);
+            if (current != null && current.getHash().equalsIgnoreCase(slot.header.getHash())) {
+                break;
+            }
+            forkPoint--;
+        }
+
+        for (long number = tip; number > forkPoint; number--) {
+            Slot slot = slot(number);
+            if (slot == null) {
+                continue;
+            }
+            if (slot.emittedLogs != null) {
+                for (int i = slot.emittedLogs.size() - 1; i >= 0; i--) {
+                    listener.onLogRetracted(slot.emittedLogs.get(i));
+                }
+                listener.onBlockRetracted(slot.header);
+            }
+            slots[index(number)] = null;
+        }
+        tip = forkPoint;
+        emitCursor = Math.min(emitCursor, forkPoint + 1);
+        if (beyondHistory) {
+            listener.onHistoryGap(forkPoint + 1);
+        }
+    }
+
+    /**
+     * 依次发出确认数已满足且尚未发出的区块。
+     *
+     * @return 区块在获取日志期间被替换时返回 false
+     */
+    private boolean emitConfirmed() throws IOException {
+        long confirmedHeight = tip - confirmations + 1;
+        while (emitCursor <= confirmedHeight) {
+            Slot slot = slot(emitCursor);
+            if (slot == null) {
+                throw new IOException("Block " + emitCursor + " left the history window before confirmation");
+            }
+            List<Log> logs = source.logs(emitCursor, slot.header.getHash());
+            if (logs == null) {
+                // 区块在获取日志期间被替换，下次轮询时处理重组
+                return false;
+            }
+            listener.onBlockConfirmed(slot.header);
+            for (Log log : logs) {
+                listener.onLogConfirmed(log);
+            }
+            slot.emittedLogs = logs;
+            emitCursor++;
+        }
+        return true;
+    }
+
+    private Slot slot(long number) {
+        if (number < 0 || number > tip || number <= tip - slots.length) {
+            return null;
+        }
+        Slot slot = slots[index(number)];
+        return slot != null && slot.header.getNumber() == number ? slot : null;
+    }
+
+    private int index(long number) {
+        return (int) (number % slots.length);
+    }
+
+    /**
+     * 环形缓冲区中的一个区块。
+     */
+    private static final class Slot {
+        private final BlockHeader header;
+        // 已发出的日志，未发出时为 null
+        private List<Log> emittedLogs;
+
+        private Slot(BlockHeader header) {
+            this.header = header;
+        }
+    }
+}
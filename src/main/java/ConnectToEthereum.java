@@ -2,6 +2,11 @@ import org.web3j.protocol.Web3j;
 import org.web3j.protocol.core.DefaultBlockParameter;
 import org.web3j.protocol.core.DefaultBlockParameterNumber;
 
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+
 public class ConnectToEthereum {
 
     public static Web3j web3j = Web3Utils.getWeb3j();
@@ -9,9 +14,17 @@ public class ConnectToEthereum {
 
         try {
             System.out.println("welcome to web3j");
-            System.out.println(web3j.web3ClientVersion().send().getWeb3ClientVersion());
-            DefaultBlockParameter defaultBlockParameter = new DefaultBlockParameterNumber(web3j.ethBlockNumber().send().getBlockNumber());
+            // 互不依赖的查询并发执行
+            List<Callable<Object>> calls = Arrays.asList(
+                    () -> web3j.web3ClientVersion().send().getWeb3ClientVersion(),
+                    () -> web3j.ethBlockNumber().send().getBlockNumber());
+            List<Object> results = Web3Utils.getBlockingExecutor().invokeAll(calls);
+            System.out.println(results.get(0));
+            DefaultBlockParameter defaultBlockParameter = new DefaultBlockParameterNumber((BigInteger) results.get(1));
             System.out.println(web3j.ethGetBalance(CommonConstant.WALLET_ADDRESS, defaultBlockParameter).send().getBalance());
+
+            // 输出各 RPC 方法的延迟和流量统计
+            System.out.print(Web3Utils.getMetrics().dump());
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -2,23 +2,20 @@ import org.web3j.abi.FunctionEncoder;
 import org.web3j.abi.TypeReference;
 import org.web3j.abi.datatypes.Function;
 import org.web3j.abi.datatypes.Type;
-import org.web3j.abi.datatypes.generated.Uint256;
 import org.web3j.crypto.Credentials;
 import org.web3j.protocol.Web3j;
 import org.web3j.protocol.core.DefaultBlockParameterName;
 import org.web3j.protocol.core.methods.request.Transaction;
 import org.web3j.protocol.core.methods.response.EthCall;
-import org.web3j.protocol.core.methods.response.EthChainId;
 import org.web3j.protocol.core.methods.response.EthSendTransaction;
-import org.web3j.tx.RawTransactionManager;
-import org.web3j.tx.gas.DefaultGasProvider;
+import org.web3j.protocol.core.methods.response.TransactionReceipt;
 
 import java.io.IOException;
 import java.math.BigInteger;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * 用于演示如何通过 Web3j 在 Java 中与以太坊智能合约进行交互。
@@ -36,6 +33,47 @@ public class ContractInteraction {
     // 根据私钥创建凭证对象
     private static final Credentials credentials = Credentials.create(PRIVATE_KEY);
 
+    // Gas 价格由后台按区块刷新的预言机提供
+    private static final FeeOracle feeOracle = Web3Utils.getFeeOracle(web3j);
+
+    // 交易管理器（本地分配 nonce），首次发送交易时创建
+    private static ManagedNonceTransactionManager transactionManager;
+
+    // setValue / getValue 的预编译编码器，签名只解析一次
+    private static final PrecompiledFunction SET_VALUE = PrecompiledFunction.compile("setValue(uint256)");
+    private static final PrecompiledFunction GET_VALUE = PrecompiledFunction.compile("getValue()", "uint256");
+
+    // 只读调用结果缓存，默认关闭
+    private static volatile CallResultCache callCache;
+
+    /**
+     * 启用只读调用的区块级缓存。
+     * 已经启用且容量相同时返回现有缓存；容量不同时停止现有缓存，换成新容量的缓存。
+     *
+     * @param maxEntries 最大缓存条目数
+     * @return 缓存对象，可用于查看命中统计
+     */
+    public static synchronized CallResultCache enableCallCache(int maxEntries) {
+        if (callCache != null && callCache.getMaxEntries() == maxEntries) {
+            return callCache;
+        }
+        if (callCache != null) {
+            callCache.stop();
+        }
+        callCache = new CallResultCache(web3j, maxEntries);
+        return callCache;
+    }
+
+    /**
+     * 关闭只读调用缓存。
+     */
+    public static synchronized void disableCallCache() {
+        if (callCache != null) {
+            callCache.stop();
+            callCache = null;
+        }
+    }
+
     /**
      * 调用只读函数（不会修改链上状态）。
      *
@@ -47,7 +85,39 @@ public class ContractInteraction {
      */
     public static String callContract(String functionName, List<Type> inputParameters, List<TypeReference<?>> outputParameters) throws IOException {
         Function function = new Function(functionName, inputParameters, outputParameters);
-        String encodedFunction = FunctionEncoder.encode(function);
+        return call(FunctionEncoder.encode(function));
+    }
+
+    /**
+     * 查询合约的 value 值，使用预编译的编码器和解码器。
+     *
+     * @return 当前 value 值
+     * @throws IOException 如果调用失败
+     */
+    public static BigInteger getValue() throws IOException {
+        return GET_VALUE.decodeUint256(call(GET_VALUE.encode()));
+    }
+
+    /**
+     * 异步发送 setValue 交易，使用预编译的编码器。
+     *
+     * @param value 新值
+     * @return 返回交易哈希的 Future
+     * @throws IOException 如果获取链 ID 失败
+     */
+    public static CompletableFuture<String> setValueAsync(BigInteger value) throws IOException {
+        return sendEncodedAsync(SET_VALUE.getName(), SET_VALUE.encode(value));
+    }
+
+    /**
+     * 以已编码的调用数据执行 eth_call。
+     */
+    private static String call(String encodedFunction) throws IOException {
+        // 启用缓存时，同一区块内相同的调用直接返回缓存结果
+        CallResultCache cache = callCache;
+        if (cache != null) {
+            return cache.call(credentials.getAddress(), CONTRACT_ADDRESS, encodedFunction);
+        }
 
         EthCall response = web3j.ethCall(
                 Transaction.createEthCallTransaction(credentials.getAddress(), CONTRACT_ADDRESS, encodedFunction),
@@ -57,6 +127,37 @@ public class ContractInteraction {
         return response.getValue();
     }
 
+    /**
+     * 并发调用多个只读函数，每个函数一个 eth_call，运行在虚拟线程上；任一调用失败时取消其余调用。
+     *
+     * @param functions 合约函数列表
+     * @return 与输入顺序一致的调用结果
+     * @throws IOException 如果任一调用失败
+     */
+    public static List<String> callContracts(List<Function> functions) throws IOException {
+        List<Callable<String>> calls = new ArrayList<>(functions.size());
+        for (Function function : functions) {
+            calls.add(() -> callContract(function.getName(), function.getInputParameters(),
+                    new ArrayList<TypeReference<?>>(function.getOutputParameters())));
+        }
+        return Web3Utils.getBlockingExecutor().invokeAll(calls);
+    }
+
+    /**
+     * 通过 Multicall3 把多个只读函数调用合并成一次 eth_call。
+     *
+     * @param functions 合约函数列表（需包含输出参数类型）
+     * @return 按输入顺序排列的调用结果，单个调用失败不影响其他调用
+     * @throws IOException 如果调用失败
+     */
+    public static List<Multicall.Result> aggregateCalls(List<Function> functions) throws IOException {
+        Multicall multicall = new Multicall(web3j, credentials.getAddress());
+        for (Function function : functions) {
+            multicall.add(CONTRACT_ADDRESS, function);
+        }
+        return multicall.execute();
+    }
+
     /**
      * 发送交易调用可变状态函数（会修改链上状态）。
      *
@@ -70,21 +171,14 @@ public class ContractInteraction {
         Function function = new Function(functionName, inputParameters, outputParameters);
         String encodedFunction = FunctionEncoder.encode(function);
 
-        // 获取链 ID
-        EthChainId chainIdResponse = web3j.ethChainId().send();
-        BigInteger chainId = chainIdResponse.getChainId();
-
-        // 创建交易管理器
-        RawTransactionManager transactionManager = new RawTransactionManager(web3j, credentials, chainId.longValue());
-
-        // 发送交易
-        EthSendTransaction transactionResponse = transactionManager.sendTransaction(
-                DefaultGasProvider.GAS_PRICE,
-                DefaultGasProvider.GAS_LIMIT,
-                CONTRACT_ADDRESS,
-                encodedFunction,
-                BigInteger.ZERO
-        );
+        // 发送交易（链 ID 和 nonce 均来自本地缓存）；节点支持时发送 EIP-1559 交易
+        ManagedNonceTransactionManager manager = getTransactionManager();
+        BigInteger gasLimit = feeOracle.getGasLimit(functionName);
+        EthSendTransaction transactionResponse = feeOracle.supportsEip1559()
+                ? manager.sendTransactionEIP1559(feeOracle.getMaxPriorityFeePerGas(), feeOracle.getMaxFeePerGas(),
+                        gasLimit, CONTRACT_ADDRESS, encodedFunction, BigInteger.ZERO)
+                : manager.sendTransaction(feeOracle.getGasPrice(functionName), gasLimit,
+                        CONTRACT_ADDRESS, encodedFunction, BigInteger.ZERO);
 
         if (transactionResponse.hasError()) {
             throw new RuntimeException("Error sending transaction: " + transactionResponse.getError().getMessage());
@@ -93,6 +187,49 @@ public class ContractInteraction {
         return transactionResponse.getTransactionHash();
     }
 
+    /**
+     * 异步发送交易调用可变状态函数。nonce 在本地按调用顺序分配，多笔交易可以同时在途。
+     *
+     * @param functionName    合约函数名称
+     * @param inputParameters 输入参数列表
+     * @param outputParameters 输出参数类型（通常为空）
+     * @return 返回交易哈希的 Future
+     * @throws IOException 如果获取链 ID 失败
+     */
+    public static CompletableFuture<String> sendTransactionAsync(String functionName, List<Type> inputParameters, List<TypeReference<?>> outputParameters) throws IOException {
+        Function function = new Function(functionName, inputParameters, outputParameters);
+        return sendEncodedAsync(functionName, FunctionEncoder.encode(function));
+    }
+
+    /**
+     * 以已编码的调用数据异步发送交易。
+     */
+    private static CompletableFuture<String> sendEncodedAsync(String functionName, String encodedFunction) throws IOException {
+        ManagedNonceTransactionManager manager = getTransactionManager();
+        BigInteger gasLimit = feeOracle.getGasLimit(functionName);
+        CompletableFuture<EthSendTransaction> response = feeOracle.supportsEip1559()
+                ? manager.sendTransactionEIP1559Async(feeOracle.getMaxPriorityFeePerGas(), feeOracle.getMaxFeePerGas(),
+                        gasLimit, CONTRACT_ADDRESS, encodedFunction, BigInteger.ZERO)
+                : manager.sendTransactionAsync(feeOracle.getGasPrice(functionName), gasLimit,
+                        CONTRACT_ADDRESS, encodedFunction, BigInteger.ZERO);
+        return response.thenApply(transactionResponse -> {
+            if (transactionResponse.hasError()) {
+                throw new RuntimeException("Error sending transaction: " + transactionResponse.getError().getMessage());
+            }
+            return transactionResponse.getTransactionHash();
+        });
+    }
+
+    /**
+     * 获取交易管理器，首次调用时创建（链 ID 只查询一次）。
+     */
+    private static synchronized ManagedNonceTransactionManager getTransactionManager() throws IOException {
+        if (transactionManager == null) {
+            transactionManager = new ManagedNonceTransactionManager(web3j, credentials, Web3Utils.getChainId(web3j));
+        }
+        return transactionManager;
+    }
+
     /**
      * 主函数，执行以下操作：
      * 1. 查询当前 value 值
@@ -101,31 +238,27 @@ public class ContractInteraction {
      */
     public static void main(String[] args) throws Exception {
         // 获取调用 setValue 前的 value 值
-        String resultBefore = callContract("getValue",
-                Collections.emptyList(),
-                Arrays.asList(new TypeReference<Uint256>() {}));
-        System.out.println("Value before transaction: " + resultBefore);
-
-        // 构造输入参数
-        List<Type> inputParameters = new ArrayList<>();
-        Uint256 value = new Uint256(BigInteger.valueOf(6));
-        inputParameters.add(value);
+        BigInteger valueBefore = getValue();
+        System.out.println("Value before transaction: " + valueBefore);
 
+        List<CompletableFuture<String>> pending = new ArrayList<>();
         for (int i = 0; i < 100; i++) {
-            // 发送 setValue 交易
-            String txHash = sendTransaction("setValue",
-                    inputParameters,
-                    Collections.emptyList());
-            System.out.println("Transaction sent! Tx Hash: " + txHash);
+            // 发送 setValue 交易（异步，不等待前一笔返回）
+            pending.add(setValueAsync(BigInteger.valueOf(6)));
         }
-
-        // 等待交易确认
-        Thread.sleep(15000); // 等待 15 秒
+        // 等待所有交易上链，所有待确认交易每个区块只查询一次
+        ReceiptTracker tracker = Web3Utils.getReceiptTracker(web3j);
+        List<CompletableFuture<TransactionReceipt>> receipts = new ArrayList<>();
+        for (CompletableFuture<String> future : pending) {
+            String transactionHash = future.join();
+            System.out.println("Transaction sent! Tx Hash: " + transactionHash);
+            receipts.add(tracker.track(transactionHash));
+        }
+        CompletableFuture.allOf(receipts.toArray(new CompletableFuture[0])).join();
+        System.out.println("All transactions mined");
 
         // 获取调用 setValue 后的 value 值
-        String resultAfter = callContract("getValue",
-                Collections.emptyList(),
-                Arrays.asList(new TypeReference<Uint256>() {}));
-        System.out.println("Value after transaction: " + resultAfter);
+        BigInteger valueAfter = getValue();
+        System.out.println("Value after transaction: " + valueAfter);
     }
 }
@@ -0,0 +1,167 @@
+import org.web3j.crypto.Credentials;
+import org.web3j.crypto.Hash;
+import org.web3j.crypto.Sign;
+import org.web3j.rlp.RlpDecoder;
+import org.web3j.rlp.RlpEncoder;
+import org.web3j.rlp.RlpList;
+import org.web3j.rlp.RlpString;
+import org.web3j.rlp.RlpType;
+import org.web3j.utils.Bytes;
+import org.web3j.utils.Numeric;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * EIP-1559（type 2）交易的编码和签名。
+ * web3j 5.0.0 的 RawTransaction 只支持 EIP-1559 草案格式（在传统交易后附加 gasPremium 和 feeCap，没有类型前缀），
+ * 节点不接受；这里按最终规范编码：0x02 || rlp([chainId, nonce, maxPriorityFeePerGas, maxFeePerGas, gasLimit, to, value, data, accessList, yParity, r, s])。
+ * 不使用访问列表。
+ */
+public final class Eip1559Transaction {
+
+    private static final byte TYPE = 0x02;
+
+    private final long chainId;
+    private final BigInteger nonce;
+    private final BigInteger maxPriorityFeePerGas;
+    private final BigInteger maxFeePerGas;
+    private final BigInteger gasLimit;
+    private final String to;
+    private final BigInteger value;
+    private final String data;
+
+    /**
+     * @param chainId              链 ID
+     * @param nonce                交易 nonce
+     * @param maxPriorityFeePerGas 最高小费（Wei）
+     * @param maxFeePerGas         最高费用（Wei），实际支付 min(maxFeePerGas, 基础费用 + 小费)，差额不扣除
+     * @param gasLimit             gas 上限
+     * @param to                   接收地址，部署合约时为 null 或空字符串
+     * @param value                转账金额（Wei）
+     * @param data                 调用数据，可以为 null
+     */
+    public Eip1559Transaction(long chainId, BigInteger nonce, BigInteger maxPriorityFeePerGas, BigInteger maxFeePerGas,
+                              BigInteger gasLimit, String to, BigInteger value, String data) {
+        this.chainId = chainId;
+        this.nonce = nonce;
+        this.maxPriorityFeePerGas = maxPriorityFeePerGas;
+        this.maxFeePerGas = maxFeePerGas;
+        this.gasLimit = gasLimit;
+        this.to = to;
+        this.value = value;
+        this.data = data;
+    }
+
+    /**
+     * 签名并编码，结果可直接用于 eth_sendRawTransaction。
+     *
+     * @param credentials 发送方凭证
+     * @return 带类型前缀的已签名交易
+     */
+    public byte[] sign(Credentials credentials) {
+        Sign.SignatureData signature = Sign.signMessage(encode(fields()), credentials.getEcKeyPair());
+        List<RlpType> values = fields();
+        values.add(RlpString.create(signature.getV()[0] - 27));
+        values.add(RlpString.create(Bytes.trimLeadingZeroes(signature.getR())));
+        values.add(RlpString.create(Bytes.trimLeadingZeroes(signature.getS())));
+        return encode(values);
+    }
+
+    /**
+     * 签名并编码为十六进制字符串。
+     */
+    public String signAsHex(Credentials credentials) {
+        return Numeric.toHexString(sign(credentials));
+    }
+
+    /**
+     * 签名前的交易哈希，即签名的消息。
+     */
+    public byte[] signingHash() {
+        return Hash.sha3(encode(fields()));
+    }
+
+    /**
+     * 解码已签名的 type 2 交易（不校验签名）。
+     *
+     * @param signedTransaction eth_sendRawTransaction 的参数
+     * @throws IllegalArgumentException 如果不是 type 2 交易
+     */
+    public static Eip1559Transaction decode(String signedTransaction) {
+        byte[] bytes = Numeric.hexStringToByteArray(signedTransaction);
+        if (bytes.length == 0 || bytes[0] != TYPE) {
+            throw new IllegalArgumentException("Not an EIP-1559 transaction");
+        }
+        byte[] payload = new byte[bytes.length - 1];
+        System.arraycopy(bytes, 1, payload, 0, payload.length);
+        List<RlpType> values = ((RlpList) RlpDecoder.decode(payload).getValues().get(0)).getValues();
+        String to = ((RlpString) values.get(5)).asString();
+        return new Eip1559Transaction(
+                ((RlpString) values.get(0)).asPositiveBigInteger().longValueExact(),
+                ((RlpString) values.get(1)).asPositiveBigInteger(),
+                ((RlpString) values.get(2)).asPositiveBigInteger(),
+                ((RlpString) values.get(3)).asPositiveBigInteger(),
+                ((RlpString) values.get(4)).asPositiveBigInteger(),
+                "0x".equals(to) ? null : to,
+                ((RlpString) values.get(6)).asPositiveBigInteger(),
+                ((RlpString) values.get(7)).asString());
+    }
+
+    private List<RlpType> fields() {
+        List<RlpType> values = new ArrayList<>(12);
+        values.add(RlpString.create(chainId));
+        values.add(RlpString.create(nonce));
+        values.add(RlpString.create(maxPriorityFeePerGas));
+        values.add(RlpString.create(maxFeePerGas));
+        values.add(RlpString.create(gasLimit));
+        values.add(to == null || to.isEmpty()
+                ? RlpString.create(new byte[0]) : RlpString.create(Numeric.hexStringToByteArray(to)));
+        values.add(RlpString.create(value));
+        values.add(RlpString.create(data == null ? new byte[0] : Numeric.hexStringToByteArray(data)));
+        values.add(new RlpList(Collections.emptyList()));
+        return values;
+    }
+
+    private static byte[] encode(List<RlpType> values) {
+        byte[] rlp = RlpEncoder.encode(new RlpList(values));
+        byte[] encoded = new byte[rlp.length + 1];
+        encoded[0] = TYPE;
+        System.arraycopy(rlp, 0, encoded, 1, rlp.length);
+        return encoded;
+    }
+
+    public long getChainId() {
+        return chainId;
+    }
+
+    public BigInteger getNonce() {
+        return nonce;
+    }
+
+    public BigInteger getMaxPriorityFeePerGas() {
+        return maxPriorityFeePerGas;
+    }
+
+    public BigInteger getMaxFeePerGas() {
+        return maxFeePerGas;
+    }
+
+    public BigInteger getGasLimit() {
+        return gasLimit;
+    }
+
+    public String getTo() {
+        return to;
+    }
+
+    public BigInteger getValue() {
+        return value;
+    }
+
+    public String getData() {
+        return data;
+    }
+}
@@ -0,0 +1,145 @@
+import org.web3j.protocol.core.methods.response.Log;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * ERC20 Transfer / Approval 日志专用解码器。
+ * 直接从十六进制 topics 和 data 中解析出定长字节，不经过 FunctionReturnDecoder 和中间字符串。
+ */
+public class Erc20LogDecoder {
+
+    // keccak256("Transfer(address,address,uint256)")
+    public static final String TRANSFER_TOPIC = "0xddf252ad1be2c89b69c2b068fc378daa952ba7f163c4a11628f55a4df523b3ef";
+    // keccak256("Approval(address,address,uint256)")
+    public static final String APPROVAL_TOPIC = "0x8c5be1e5ebec7d5bd14f71427d1e84f3dd0314c0f7b2291e5b200ac8c7c3b925";
+
+    // "0x" + 64 个十六进制字符
+    private static final int WORD_HEX_LENGTH = 66;
+    // topic 中地址前面的 12 字节补零（24 个字符），加上 "0x" 前缀
+    private static final int TOPIC_ADDRESS_START = 2 + 24;
+
+    private static final byte[] HEX_VALUES = new byte[128];
+
+    static {
+        Arrays.fill(HEX_VALUES, (byte) -1);
+        for (int i = 0; i < 10; i++) {
+            HEX_VALUES['0' + i] = (byte) i;
+        }
+        for (int i = 0; i < 6; i++) {
+            HEX_VALUES['a' + i] = (byte) (10 + i);
+            HEX_VALUES['A' + i] = (byte) (10 + i);
+        }
+    }
+
+    /**
+     * 解码单条日志。
+     *
+     * @param log 区块链日志
+     * @return 解码结果；不是标准 ERC20 Transfer / Approval 日志（如 ERC721 Transfer）时返回 null
+     */
+    public static TokenTransferRecord decode(Log log) {
+        List<String> topics = log.getTopics();
+        if (topics == null || topics.size() != 3) {
+            return null;
+        }
+        byte kind;
+        String topic0 = topics.get(0);
+        if (TRANSFER_TOPIC.equalsIgnoreCase(topic0)) {
+            kind = TokenTransferRecord.TRANSFER;
+        } else if (APPROVAL_TOPIC.equalsIgnoreCase(topic0)) {
+            kind = TokenTransferRecord.APPROVAL;
+        } else {
+            return null;
+        }
+
+        String data = log.getData();
+        String fromTopic = topics.get(1);
+        String toTopic = topics.get(2);
+        if (data == null || data.length() != WORD_HEX_LENGTH
+                || fromTopic.length() != WORD_HEX_LENGTH || toTopic.length() != WORD_HEX_LENGTH) {
+            return null;
+        }
+
+        byte[] payload = new byte[TokenTransferRecord.PAYLOAD_LENGTH];
+        if (!parseHex(fromTopic, TOPIC_ADDRESS_START, payload, TokenTransferRecord.FROM_OFFSET, TokenTransferRecord.ADDRESS_LENGTH)
+                || !parseHex(toTopic, TOPIC_ADDRESS_START, payload, TokenTransferRecord.TO_OFFSET, TokenTransferRecord.ADDRESS_LENGTH)
+                || !parseHex(data, 2, payload, TokenTransferRecord.AMOUNT_OFFSET, TokenTransferRecord.AMOUNT_LENGTH)) {
+            return null;
+        }
+        long blockNumber = parseQuantity(log.getBlockNumberRaw());
+        int logIndex = (int) parseQuantity(log.getLogIndexRaw());
+        return new TokenTransferRecord(kind, blockNumber, logIndex, payload);
+    }
+
+    /**
+     * 批量解码日志，跳过无法解码的日志。
+     *
+     * @param logs 日志列表
+     * @return 解码结果列表，顺序与输入一致
+     */
+    public static List<TokenTransferRecord> decodeAll(List<Log> logs) {
+        List<TokenTransferRecord> records = new ArrayList<>(logs.size());
+        decodeAll(logs, records::add);
+        return records;
+    }
+
+    /**
+     * 批量解码日志，并把结果依次交给 consumer，不保留中间列表。
+     *
+     * @param logs     日志列表
+     * @param consumer 结果消费者
+     * @return 成功解码的日志数
+     */
+    public static int decodeAll(List<Log> logs, Consumer<TokenTransferRecord> consumer) {
+        int decoded = 0;
+        for (Log log : logs) {
+            TokenTransferRecord record = decode(log);
+            if (record != null) {
+                consumer.accept(record);
+                decoded++;
+            }
+        }
+        return decoded;
+    }
+
+    /**
+     * 从 hex 的 start 位置开始解析 length 个字节写入 out。
+     *
+     * @return 遇到非法十六进制字符时返回 false
+     */
+    private static boolean parseHex(String hex, int start, byte[] out, int offset, int length) {
+        int bad = 0;
+        for (int i = 0; i < length; i++) {
+            int high = nibble(hex.charAt(start + 2 * i));
+            int low = nibble(hex.charAt(start + 2 * i + 1));
+            bad |= high | low;
+            out[offset + i] = (byte) ((high << 4) | low);
+        }
+        return bad >= 0;
+    }
+
+    static int nibble(char c) {
+        return c < 128 ? HEX_VALUES[c] : -1;
+    }
+
+    /**
+     * 解析 "0x" 开头的十六进制数量值，缺失时返回 -1。
+     */
+    private static long parseQuantity(String quantity) {
+        if (quantity == null || quantity.length() < 3) {
+            return -1;
+        }
+        long value = 0;
+        for (int i = 2; i < quantity.length(); i++) {
+            int n = nibble(quantity.charAt(i));
+            if (n < 0) {
+                return -1;
+            }
+            value = (value << 4) | n;
+        }
+        return value;
+    }
+}
@@ -1,23 +1,20 @@
 import io.reactivex.Flowable;
 import org.reactivestreams.Subscription;
 import org.web3j.abi.EventEncoder;
-import org.web3j.abi.FunctionReturnDecoder;
 import org.web3j.abi.TypeReference;
 import org.web3j.abi.datatypes.Address;
 import org.web3j.abi.datatypes.Event;
-import org.web3j.abi.datatypes.Type;
 import org.web3j.abi.datatypes.generated.Uint256;
 import org.web3j.protocol.Web3j;
 import org.web3j.protocol.core.DefaultBlockParameter;
 import org.web3j.protocol.core.DefaultBlockParameterName;
 import org.web3j.protocol.core.methods.request.EthFilter;
-import org.web3j.protocol.core.methods.response.EthLog;
 import org.web3j.protocol.core.methods.response.Log;
-import org.web3j.protocol.http.HttpService;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.math.BigInteger;
 import java.util.Arrays;
-import java.util.List;
 
 /**
  * 扩展支持多种监听类型的以太坊事件监听器
@@ -27,11 +24,29 @@ public class EventListener {
     // 测试合约地址（示例）
     private static final String CONTRACT_ADDRESS = "0x1f9840a85d5af5bf1d1762f925bdaddc4201f984";
 
+    // 确认事件流保留的额外历史区块数（可处理的最大重组深度）
+    private static final int REORG_HISTORY = 64;
+    // 写入事件索引所需的默认确认数
+    public static final int DEFAULT_INDEX_CONFIRMATIONS = 12;
+
     public Subscription ethMissSubscription; //ETH交易空档事件订阅对象
 
     public Subscription ethSubscription;     //ETH交易事件订阅对象
+
+    // 持有人余额，只由 listenConfirmedTransactions 的确认事件流更新，其他监听只输出事件
+    private final TokenBalanceLedger ledger = new TokenBalanceLedger();
     // 以太坊节点服务
-    private static final Web3j web3j = Web3j.build(new HttpService("https://opt-sepolia.g.alchemy.com/v2/tow91YQzp06m0yzJ8nQ_pa6gVokpKCk5"));
+    private static final Web3j web3j = Web3Utils.getWeb3j(CommonConstant.OP_SEPOLIA_RPC_URL);
+    // 配置 -Dweb3.ws.endpoint 时的 WebSocket 事件源，未配置时为 null
+    private static final WebSocketEventSource webSocketSource = Web3Utils.getWebSocketSource(web3j);
+
+    /**
+     * 日志流：配置了 WebSocket 节点时使用 eth_subscribe（断线自动重连，并用 eth_getLogs 补齐断线期间的日志），
+     * 否则使用 HTTP 过滤器轮询。
+     */
+    private static Flowable<Log> logFlowable(EthFilter filter) {
+        return webSocketSource != null ? webSocketSource.logFlowable(filter) : web3j.ethLogFlowable(filter);
+    }
 
     /**
      * 监听ERC20代币转账事件（从指定区块开始）
@@ -57,13 +72,133 @@ public class EventListener {
         );
         filter.addOptionalTopics(EventEncoder.encode(transferEvent));
 
-        Flowable<Log> logFlowable = web3j.ethLogFlowable(filter);
+        Flowable<Log> logFlowable = logFlowable(filter);
         logFlowable.subscribe(
-                log -> processTransferEvent(log, contractAddress, transferEvent),
+                log -> processTransferEvent(log, contractAddress),
                 throwable -> System.err.println("Token transfer error: " + throwable.getMessage())
         );
     }
 
+    /**
+     * 监听ERC20代币转账事件并写入持久化索引，只写入获得 DEFAULT_INDEX_CONFIRMATIONS 个确认的区块。
+     *
+     * @see #listenTokenTransfers(String, BigInteger, TransferEventIndex, int)
+     */
+    public ConfirmedEventStream listenTokenTransfers(String contractAddress, BigInteger startBlock,
+                                                     TransferEventIndex index) throws IOException {
+        return listenTokenTransfers(contractAddress, startBlock, index, DEFAULT_INDEX_CONFIRMATIONS);
+    }
+
+    /**
+     * 监听ERC20代币转账事件并写入持久化索引。
+     * 从索引检查点之后的区块继续（没有检查点时从 startBlock 开始），先分段补齐已获得足够确认的历史区块，
+     * 再由确认事件流处理之后的区块：区块获得指定确认数后才写入索引并提交检查点，节点推送的撤回日志不会写入。
+     * 索引只追加，已写入的区块被超过确认数的重组替换时只能报告，需要重建索引。
+     *
+     * @param contractAddress ERC20合约地址
+     * @param startBlock      首次运行时的起始区块号
+     * @param index           事件索引
+     * @param confirmations   写入索引所需的确认数
+     * @return 处理新区块的确认事件流，可调用 stop 停止监听
+     * @throws IOException 如果补齐历史区块失败
+     */
+    public ConfirmedEventStream listenTokenTransfers(String contractAddress, BigInteger startBlock,
+                                                     TransferEventIndex index, int confirmations) throws IOException {
+        long fromBlock = Math.max(startBlock.longValueExact(), index.getCheckpoint() + 1);
+        long latestBlock = web3j.ethBlockNumber().send().getBlockNumber().longValueExact();
+        // 与 ConfirmedEventStream 的确认高度一致
+        long confirmedBlock = latestBlock - confirmations + 1;
+
+        if (fromBlock <= confirmedBlock) {
+            EthFilter historyFilter = new EthFilter(
+                    DefaultBlockParameter.valueOf(BigInteger.valueOf(fromBlock)),
+                    DefaultBlockParameter.valueOf(BigInteger.valueOf(confirmedBlock)),
+                    contractAddress
+            );
+            historyFilter.addSingleTopic(Erc20LogDecoder.TRANSFER_TOPIC);
+
+            // 补齐历史区块，每个分段完成后提交一次检查点
+            new LogScanner(web3j).scan(historyFilter, fromBlock, confirmedBlock, new LogScanner.LogHandler() {
+                @Override
+                public void onLog(Log log) {
+                    appendToIndex(index, log);
+                }
+
+                @Override
+                public void onRangeComplete(long toBlock) {
+                    checkpoint(index, toBlock);
+                }
+            });
+        }
+        System.out.println("Index caught up to block " + index.getCheckpoint() + ", " + index.size() + " events");
+
+        EthFilter liveFilter = new EthFilter(
+                DefaultBlockParameterName.LATEST,
+                DefaultBlockParameterName.LATEST,
+                contractAddress
+        );
+        liveFilter.addSingleTopic(Erc20LogDecoder.TRANSFER_TOPIC);
+
+        ConfirmedEventStream stream = new ConfirmedEventStream(
+                ConfirmedEventStream.web3jSource(web3j, liveFilter),
+                confirmations,
+                confirmations + REORG_HISTORY,
+                Math.max(fromBlock, confirmedBlock + 1),
+                new ConfirmedEventStream.Listener() {
+                    @Override
+                    public void onBlockConfirmed(ConfirmedEventStream.BlockHeader header) {
+                        // 区块的日志在 onBlockConfirmed 之后依次发出，收到下一个区块时上一个区块已经完整处理
+                        if (header.getNumber() - 1 > index.getCheckpoint()) {
+                            checkpoint(index, header.getNumber() - 1);
+                        }
+                    }
+
+                    @Override
+                    public void onLogConfirmed(Log log) {
+                        appendToIndex(index, log);
+                    }
+
+                    @Override
+                    public void onLogRetracted(Log log) {
+                        System.err.printf("Indexed transfer retracted by reorg deeper than %d confirmations: block %s tx %s%n",
+                                confirmations, log.getBlockNumber(), log.getTransactionHash());
+                    }
+
+                    @Override
+                    public void onHistoryGap(long resumeBlock) {
+                        System.err.println("Reorg exceeded history before block " + resumeBlock + ", index may need rebuilding");
+                    }
+                });
+        stream.start(Web3Utils.getBlockPoller(web3j));
+        return stream;
+    }
+
+    /**
+     * 写入一条确认的日志；节点推送的撤回日志和无法解析的日志不写入。
+     */
+    private void appendToIndex(TransferEventIndex index, Log log) {
+        if (log.isRemoved()) {
+            return;
+        }
+        TokenTransferRecord record = Erc20LogDecoder.decode(log);
+        if (record == null) {
+            return;
+        }
+        try {
+            index.append(record);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void checkpoint(TransferEventIndex index, long blockNumber) {
+        try {
+            index.checkpoint(blockNumber);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
     /**
      * 回放指定区块范围的历史交易
      *
@@ -72,6 +207,18 @@ public class EventListener {
      * @param toBlock         结束区块
      */
     public void replayPastTransactions(String contractAddress, BigInteger fromBlock, BigInteger toBlock) {
+        replayPastTransactions(contractAddress, fromBlock, toBlock, false);
+    }
+
+    /**
+     * 回放指定区块范围的历史交易
+     *
+     * @param contractAddress 合约地址
+     * @param fromBlock       起始区块
+     * @param toBlock         结束区块
+     * @param streaming       是否流式解析 eth_getLogs 响应（分段依次请求，内存占用不随响应大小增长）
+     */
+    public void replayPastTransactions(String contractAddress, BigInteger fromBlock, BigInteger toBlock, boolean streaming) {
         Event transferEvent = new Event("Transfer", Arrays.asList(
                 new TypeReference<Address>(true) {
                 },
@@ -88,11 +235,16 @@ public class EventListener {
         );
         filter.addOptionalTopics(EventEncoder.encode(transferEvent));
 
-        // 同步获取历史日志
-        EthLog ethLog = null;
+        // 分段并发获取历史日志，按区块顺序处理；流式模式下分段依次请求，边解析边处理
         try {
-            ethLog = web3j.ethGetLogs(filter).send();
-            ethLog.getLogs().forEach(log -> processTransferEvent((Log) log, contractAddress, transferEvent));
+            LogScanner scanner = new LogScanner(web3j);
+            if (streaming) {
+                scanner.scanStreaming(filter, fromBlock.longValueExact(), toBlock.longValueExact(),
+                        log -> processTransferEvent(log, contractAddress));
+            } else {
+                scanner.scan(filter, fromBlock.longValueExact(), toBlock.longValueExact(),
+                        log -> processTransferEvent(log, contractAddress));
+            }
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
@@ -120,42 +272,132 @@ public class EventListener {
         );
         filter.addOptionalTopics(EventEncoder.encode(transferEvent));
 
-        Flowable<Log> logFlowable = web3j.ethLogFlowable(filter);
+        Flowable<Log> logFlowable = logFlowable(filter);
         logFlowable.subscribe(
-                log -> processTransferEvent(log, contractAddress, transferEvent),
+                log -> processTransferEvent(log, contractAddress),
                 throwable -> System.err.println("Future transaction error: " + throwable.getMessage())
         );
     }
 
     /**
-     * 处理Transfer事件逻辑
+     * 监听未来发生的交易，只在区块获得指定确认数后处理，链重组时撤回已处理的事件。
+     *
+     * @param contractAddress 监听的合约地址
+     * @param confirmations   确认数
+     * @return 事件流，可调用 stop 停止监听
+     * @throws IOException 如果获取当前区块号失败
+     */
+    public ConfirmedEventStream listenConfirmedTransactions(String contractAddress, int confirmations) throws IOException {
+        long startBlock = web3j.ethBlockNumber().send().getBlockNumber().longValueExact() + 1;
+        return listenConfirmedTransactions(contractAddress, confirmations, startBlock);
+    }
+
+    /**
+     * 从指定区块开始处理交易，只在区块获得指定确认数后处理，链重组时撤回已处理的事件。
+     * 这是余额账本唯一的数据来源：已获得足够确认的历史区块先用 LogScanner 分段批量扫描计入账本，
+     * 之后的区块由确认事件流处理，确认的转账应用到账本，被重组撤回的转账反向应用。
+     * 事件流由共享区块轮询器驱动，回调依次执行，同一事件不会被其他监听重复计入。
+     *
+     * @param contractAddress 监听的合约地址
+     * @param confirmations   确认数
+     * @param startBlock      第一个处理的区块号
+     * @return 事件流，可调用 stop 停止监听
+     * @throws IOException 如果获取当前区块号或扫描历史区块失败
+     */
+    public ConfirmedEventStream listenConfirmedTransactions(String contractAddress, int confirmations, long startBlock)
+            throws IOException {
+        long latestBlock = web3j.ethBlockNumber().send().getBlockNumber().longValueExact();
+        // 与 ConfirmedEventStream 的确认高度一致
+        long confirmedBlock = latestBlock - confirmations + 1;
+
+        if (startBlock <= confirmedBlock) {
+            EthFilter historyFilter = new EthFilter(
+                    DefaultBlockParameter.valueOf(BigInteger.valueOf(startBlock)),
+                    DefaultBlockParameter.valueOf(BigInteger.valueOf(confirmedBlock)),
+                    contractAddress
+            );
+            historyFilter.addSingleTopic(Erc20LogDecoder.TRANSFER_TOPIC);
+
+            // 历史区块不会再被撤回，直接计入账本，不逐条输出
+            new LogScanner(web3j).scan(historyFilter, startBlock, confirmedBlock, log -> {
+                TokenTransferRecord record = log.isRemoved() ? null : Erc20LogDecoder.decode(log);
+                if (record != null) {
+                    ledger.apply(record);
+                }
+            });
+            System.out.println("Ledger caught up to block " + confirmedBlock + ", "
+                    + ledger.getHolderCount() + " holders");
+        }
+
+        EthFilter filter = new EthFilter(
+                DefaultBlockParameterName.LATEST,
+                DefaultBlockParameterName.LATEST,
+                contractAddress
+        );
+        filter.addSingleTopic(Erc20LogDecoder.TRANSFER_TOPIC);
+
+        ConfirmedEventStream stream = new ConfirmedEventStream(
+                ConfirmedEventStream.web3jSource(web3j, filter),
+                confirmations,
+                confirmations + REORG_HISTORY,
+                Math.max(startBlock, confirmedBlock + 1),
+                new ConfirmedEventStream.Listener() {
+                    @Override
+                    public void onLogConfirmed(Log log) {
+                        TokenTransferRecord record = processTransferEvent(log, contractAddress);
+                        if (record != null) {
+                            ledger.apply(record);
+                        }
+                    }
+
+                    @Override
+                    public void onLogRetracted(Log log) {
+                        TokenTransferRecord record = Erc20LogDecoder.decode(log);
+                        if (record == null) {
+                            return;
+                        }
+                        // 反向应用，抵消之前计入的余额变化
+                        ledger.apply(record.reversed());
+                        System.out.printf("Contract %s: Transfer retracted by reorg, block %s tx %s%n",
+                                contractAddress, log.getBlockNumber(), log.getTransactionHash());
+                    }
+                });
+        stream.start(Web3Utils.getBlockPoller(web3j));
+        return stream;
+    }
+
+    /**
+     * 处理Transfer事件逻辑：解析并输出，不更新余额账本
      *
      * @param log             区块链日志
      * @param contractAddress 合约地址（用于日志区分）
+     * @return 解析出的事件；被重组撤回的日志或无法解析时返回 null
      */
-    private void processTransferEvent(Log log, String contractAddress, Event event) {
-        if (log.getData() == null || log.getData().equals("0x")) {
+    private TokenTransferRecord processTransferEvent(Log log, String contractAddress) {
+        // 节点推送的撤回通知，原事件已经处理过
+        if (log.isRemoved()) {
+            return null;
+        }
+        // 直接从 topics 和 data 解析 from、to 和金额
+        TokenTransferRecord record = Erc20LogDecoder.decode(log);
+        if (record == null) {
             System.err.println("Empty log data for contract " + contractAddress);
-            return;
+            return null;
         }
 
-        // 提取indexed参数
-        String from = "0x" + log.getTopics().get(1).substring(26);
-        String to = "0x" + log.getTopics().get(2).substring(26);
-        System.out.println(log);
-        System.out.printf("Contract %s: Transfer from %s to %s%n", contractAddress, from, to);
-
-        // 解析非indexed参数
-        List<Type> decoded = FunctionReturnDecoder.decode(log.getData(), event.getNonIndexedParameters());
+        System.out.printf("Contract %s: Transfer from %s to %s, amount: %s%n",
+                contractAddress, record.fromHex(), record.toHex(), record.amount());
+        return record;
+    }
 
-        if (!decoded.isEmpty()) {
-            BigInteger value = (BigInteger) decoded.get(0).getValue();
-            System.out.printf("Contract %s: Transfer from %s to %s, amount: %s%n",
-                    contractAddress, from, to, value.toString());
-        }
+    /**
+     * 由确认事件流处理过的 Transfer 事件推导出的持有人余额。
+     */
+    public TokenBalanceLedger getLedger() {
+        return ledger;
     }
 
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
         EventListener listener = new EventListener();
 
         // 示例调用：
@@ -163,11 +405,14 @@ public class EventListener {
         listener.listenTokenTransfers(CONTRACT_ADDRESS, BigInteger.ZERO);
 
         // 2. 重放历史交易（区块1000000-1100000）
-        listener.replayPastTransactions(CONTRACT_ADDRESS, BigInteger.valueOf(0), BigInteger.valueOf(400));
+        listener.replayPastTransactions(CONTRACT_ADDRESS, BigInteger.valueOf(0), BigInteger.valueOf(400), true);
 
         // 3. 监听未来交易
         listener.listenFutureTransactions(CONTRACT_ADDRESS);
 
+        // 4. 余额账本只由确认事件流更新：先批量扫描区块 0 到已确认高度，之后每个区块 12 个确认后计入，重组撤回时反向计入
+        listener.listenConfirmedTransactions(CONTRACT_ADDRESS, 12, 0);
+
         System.out.println("Listening...");
     }
 }
@@ -0,0 +1,308 @@
+import io.reactivex.disposables.Disposable;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.Web3jService;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.Response;
+import org.web3j.tx.gas.ContractGasProvider;
+import org.web3j.tx.gas.DefaultGasProvider;
+import org.web3j.utils.Numeric;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 后台刷新的手续费预言机。
+ * 由 SharedBlockPoller 驱动，每出现一个新区块调用一次 eth_feeHistory，根据最近区块的基础费用和小费分位数计算建议值，
+ * 发送交易时直接从内存读取，不再同步查询 gas 价格。
+ * 节点支持 eth_feeHistory 时应发送 EIP-1559 交易（maxFeePerGas / maxPriorityFeePerGas），
+ * 只在基础费用之上支付小费，未用完的 maxFeePerGas 不扣除；传统交易按 gasPrice 全额支付。
+ */
+public class FeeOracle implements ContractGasProvider {
+
+    public static final int DEFAULT_BLOCK_COUNT = 20;
+    public static final double DEFAULT_PRIORITY_PERCENTILE = 50;
+    // 没有样本时使用的小费（1 gwei）
+    private static final BigInteger FALLBACK_PRIORITY_FEE = BigInteger.valueOf(1_000_000_000L);
+    // 传统交易在基础费用上加的余量：1/8，即一个满区块后基础费用的最大涨幅
+    private static final int LEGACY_BASE_FEE_MARGIN_SHIFT = 3;
+
+    private final Web3j web3j;
+    private final Web3jService web3jService;
+    private final SharedBlockPoller blockPoller;
+    private final int blockCount;
+    private final double priorityPercentile;
+    private final BigInteger gasLimit;
+
+    private volatile Suggestion suggestion;
+    private Disposable blockSubscription;
+
+    /**
+     * @param web3j        Web3j 实例
+     * @param web3jService web3j 使用的底层服务，用于发送 eth_feeHistory
+     * @param blockPoller  新区块来源
+     */
+    public FeeOracle(Web3j web3j, Web3jService web3jService, SharedBlockPoller blockPoller) {
+        this(web3j, web3jService, blockPoller, DEFAULT_BLOCK_COUNT, DEFAULT_PRIORITY_PERCENTILE, DefaultGasProvider.GAS_LIMIT);
+    }
+
+    /**
+     * @param web3j              Web3j 实例
+     * @param web3jService       web3j 使用的底层服务，用于发送 eth_feeHistory
+     * @param blockPoller        新区块来源
+     * @param blockCount         参与计算的最近区块数
+     * @param priorityPercentile 小费取每个区块交易小费的第几百分位
+     * @param gasLimit           合约调用使用的 gas 上限
+     */
+    public FeeOracle(Web3j web3j, Web3jService web3jService, SharedBlockPoller blockPoller,
+                     int blockCount, double priorityPercentile, BigInteger gasLimit) {
+        if (blockCount <= 0 || priorityPercentile < 0 || priorityPercentile > 100) {
+            throw new IllegalArgumentException("Invalid block count or percentile");
+        }
+        this.web3j = web3j;
+        this.web3jService = web3jService;
+        this.blockPoller = blockPoller;
+        this.blockCount = blockCount;
+        this.priorityPercentile = priorityPercentile;
+        this.gasLimit = gasLimit;
+    }
+
+    /**
+     * 刷新一次并开始在每个新区块后刷新。首次读取费用时会自动启动。
+     *
+     * @throws IOException 如果首次刷新失败
+     */
+    public synchronized void start() throws IOException {
+        if (blockSubscription != null) {
+            return;
+        }
+        refresh();
+        // 只关心最新的区块，处理不过来时丢弃积压的旧区块
+        blockSubscription = blockPoller.blockFlowable(1, SharedBlockPoller.OverflowPolicy.DROP_OLDEST).subscribe(
+                block -> {
+                    try {
+                        refresh();
+                    } catch (IOException e) {
+                        // 保留上一次的建议值，下个区块再试
+                        System.err.println("Fee oracle refresh failed: " + e.getMessage());
+                    }
+                },
+                throwable -> System.err.println("Fee oracle block subscription error: " + throwable.getMessage())
+        );
+    }
+
+    public synchronized void stop() {
+        if (blockSubscription != null) {
+            blockSubscription.dispose();
+            blockSubscription = null;
+        }
+    }
+
+    /**
+     * 立即查询 eth_feeHistory 并更新建议值；节点不支持 eth_feeHistory 时退回 eth_gasPrice。
+     *
+     * @throws IOException 如果查询失败
+     */
+    public void refresh() throws IOException {
+        FeeHistoryResponse response = new Request<>(
+                "eth_feeHistory",
+                Arrays.asList(Numeric.encodeQuantity(BigInteger.valueOf(blockCount)), "latest",
+                        Collections.singletonList(priorityPercentile)),
+                web3jService,
+                FeeHistoryResponse.class).send();
+
+        if (response.hasError() || response.getResult() == null) {
+            BigInteger gasPrice = web3j.ethGasPrice().send().getGasPrice();
+            suggestion = new Suggestion(null, gasPrice, BigInteger.ZERO);
+            return;
+        }
+
+        FeeHistory history = response.getResult();
+        List<String> baseFees = history.getBaseFeePerGas();
+        // baseFeePerGas 的最后一项是下一个区块的基础费用
+        BigInteger nextBaseFee = Numeric.decodeQuantity(baseFees.get(baseFees.size() - 1));
+        BigInteger priorityFee = medianReward(history);
+        if (priorityFee == null) {
+            Suggestion previous = suggestion;
+            priorityFee = previous != null ? previous.priorityFee : FALLBACK_PRIORITY_FEE;
+        }
+        BigInteger newestBlock = Numeric.decodeQuantity(history.getOldestBlock())
+                .add(BigInteger.valueOf(baseFees.size() - 2));
+        suggestion = new Suggestion(newestBlock, nextBaseFee, priorityFee);
+    }
+
+    /**
+     * 各区块小费分位数的中位数，跳过空区块；没有样本时返回 null。
+     */
+    private static BigInteger medianReward(FeeHistory history) {
+        if (history.getReward() == null) {
+            return null;
+        }
+        List<BigInteger> samples = new ArrayList<>();
+        for (int i = 0; i < history.getReward().size(); i++) {
+            List<String> rewards = history.getReward().get(i);
+            boolean empty = history.getGasUsedRatio() != null && i < history.getGasUsedRatio().size()
+                    && history.getGasUsedRatio().get(i) == 0;
+            if (!empty && rewards != null && !rewards.isEmpty()) {
+                samples.add(Numeric.decodeQuantity(rewards.get(0)));
+            }
+        }
+        if (samples.isEmpty()) {
+            return null;
+        }
+        Collections.sort(samples);
+        return samples.get(samples.size() / 2);
+    }
+
+    private Suggestion current() {
+        Suggestion current = suggestion;
+        if (current == null) {
+            try {
+                start();
+            } catch (IOException e) {
+                throw new IllegalStateException("Fee oracle has no data: " + e.getMessage(), e);
+            }
+            current = suggestion;
+        }
+        return current;
+    }
+
+    /**
+     * 下一个区块的基础费用（Wei）。
+     */
+    public BigInteger getBaseFee() {
+        return current().baseFee;
+    }
+
+    /**
+     * 建议的小费（Wei）。
+     */
+    public BigInteger getMaxPriorityFeePerGas() {
+        return current().priorityFee;
+    }
+
+    /**
+     * 建议的最高费用：2 × 基础费用 + 小费，可承受连续 6 个满区块的基础费用上涨。
+     */
+    public BigInteger getMaxFeePerGas() {
+        Suggestion current = current();
+        return current.baseFee.shiftLeft(1).add(current.priorityFee);
+    }
+
+    /**
+     * 节点是否支持 eth_feeHistory。支持时发送 EIP-1559 交易，使用 getMaxFeePerGas 和 getMaxPriorityFeePerGas；
+     * 否则发送传统交易，使用 getGasPrice。
+     */
+    public boolean supportsEip1559() {
+        return current().blockNumber != null;
+    }
+
+    /**
+     * 建议值所基于的最新区块号，退回 eth_gasPrice 时为 null。
+     */
+    public BigInteger getBlockNumber() {
+        return current().blockNumber;
+    }
+
+    /**
+     * 传统交易的 gas 价格：基础费用 × 9/8 + 小费。传统交易按 gasPrice 全额支付，只留下一个满区块的基础费用涨幅作为余量。
+     * 退回 eth_gasPrice 时直接使用节点给出的价格。
+     */
+    @Override
+    public BigInteger getGasPrice(String contractFunc) {
+        Suggestion current = current();
+        if (current.blockNumber == null) {
+            return current.baseFee;
+        }
+        return current.baseFee.add(current.baseFee.shiftRight(LEGACY_BASE_FEE_MARGIN_SHIFT)).add(current.priorityFee);
+    }
+
+    /**
+     * @deprecated 与 ContractGasProvider 中的声明一致，使用 {@link #getGasPrice(String)}
+     */
+    @Deprecated
+    @Override
+    public BigInteger getGasPrice() {
+        return getGasPrice(null);
+    }
+
+    @Override
+    public BigInteger getGasLimit(String contractFunc) {
+        return gasLimit;
+    }
+
+    /**
+     * @deprecated 与 ContractGasProvider 中的声明一致，使用 {@link #getGasLimit(String)}
+     */
+    @Deprecated
+    @Override
+    public BigInteger getGasLimit() {
+        return gasLimit;
+    }
+
+    /**
+     * 一次刷新得到的建议值。
+     */
+    private static final class Suggestion {
+        private final BigInteger blockNumber;
+        private final BigInteger baseFee;
+        private final BigInteger priorityFee;
+
+        private Suggestion(BigInteger blockNumber, BigInteger baseFee, BigInteger priorityFee) {
+            this.blockNumber = blockNumber;
+            this.baseFee = baseFee;
+            this.priorityFee = priorityFee;
+        }
+    }
+
+    /**
+     * eth_feeHistory 的响应。
+     */
+    public static class FeeHistoryResponse extends Response<FeeHistory> {
+    }
+
+    /**
+     * eth_feeHistory 的结果。
+     */
+    public static class FeeHistory {
+        private String oldestBlock;
+        private List<String> baseFeePerGas;
+        private List<Double> gasUsedRatio;
+        private List<List<String>> reward;
+
+        public String getOldestBlock() {
+            return oldestBlock;
+        }
+
+        public void setOldestBlock(String oldestBlock) {
+            this.oldestBlock = oldestBlock;
+        }
+
+        public List<String> getBaseFeePerGas() {
+            return baseFeePerGas;
+        }
+
+        public void setBaseFeePerGas(List<String> baseFeePerGas) {
+            this.baseFeePerGas = baseFeePerGas;
+        }
+
+        public List<Double> getGasUsedRatio() {
+            return gasUsedRatio;
+        }
+
+        public void setGasUsedRatio(List<Double> gasUsedRatio) {
+            this.gasUsedRatio = gasUsedRatio;
+        }
+
+        public List<List<String>> getReward() {
+            return reward;
+        }
+
+        public void setReward(List<List<String>> reward) {
+            this.reward = reward;
+        }
+    }
+}
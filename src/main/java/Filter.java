@@ -1,34 +1,58 @@
 import org.web3j.protocol.Web3j;
-import org.web3j.protocol.core.DefaultBlockParameter;
+import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.core.methods.request.EthFilter;
 
+import java.io.IOException;
 import java.math.BigInteger;
 
 /**
  * filter相关
  * 监听区块、交易
  * 所有监听都在Web3jRx中
+ * 新区块、确认区块、新交易、交易池交易和追赶监听的实时部分共用 SharedBlockPoller；
+ * 配置 -Dweb3.ws.endpoint 时改用 WebSocket 订阅，断线自动重连并补齐
  */
 public class Filter {
     private static Web3j web3j;
 
     public static void main(String[] args) {
         web3j = Web3Utils.getWeb3j();
+        /**
+         * 所有实时监听共用节点的轮询器，每个区块只请求一次
+         */
+        SharedBlockPoller poller = Web3Utils.getBlockPoller(web3j);
         /**
          * 新区块监听
          */
-        newBlockFilter(web3j);
+        newBlockFilter(poller);
+        /**
+         * 确认区块监听（12 个确认）
+         */
+        try {
+            confirmedBlockFilter(poller, 12);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
         /**
          * 新交易监听
          */
-        newTransactionFilter(web3j);
+        newTransactionFilter(poller);
+        /**
+         * 交易池新交易监听
+         */
+        pendingTransactionFilter(poller);
         /**
          * 遍历旧区块、交易
          */
         replayFilter(web3j);
+        /**
+         * 遍历旧区块中与指定合约相关的区块、日志（先用 logsBloom 筛选）
+         */
+        bloomReplayFilter(web3j);
         /**
          * 从某一区块开始直到最新区块、交易
          */
-        catchUpFilter(web3j);
+        catchUpFilter(poller);
 
         /**
          * 取消监听
@@ -36,61 +60,115 @@ public class Filter {
         //subscription.unsubscribe();
     }
 
-    private static void newBlockFilter(Web3j web3j) {
-        web3j.
-                blockFlowable(false).
-                subscribe(block -> {
-                    System.out.println("new block come in");
-                    System.out.println("block number" + block.getBlock().getNumber());
-                });
+    private static void newBlockFilter(SharedBlockPoller poller) {
+        poller.blockFlowable().subscribe(block -> {
+            System.out.println("new block come in");
+            System.out.println("block number" + block.getBlock().getNumber());
+        });
     }
 
-    private static void newTransactionFilter(Web3j web3j) {
-        web3j.
-                transactionFlowable().
-                subscribe(transaction -> {
-                    System.out.println("transaction come in");
-                    System.out.println("transaction txHash " + transaction.getHash());
+    /**
+     * 只在区块获得指定确认数后输出，链重组替换已输出的区块时输出撤回信息
+     */
+    private static ConfirmedEventStream confirmedBlockFilter(SharedBlockPoller poller, int confirmations) throws IOException {
+        long startBlock = web3j.ethBlockNumber().send().getBlockNumber().longValueExact() + 1;
+        ConfirmedEventStream stream = new ConfirmedEventStream(
+                ConfirmedEventStream.web3jSource(web3j, null),
+                confirmations,
+                confirmations + 64,
+                startBlock,
+                new ConfirmedEventStream.Listener() {
+                    @Override
+                    public void onBlockConfirmed(ConfirmedEventStream.BlockHeader header) {
+                        System.out.println("confirmed block come in");
+                        System.out.println("block number" + header.getNumber());
+                    }
+
+                    @Override
+                    public void onBlockRetracted(ConfirmedEventStream.BlockHeader header) {
+                        System.out.println("block retracted by reorg");
+                        System.out.println("block number" + header.getNumber());
+                    }
                 });
+        stream.start(poller);
+        return stream;
+    }
+
+    private static void newTransactionFilter(SharedBlockPoller poller) {
+        poller.transactionFlowable().subscribe(transaction -> {
+            System.out.println("transaction come in");
+            System.out.println("transaction txHash " + transaction.getHash());
+        });
+    }
+
+    private static void pendingTransactionFilter(SharedBlockPoller poller) {
+        poller.pendingTransactionHashFlowable().subscribe(hash -> {
+            System.out.println("pending transaction come in");
+            System.out.println("transaction txHash " + hash);
+        });
     }
 
     private static void replayFilter(Web3j web3j) {
         BigInteger startBlock = BigInteger.valueOf(2000000);
         BigInteger endBlock = BigInteger.valueOf(2010000);
+        ParallelBlockReplayer replayer = new ParallelBlockReplayer(web3j);
         /**
-         * 遍历旧区块
+         * 遍历旧区块（并发获取，按区块顺序输出）
          */
-        web3j.
-                replayPastBlocksFlowable(
-                        DefaultBlockParameter.valueOf(startBlock),
-                        DefaultBlockParameter.valueOf(endBlock),
-                        false).
+        replayer.
+                replayBlocks(startBlock.longValueExact(), endBlock.longValueExact(), false).
                 subscribe(ethBlock -> {
                     System.out.println("replay block");
                     System.out.println(ethBlock.getBlock().getNumber());
                 });
 
         /**
-         * 遍历旧交易
+         * 遍历旧交易（流式解析区块响应，边解析边输出，内存占用与区块大小无关）
          */
-        web3j.
-                replayPastTransactionsFlowable(
-                        DefaultBlockParameter.valueOf(startBlock),
-                        DefaultBlockParameter.valueOf(endBlock)).
+        replayer.
+                replayTransactionsStreaming(startBlock.longValueExact(), endBlock.longValueExact()).
                 subscribe(transaction -> {
                     System.out.println("replay transaction");
                     System.out.println("txHash " + transaction.getHash());
                 });
     }
 
-    private static void catchUpFilter(Web3j web3j) {
-        BigInteger startBlock = BigInteger.valueOf(2000000);
+    private static void bloomReplayFilter(Web3j web3j) {
+        long startBlock = 2000000;
+        long endBlock = 2010000;
+        EthFilter filter = new EthFilter(
+                DefaultBlockParameterName.EARLIEST,
+                DefaultBlockParameterName.LATEST,
+                CommonConstant.CONTRACT_ADDRESS);
+        ParallelBlockReplayer replayer = new ParallelBlockReplayer(web3j);
+        /**
+         * 只获取 logsBloom 可能匹配的区块的完整交易
+         */
+        replayer.
+                replayMatchingTransactions(startBlock, endBlock, filter).
+                subscribe(transaction -> {
+                    System.out.println("replay matching transaction");
+                    System.out.println("txHash " + transaction.getHash());
+                });
+
+        /**
+         * 只对 logsBloom 可能匹配的区块请求日志
+         */
+        replayer.
+                replayMatchingLogs(startBlock, endBlock, filter).
+                subscribe(log -> {
+                    System.out.println("replay matching log");
+                    System.out.println("block " + log.getBlockNumber() + " txHash " + log.getTransactionHash());
+                });
+    }
+
+    private static void catchUpFilter(SharedBlockPoller poller) {
+        long startBlock = 2000000;
 
         /**
-         * 遍历旧区块，监听新区块
+         * 遍历旧区块（并发获取），接着监听新区块
          */
-        web3j.replayPastAndFutureBlocksFlowable(
-                        DefaultBlockParameter.valueOf(startBlock), false)
+        poller.replayPastAndFutureBlocks(startBlock)
                 .subscribe(block -> {
                     System.out.println("block");
                     System.out.println(block.getBlock().getNumber());
@@ -99,8 +177,7 @@ public class Filter {
         /**
          * 遍历旧交易，监听新交易
          */
-        web3j.replayPastAndFutureTransactionsFlowable(
-                        DefaultBlockParameter.valueOf(startBlock))
+        poller.replayPastAndFutureTransactions(startBlock)
                 .subscribe(tx -> {
                     System.out.println("transaction");
                     System.out.println(tx.getHash());
@@ -0,0 +1,267 @@
+import org.bouncycastle.math.ec.ECPoint;
+import org.web3j.crypto.Bip32ECKeyPair;
+import org.web3j.crypto.ECKeyPair;
+import org.web3j.crypto.Hash;
+import org.web3j.crypto.MnemonicUtils;
+import org.web3j.crypto.Sign;
+import org.web3j.utils.Numeric;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * BIP-32/BIP-44 分层确定性钱包。
+ * 账户级节点 m/44'/60'/account'/0 只派生一次并缓存，之后每个子地址只需一次 HMAC 和一次标量乘法；
+ * 大范围的子地址在公共 ForkJoinPool 上并行派生，并可按需建立地址 → 索引的查找表。
+ * 钱包本身不持有线程；close 释放查找表。
+ */
+public class HdWallet implements AutoCloseable {
+
+    private static final int ADDRESS_LENGTH = 20;
+    private static final BigInteger CURVE_ORDER = Sign.CURVE_PARAMS.getN();
+
+    // 缓存的账户级节点
+    private final Bip32ECKeyPair accountNode;
+    private final BigInteger accountPrivateKey;
+    private final byte[] accountPublicKey;
+    private final byte[] chainCode;
+
+    // 查找表：地址前 8 字节 → 索引，开放寻址
+    private long[] lookupKeys;
+    private int[] lookupIndexes;
+    private byte[] lookupAddresses;
+    private int lookupSize;
+
+    /**
+     * @param seed    BIP-39 种子
+     * @param account BIP-44 账户编号
+     */
+    public HdWallet(byte[] seed, int account) {
+        Bip32ECKeyPair master = Bip32ECKeyPair.generateKeyPair(seed);
+        int[] path = {44 | Bip32ECKeyPair.HARDENED_BIT, 60 | Bip32ECKeyPair.HARDENED_BIT,
+                account | Bip32ECKeyPair.HARDENED_BIT, 0};
+        this.accountNode = Bip32ECKeyPair.deriveKeyPair(master, path);
+        this.accountPrivateKey = accountNode.getPrivateKey();
+        this.accountPublicKey = accountNode.getPublicKeyPoint().getEncoded(true);
+        this.chainCode = accountNode.getChainCode();
+    }
+
+    /**
+     * 根据助记词创建账户 0 的钱包。
+     *
+     * @param mnemonic   BIP-39 助记词
+     * @param passphrase 助记词密码，可为 null
+     */
+    public static HdWallet fromMnemonic(String mnemonic, String passphrase) {
+        return new HdWallet(MnemonicUtils.generateSeed(mnemonic, passphrase), 0);
+    }
+
+    /**
+     * 账户级节点 m/44'/60'/account'/0。
+     */
+    public Bip32ECKeyPair getAccountNode() {
+        return accountNode;
+    }
+
+    /**
+     * 派生 m/44'/60'/account'/0/index 的密钥对。
+     */
+    public ECKeyPair deriveKeyPair(int index) {
+        return ECKeyPair.create(childPrivateKey(index));
+    }
+
+    /**
+     * 派生指定索引的 20 字节地址。
+     */
+    public byte[] deriveAddress(int index) {
+        byte[] address = new byte[ADDRESS_LENGTH];
+        writeAddress(index, address, 0);
+        return address;
+    }
+
+    /**
+     * 派生指定索引的地址，带 "0x" 前缀。
+     */
+    public String getAddress(int index) {
+        return Numeric.toHexString(deriveAddress(index));
+    }
+
+    /**
+     * 并行派生 [fromIndex, fromIndex + count) 的地址。
+     *
+     * @return 连续存放的地址，第 i 个地址位于 [i * 20, i * 20 + 20)
+     */
+    public byte[] deriveAddresses(int fromIndex, int count) {
+        if (fromIndex < 0 || count < 0 || (long) fromIndex + count > Integer.MAX_VALUE + 1L) {
+            throw new IllegalArgumentException("Index range out of bounds");
+        }
+        byte[] addresses = new byte[count * ADDRESS_LENGTH];
+        // 并行流使用 ForkJoinPool.commonPool()，所有钱包共享
+        IntStream.range(0, count).parallel()
+                .forEach(i -> writeAddress(fromIndex + i, addresses, i * ADDRESS_LENGTH));
+        return addresses;
+    }
+
+    /**
+     * 派生 [0, count) 的地址并建立地址 → 索引查找表，替换之前的查找表。
+     */
+    public void buildLookup(int count) {
+        byte[] addresses = deriveAddresses(0, count);
+        int capacity = Integer.highestOneBit(Math.max(count, 1) * 2 - 1) << 1;
+        long[] keys = new long[capacity];
+        int[] indexes = new int[capacity];
+        Arrays.fill(indexes, -1);
+        int mask = capacity - 1;
+        for (int i = 0; i < count; i++) {
+            long key = prefix(addresses, i * ADDRESS_LENGTH);
+            int slot = (int) mix(key) & mask;
+            while (indexes[slot] != -1) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            indexes[slot] = i;
+        }
+        synchronized (this) {
+            lookupKeys = keys;
+            lookupIndexes = indexes;
+            lookupAddresses = addresses;
+            lookupSize = count;
+        }
+    }
+
+    /**
+     * 查询地址对应的索引。
+     *
+     * @param address 20 字节地址
+     * @return 索引；地址不在查找表范围内时返回 -1
+     * @throws IllegalStateException 如果尚未调用 buildLookup
+     */
+    public int indexOf(byte[] address) {
+        long[] keys;
+        int[] indexes;
+        byte[] addresses;
+        synchronized (this) {
+            if (lookupKeys == null) {
+                throw new IllegalStateException("Lookup table not built, call buildLookup first");
+            }
+            keys = lookupKeys;
+            indexes = lookupIndexes;
+            addresses = lookupAddresses;
+        }
+        if (address.length != ADDRESS_LENGTH) {
+            return -1;
+        }
+        long key = prefix(address, 0);
+        int mask = keys.length - 1;
+        int slot = (int) mix(key) & mask;
+        while (indexes[slot] != -1) {
+            // 前 8 字节相同时还要比较完整地址
+            if (keys[slot] == key && equalsAt(addresses, indexes[slot] * ADDRESS_LENGTH, address)) {
+                return indexes[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * 查询地址对应的索引。
+     *
+     * @param address 带 "0x" 前缀的十六进制地址
+     */
+    public int indexOf(String address) {
+        return indexOf(Numeric.hexStringToByteArray(address));
+    }
+
+    /**
+     * 查找表覆盖的地址数。
+     */
+    public synchronized int getLookupSize() {
+        return lookupSize;
+    }
+
+    /**
+     * 释放查找表。之后仍可派生地址，但 indexOf 需要重新调用 buildLookup。
+     */
+    @Override
+    public synchronized void close() {
+        lookupKeys = null;
+        lookupIndexes = null;
+        lookupAddresses = null;
+        lookupSize = 0;
+    }
+
+    /**
+     * 非强化子节点派生（BIP-32 CKDpriv）：I = HMAC-SHA512(chainCode, serP(K) || ser32(i))，k_i = IL + k。
+     */
+    private BigInteger childPrivateKey(int index) {
+        if (index < 0) {
+            throw new IllegalArgumentException("Hardened child index not supported: " + index);
+        }
+        byte[] data = Arrays.copyOf(accountPublicKey, accountPublicKey.length + 4);
+        data[33] = (byte) (index >>> 24);
+        data[34] = (byte) (index >>> 16);
+        data[35] = (byte) (index >>> 8);
+        data[36] = (byte) index;
+        byte[] i = Hash.hmacSha512(chainCode, data);
+        BigInteger il = new BigInteger(1, Arrays.copyOfRange(i, 0, 32));
+        BigInteger key = il.add(accountPrivateKey).mod(CURVE_ORDER);
+        if (il.compareTo(CURVE_ORDER) >= 0 || key.signum() == 0) {
+            // 概率约 1/2^127，按 BIP-32 规定此索引无效
+            throw new IllegalStateException("Invalid child key at index " + index);
+        }
+        return key;
+    }
+
+    private void writeAddress(int index, byte[] out, int offset) {
+        ECPoint point = Sign.publicPointFromPrivate(childPrivateKey(index));
+        byte[] hash = Hash.sha3(point.getEncoded(false), 1, 64);
+        System.arraycopy(hash, hash.length - ADDRESS_LENGTH, out, offset, ADDRESS_LENGTH);
+    }
+
+    private static long prefix(byte[] bytes, int offset) {
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = (value << 8) | (bytes[offset + i] & 0xFF);
+        }
+        return value;
+    }
+
+    private static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        return key ^ (key >>> 33);
+    }
+
+    private static boolean equalsAt(byte[] addresses, int offset, byte[] address) {
+        for (int i = 0; i < ADDRESS_LENGTH; i++) {
+            if (addresses[offset + i] != address[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public static void main(String[] args) {
+        String mnemonic = "test test test test test test test test test test test junk";
+        try (HdWallet wallet = HdWallet.fromMnemonic(mnemonic, null)) {
+            // 与 web3j 完整路径派生的结果对比
+            Bip32ECKeyPair master = Bip32ECKeyPair.generateKeyPair(MnemonicUtils.generateSeed(mnemonic, null));
+            int[] path = {44 | Bip32ECKeyPair.HARDENED_BIT, 60 | Bip32ECKeyPair.HARDENED_BIT,
+                    Bip32ECKeyPair.HARDENED_BIT, 0, 7};
+            String expected = Wallet.getWalletAddressFromPrivateKeyHex(
+                    Bip32ECKeyPair.deriveKeyPair(master, path).getPrivateKey().toString(CommonConstant.PRIVATE_KEY_RADIX));
+            System.out.println("Index 0 address: " + wallet.getAddress(0));
+            System.out.println("Index 7 address: " + wallet.getAddress(7) + ", matches full path: "
+                    + expected.equalsIgnoreCase(wallet.getAddress(7)));
+
+            int count = 20_000;
+            long start = System.nanoTime();
+            wallet.buildLookup(count);
+            double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+            System.out.printf("Derived %d addresses in %.1fs (%.0f addresses/s)%n", count, seconds, count / seconds);
+            System.out.println("Index of " + wallet.getAddress(12_345) + ": " + wallet.indexOf(wallet.getAddress(12_345)));
+        }
+    }
+}
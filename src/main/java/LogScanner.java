@@ -0,0 +1,365 @@
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameter;
+import org.web3j.protocol.core.methods.request.EthFilter;
+import org.web3j.protocol.core.methods.response.EthLog;
+import org.web3j.protocol.core.methods.response.Log;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 历史日志扫描器。
+ * 把大区块范围拆分为多个分段并发调用 eth_getLogs，节点明确提示结果过多或范围过大时自动二分分段，
+ * 结果稀疏时自动增大分段；日志严格按（区块号，日志序号）顺序交给处理器。
+ * 超时等其他失败按指数退避重试同一分段，不二分，避免节点过载时把请求数成倍放大。
+ */
+public class LogScanner {
+
+    public static final long DEFAULT_INITIAL_CHUNK = 2_000;
+    public static final long DEFAULT_MAX_CHUNK = 100_000;
+    public static final int DEFAULT_PARALLELISM = 4;
+    // 分段内日志数低于该值时认为结果稀疏，下一个分段加倍
+    private static final int SPARSE_THRESHOLD = 1_000;
+    // 已完成但尚未按序交付的分段数上限（相对并发数的倍数）
+    private static final int BUFFER_FACTOR = 4;
+    private static final int MAX_ATTEMPTS = 3;
+    // 重试前的等待时间，每次失败后加倍
+    private static final long INITIAL_BACKOFF_MILLIS = 500;
+    private static final long MAX_BACKOFF_MILLIS = 8_000;
+
+    private static final Comparator<Log> LOG_ORDER = Comparator
+            .comparing(Log::getBlockNumber)
+            .thenComparing(Log::getLogIndex);
+
+    private final Web3j web3j;
+    private final long maxChunk;
+    private final int parallelism;
+    private final AtomicLong chunkSize;
+
+    public LogScanner(Web3j web3j) {
+        this(web3j, DEFAULT_INITIAL_CHUNK, DEFAULT_MAX_CHUNK, DEFAULT_PARALLELISM);
+    }
+
+    /**
+     * @param web3j        Web3j 实例
+     * @param initialChunk 初始分段区块数
+     * @param maxChunk     分段区块数上限
+     * @param parallelism  同时在途的 eth_getLogs 请求数
+     */
+    public LogScanner(Web3j web3j, long initialChunk, long maxChunk, int parallelism) {
+        if (initialChunk <= 0 || maxChunk < initialChunk || parallelism <= 0) {
+            throw new IllegalArgumentException("Invalid chunk size or parallelism");
+        }
+        this.web3j = web3j;
+        this.maxChunk = maxChunk;
+        this.parallelism = parallelism;
+        this.chunkSize = new AtomicLong(initialChunk);
+    }
+
+    /**
+     * 日志处理器。所有回调都在调用 scan 的线程上按顺序执行。
+     */
+    public interface LogHandler {
+        /**
+         * 处理一条日志。
+         */
+        void onLog(Log log);
+
+        /**
+         * 通知 toBlock 及之前区块的日志已全部交付，可用于记录进度。
+         */
+        default void onRangeComplete(long toBlock) {
+        }
+    }
+
+    /**
+     * 扫描 [fromBlock, toBlock] 范围内符合过滤条件的日志。
+     *
+     * @param template  过滤条件模板，只使用其中的合约地址和 topics，区块范围由扫描器决定
+     * @param fromBlock 起始区块（包含）
+     * @param toBlock   结束区块（包含）
+     * @param handler   日志处理器
+     * @throws IOException 如果某个分段多次重试后仍然失败
+     */
+    public void scan(EthFilter template, long fromBlock, long toBlock, LogHandler handler) throws IOException {
+        if (fromBlock > toBlock) {
+            return;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        BlockingQueue<Chunk> completions = new LinkedBlockingQueue<>();
+        Map<Long, Chunk> buffered = new HashMap<>();
+        long dispatchCursor = fromBlock;
+        long deliverCursor = fromBlock;
+        int inFlight = 0;
+
+        try {
+            while (deliverCursor <= toBlock) {
+                // 在并发数和缓冲区允许的范围内继续派发分段
+                while (dispatchCursor <= toBlock && inFlight < parallelism
+                        && buffered.size() < parallelism * BUFFER_FACTOR) {
+                    long start = dispatchCursor;
+                    long end = Math.min(toBlock, start + chunkSize.get() - 1);
+                    executor.execute(() -> completions.add(fetchChunk(template, start, end)));
+                    dispatchCursor = end + 1;
+                    inFlight++;
+                }
+
+                Chunk chunk = completions.take();
+                inFlight--;
+                if (chunk.error != null) {
+                    throw chunk.error;
+                }
+                buffered.put(chunk.start, chunk);
+
+                // 按区块顺序交付已经连续完成的分段
+                Chunk next;
+                while ((next = buffered.remove(deliverCursor)) != null) {
+                    for (Log log : next.logs) {
+                        handler.onLog(log);
+                    }
+                    handler.onRangeComplete(next.end);
+                    deliverCursor = next.end + 1;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Log scan interrupted");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 以流式解析的方式扫描 [fromBlock, toBlock]，日志边解析边交给处理器，内存占用与单个分段的结果大小无关。
+     * 分段依次请求（不并发），仍按结果多少自动调整分段大小；依赖节点按（区块号，日志序号）顺序返回日志。
+     * 响应读到一半失败时重新请求该分段，并跳过已经交付的日志。
+     * 只支持通过 Web3Utils 创建的 Web3j 实例。
+     *
+     * @param template  过滤条件模板，只使用其中的合约地址和 topics
+     * @param fromBlock 起始区块（包含）
+     * @param toBlock   结束区块（包含）
+     * @param handler   日志处理器，在调用线程上执行
+     * @throws IOException 如果某个分段多次重试后仍然失败
+     */
+    public void scanStreaming(EthFilter template, long fromBlock, long toBlock, LogHandler handler) throws IOException {
+        StreamingRpc rpc = new StreamingRpc(Web3Utils.getService(web3j));
+        long cursor = fromBlock;
+        while (cursor <= toBlock) {
+            long end = Math.min(toBlock, cursor + chunkSize.get() - 1);
+            int delivered = streamRange(rpc, template, cursor, end, handler, new StreamPosition());
+            if (delivered < SPARSE_THRESHOLD) {
+                long span = end - cursor + 1;
+                chunkSize.accumulateAndGet(span * 2, (current, grown) -> Math.max(current, Math.min(maxChunk, grown)));
+            }
+            handler.onRangeComplete(end);
+            cursor = end + 1;
+        }
+    }
+
+    /**
+     * 流式获取 [start, end] 的日志；节点提示范围过大时二分后分别获取。
+     *
+     * @return 本次交付的日志数
+     */
+    private int streamRange(StreamingRpc rpc, EthFilter template, long start, long end,
+                            LogHandler handler, StreamPosition position) throws IOException {
+        int delivered = 0;
+        IOException lastError = null;
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            backoff(attempt);
+            try (StreamingRpc.Cursor<Log> logs = rpc.openLogs(copyFilter(template, start, end))) {
+                Log log;
+                while ((log = logs.next()) != null) {
+                    if (position.accept(log)) {
+                        handler.onLog(log);
+                        delivered++;
+                    }
+                }
+                return delivered;
+            } catch (StreamingRpc.RpcException e) {
+                // 错误响应不含任何日志，可以安全地二分
+                if (isRangeTooLarge(e.getCode(), e.getMessage())) {
+                    return delivered + bisectStreaming(rpc, template, start, end, handler, position, e.getMessage());
+                }
+                lastError = new IOException("eth_getLogs " + start + "-" + end + " failed: " + e.getMessage(), e);
+            } catch (IOException e) {
+                lastError = e;
+            }
+        }
+        throw lastError;
+    }
+
+    private int bisectStreaming(StreamingRpc rpc, EthFilter template, long start, long end,
+                                LogHandler handler, StreamPosition position, String reason) throws IOException {
+        if (start == end) {
+            throw new IOException("Block " + start + " cannot be split further: " + reason);
+        }
+        long mid = start + (end - start) / 2;
+        chunkSize.accumulateAndGet(mid - start + 1, Math::min);
+        // 已交付的日志由 position 跳过，前半段只会补上剩余的部分
+        return streamRange(rpc, template, start, mid, handler, position)
+                + streamRange(rpc, template, mid + 1, end, handler, position);
+    }
+
+    /**
+     * 获取一个分段的日志，失败时记录在结果中而不是抛出。
+     */
+    private Chunk fetchChunk(EthFilter template, long start, long end) {
+        try {
+            List<Log> logs = fetchRange(template, start, end);
+            logs.sort(LOG_ORDER);
+            if (logs.size() < SPARSE_THRESHOLD) {
+                long span = end - start + 1;
+                chunkSize.accumulateAndGet(span * 2, (current, grown) -> Math.max(current, Math.min(maxChunk, grown)));
+            }
+            return new Chunk(start, end, logs, null);
+        } catch (IOException e) {
+            return new Chunk(start, end, null, e);
+        } catch (RuntimeException e) {
+            return new Chunk(start, end, null, new IOException("Failed to fetch logs " + start + "-" + end, e));
+        }
+    }
+
+    /**
+     * 获取 [start, end] 的日志；节点提示范围过大时二分后分别获取。
+     */
+    private List<Log> fetchRange(EthFilter template, long start, long end) throws IOException {
+        IOException lastError = null;
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            backoff(attempt);
+            EthLog response;
+            try {
+                response = web3j.ethGetLogs(copyFilter(template, start, end)).send();
+            } catch (IOException e) {
+                lastError = e;
+                continue;
+            }
+
+            if (response.hasError()) {
+                String message = response.getError().getMessage();
+                if (isRangeTooLarge(response.getError().getCode(), message)) {
+                    return bisect(template, start, end, message);
+                }
+                lastError = new IOException("eth_getLogs " + start + "-" + end + " failed: " + message);
+                continue;
+            }
+
+            List<Log> logs = new ArrayList<>(response.getLogs().size());
+            for (EthLog.LogResult<?> result : response.getLogs()) {
+                logs.add((Log) result.get());
+            }
+            return logs;
+        }
+        throw lastError;
+    }
+
+    private List<Log> bisect(EthFilter template, long start, long end, String reason) throws IOException {
+        if (start == end) {
+            throw new IOException("Block " + start + " cannot be split further: " + reason);
+        }
+        long mid = start + (end - start) / 2;
+        // 后续分段从更小的尺寸开始
+        long half = mid - start + 1;
+        chunkSize.accumulateAndGet(half, Math::min);
+
+        List<Log> logs = fetchRange(template, start, mid);
+        logs.addAll(fetchRange(template, mid + 1, end));
+        return logs;
+    }
+
+    /**
+     * 第 attempt 次请求前等待，第一次请求不等待。
+     */
+    private static void backoff(int attempt) throws InterruptedIOException {
+        if (attempt <= 1) {
+            return;
+        }
+        long delay = Math.min(MAX_BACKOFF_MILLIS, INITIAL_BACKOFF_MILLIS << (attempt - 2));
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Log scan interrupted");
+        }
+    }
+
+    /**
+     * 判断节点错误是否为"结果过多/范围过大"，不同节点的错误信息不同。
+     */
+    static boolean isRangeTooLarge(int code, String message) {
+        if (code == -32005) {
+            return true;
+        }
+        if (message == null) {
+            return false;
+        }
+        String lower = message.toLowerCase();
+        return lower.contains("more than")
+                || lower.contains("too many")
+                || lower.contains("limit exceeded")
+                || lower.contains("response size")
+                || lower.contains("range is too")
+                || lower.contains("block range")
+                || lower.contains("query timeout");
+    }
+
+    private static EthFilter copyFilter(EthFilter template, long start, long end) {
+        EthFilter filter = new EthFilter(
+                DefaultBlockParameter.valueOf(BigInteger.valueOf(start)),
+                DefaultBlockParameter.valueOf(BigInteger.valueOf(end)),
+                template.getAddress()
+        );
+        filter.getTopics().addAll(template.getTopics());
+        return filter;
+    }
+
+    /**
+     * 流式扫描中最后交付的日志位置，用于重试时跳过已交付的日志。
+     */
+    private static final class StreamPosition {
+        private long blockNumber = -1;
+        private long logIndex = -1;
+
+        /**
+         * 日志在最后交付的位置之后时记录并返回 true。
+         */
+        private boolean accept(Log log) {
+            long block = log.getBlockNumber().longValueExact();
+            long index = log.getLogIndex().longValueExact();
+            if (block < blockNumber || (block == blockNumber && index <= logIndex)) {
+                return false;
+            }
+            blockNumber = block;
+            logIndex = index;
+            return true;
+        }
+    }
+
+    /**
+     * 一个分段的获取结果。
+     */
+    private static final class Chunk {
+        private final long start;
+        private final long end;
+        private final List<Log> logs;
+        private final IOException error;
+
+        private Chunk(long start, long end, List<Log> logs, IOException error) {
+            this.start = start;
+            this.end = end;
+            this.logs = logs;
+            this.error = error;
+        }
+    }
+}
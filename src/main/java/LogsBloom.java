@@ -0,0 +1,204 @@
+import org.web3j.crypto.Hash;
+import org.web3j.protocol.core.methods.request.EthFilter;
+import org.web3j.utils.Numeric;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 区块头中的 logsBloom（2048 位布隆过滤器）。
+ * 按黄皮书 M3:2048 定义：对日志的合约地址和每个 topic 计算 keccak256，取哈希前 6 个字节组成的 3 个 16 位数的低 11 位作为位号，
+ * 位号 b 对应字节 255 - b / 8 的第 b % 8 位（大端序）。
+ * 布隆过滤器只会误报不会漏报：检查不通过的区块一定不包含匹配的日志。
+ */
+public class LogsBloom {
+
+    public static final int BYTE_LENGTH = 256;
+    private static final int BIT_MASK = 2047;
+    private static final int PROBES = 3;
+
+    private final byte[] bloom;
+
+    public LogsBloom() {
+        this(new byte[BYTE_LENGTH]);
+    }
+
+    private LogsBloom(byte[] bloom) {
+        this.bloom = bloom;
+    }
+
+    /**
+     * 解析区块头中的 logsBloom 字段。
+     *
+     * @param hex 带或不带 0x 前缀的 512 位十六进制字符串
+     */
+    public static LogsBloom fromHex(String hex) {
+        byte[] bytes = Numeric.hexStringToByteArray(hex);
+        if (bytes.length != BYTE_LENGTH) {
+            throw new IllegalArgumentException("logsBloom must be " + BYTE_LENGTH + " bytes, got " + bytes.length);
+        }
+        return new LogsBloom(bytes);
+    }
+
+    /**
+     * 加入一个值（20 字节地址或 32 字节 topic）。
+     */
+    public void add(byte[] value) {
+        byte[] hash = Hash.sha3(value);
+        for (int i = 0; i < PROBES; i++) {
+            int bit = bitIndex(hash, i);
+            bloom[byteIndex(bit)] |= bitMask(bit);
+        }
+    }
+
+    /**
+     * 判断一个值是否可能在集合中。
+     */
+    public boolean mightContain(byte[] value) {
+        return mightContain(bloom, new Probe(value));
+    }
+
+    public byte[] toByteArray() {
+        return bloom.clone();
+    }
+
+    public String toHex() {
+        return Numeric.toHexString(bloom);
+    }
+
+    private static boolean mightContain(byte[] bloom, Probe probe) {
+        for (int i = 0; i < PROBES; i++) {
+            if ((bloom[probe.byteIndex[i]] & probe.mask[i]) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int bitIndex(byte[] hash, int probe) {
+        return (((hash[2 * probe] & 0xff) << 8) | (hash[2 * probe + 1] & 0xff)) & BIT_MASK;
+    }
+
+    private static int byteIndex(int bit) {
+        return BYTE_LENGTH - 1 - (bit >>> 3);
+    }
+
+    private static int bitMask(int bit) {
+        return 1 << (bit & 7);
+    }
+
+    /**
+     * 一个值在布隆过滤器中的 3 个位置，预先计算以便对大量区块重复检查。
+     */
+    private static final class Probe {
+        private final int[] byteIndex = new int[PROBES];
+        private final int[] mask = new int[PROBES];
+
+        private Probe(byte[] value) {
+            byte[] hash = Hash.sha3(value);
+            for (int i = 0; i < PROBES; i++) {
+                int bit = bitIndex(hash, i);
+                byteIndex[i] = byteIndex(bit);
+                mask[i] = bitMask(bit);
+            }
+        }
+
+        /**
+         * 直接在十六进制字符串上检查，省去把整个 logsBloom 解码成字节数组。
+         */
+        private boolean isSetIn(String hex, int offset) {
+            for (int i = 0; i < PROBES; i++) {
+                // 每个字节两个字符，mask 在低 4 位时看第二个字符
+                int charIndex = offset + 2 * byteIndex[i] + (mask[i] < 0x10 ? 1 : 0);
+                int nibble = Character.digit(hex.charAt(charIndex), 16);
+                int nibbleMask = mask[i] < 0x10 ? mask[i] : mask[i] >>> 4;
+                if ((nibble & nibbleMask) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * 根据 EthFilter 的地址和 topics 检查区块的 logsBloom。
+     * 与 eth_getLogs 的语义一致：地址之间为“或”，topic 每个位置内的候选值为“或”，位置之间为“与”。
+     */
+    public static final class Query {
+        // 为空表示任意地址
+        private final List<Probe> addresses = new ArrayList<>();
+        // 每个非通配位置的候选 topic
+        private final List<List<Probe>> topics = new ArrayList<>();
+
+        public Query(EthFilter filter) {
+            if (filter.getAddress() != null) {
+                for (String address : filter.getAddress()) {
+                    addresses.add(new Probe(Numeric.hexStringToByteArray(address)));
+                }
+            }
+            for (List<String> candidates : WebSocketEventSource.topicCandidates(filter)) {
+                if (candidates == null) {
+                    continue;
+                }
+                List<Probe> probes = new ArrayList<>(candidates.size());
+                for (String topic : candidates) {
+                    probes.add(new Probe(Numeric.hexStringToByteArray(topic)));
+                }
+                topics.add(probes);
+            }
+        }
+
+        public boolean mightMatch(LogsBloom bloom) {
+            return mightMatch(bloom.bloom);
+        }
+
+        public boolean mightMatch(byte[] bloom) {
+            if (!addresses.isEmpty() && !anyContained(bloom, addresses)) {
+                return false;
+            }
+            for (List<Probe> candidates : topics) {
+                if (!anyContained(bloom, candidates)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * 检查区块头中的 logsBloom 十六进制字符串。
+         */
+        public boolean mightMatch(String logsBloomHex) {
+            int offset = Numeric.containsHexPrefix(logsBloomHex) ? 2 : 0;
+            if (logsBloomHex.length() - offset != BYTE_LENGTH * 2) {
+                throw new IllegalArgumentException("logsBloom must be " + BYTE_LENGTH + " bytes");
+            }
+            if (!addresses.isEmpty() && !anyContained(logsBloomHex, offset, addresses)) {
+                return false;
+            }
+            for (List<Probe> candidates : topics) {
+                if (!anyContained(logsBloomHex, offset, candidates)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static boolean anyContained(byte[] bloom, List<Probe> probes) {
+            for (Probe probe : probes) {
+                if (LogsBloom.mightContain(bloom, probe)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static boolean anyContained(String hex, int offset, List<Probe> probes) {
+            for (Probe probe : probes) {
+                if (probe.isSetIn(hex, offset)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
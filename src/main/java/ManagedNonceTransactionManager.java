@@ -0,0 +1,164 @@
+import org.web3j.crypto.Credentials;
+import org.web3j.crypto.RawTransaction;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.methods.response.EthSendTransaction;
+import org.web3j.tx.RawTransactionManager;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+/**
+ * 使用本地 NonceManager 分配 nonce 的交易管理器。
+ * 发送交易时不再远程查询 nonce，节点返回 nonce 相关错误时自动重新同步，因其他原因失败时退回 nonce。
+ * 传统交易和 EIP-1559 交易的发送路径都经过这里，每个分配出去的 nonce 都会被确认或退回。
+ */
+public class ManagedNonceTransactionManager extends RawTransactionManager {
+
+    private final Web3j web3j;
+    private final Credentials credentials;
+    private final long chainId;
+    private final NonceManager nonceManager;
+
+    /**
+     * @param web3j       Web3j 实例
+     * @param credentials 发送方凭证
+     * @param chainId     链 ID（可通过 Web3Utils.getChainId 获取缓存值）
+     */
+    public ManagedNonceTransactionManager(Web3j web3j, Credentials credentials, long chainId) {
+        super(web3j, credentials, chainId);
+        this.web3j = web3j;
+        this.credentials = credentials;
+        this.chainId = chainId;
+        this.nonceManager = NonceManager.forAccount(web3j, credentials.getAddress());
+    }
+
+    @Override
+    protected BigInteger getNonce() throws IOException {
+        return nonceManager.allocate();
+    }
+
+    /**
+     * 发送交易；如果节点提示 nonce 失效，重新同步后再重试一次。
+     * 发送失败时根据失败原因确认或退回 nonce，不会留下空档。
+     */
+    @Override
+    public EthSendTransaction sendTransaction(BigInteger gasPrice, BigInteger gasLimit, String to,
+                                              String data, BigInteger value, boolean constructor) throws IOException {
+        return sendWithRetry(nonce -> sign(RawTransaction.createTransaction(nonce, gasPrice, gasLimit, to, value, data)));
+    }
+
+    /**
+     * 发送 EIP-1559（type 2）交易，nonce 的处理与 {@link #sendTransaction} 相同。
+     * 不使用 web3j 5.0.0 的草案格式编码，见 {@link Eip1559Transaction}。
+     *
+     * @param maxPriorityFeePerGas 最高小费（Wei）
+     * @param maxFeePerGas         最高费用（Wei）
+     */
+    @Override
+    public EthSendTransaction sendTransactionEIP1559(BigInteger maxPriorityFeePerGas, BigInteger maxFeePerGas,
+                                                     BigInteger gasLimit, String to, String data, BigInteger value,
+                                                     boolean constructor) throws IOException {
+        return sendWithRetry(nonce -> new Eip1559Transaction(
+                chainId, nonce, maxPriorityFeePerGas, maxFeePerGas, gasLimit, to, value, data).signAsHex(credentials));
+    }
+
+    /**
+     * 异步发送交易。nonce 在调用线程上同步分配，保证发送顺序与调用顺序一致，
+     * 网络请求在后台执行，多笔交易可以同时在途。
+     *
+     * @return 发送结果；如果节点提示 nonce 失效，会触发重新同步，但不会自动重发。
+     * 发送请求失败或重新同步失败时以异常结束
+     */
+    public CompletableFuture<EthSendTransaction> sendTransactionAsync(BigInteger gasPrice, BigInteger gasLimit,
+                                                                      String to, String data, BigInteger value) {
+        return sendAsync(nonce -> sign(RawTransaction.createTransaction(nonce, gasPrice, gasLimit, to, value, data)));
+    }
+
+    /**
+     * 异步发送 EIP-1559（type 2）交易，行为与 {@link #sendTransactionAsync} 相同。
+     */
+    public CompletableFuture<EthSendTransaction> sendTransactionEIP1559Async(BigInteger maxPriorityFeePerGas,
+                                                                             BigInteger maxFeePerGas,
+                                                                             BigInteger gasLimit, String to,
+                                                                             String data, BigInteger value) {
+        return sendAsync(nonce -> new Eip1559Transaction(
+                chainId, nonce, maxPriorityFeePerGas, maxFeePerGas, gasLimit, to, value, data).signAsHex(credentials));
+    }
+
+    private EthSendTransaction sendWithRetry(Function<BigInteger, String> signer) throws IOException {
+        EthSendTransaction response = send(signer);
+        if (response.hasError() && NonceManager.isNonceError(response.getError().getMessage())) {
+            response = send(signer);
+        }
+        return response;
+    }
+
+    private CompletableFuture<EthSendTransaction> sendAsync(Function<BigInteger, String> signer) {
+        CompletableFuture<EthSendTransaction> result = new CompletableFuture<>();
+        BigInteger nonce;
+        try {
+            nonce = nonceManager.allocate();
+        } catch (IOException e) {
+            result.completeExceptionally(e);
+            return result;
+        }
+
+        String signedTransaction;
+        try {
+            signedTransaction = signer.apply(nonce);
+        } catch (RuntimeException e) {
+            nonceManager.release(nonce);
+            result.completeExceptionally(e);
+            return result;
+        }
+        web3j.ethSendRawTransaction(signedTransaction).sendAsync().whenComplete((response, error) -> {
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause() : error;
+                try {
+                    nonceManager.onSendFailure(nonce);
+                } catch (IOException e) {
+                    cause.addSuppressed(e);
+                }
+                result.completeExceptionally(cause);
+                return;
+            }
+            try {
+                nonceManager.onSendResult(nonce, response.getError());
+                result.complete(response);
+            } catch (IOException e) {
+                result.completeExceptionally(new IOException("Nonce resync failed", e));
+            }
+        });
+        return result;
+    }
+
+    /**
+     * 分配 nonce、签名并发送一笔交易，按发送结果更新 nonce 状态。
+     *
+     * @param signer 用分配到的 nonce 构造并签名交易
+     */
+    private EthSendTransaction send(Function<BigInteger, String> signer) throws IOException {
+        BigInteger nonce = nonceManager.allocate();
+        EthSendTransaction response;
+        try {
+            response = web3j.ethSendRawTransaction(signer.apply(nonce)).send();
+        } catch (IOException | RuntimeException e) {
+            try {
+                nonceManager.onSendFailure(nonce);
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+        nonceManager.onSendResult(nonce, response.getError());
+        return response;
+    }
+
+    public NonceManager getNonceManager() {
+        return nonceManager;
+    }
+}
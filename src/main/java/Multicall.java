@@ -0,0 +1,252 @@
+import org.web3j.abi.FunctionEncoder;
+import org.web3j.abi.FunctionReturnDecoder;
+import org.web3j.abi.datatypes.Function;
+import org.web3j.abi.datatypes.Type;
+import org.web3j.crypto.Hash;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameter;
+import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.core.methods.request.Transaction;
+import org.web3j.protocol.core.methods.response.EthCall;
+import org.web3j.utils.Numeric;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 将多个只读合约调用合并为一次 Multicall3 aggregate3 调用。
+ * 调用结果按添加顺序返回，每个调用可以单独失败（allowFailure）。
+ */
+public class Multicall {
+
+    // Multicall3 在主网和大部分测试网上的部署地址
+    public static final String MULTICALL3_ADDRESS = "0xcA11bde05977b3631167028862bE2a173976CA11";
+
+    private static final String AGGREGATE3_SIGNATURE = "aggregate3((address,bool,bytes)[])";
+    private static final byte[] AGGREGATE3_SELECTOR = selector(AGGREGATE3_SIGNATURE);
+    private static final int WORD = 32;
+
+    private final Web3j web3j;
+    private final String from;
+    private final String multicallAddress;
+    private final List<Call> calls = new ArrayList<>();
+
+    public Multicall(Web3j web3j, String from) {
+        this(web3j, from, MULTICALL3_ADDRESS);
+    }
+
+    /**
+     * @param web3j            Web3j 实例
+     * @param from             调用方地址
+     * @param multicallAddress Multicall3 合约地址
+     */
+    public Multicall(Web3j web3j, String from, String multicallAddress) {
+        this.web3j = web3j;
+        this.from = from;
+        this.multicallAddress = multicallAddress;
+    }
+
+    /**
+     * 添加一个允许失败的调用。
+     *
+     * @param target   目标合约地址
+     * @param function 合约函数（需包含输出参数类型，用于解码结果）
+     */
+    public Multicall add(String target, Function function) {
+        return add(target, function, true);
+    }
+
+    /**
+     * 添加一个调用。
+     *
+     * @param target       目标合约地址
+     * @param function     合约函数
+     * @param allowFailure 为 false 时，该调用失败会导致整个 aggregate3 调用回滚
+     */
+    public Multicall add(String target, Function function, boolean allowFailure) {
+        calls.add(new Call(target, function, allowFailure));
+        return this;
+    }
+
+    public int size() {
+        return calls.size();
+    }
+
+    /**
+     * 在最新区块上执行所有调用。
+     */
+    public List<Result> execute() throws IOException {
+        return execute(DefaultBlockParameterName.LATEST);
+    }
+
+    /**
+     * 在指定区块上执行所有调用。
+     *
+     * @param block 区块参数
+     * @return 与添加顺序一致的调用结果
+     * @throws IOException 如果请求失败或 aggregate3 整体回滚
+     */
+    public List<Result> execute(DefaultBlockParameter block) throws IOException {
+        if (calls.isEmpty()) {
+            return Collections.emptyList();
+        }
+        EthCall response = web3j.ethCall(
+                Transaction.createEthCallTransaction(from, multicallAddress, encodeAggregate3(calls)),
+                block
+        ).send();
+        if (response.hasError()) {
+            throw new IOException("aggregate3 call failed: " + response.getError().getMessage());
+        }
+        return decodeAggregate3(response.getValue(), calls);
+    }
+
+    /**
+     * 编码 aggregate3((address,bool,bytes)[]) 的调用数据。
+     */
+    static String encodeAggregate3(List<Call> calls) {
+        int count = calls.size();
+        byte[][] callData = new byte[count][];
+        int tailSize = 0;
+        for (int i = 0; i < count; i++) {
+            callData[i] = Numeric.hexStringToByteArray(FunctionEncoder.encode(calls.get(i).function));
+            tailSize += 4 * WORD + padded(callData[i].length);
+        }
+
+        // 选择器 + 数组偏移 + 数组长度 + 每个元素的偏移 + 元素内容
+        byte[] out = new byte[4 + 2 * WORD + count * WORD + tailSize];
+        System.arraycopy(AGGREGATE3_SELECTOR, 0, out, 0, 4);
+        int base = 4;
+        writeInt(out, base, WORD);
+        writeInt(out, base + WORD, count);
+
+        int elementsStart = base + 2 * WORD;
+        int cursor = elementsStart + count * WORD;
+        for (int i = 0; i < count; i++) {
+            Call call = calls.get(i);
+            writeInt(out, elementsStart + i * WORD, cursor - elementsStart);
+
+            byte[] target = Numeric.hexStringToByteArray(call.target);
+            System.arraycopy(target, 0, out, cursor + WORD - target.length, target.length);
+            writeInt(out, cursor + WORD, call.allowFailure ? 1 : 0);
+            writeInt(out, cursor + 2 * WORD, 3 * WORD);
+            writeInt(out, cursor + 3 * WORD, callData[i].length);
+            System.arraycopy(callData[i], 0, out, cursor + 4 * WORD, callData[i].length);
+            cursor += 4 * WORD + padded(callData[i].length);
+        }
+        return Numeric.toHexString(out);
+    }
+
+    /**
+     * 解码 aggregate3 返回的 (bool,bytes)[]，并按各调用的输出类型解码返回值。
+     */
+    static List<Result> decodeAggregate3(String hex, List<Call> calls) throws IOException {
+        byte[] data = Numeric.hexStringToByteArray(hex);
+        try {
+            int arrayStart = readInt(data, 0);
+            int count = readInt(data, arrayStart);
+            if (count != calls.size()) {
+                throw new IOException("aggregate3 returned " + count + " results for " + calls.size() + " calls");
+            }
+            int elementsStart = arrayStart + WORD;
+            List<Result> results = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int tupleStart = elementsStart + readInt(data, elementsStart + i * WORD);
+                boolean success = readInt(data, tupleStart) != 0;
+                int bytesStart = tupleStart + readInt(data, tupleStart + WORD);
+                int length = readInt(data, bytesStart);
+                byte[] returnData = new byte[length];
+                System.arraycopy(data, bytesStart + WORD, returnData, 0, length);
+
+                String returnHex = Numeric.toHexString(returnData);
+                List<Type> values = success
+                        ? FunctionReturnDecoder.decode(returnHex, calls.get(i).function.getOutputParameters())
+                        : Collections.<Type>emptyList();
+                results.add(new Result(success, returnHex, values));
+            }
+            return results;
+        } catch (ArrayIndexOutOfBoundsException | ArithmeticException e) {
+            throw new IOException("Malformed aggregate3 response", e);
+        }
+    }
+
+    private static byte[] selector(String signature) {
+        byte[] hash = Hash.sha3(signature.getBytes());
+        byte[] selector = new byte[4];
+        System.arraycopy(hash, 0, selector, 0, 4);
+        return selector;
+    }
+
+    private static int padded(int length) {
+        return (length + WORD - 1) / WORD * WORD;
+    }
+
+    private static void writeInt(byte[] out, int wordOffset, int value) {
+        int end = wordOffset + WORD;
+        out[end - 4] = (byte) (value >>> 24);
+        out[end - 3] = (byte) (value >>> 16);
+        out[end - 2] = (byte) (value >>> 8);
+        out[end - 1] = (byte) value;
+    }
+
+    private static int readInt(byte[] data, int wordOffset) {
+        byte[] word = new byte[WORD];
+        System.arraycopy(data, wordOffset, word, 0, WORD);
+        return new BigInteger(1, word).intValueExact();
+    }
+
+    /**
+     * 单个待聚合的调用。
+     */
+    static final class Call {
+        private final String target;
+        private final Function function;
+        private final boolean allowFailure;
+
+        private Call(String target, Function function, boolean allowFailure) {
+            this.target = target;
+            this.function = function;
+            this.allowFailure = allowFailure;
+        }
+    }
+
+    /**
+     * 单个调用的结果。
+     */
+    public static final class Result {
+        private final boolean success;
+        private final String returnData;
+        private final List<Type> values;
+
+        Result(boolean success, String returnData, List<Type> values) {
+            this.success = success;
+            this.returnData = returnData;
+            this.values = values;
+        }
+
+        /**
+         * 调用是否成功。失败时 getReturnData 为回滚数据。
+         */
+        public boolean isSuccess() {
+            return success;
+        }
+
+        public String getReturnData() {
+            return returnData;
+        }
+
+        /**
+         * 按函数输出类型解码后的返回值，失败时为空列表。
+         */
+        public List<Type> getValues() {
+            return values;
+        }
+
+        @Override
+        public String toString() {
+            return success ? "Result{success, values=" + values + "}" : "Result{failed, returnData=" + returnData + "}";
+        }
+    }
+}
@@ -0,0 +1,210 @@
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.core.Response;
+import org.web3j.protocol.core.methods.response.EthGetTransactionCount;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 本地 nonce 分配器。
+ * 每个账户只在首次使用（或重新同步）时从节点获取 pending nonce，之后在本地递增分配，
+ * 并发发送交易时不会重复获取或分配相同的 nonce。
+ * 分配出去的 nonce 在发送结果确定前记为在途：被节点拒绝的交易会退回 nonce 供下一笔交易使用，
+ * 不会留下空档；重新同步时不会把计数器移到在途 nonce 之下。
+ */
+public class NonceManager {
+
+    // 尚未从节点同步 nonce 时的标记值
+    private static final long UNSYNCED = -1;
+
+    // 按 Web3j 实例（对应的节点和链）区分，同一地址在不同链上的 nonce 互不影响
+    private static final Map<Web3j, Map<String, NonceManager>> managers = new ConcurrentHashMap<>();
+
+    private final Web3j web3j;
+    private final String address;
+    private long nextNonce = UNSYNCED;
+    // 已分配但发送结果还未确定的 nonce
+    private final TreeSet<Long> inFlight = new TreeSet<>();
+    // 被退回、可以重新分配的 nonce，优先分配最小的
+    private final TreeSet<Long> released = new TreeSet<>();
+
+    private NonceManager(Web3j web3j, String address) {
+        this.web3j = web3j;
+        this.address = address;
+    }
+
+    /**
+     * 获取指定 Web3j 实例上指定账户的 nonce 分配器，同一进程内每个（Web3j，账户）只有一个实例。
+     *
+     * @param web3j   Web3j 实例
+     * @param address 账户地址
+     */
+    public static NonceManager forAccount(Web3j web3j, String address) {
+        return managers.computeIfAbsent(web3j, key -> new ConcurrentHashMap<>())
+                .computeIfAbsent(address.toLowerCase(), key -> new NonceManager(web3j, address));
+    }
+
+    /**
+     * 分配下一个可用的 nonce，优先使用被退回的 nonce。
+     * 调用方在发送结果确定后应调用 {@link #onSendResult} 或 {@link #onSendFailure}。
+     *
+     * @return 本次交易使用的 nonce
+     * @throws IOException 如果首次同步 nonce 失败
+     */
+    public synchronized BigInteger allocate() throws IOException {
+        syncIfUnsynced();
+        Long reused = released.pollFirst();
+        long nonce = reused != null ? reused : nextNonce++;
+        inFlight.add(nonce);
+        return BigInteger.valueOf(nonce);
+    }
+
+    /**
+     * 一次分配 count 个连续的 nonce，不使用被退回的 nonce。
+     *
+     * @param count 需要的 nonce 数量
+     * @return 第一个 nonce，本次分配的范围为 [返回值, 返回值 + count)
+     * @throws IOException 如果首次同步 nonce 失败
+     */
+    public synchronized BigInteger allocate(int count) throws IOException {
+        if (count <= 0) {
+            throw new IllegalArgumentException("count must be positive");
+        }
+        syncIfUnsynced();
+        long first = nextNonce;
+        for (long nonce = first; nonce < first + count; nonce++) {
+            inFlight.add(nonce);
+        }
+        nextNonce = first + count;
+        return BigInteger.valueOf(first);
+    }
+
+    /**
+     * 节点已接受交易（或者该 nonce 已被其他交易占用），nonce 不再重新分配。
+     */
+    public synchronized void confirm(BigInteger nonce) {
+        inFlight.remove(nonce.longValueExact());
+    }
+
+    /**
+     * 交易被节点拒绝且没有占用 nonce（如余额不足、gas 不足），退回 nonce 供之后的交易使用，避免留下空档。
+     * 如果退回的是最后分配的 nonce，直接回退计数器。
+     */
+    public synchronized void release(BigInteger nonce) {
+        long value = nonce.longValueExact();
+        if (!inFlight.remove(value)) {
+            return;
+        }
+        if (value == nextNonce - 1) {
+            nextNonce--;
+            while (released.remove(nextNonce - 1)) {
+                nextNonce--;
+            }
+        } else {
+            released.add(value);
+        }
+    }
+
+    /**
+     * 根据节点对 eth_sendRawTransaction 的响应更新 nonce 状态：
+     * 成功或 nonce 已被占用时确认该 nonce（后者同时重新同步），其他错误说明交易没有进入交易池，退回 nonce。
+     *
+     * @param nonce 交易使用的 nonce
+     * @param error 节点返回的错误，成功时为 null
+     * @throws IOException 如果需要重新同步但与节点通信失败
+     */
+    public void onSendResult(BigInteger nonce, Response.Error error) throws IOException {
+        if (error == null) {
+            confirm(nonce);
+        } else if (isNonceError(error.getMessage()) || isKnownTransaction(error.getMessage())) {
+            confirm(nonce);
+            resync();
+        } else {
+            release(nonce);
+        }
+    }
+
+    /**
+     * 发送请求失败（如读超时）时无法确定交易是否已到达节点，向节点查询 pending nonce：
+     * 已经超过该 nonce 说明交易已进入交易池，否则退回 nonce。
+     *
+     * @param nonce 交易使用的 nonce
+     * @throws IOException 如果查询失败，此时 nonce 仍记为在途
+     */
+    public void onSendFailure(BigInteger nonce) throws IOException {
+        if (fetchPendingNonce() > nonce.longValueExact()) {
+            confirm(nonce);
+        } else {
+            release(nonce);
+        }
+    }
+
+    /**
+     * 从节点重新获取 pending nonce。
+     * 在收到 "nonce too low" 或 "replacement transaction underpriced" 错误后调用。
+     * 节点的 nonce 更高时前移计数器；更低时只有在没有在途交易的情况下才回退，
+     * 否则会把已分配给其他交易的 nonce 再分配一次。
+     *
+     * @throws IOException 如果与节点通信失败
+     */
+    public void resync() throws IOException {
+        long pending = fetchPendingNonce();
+        synchronized (this) {
+            released.headSet(pending).clear();
+            if (inFlight.isEmpty()) {
+                released.clear();
+                nextNonce = pending;
+            } else {
+                nextNonce = Math.max(nextNonce, pending);
+            }
+        }
+    }
+
+    /**
+     * 判断节点返回的错误是否说明本地 nonce 已经失效。
+     *
+     * @param message 节点返回的错误信息
+     */
+    public static boolean isNonceError(String message) {
+        if (message == null) {
+            return false;
+        }
+        String lower = message.toLowerCase();
+        return lower.contains("nonce too low")
+                || lower.contains("replacement transaction underpriced")
+                || lower.contains("replacement underpriced");
+    }
+
+    /**
+     * 判断节点返回的错误是否说明同一笔交易已经在交易池中。
+     */
+    static boolean isKnownTransaction(String message) {
+        if (message == null) {
+            return false;
+        }
+        String lower = message.toLowerCase();
+        return lower.contains("already known") || lower.contains("known transaction");
+    }
+
+    public String getAddress() {
+        return address;
+    }
+
+    private synchronized void syncIfUnsynced() throws IOException {
+        if (nextNonce == UNSYNCED) {
+            nextNonce = fetchPendingNonce();
+        }
+    }
+
+    private long fetchPendingNonce() throws IOException {
+        EthGetTransactionCount response = web3j.ethGetTransactionCount(address, DefaultBlockParameterName.PENDING).send();
+        if (response.hasError()) {
+            throw new IOException("Failed to fetch nonce for " + address + ": " + response.getError().getMessage());
+        }
+        return response.getTransactionCount().longValueExact();
+    }
+}
@@ -0,0 +1,273 @@
+import io.reactivex.Emitter;
+import io.reactivex.Flowable;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.schedulers.Schedulers;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameter;
+import org.web3j.protocol.core.methods.request.EthFilter;
+import org.web3j.protocol.core.methods.response.EthBlock;
+import org.web3j.protocol.core.methods.response.EthLog;
+import org.web3j.protocol.core.methods.response.Log;
+import org.web3j.protocol.core.methods.response.Transaction;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 并发获取历史区块的回放器。
+ * 在并发窗口内同时请求多个区块，再按区块号重新排序输出，订阅者看到的仍是严格递增的区块序列；
+ * 遵守 Reactive Streams 背压，单个区块失败时只重试该区块，并定期输出每秒区块数。
+ */
+public class ParallelBlockReplayer {
+
+    public static final int DEFAULT_CONCURRENCY = 16;
+    public static final int DEFAULT_MAX_RETRIES = 3;
+    private static final long REPORT_INTERVAL_SECONDS = 5;
+    // 流式回放时每个在途区块缓冲的交易数
+    private static final int STREAMING_PREFETCH = 128;
+
+    private final Web3j web3j;
+    private final int concurrency;
+    private final int maxRetries;
+
+    public ParallelBlockReplayer(Web3j web3j) {
+        this(web3j, DEFAULT_CONCURRENCY, DEFAULT_MAX_RETRIES);
+    }
+
+    /**
+     * @param web3j       Web3j 实例
+     * @param concurrency 同时在途的区块请求数
+     * @param maxRetries  单个区块的最大重试次数
+     */
+    public ParallelBlockReplayer(Web3j web3j, int concurrency, int maxRetries) {
+        if (concurrency <= 0 || maxRetries < 0) {
+            throw new IllegalArgumentException("Invalid concurrency or retry count");
+        }
+        this.web3j = web3j;
+        this.concurrency = concurrency;
+        this.maxRetries = maxRetries;
+    }
+
+    /**
+     * 按顺序回放 [startBlock, endBlock] 的区块。
+     *
+     * @param startBlock          起始区块（包含）
+     * @param endBlock            结束区块（包含）
+     * @param fullTransactionObjects 是否返回完整交易对象
+     */
+    public Flowable<EthBlock> replayBlocks(long startBlock, long endBlock, boolean fullTransactionObjects) {
+        if (startBlock > endBlock) {
+            return Flowable.empty();
+        }
+        Flowable<EthBlock> blocks = Flowable.rangeLong(startBlock, endBlock - startBlock + 1)
+                .concatMapEager(number -> fetchBlock(number, fullTransactionObjects), concurrency, 1);
+        return withRateReport(blocks);
+    }
+
+    /**
+     * 按顺序回放 [startBlock, endBlock] 中的所有交易。
+     */
+    public Flowable<Transaction> replayTransactions(long startBlock, long endBlock) {
+        return replayBlocks(startBlock, endBlock, true)
+                .concatMapIterable(ethBlock -> ethBlock.getBlock().getTransactions())
+                .map(result -> (Transaction) result.get());
+    }
+
+    /**
+     * 按顺序回放 [startBlock, endBlock] 中的所有交易，区块响应流式解析：每解析出一笔交易就交给下游，
+     * 不先构造整个区块的对象图。每个在途区块最多缓冲 prefetch 笔交易，下游没有请求时暂停读取响应流，
+     * 内存占用与区块大小无关。区块响应读到一半失败时重新请求，并跳过已经交付的交易。
+     * 只支持通过 Web3Utils 创建的 Web3j 实例。
+     */
+    public Flowable<Transaction> replayTransactionsStreaming(long startBlock, long endBlock) {
+        if (startBlock > endBlock) {
+            return Flowable.empty();
+        }
+        StreamingRpc rpc = new StreamingRpc(Web3Utils.getService(web3j));
+        return Flowable.rangeLong(startBlock, endBlock - startBlock + 1)
+                .concatMapEager(number -> streamTransactions(rpc, number), concurrency, STREAMING_PREFETCH);
+    }
+
+    private Flowable<Transaction> streamTransactions(StreamingRpc rpc, long number) {
+        return Flowable.<Transaction, TransactionStream>generate(
+                () -> new TransactionStream(rpc, number),
+                (stream, emitter) -> {
+                    stream.emitNext(emitter);
+                    return stream;
+                },
+                TransactionStream::close
+        ).subscribeOn(Schedulers.io());
+    }
+
+    /**
+     * 回放 [startBlock, endBlock] 中可能包含匹配日志的区块。
+     * 先只获取不含交易对象的区块（区块头和交易哈希），用 logsBloom 排除一定不包含匹配日志的区块，
+     * 只有可能匹配的区块才获取完整交易。只能筛选产生日志的活动，不含日志的普通转账不会被 logsBloom 记录。
+     *
+     * @param filter                 合约地址和 topics，区块范围被忽略
+     * @param fullTransactionObjects 匹配的区块是否返回完整交易对象
+     */
+    public Flowable<EthBlock> replayMatchingBlocks(long startBlock, long endBlock, EthFilter filter, boolean fullTransactionObjects) {
+        if (startBlock > endBlock) {
+            return Flowable.empty();
+        }
+        LogsBloom.Query query = new LogsBloom.Query(filter);
+        AtomicLong matched = new AtomicLong();
+        Flowable<EthBlock> headers = withRateReport(Flowable.rangeLong(startBlock, endBlock - startBlock + 1)
+                .concatMapEager(number -> fetchBlock(number, false), concurrency, 1));
+        return headers
+                .filter(header -> query.mightMatch(header.getBlock().getLogsBloom()))
+                .doOnNext(header -> matched.incrementAndGet())
+                .concatMapEager(header -> fullTransactionObjects
+                        ? fetchBlock(header.getBlock().getNumber().longValueExact(), true)
+                        : Flowable.just(header), concurrency, 1)
+                .doFinally(() -> System.out.printf("Bloom prefilter: %d of %d blocks might match%n",
+                        matched.get(), endBlock - startBlock + 1));
+    }
+
+    /**
+     * 回放 [startBlock, endBlock] 中可能包含匹配日志的区块里的所有交易。
+     */
+    public Flowable<Transaction> replayMatchingTransactions(long startBlock, long endBlock, EthFilter filter) {
+        return replayMatchingBlocks(startBlock, endBlock, filter, true)
+                .concatMapIterable(ethBlock -> ethBlock.getBlock().getTransactions())
+                .map(result -> (Transaction) result.get());
+    }
+
+    /**
+     * 回放 [startBlock, endBlock] 中匹配的日志，只对 logsBloom 可能匹配的区块发送 eth_getLogs。
+     */
+    public Flowable<Log> replayMatchingLogs(long startBlock, long endBlock, EthFilter filter) {
+        return replayMatchingBlocks(startBlock, endBlock, filter, false)
+                .concatMapEager(header -> fetchLogs(header.getBlock(), filter), concurrency, 1);
+    }
+
+    private Flowable<Log> fetchLogs(EthBlock.Block block, EthFilter template) {
+        return Flowable.fromCallable(() -> {
+            DefaultBlockParameter number = DefaultBlockParameter.valueOf(block.getNumber());
+            EthFilter filter = new EthFilter(number, number, template.getAddress());
+            for (List<String> candidates : WebSocketEventSource.topicCandidates(template)) {
+                if (candidates == null) {
+                    filter.addNullTopic();
+                } else {
+                    filter.addOptionalTopics(candidates.toArray(new String[0]));
+                }
+            }
+            EthLog response = web3j.ethGetLogs(filter).send();
+            if (response.hasError()) {
+                throw new IOException("Failed to fetch logs for block " + block.getNumber() + ": "
+                        + response.getError().getMessage());
+            }
+            List<Log> logs = new ArrayList<>(response.getLogs().size());
+            for (EthLog.LogResult<?> result : response.getLogs()) {
+                logs.add((Log) result.get());
+            }
+            return logs;
+        }).subscribeOn(Schedulers.io()).retry(maxRetries).concatMapIterable(logs -> logs);
+    }
+
+    private Flowable<EthBlock> fetchBlock(long number, boolean fullTransactionObjects) {
+        return Flowable.fromCallable(() -> {
+            EthBlock response = web3j.ethGetBlockByNumber(
+                    DefaultBlockParameter.valueOf(BigInteger.valueOf(number)), fullTransactionObjects).send();
+            if (response.hasError()) {
+                throw new IOException("Failed to fetch block " + number + ": " + response.getError().getMessage());
+            }
+            if (response.getBlock() == null) {
+                throw new IOException("Block " + number + " not found");
+            }
+            return response;
+        }).subscribeOn(Schedulers.io()).retry(maxRetries);
+    }
+
+    /**
+     * 在回放期间定期输出速率，结束时输出汇总。
+     */
+    private Flowable<EthBlock> withRateReport(Flowable<EthBlock> blocks) {
+        AtomicLong count = new AtomicLong();
+        AtomicLong startNanos = new AtomicLong();
+        AtomicReference<Disposable> reporter = new AtomicReference<>();
+        return blocks
+                .doOnSubscribe(subscription -> {
+                    startNanos.set(System.nanoTime());
+                    reporter.set(Flowable.interval(REPORT_INTERVAL_SECONDS, TimeUnit.SECONDS)
+                            .subscribe(tick -> report("progress", count.get(), startNanos.get())));
+                })
+                .doOnNext(block -> count.incrementAndGet())
+                .doFinally(() -> {
+                    Disposable disposable = reporter.getAndSet(null);
+                    if (disposable != null) {
+                        disposable.dispose();
+                    }
+                    report("finished", count.get(), startNanos.get());
+                });
+    }
+
+    private static void report(String stage, long blocks, long startNanos) {
+        double seconds = (System.nanoTime() - startNanos) / 1_000_000_000.0;
+        System.out.printf("Block replay %s: %d blocks in %.1fs (%.1f blocks/s)%n",
+                stage, blocks, seconds, seconds > 0 ? blocks / seconds : 0.0);
+    }
+
+    /**
+     * 一个区块的流式交易读取状态，每次 emitNext 最多交付一笔交易。
+     */
+    private final class TransactionStream {
+        private final StreamingRpc rpc;
+        private final long number;
+        private StreamingRpc.Cursor<Transaction> cursor;
+        // 已交付的交易数，重试时跳过
+        private int emitted;
+        private int failures;
+
+        private TransactionStream(StreamingRpc rpc, long number) {
+            this.rpc = rpc;
+            this.number = number;
+        }
+
+        private void emitNext(Emitter<Transaction> emitter) {
+            while (true) {
+                try {
+                    if (cursor == null) {
+                        cursor = rpc.openBlockTransactions(number);
+                        for (int i = 0; i < emitted; i++) {
+                            if (cursor.next() == null) {
+                                throw new IOException("Block " + number + " has fewer transactions than already replayed");
+                            }
+                        }
+                    }
+                    Transaction transaction = cursor.next();
+                    if (transaction == null) {
+                        emitter.onComplete();
+                    } else {
+                        emitted++;
+                        emitter.onNext(transaction);
+                    }
+                    return;
+                } catch (IOException e) {
+                    close();
+                    if (++failures > maxRetries) {
+                        emitter.onError(new IOException("Failed to stream block " + number + ": " + e.getMessage(), e));
+                        return;
+                    }
+                }
+            }
+        }
+
+        private void close() {
+            if (cursor != null) {
+                try {
+                    cursor.close();
+                } catch (IOException e) {
+                    // 响应流已经失效，忽略
+                }
+                cursor = null;
+            }
+        }
+    }
+}
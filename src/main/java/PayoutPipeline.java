@@ -0,0 +1,435 @@
+import org.web3j.crypto.Credentials;
+import org.web3j.crypto.Hash;
+import org.web3j.crypto.RawTransaction;
+import org.web3j.crypto.TransactionEncoder;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.BatchRequest;
+import org.web3j.protocol.core.BatchResponse;
+import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.Response;
+import org.web3j.protocol.core.methods.response.EthSendTransaction;
+import org.web3j.utils.Convert;
+import org.web3j.utils.Numeric;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Duration;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * 批量 ETH 发放流水线。
+ * 一次分配连续的 nonce，在共享的 ForkJoinPool.commonPool() 上并行签名，再把 eth_sendRawTransaction 打包成 JSON-RPC 批量请求按 nonce 顺序提交；
+ * 临时错误会用同一笔已签名交易重试，最终返回每一笔发放的结果。
+ */
+public class PayoutPipeline {
+
+    public static final int DEFAULT_BATCH_SIZE = 100;
+    // 单笔交易的最大提交次数
+    public static final int DEFAULT_MAX_ATTEMPTS = 3;
+    private static final BigInteger TRANSFER_GAS_LIMIT = BigInteger.valueOf(21000);
+
+    private final Web3j web3j;
+    private final Credentials credentials;
+    private final int batchSize;
+    private final int maxAttempts;
+
+    public PayoutPipeline(Web3j web3j, Credentials credentials) {
+        this(web3j, credentials, DEFAULT_BATCH_SIZE, DEFAULT_MAX_ATTEMPTS);
+    }
+
+    /**
+     * @param web3j       通过 Web3Utils 创建的 Web3j 实例
+     * @param credentials 发放账户凭证
+     * @param batchSize   每个批量请求包含的交易数
+     * @param maxAttempts 单笔交易的最大提交次数
+     */
+    public PayoutPipeline(Web3j web3j, Credentials credentials, int batchSize, int maxAttempts) {
+        if (batchSize <= 0 || maxAttempts <= 0) {
+            throw new IllegalArgumentException("batchSize and maxAttempts must be positive");
+        }
+        this.web3j = web3j;
+        this.credentials = credentials;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+    }
+
+    /**
+     * 执行一批发放。
+     * 如果某笔交易被节点永久拒绝（如余额不足），之后已提交的交易会因 nonce 空缺停留在交易池中，
+     * 此时用失败交易的 nonce 补发一笔发给自己的 0 ETH 交易填补空缺（消耗一笔转账的 gas）；
+     * 失败的 nonce 之后没有已提交的交易时，直接退回给 NonceManager。
+     *
+     * @param payouts 发放列表
+     * @return 与输入顺序一致的结果，附带签名和提交耗时
+     * @throws IOException 如果获取链 ID、nonce 或手续费失败
+     */
+    public Report pay(List<Payout> payouts) throws IOException {
+        if (payouts.isEmpty()) {
+            return new Report(Collections.emptyList(), 0, 0);
+        }
+        // 整批使用同一份手续费快照，补发交易的价格与本批一致
+        Fees fees = new Fees(Web3Utils.getChainId(web3j), Web3Utils.getFeeOracle(web3j));
+        NonceManager nonceManager = NonceManager.forAccount(web3j, credentials.getAddress());
+        BigInteger firstNonce = nonceManager.allocate(payouts.size());
+
+        long startNanos = System.nanoTime();
+        List<Outcome> outcomes = sign(payouts, firstNonce, fees);
+        long signedNanos = System.nanoTime();
+
+        List<Outcome> pending = new ArrayList<>(outcomes);
+        for (int attempt = 1; attempt <= maxAttempts && !pending.isEmpty(); attempt++) {
+            List<Outcome> retry = new ArrayList<>();
+            for (int from = 0; from < pending.size(); from += batchSize) {
+                submitBatch(pending.subList(from, Math.min(from + batchSize, pending.size())), retry);
+            }
+            pending = retry;
+        }
+
+        settleNonces(nonceManager, outcomes, fees);
+        return new Report(outcomes, signedNanos - startNanos, System.nanoTime() - startNanos);
+    }
+
+    /**
+     * 并行签名，第 i 笔发放使用 firstNonce + i。
+     */
+    private List<Outcome> sign(List<Payout> payouts, BigInteger firstNonce, Fees fees) {
+        Outcome[] outcomes = new Outcome[payouts.size()];
+        // 并行流使用 ForkJoinPool.commonPool()，所有流水线共享，调用线程也参与签名
+        IntStream.range(0, payouts.size()).parallel().forEach(i -> {
+            Payout payout = payouts.get(i);
+            BigInteger nonce = firstNonce.add(BigInteger.valueOf(i));
+            byte[] signed = fees.sign(nonce, payout.getRecipient(), payout.getAmountInWei(), credentials);
+            outcomes[i] = new Outcome(payout, nonce, Numeric.toHexString(signed), Numeric.toHexString(Hash.sha3(signed)));
+        });
+        List<Outcome> result = new ArrayList<>(outcomes.length);
+        Collections.addAll(result, outcomes);
+        return result;
+    }
+
+    /**
+     * 把每笔发放的 nonce 交还 NonceManager：成功的确认，失败的按 nonce 从高到低处理，
+     * 在最后一笔已提交交易之后的直接退回，之前的补发交易填补空缺。
+     * 不重新同步 nonce，否则计数器会退到本批其他在途交易的 nonce 之下。
+     */
+    private void settleNonces(NonceManager nonceManager, List<Outcome> outcomes, Fees fees) throws IOException {
+        List<Outcome> failed = new ArrayList<>();
+        BigInteger lastDelivered = null;
+        for (Outcome outcome : outcomes) {
+            if (outcome.isSuccess()) {
+                nonceManager.confirm(outcome.nonce);
+                lastDelivered = lastDelivered == null ? outcome.nonce : lastDelivered.max(outcome.nonce);
+            } else {
+                failed.add(outcome);
+            }
+        }
+        if (failed.isEmpty()) {
+            return;
+        }
+
+        // 多次尝试都没有明确结果的交易可能已经送达，以节点的 pending nonce 为准
+        BigInteger pendingNonce = null;
+        for (Outcome outcome : failed) {
+            if (outcome.undetermined) {
+                pendingNonce = web3j.ethGetTransactionCount(credentials.getAddress(), DefaultBlockParameterName.PENDING)
+                        .send().getTransactionCount();
+                break;
+            }
+        }
+
+        failed.sort((a, b) -> b.nonce.compareTo(a.nonce));
+        for (Outcome outcome : failed) {
+            if (outcome.undetermined && pendingNonce.compareTo(outcome.nonce) > 0) {
+                outcome.succeed(null);
+                nonceManager.confirm(outcome.nonce);
+            } else if (NonceManager.isNonceError(outcome.error)) {
+                // nonce 已被其他交易占用，不会留下空缺
+                nonceManager.confirm(outcome.nonce);
+            } else if (lastDelivered == null || outcome.nonce.compareTo(lastDelivered) > 0) {
+                nonceManager.release(outcome.nonce);
+            } else {
+                fillGap(nonceManager, outcome.nonce, fees);
+            }
+        }
+    }
+
+    /**
+     * 用指定 nonce 发送一笔发给自己的 0 ETH 交易，让排在后面的交易可以打包。
+     */
+    private void fillGap(NonceManager nonceManager, BigInteger nonce, Fees fees) throws IOException {
+        String signed = Numeric.toHexString(
+                fees.sign(nonce, credentials.getAddress(), BigInteger.ZERO, credentials));
+        EthSendTransaction response;
+        try {
+            response = web3j.ethSendRawTransaction(signed).send();
+        } catch (IOException | RuntimeException e) {
+            nonceManager.onSendFailure(nonce);
+            return;
+        }
+        if (response.hasError() && !isAlreadyKnown(response.getError().getMessage())
+                && !NonceManager.isNonceError(response.getError().getMessage())) {
+            System.err.println("Failed to fill nonce gap " + nonce + ": " + response.getError().getMessage());
+            nonceManager.release(nonce);
+        } else {
+            nonceManager.confirm(nonce);
+        }
+    }
+
+    /**
+     * 发送一个批量请求，需要重试的交易加入 retry。
+     */
+    private void submitBatch(List<Outcome> chunk, List<Outcome> retry) {
+        BatchRequest batch = web3j.newBatch();
+        Map<Long, Outcome> outcomeById = new HashMap<>(chunk.size() * 2);
+        for (Outcome outcome : chunk) {
+            Request<?, EthSendTransaction> request = web3j.ethSendRawTransaction(outcome.signedTransaction);
+            outcomeById.put(request.getId(), outcome);
+            outcome.attempts++;
+            batch.add(request);
+        }
+
+        BatchResponse batchResponse;
+        try {
+            batchResponse = batch.send();
+        } catch (IOException | RuntimeException e) {
+            for (Outcome outcome : chunk) {
+                outcome.fail("Batch request failed: " + e.getMessage(), true);
+                retry.add(outcome);
+            }
+            return;
+        }
+
+        // 批量响应的顺序不保证与请求一致，按 id 对应
+        for (Response<?> response : batchResponse.getResponses()) {
+            Outcome outcome = outcomeById.remove(response.getId());
+            if (outcome == null) {
+                continue;
+            }
+            if (!response.hasError()) {
+                outcome.succeed(((EthSendTransaction) response).getTransactionHash());
+                continue;
+            }
+            String message = response.getError().getMessage();
+            if (isAlreadyKnown(message)) {
+                // 之前的尝试其实已经送达
+                outcome.succeed(outcome.transactionHash);
+            } else if (outcome.attempts > 1 && isNonceTooLow(message)) {
+                // 重试时 nonce 已被占用，多半是之前没有收到响应的那次尝试已经送达并打包，以交易回执为准
+                outcome.succeed(outcome.transactionHash);
+            } else {
+                boolean transientError = isTransientError(message);
+                outcome.fail(message, transientError);
+                if (transientError) {
+                    retry.add(outcome);
+                }
+            }
+        }
+        for (Outcome missing : outcomeById.values()) {
+            missing.fail("No response in batch", true);
+            retry.add(missing);
+        }
+    }
+
+    private static boolean isAlreadyKnown(String message) {
+        if (message == null) {
+            return false;
+        }
+        String lower = message.toLowerCase();
+        return lower.contains("already known") || lower.contains("known transaction")
+                || lower.contains("already imported");
+    }
+
+    private static boolean isNonceTooLow(String message) {
+        return message != null && message.toLowerCase().contains("nonce too low");
+    }
+
+    /**
+     * 判断节点错误是否值得用同一笔交易重试（限流、超时、节点繁忙等）。
+     */
+    static boolean isTransientError(String message) {
+        if (message == null) {
+            return true;
+        }
+        String lower = message.toLowerCase();
+        return lower.contains("timeout") || lower.contains("timed out")
+                || lower.contains("rate limit") || lower.contains("too many requests")
+                || lower.contains("busy") || lower.contains("try again")
+                || lower.contains("temporarily") || lower.contains("unavailable");
+    }
+
+    /**
+     * 一批发放使用的链 ID 和手续费。节点支持 EIP-1559 时签名 type 2 交易，否则签名传统交易。
+     */
+    private static final class Fees {
+        private final long chainId;
+        private final boolean eip1559;
+        private final BigInteger maxPriorityFeePerGas;
+        private final BigInteger maxFeePerGas;
+        private final BigInteger gasPrice;
+
+        private Fees(long chainId, FeeOracle feeOracle) {
+            this.chainId = chainId;
+            this.eip1559 = feeOracle.supportsEip1559();
+            this.maxPriorityFeePerGas = feeOracle.getMaxPriorityFeePerGas();
+            this.maxFeePerGas = feeOracle.getMaxFeePerGas();
+            this.gasPrice = feeOracle.getGasPrice(null);
+        }
+
+        private byte[] sign(BigInteger nonce, String to, BigInteger value, Credentials credentials) {
+            if (eip1559) {
+                return new Eip1559Transaction(chainId, nonce, maxPriorityFeePerGas, maxFeePerGas,
+                        TRANSFER_GAS_LIMIT, to, value, null).sign(credentials);
+            }
+            RawTransaction rawTransaction = RawTransaction.createEtherTransaction(
+                    nonce, gasPrice, TRANSFER_GAS_LIMIT, to, value);
+            return TransactionEncoder.signMessage(rawTransaction, chainId, credentials);
+        }
+    }
+
+    /**
+     * 一笔待发放的转账。
+     */
+    public static final class Payout {
+        private final String recipient;
+        private final BigInteger amountInWei;
+
+        public Payout(String recipient, BigInteger amountInWei) {
+            this.recipient = recipient;
+            this.amountInWei = amountInWei;
+        }
+
+        public static Payout ofEther(String recipient, BigDecimal amountInEther) {
+            return new Payout(recipient, Convert.toWei(amountInEther, Convert.Unit.ETHER).toBigInteger());
+        }
+
+        public String getRecipient() {
+            return recipient;
+        }
+
+        public BigInteger getAmountInWei() {
+            return amountInWei;
+        }
+    }
+
+    /**
+     * 一批发放的结果：按输入顺序排列的 Outcome，以及签名和整批发放的耗时。
+     */
+    public static final class Report extends AbstractList<Outcome> {
+        private final List<Outcome> outcomes;
+        private final long signNanos;
+        private final long totalNanos;
+
+        private Report(List<Outcome> outcomes, long signNanos, long totalNanos) {
+            this.outcomes = Collections.unmodifiableList(outcomes);
+            this.signNanos = signNanos;
+            this.totalNanos = totalNanos;
+        }
+
+        @Override
+        public Outcome get(int index) {
+            return outcomes.get(index);
+        }
+
+        @Override
+        public int size() {
+            return outcomes.size();
+        }
+
+        /**
+         * 并行签名的耗时。
+         */
+        public Duration getSignDuration() {
+            return Duration.ofNanos(signNanos);
+        }
+
+        /**
+         * 从开始签名到提交和 nonce 结算完成的总耗时。
+         */
+        public Duration getTotalDuration() {
+            return Duration.ofNanos(totalNanos);
+        }
+
+        /**
+         * 每秒发放的交易数，没有发放时为 0。
+         */
+        public double getTransactionsPerSecond() {
+            return totalNanos == 0 ? 0 : outcomes.size() * 1_000_000_000.0 / totalNanos;
+        }
+    }
+
+    /**
+     * 单笔发放的结果。
+     */
+    public static final class Outcome {
+        private final Payout payout;
+        private final BigInteger nonce;
+        private final String signedTransaction;
+        private String transactionHash;
+        private String error;
+        private int attempts;
+        private boolean success;
+        // 最后一次尝试没有明确结果（传输失败、没有响应或临时错误），交易可能已经送达
+        private boolean undetermined;
+
+        private Outcome(Payout payout, BigInteger nonce, String signedTransaction, String transactionHash) {
+            this.payout = payout;
+            this.nonce = nonce;
+            this.signedTransaction = signedTransaction;
+            this.transactionHash = transactionHash;
+        }
+
+        private void succeed(String hash) {
+            if (hash != null) {
+                transactionHash = hash;
+            }
+            success = true;
+            error = null;
+            undetermined = false;
+        }
+
+        private void fail(String message, boolean undetermined) {
+            this.error = message;
+            this.undetermined = undetermined;
+        }
+
+        public Payout getPayout() {
+            return payout;
+        }
+
+        public BigInteger getNonce() {
+            return nonce;
+        }
+
+        /**
+         * 交易哈希（本地根据签名后的交易计算，提交成功时与节点返回值一致）。
+         */
+        public String getTransactionHash() {
+            return transactionHash;
+        }
+
+        /**
+         * 节点是否已接受该交易。
+         */
+        public boolean isSuccess() {
+            return success;
+        }
+
+        /**
+         * 最后一次失败的原因，成功时为 null。
+         */
+        public String getError() {
+            return error;
+        }
+
+        public int getAttempts() {
+            return attempts;
+        }
+    }
+}
@@ -0,0 +1,355 @@
+import org.web3j.abi.datatypes.Type;
+import org.web3j.crypto.Hash;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/**
+ * 预编译的合约函数编码器和返回值解码器，用于同一个函数被反复调用的场景。
+ * 函数签名只解析一次，选择器只计算一次；编码时把参数直接写入线程内复用的字符缓冲区，
+ * 不经过 Function / FunctionEncoder 的反射和中间对象，每次调用的开销接近一次内存拷贝。
+ * 只支持静态类型：uint&lt;N&gt;、int&lt;N&gt;、address、bool、bytes&lt;N&gt;，动态类型请使用 FunctionEncoder。
+ */
+public class PrecompiledFunction {
+
+    // 每个 ABI 字（32 字节）的十六进制字符数
+    private static final int WORD_HEX_LENGTH = 64;
+    // "0x" + 4 字节选择器
+    private static final int PREFIX_LENGTH = 2 + 8;
+    // long 占一个字的最后 16 个字符
+    private static final int LONG_HEX_LENGTH = 16;
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private enum Kind {
+        UINT, INT, ADDRESS, BOOL, FIXED_BYTES
+    }
+
+    private final String name;
+    private final String signature;
+    private final String selector;
+    private final Kind[] inputKinds;
+    // uint/int 为位数，bytes<N> 为字节数
+    private final int[] inputSizes;
+    private final Kind[] outputKinds;
+    private final char[] template;
+    private final ThreadLocal<char[]> buffer;
+
+    private PrecompiledFunction(String name, String signature, Kind[] inputKinds, int[] inputSizes, Kind[] outputKinds) {
+        this.name = name;
+        this.signature = signature;
+        this.selector = Hash.sha3String(signature).substring(0, PREFIX_LENGTH);
+        this.inputKinds = inputKinds;
+        this.inputSizes = inputSizes;
+        this.outputKinds = outputKinds;
+        this.template = new char[PREFIX_LENGTH + inputKinds.length * WORD_HEX_LENGTH];
+        selector.getChars(0, PREFIX_LENGTH, template, 0);
+        this.buffer = ThreadLocal.withInitial(template::clone);
+    }
+
+    /**
+     * 预编译一个函数。
+     *
+     * @param signature   函数签名，如 "setValue(uint256)"；uint / int 视为 uint256 / int256
+     * @param outputTypes 返回值类型，如 "uint256"，只在解码时使用
+     * @throws IllegalArgumentException 签名格式错误或包含动态类型
+     */
+    public static PrecompiledFunction compile(String signature, String... outputTypes) {
+        int open = signature.indexOf('(');
+        if (open <= 0 || !signature.endsWith(")")) {
+            throw new IllegalArgumentException("Invalid function signature: " + signature);
+        }
+        String name = signature.substring(0, open).trim();
+        String arguments = signature.substring(open + 1, signature.length() - 1).trim();
+        String[] inputTypes = arguments.isEmpty() ? new String[0] : arguments.split(",");
+
+        Kind[] inputKinds = new Kind[inputTypes.length];
+        int[] inputSizes = new int[inputTypes.length];
+        StringBuilder canonical = new StringBuilder(name).append('(');
+        for (int i = 0; i < inputTypes.length; i++) {
+            String type = canonicalType(inputTypes[i].trim());
+            inputKinds[i] = kindOf(type);
+            inputSizes[i] = sizeOf(type, inputKinds[i]);
+            canonical.append(i == 0 ? "" : ",").append(type);
+        }
+        canonical.append(')');
+
+        Kind[] outputKinds = new Kind[outputTypes.length];
+        for (int i = 0; i < outputTypes.length; i++) {
+            outputKinds[i] = kindOf(canonicalType(outputTypes[i].trim()));
+        }
+        return new PrecompiledFunction(name, canonical.toString(), inputKinds, inputSizes, outputKinds);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 规范化后的签名，即计算选择器所用的字符串。
+     */
+    public String getSignature() {
+        return signature;
+    }
+
+    /**
+     * "0x" 开头的 4 字节选择器。
+     */
+    public String getSelector() {
+        return selector;
+    }
+
+    /**
+     * 编码调用数据，结果与 FunctionEncoder.encode 相同。
+     *
+     * @param args 与签名中参数一一对应：整数为 long / int / BigInteger，address 为十六进制字符串，
+     *             bool 为 Boolean，bytes&lt;N&gt; 为长度 N 的 byte[]；也可以直接传入 web3j 的 Type 对象
+     * @return "0x" 开头的调用数据
+     * @throws IllegalArgumentException 参数个数、类型或取值范围不符
+     */
+    public String encode(Object... args) {
+        if (args.length != inputKinds.length) {
+            throw new IllegalArgumentException(signature + " expects " + inputKinds.length + " arguments, got " + args.length);
+        }
+        char[] out = buffer.get();
+        for (int i = 0; i < args.length; i++) {
+            int offset = PREFIX_LENGTH + i * WORD_HEX_LENGTH;
+            Object value = args[i] instanceof Type ? ((Type<?>) args[i]).getValue() : args[i];
+            switch (inputKinds[i]) {
+                case UINT:
+                case INT:
+                    writeInteger(out, offset, i, value);
+                    break;
+                case ADDRESS:
+                    writeAddress(out, offset, i, value);
+                    break;
+                case BOOL:
+                    if (!(value instanceof Boolean)) {
+                        throw argumentError(i, value);
+                    }
+                    Arrays.fill(out, offset, offset + WORD_HEX_LENGTH - 1, '0');
+                    out[offset + WORD_HEX_LENGTH - 1] = (Boolean) value ? '1' : '0';
+                    break;
+                default:
+                    writeFixedBytes(out, offset, i, value);
+                    break;
+            }
+        }
+        return new String(out);
+    }
+
+    /**
+     * 解码第一个返回值为 uint256，如 getValue() 的返回。
+     */
+    public BigInteger decodeUint256(String returnData) {
+        return decodeUint(returnData, 0);
+    }
+
+    /**
+     * 解码第 index 个返回值（uint&lt;N&gt;）。
+     *
+     * @param returnData eth_call 返回的十六进制数据
+     * @throws IllegalArgumentException 返回值类型不符或数据长度不对（如合约不存在时返回 "0x"）
+     */
+    public BigInteger decodeUint(String returnData, int index) {
+        int offset = outputOffset(returnData, index, Kind.UINT);
+        // 高 24 字节全为零时按 long 解析，不分配字节数组
+        int longStart = offset + WORD_HEX_LENGTH - LONG_HEX_LENGTH;
+        boolean small = true;
+        for (int i = offset; i < longStart && small; i++) {
+            small = returnData.charAt(i) == '0';
+        }
+        if (small) {
+            long value = parseLong(returnData, longStart);
+            if (value >= 0) {
+                return BigInteger.valueOf(value);
+            }
+        }
+        return new BigInteger(1, parseWord(returnData, offset));
+    }
+
+    /**
+     * 解码第 index 个返回值（int&lt;N&gt;）。
+     */
+    public BigInteger decodeInt(String returnData, int index) {
+        int offset = outputOffset(returnData, index, Kind.INT);
+        return new BigInteger(parseWord(returnData, offset));
+    }
+
+    /**
+     * 解码第 index 个返回值（address），返回小写的 "0x" 开头地址。
+     */
+    public String decodeAddress(String returnData, int index) {
+        int offset = outputOffset(returnData, index, Kind.ADDRESS);
+        return "0x" + returnData.substring(offset + 24, offset + WORD_HEX_LENGTH).toLowerCase();
+    }
+
+    /**
+     * 解码第 index 个返回值（bool）。
+     */
+    public boolean decodeBool(String returnData, int index) {
+        int offset = outputOffset(returnData, index, Kind.BOOL);
+        return returnData.charAt(offset + WORD_HEX_LENGTH - 1) != '0';
+    }
+
+    private int outputOffset(String returnData, int index, Kind expected) {
+        if (index < 0 || index >= outputKinds.length || outputKinds[index] != expected) {
+            throw new IllegalArgumentException("Output " + index + " of " + signature + " is not " + expected);
+        }
+        int start = returnData != null && returnData.startsWith("0x") ? 2 : 0;
+        if (returnData == null || returnData.length() - start != outputKinds.length * WORD_HEX_LENGTH) {
+            throw new IllegalArgumentException("Unexpected return data for " + signature + ": " + returnData);
+        }
+        return start + index * WORD_HEX_LENGTH;
+    }
+
+    private void writeInteger(char[] out, int offset, int index, Object value) {
+        int bits = inputSizes[index];
+        boolean signed = inputKinds[index] == Kind.INT;
+        if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            long v = ((Number) value).longValue();
+            boolean inRange = signed
+                    ? bits >= 64 || (v >= -(1L << (bits - 1)) && v < (1L << (bits - 1)))
+                    : v >= 0 && (bits >= 64 || v < (1L << bits));
+            if (!inRange) {
+                throw argumentError(index, value);
+            }
+            int longStart = offset + WORD_HEX_LENGTH - LONG_HEX_LENGTH;
+            Arrays.fill(out, offset, longStart, v < 0 ? 'f' : '0');
+            for (int i = LONG_HEX_LENGTH - 1; i >= 0; i--) {
+                out[longStart + i] = HEX_DIGITS[(int) (v & 0xf)];
+                v >>>= 4;
+            }
+        } else if (value instanceof BigInteger) {
+            BigInteger v = (BigInteger) value;
+            boolean inRange = signed ? v.bitLength() < bits : v.signum() >= 0 && v.bitLength() <= bits;
+            if (!inRange) {
+                throw argumentError(index, value);
+            }
+            // toByteArray 是带符号位的最短补码，uint256 最高位为 1 时会多出一个前导零字节
+            byte[] bytes = v.toByteArray();
+            int length = Math.min(bytes.length, 32);
+            int start = offset + WORD_HEX_LENGTH - 2 * length;
+            Arrays.fill(out, offset, start, v.signum() < 0 ? 'f' : '0');
+            writeHex(out, start, bytes, bytes.length - length, length);
+        } else {
+            throw argumentError(index, value);
+        }
+    }
+
+    private void writeAddress(char[] out, int offset, int index, Object value) {
+        if (!(value instanceof String)) {
+            throw argumentError(index, value);
+        }
+        String address = (String) value;
+        int start = address.startsWith("0x") || address.startsWith("0X") ? 2 : 0;
+        if (address.length() - start != 40) {
+            throw argumentError(index, value);
+        }
+        int digits = offset + WORD_HEX_LENGTH - 40;
+        Arrays.fill(out, offset, digits, '0');
+        for (int i = 0; i < 40; i++) {
+            int nibble = Erc20LogDecoder.nibble(address.charAt(start + i));
+            if (nibble < 0) {
+                throw argumentError(index, value);
+            }
+            out[digits + i] = HEX_DIGITS[nibble];
+        }
+    }
+
+    private void writeFixedBytes(char[] out, int offset, int index, Object value) {
+        if (!(value instanceof byte[]) || ((byte[]) value).length != inputSizes[index]) {
+            throw argumentError(index, value);
+        }
+        byte[] bytes = (byte[]) value;
+        writeHex(out, offset, bytes, 0, bytes.length);
+        Arrays.fill(out, offset + 2 * bytes.length, offset + WORD_HEX_LENGTH, '0');
+    }
+
+    private static void writeHex(char[] out, int offset, byte[] bytes, int from, int length) {
+        for (int i = 0; i < length; i++) {
+            int b = bytes[from + i] & 0xff;
+            out[offset + 2 * i] = HEX_DIGITS[b >>> 4];
+            out[offset + 2 * i + 1] = HEX_DIGITS[b & 0xf];
+        }
+    }
+
+    private static long parseLong(String hex, int start) {
+        long value = 0;
+        for (int i = 0; i < LONG_HEX_LENGTH; i++) {
+            value = (value << 4) | checkedNibble(hex, start + i);
+        }
+        return value;
+    }
+
+    private static byte[] parseWord(String hex, int start) {
+        byte[] word = new byte[32];
+        for (int i = 0; i < 32; i++) {
+            word[i] = (byte) ((checkedNibble(hex, start + 2 * i) << 4) | checkedNibble(hex, start + 2 * i + 1));
+        }
+        return word;
+    }
+
+    private static int checkedNibble(String hex, int index) {
+        int nibble = Erc20LogDecoder.nibble(hex.charAt(index));
+        if (nibble < 0) {
+            throw new IllegalArgumentException("Invalid hex character at " + index + ": " + hex);
+        }
+        return nibble;
+    }
+
+    private IllegalArgumentException argumentError(int index, Object value) {
+        String type = inputKinds[index] == Kind.UINT ? "uint" + inputSizes[index]
+                : inputKinds[index] == Kind.INT ? "int" + inputSizes[index]
+                : inputKinds[index] == Kind.FIXED_BYTES ? "bytes" + inputSizes[index]
+                : inputKinds[index].name().toLowerCase();
+        return new IllegalArgumentException("Argument " + index + " of " + signature + " is not a valid " + type + ": "
+                + (value instanceof byte[] ? Arrays.toString((byte[]) value) : value));
+    }
+
+    private static String canonicalType(String type) {
+        if (type.equals("uint") || type.equals("int")) {
+            return type + "256";
+        }
+        return type;
+    }
+
+    private static Kind kindOf(String type) {
+        if (type.equals("address")) {
+            return Kind.ADDRESS;
+        }
+        if (type.equals("bool")) {
+            return Kind.BOOL;
+        }
+        if (type.startsWith("uint") && isSize(type.substring(4), 8, 256, 8)) {
+            return Kind.UINT;
+        }
+        if (type.startsWith("int") && isSize(type.substring(3), 8, 256, 8)) {
+            return Kind.INT;
+        }
+        if (type.startsWith("bytes") && isSize(type.substring(5), 1, 32, 1)) {
+            return Kind.FIXED_BYTES;
+        }
+        throw new IllegalArgumentException("Unsupported or dynamic ABI type: " + type);
+    }
+
+    private static int sizeOf(String type, Kind kind) {
+        switch (kind) {
+            case UINT:
+                return Integer.parseInt(type.substring(4));
+            case INT:
+                return Integer.parseInt(type.substring(3));
+            case FIXED_BYTES:
+                return Integer.parseInt(type.substring(5));
+            default:
+                return 0;
+        }
+    }
+
+    private static boolean isSize(String digits, int min, int max, int step) {
+        if (digits.isEmpty() || digits.length() > 3 || !digits.chars().allMatch(Character::isDigit)) {
+            return false;
+        }
+        int size = Integer.parseInt(digits);
+        return size >= min && size <= max && size % step == 0;
+    }
+}
@@ -0,0 +1,223 @@
+import io.reactivex.disposables.Disposable;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.BatchRequest;
+import org.web3j.protocol.core.BatchResponse;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.Response;
+import org.web3j.protocol.core.methods.response.EthGetTransactionReceipt;
+import org.web3j.protocol.core.methods.response.EthTransaction;
+import org.web3j.protocol.core.methods.response.TransactionReceipt;
+import org.web3j.protocol.exceptions.TransactionException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 交易回执跟踪器。
+ * 所有待确认交易共用一个新区块订阅：每出现一个新区块，用一个 eth_getTransactionReceipt 批量请求检查全部待确认交易，
+ * 查到回执时完成对应的 Future；超时或交易从交易池中消失时以 TransactionException 结束。
+ * 新区块来自 SharedBlockPoller（默认每 2 秒轮询一次），不再单独创建 web3j 的 15 秒区块过滤器。
+ */
+public class ReceiptTracker {
+
+    public static final long DEFAULT_TIMEOUT_SECONDS = 600;
+    // 每隔多少个区块检查一次仍未确认的交易是否还在交易池中
+    public static final int DEFAULT_DROP_CHECK_BLOCKS = 10;
+    // 单个批量请求的最大交易数
+    private static final int MAX_BATCH_SIZE = 1000;
+
+    private final Web3j web3j;
+    private final SharedBlockPoller blockPoller;
+    private final long timeoutNanos;
+    private final int dropCheckBlocks;
+    private final Map<String, Pending> pending = new ConcurrentHashMap<>();
+
+    private Disposable blockSubscription;
+
+    public ReceiptTracker(Web3j web3j) {
+        this(web3j, DEFAULT_TIMEOUT_SECONDS, TimeUnit.SECONDS, DEFAULT_DROP_CHECK_BLOCKS);
+    }
+
+    /**
+     * @param web3j           Web3j 实例，新区块来自 Web3Utils 中该实例共享的 SharedBlockPoller
+     * @param timeout         等待回执的最长时间
+     * @param unit            时间单位
+     * @param dropCheckBlocks 每隔多少个区块检查一次交易是否被丢弃
+     */
+    public ReceiptTracker(Web3j web3j, long timeout, TimeUnit unit, int dropCheckBlocks) {
+        this(web3j, Web3Utils.getBlockPoller(web3j), timeout, unit, dropCheckBlocks);
+    }
+
+    /**
+     * @param web3j           Web3j 实例
+     * @param blockPoller     新区块来源
+     * @param timeout         等待回执的最长时间
+     * @param unit            时间单位
+     * @param dropCheckBlocks 每隔多少个区块检查一次交易是否被丢弃
+     */
+    public ReceiptTracker(Web3j web3j, SharedBlockPoller blockPoller, long timeout, TimeUnit unit, int dropCheckBlocks) {
+        if (timeout <= 0 || dropCheckBlocks <= 0) {
+            throw new IllegalArgumentException("timeout and dropCheckBlocks must be positive");
+        }
+        this.web3j = web3j;
+        this.blockPoller = blockPoller;
+        this.timeoutNanos = unit.toNanos(timeout);
+        this.dropCheckBlocks = dropCheckBlocks;
+    }
+
+    /**
+     * 跟踪一笔交易，首次调用时开始监听新区块。同一交易重复跟踪时返回同一个 Future。
+     *
+     * @param transactionHash 交易哈希
+     * @return 交易上链后完成的 Future
+     */
+    public CompletableFuture<TransactionReceipt> track(String transactionHash) {
+        start();
+        return pending.computeIfAbsent(transactionHash.toLowerCase(), hash -> new Pending(transactionHash)).future;
+    }
+
+    /**
+     * 正在等待回执的交易数。
+     */
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    public synchronized void start() {
+        if (blockSubscription != null) {
+            return;
+        }
+        // 每个区块都检查全部待确认交易，处理不过来时丢弃积压的旧区块
+        blockSubscription = blockPoller.blockFlowable(1, SharedBlockPoller.OverflowPolicy.DROP_OLDEST).subscribe(
+                block -> poll(),
+                throwable -> System.err.println("Receipt tracker block subscription error: " + throwable.getMessage())
+        );
+    }
+
+    public synchronized void stop() {
+        if (blockSubscription != null) {
+            blockSubscription.dispose();
+            blockSubscription = null;
+        }
+    }
+
+    /**
+     * 检查一次所有待确认交易。通常由新区块触发，也可以手动调用。
+     */
+    public synchronized void poll() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<Pending> snapshot = new ArrayList<>(pending.values());
+        for (int from = 0; from < snapshot.size(); from += MAX_BATCH_SIZE) {
+            checkReceipts(snapshot.subList(from, Math.min(from + MAX_BATCH_SIZE, snapshot.size())));
+        }
+
+        long now = System.nanoTime();
+        List<Pending> dropCandidates = new ArrayList<>();
+        for (Pending item : snapshot) {
+            if (item.future.isDone()) {
+                continue;
+            }
+            if (now - item.startNanos > timeoutNanos) {
+                finish(item, null, new TransactionException("Transaction receipt was not generated after "
+                        + TimeUnit.NANOSECONDS.toSeconds(timeoutNanos) + " seconds for transaction: " + item.hash));
+            } else if (item.blocksWaited > 0 && item.blocksWaited % dropCheckBlocks == 0) {
+                dropCandidates.add(item);
+            }
+        }
+        if (!dropCandidates.isEmpty()) {
+            checkDropped(dropCandidates);
+        }
+    }
+
+    private void checkReceipts(List<Pending> chunk) {
+        BatchRequest batch = web3j.newBatch();
+        Map<Long, Pending> itemById = new HashMap<>(chunk.size() * 2);
+        for (Pending item : chunk) {
+            Request<?, EthGetTransactionReceipt> request = web3j.ethGetTransactionReceipt(item.hash);
+            itemById.put(request.getId(), item);
+            batch.add(request);
+        }
+        BatchResponse batchResponse;
+        try {
+            batchResponse = batch.send();
+        } catch (IOException | RuntimeException e) {
+            // 下个区块再查
+            System.err.println("Receipt batch failed: " + e.getMessage());
+            return;
+        }
+        // 批量响应的顺序不保证与请求一致，按 id 对应
+        for (Response<?> response : batchResponse.getResponses()) {
+            Pending item = itemById.get(response.getId());
+            if (item == null || response.hasError()) {
+                continue;
+            }
+            TransactionReceipt receipt = ((EthGetTransactionReceipt) response).getTransactionReceipt().orElse(null);
+            if (receipt != null) {
+                finish(item, receipt, null);
+            } else {
+                item.blocksWaited++;
+            }
+        }
+    }
+
+    /**
+     * 节点既没有回执也查不到交易本身时，说明交易已从交易池中丢弃。
+     */
+    private void checkDropped(List<Pending> candidates) {
+        BatchRequest batch = web3j.newBatch();
+        Map<Long, Pending> itemById = new HashMap<>(candidates.size() * 2);
+        for (Pending item : candidates) {
+            Request<?, EthTransaction> request = web3j.ethGetTransactionByHash(item.hash);
+            itemById.put(request.getId(), item);
+            batch.add(request);
+        }
+        BatchResponse batchResponse;
+        try {
+            batchResponse = batch.send();
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Dropped transaction check failed: " + e.getMessage());
+            return;
+        }
+        for (Response<?> response : batchResponse.getResponses()) {
+            Pending item = itemById.get(response.getId());
+            if (item == null || response.hasError()) {
+                continue;
+            }
+            if (!((EthTransaction) response).getTransaction().isPresent()) {
+                finish(item, null, new TransactionException("Transaction was dropped from the mempool: " + item.hash));
+            }
+        }
+    }
+
+    private void finish(Pending item, TransactionReceipt receipt, Exception error) {
+        pending.remove(item.hash.toLowerCase(), item);
+        if (error != null) {
+            item.future.completeExceptionally(error);
+        } else {
+            item.future.complete(receipt);
+        }
+    }
+
+    /**
+     * 一笔待确认交易。
+     */
+    private static final class Pending {
+        private final String hash;
+        private final long startNanos = System.nanoTime();
+        private final CompletableFuture<TransactionReceipt> future = new CompletableFuture<>();
+        // 已经检查过但没有回执的区块数
+        private int blocksWaited;
+
+        private Pending(String hash) {
+            this.hash = hash;
+        }
+    }
+}
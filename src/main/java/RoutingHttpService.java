@@ -0,0 +1,397 @@
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.web3j.protocol.ObjectMapperFactory;
+import org.web3j.protocol.Service;
+import org.web3j.protocol.exceptions.ClientConnectionException;
+import org.web3j.utils.Numeric;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 支持多个 RPC 节点的 Web3j 服务实现。
+ * 每次请求都会优先发送到当前延迟最低且健康的节点，请求失败时自动切换到下一个节点。
+ * 可以限制每个节点同时在途的请求数（从发出请求到响应流关闭），超出的调用线程在信号量上等待。
+ * 过滤器只存在于创建它的节点上，eth_getFilterChanges 等过滤器请求固定发往创建该过滤器的节点；
+ * 发送交易的请求只在确定没有到达节点（连接失败或 429）时才切换节点，避免同一笔交易被重复提交。
+ */
+public class RoutingHttpService extends Service {
+
+    // 不限制单节点在途请求数
+    public static final int UNLIMITED_IN_FLIGHT = Integer.MAX_VALUE;
+
+    private static final MediaType JSON_MEDIA_TYPE = MediaType.parse("application/json; charset=utf-8");
+
+    // 延迟滑动平均的权重（新样本占 1/8）
+    private static final int EWMA_SHIFT = 3;
+    // 节点失败后的最短和最长隔离时间
+    private static final long MIN_BACKOFF_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long MAX_BACKOFF_NANOS = TimeUnit.SECONDS.toNanos(30);
+    // 每隔多少次请求随机探测一次非最优节点，以便刷新其延迟数据
+    private static final int PROBE_INTERVAL = 64;
+
+    // 创建过滤器的方法，响应中的过滤器 ID 与节点绑定
+    private static final Set<String> FILTER_CREATE_METHODS = new HashSet<>(Arrays.asList(
+            "eth_newFilter", "eth_newBlockFilter", "eth_newPendingTransactionFilter"));
+    // 以过滤器 ID 为第一个参数的方法
+    private static final Set<String> FILTER_METHODS = new HashSet<>(Arrays.asList(
+            "eth_getFilterChanges", "eth_getFilterLogs", "eth_uninstallFilter"));
+    // 不能在请求可能已到达节点后重发的方法
+    private static final Set<String> NON_IDEMPOTENT_METHODS = new HashSet<>(Arrays.asList(
+            "eth_sendRawTransaction", "eth_sendTransaction"));
+    private static final String FILTER_ID_PARAM = "\"params\":[\"";
+
+    private final OkHttpClient httpClient;
+    private final List<Endpoint> endpoints;
+    private final AtomicInteger requestCounter = new AtomicInteger();
+    private final RpcMetrics metrics;
+    // 过滤器 ID（规范化后）到创建它的节点
+    private final Map<String, Endpoint> filterEndpoints = new ConcurrentHashMap<>();
+
+    /**
+     * @param urls       RPC 节点地址列表
+     * @param httpClient 共享的 OkHttpClient
+     */
+    public RoutingHttpService(List<String> urls, OkHttpClient httpClient) {
+        this(urls, httpClient, new RpcMetrics());
+    }
+
+    /**
+     * @param urls       RPC 节点地址列表
+     * @param httpClient 共享的 OkHttpClient
+     * @param metrics    请求指标，可由多个服务共享
+     */
+    public RoutingHttpService(List<String> urls, OkHttpClient httpClient, RpcMetrics metrics) {
+        this(urls, httpClient, metrics, UNLIMITED_IN_FLIGHT);
+    }
+
+    /**
+     * @param urls                   RPC 节点地址列表
+     * @param httpClient             共享的 OkHttpClient
+     * @param metrics                请求指标，可由多个服务共享
+     * @param maxInFlightPerEndpoint 每个节点同时在途的最大请求数
+     */
+    public RoutingHttpService(List<String> urls, OkHttpClient httpClient, RpcMetrics metrics, int maxInFlightPerEndpoint) {
+        super(false);
+        if (maxInFlightPerEndpoint <= 0) {
+            throw new IllegalArgumentException("maxInFlightPerEndpoint must be positive");
+        }
+        if (urls == null || urls.isEmpty()) {
+            throw new IllegalArgumentException("At least one RPC endpoint is required");
+        }
+        List<Endpoint> list = new ArrayList<>(urls.size());
+        for (String url : urls) {
+            list.add(new Endpoint(url, maxInFlightPerEndpoint));
+        }
+        this.endpoints = Collections.unmodifiableList(list);
+        this.httpClient = httpClient;
+        this.metrics = metrics;
+    }
+
+    @Override
+    protected InputStream performIO(String payload) throws IOException {
+        return openStream(payload);
+    }
+
+    /**
+     * 将 JSON-RPC 请求体发送到最优节点，并返回响应流。
+     * 节点连接失败、返回 5xx 或 429 时会依次尝试其余节点。
+     *
+     * @param payload JSON-RPC 请求体
+     * @return 响应体输入流，调用方负责关闭
+     * @throws IOException 如果所有节点都失败
+     */
+    public InputStream openStream(String payload) throws IOException {
+        RpcMetrics.Call call = metrics.begin(payload);
+        try {
+            return call.wrap(route(payload));
+        } catch (IOException | RuntimeException e) {
+            call.fail();
+            throw e;
+        }
+    }
+
+    private InputStream route(String payload) throws IOException {
+        String method = RpcMetrics.methodName(payload);
+        boolean idempotent = !NON_IDEMPOTENT_METHODS.contains(method);
+        List<Endpoint> candidates = routingOrder();
+        if (FILTER_METHODS.contains(method)) {
+            Endpoint pinned = pinnedEndpoint(method, payload);
+            if (pinned != null) {
+                candidates = Collections.singletonList(pinned);
+            }
+        }
+
+        RequestBody requestBody = RequestBody.create(payload, JSON_MEDIA_TYPE);
+        IOException lastError = null;
+        for (Endpoint endpoint : candidates) {
+            Request request = new Request.Builder().url(endpoint.url).post(requestBody).build();
+            endpoint.acquire();
+            long start = System.nanoTime();
+            Response response;
+            try {
+                response = httpClient.newCall(request).execute();
+            } catch (IOException e) {
+                endpoint.release();
+                endpoint.onFailure();
+                // 读超时等情况下节点可能已经收到交易，不能再发给其他节点
+                if (!idempotent && !isConnectFailure(e)) {
+                    throw e;
+                }
+                lastError = e;
+                continue;
+            }
+
+            int code = response.code();
+            if (code >= 500 || code == 429) {
+                response.close();
+                endpoint.release();
+                endpoint.onFailure();
+                lastError = new IOException("Invalid response received from " + endpoint.url + ": " + code);
+                // 429 表示请求被限流拒绝，5xx 时节点可能已经处理了交易
+                if (!idempotent && code != 429) {
+                    throw lastError;
+                }
+                continue;
+            }
+
+            ResponseBody responseBody = response.body();
+            if (!response.isSuccessful() || responseBody == null) {
+                try {
+                    String text = responseBody == null ? "N/A" : responseBody.string();
+                    throw new ClientConnectionException("Invalid response received: " + code + "; " + text);
+                } finally {
+                    response.close();
+                    endpoint.release();
+                }
+            }
+
+            endpoint.onSuccess(System.nanoTime() - start);
+            if (FILTER_CREATE_METHODS.contains(method)) {
+                return recordFilter(responseBody, endpoint);
+            }
+            // 响应流关闭时才归还许可，读取响应体期间连接仍被占用
+            return new PermitReleasingInputStream(responseBody.byteStream(), endpoint);
+        }
+        throw lastError != null ? lastError : new IOException("No RPC endpoint available");
+    }
+
+    /**
+     * 读取创建过滤器的响应（很小），记录过滤器 ID 所在的节点。
+     */
+    private InputStream recordFilter(ResponseBody responseBody, Endpoint endpoint) throws IOException {
+        byte[] bytes;
+        try {
+            bytes = responseBody.bytes();
+        } finally {
+            endpoint.release();
+        }
+        JsonNode result = ObjectMapperFactory.getObjectMapper().readTree(bytes).get("result");
+        if (result != null && result.isTextual()) {
+            filterEndpoints.put(normalizeFilterId(result.asText()), endpoint);
+        }
+        return new ByteArrayInputStream(bytes);
+    }
+
+    /**
+     * 过滤器请求应发往的节点；过滤器不是经由本服务创建时返回 null，按普通请求路由。
+     */
+    private Endpoint pinnedEndpoint(String method, String payload) {
+        int start = payload.indexOf(FILTER_ID_PARAM);
+        if (start < 0) {
+            return null;
+        }
+        start += FILTER_ID_PARAM.length();
+        int end = payload.indexOf('"', start);
+        if (end < 0) {
+            return null;
+        }
+        String filterId = normalizeFilterId(payload.substring(start, end));
+        // 卸载后不再需要绑定；请求失败时节点上的过滤器也会超时失效
+        return "eth_uninstallFilter".equals(method) ? filterEndpoints.remove(filterId) : filterEndpoints.get(filterId);
+    }
+
+    /**
+     * web3j 把过滤器 ID 解析成数值后再编码，前导零会丢失，因此按数值比较。
+     */
+    private static String normalizeFilterId(String filterId) {
+        try {
+            return Numeric.toBigInt(filterId).toString(16);
+        } catch (RuntimeException e) {
+            return filterId.toLowerCase();
+        }
+    }
+
+    /**
+     * 连接阶段的失败，请求一定没有发送到节点。
+     */
+    private static boolean isConnectFailure(IOException e) {
+        return e instanceof ConnectException || e instanceof UnknownHostException || e instanceof NoRouteToHostException;
+    }
+
+    /**
+     * 计算本次请求的节点尝试顺序：健康节点按延迟从低到高排列，隔离中的节点排在最后。
+     */
+    private List<Endpoint> routingOrder() {
+        long now = System.nanoTime();
+        List<Endpoint> healthy = new ArrayList<>(endpoints.size());
+        List<Endpoint> isolated = new ArrayList<>();
+        for (Endpoint endpoint : endpoints) {
+            if (endpoint.isHealthy(now)) {
+                healthy.add(endpoint);
+            } else {
+                isolated.add(endpoint);
+            }
+        }
+        healthy.sort((a, b) -> Long.compare(a.latencyNanos.get(), b.latencyNanos.get()));
+        isolated.sort((a, b) -> Long.compare(a.downUntilNanos, b.downUntilNanos));
+
+        // 定期把一个随机健康节点提到最前，避免非最优节点的延迟数据长期不更新
+        if (healthy.size() > 1 && requestCounter.incrementAndGet() % PROBE_INTERVAL == 0) {
+            Endpoint probe = healthy.remove(ThreadLocalRandom.current().nextInt(1, healthy.size()));
+            healthy.add(0, probe);
+        }
+        healthy.addAll(isolated);
+        return healthy;
+    }
+
+    /**
+     * 返回当前延迟最低的健康节点地址。
+     */
+    public String getPreferredUrl() {
+        return routingOrder().get(0).url;
+    }
+
+    /**
+     * 返回所有节点的当前状态，格式为 "url latency=..ms failures=..".
+     */
+    public List<String> describeEndpoints() {
+        List<String> result = new ArrayList<>(endpoints.size());
+        long now = System.nanoTime();
+        for (Endpoint endpoint : endpoints) {
+            result.add(String.format("%s latency=%.1fms failures=%d healthy=%s",
+                    endpoint.url,
+                    endpoint.latencyNanos.get() / 1_000_000.0,
+                    endpoint.consecutiveFailures.get(),
+                    endpoint.isHealthy(now)));
+        }
+        return result;
+    }
+
+    public OkHttpClient getHttpClient() {
+        return httpClient;
+    }
+
+    public RpcMetrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public void close() {
+        // 连接池由 Web3Utils 统一持有，这里不做关闭
+    }
+
+    /**
+     * 关闭时归还节点许可的响应流，重复关闭只归还一次。
+     */
+    private static final class PermitReleasingInputStream extends FilterInputStream {
+        private final Endpoint endpoint;
+        private boolean released;
+
+        private PermitReleasingInputStream(InputStream in, Endpoint endpoint) {
+            super(in);
+            this.endpoint = endpoint;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                if (!released) {
+                    released = true;
+                    endpoint.release();
+                }
+            }
+        }
+    }
+
+    /**
+     * 单个 RPC 节点的运行状态。
+     */
+    private static final class Endpoint {
+        private final String url;
+        // 不限制时为 null
+        private final Semaphore permits;
+        // 未测量前为 0，保证新节点会被优先尝试一次
+        private final AtomicLong latencyNanos = new AtomicLong();
+        private final AtomicInteger consecutiveFailures = new AtomicInteger();
+        private volatile long downUntilNanos;
+
+        private Endpoint(String url, int maxInFlight) {
+            this.url = url;
+            this.permits = maxInFlight == UNLIMITED_IN_FLIGHT ? null : new Semaphore(maxInFlight);
+        }
+
+        private void acquire() throws InterruptedIOException {
+            if (permits == null) {
+                return;
+            }
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for " + url);
+            }
+        }
+
+        private void release() {
+            if (permits != null) {
+                permits.release();
+            }
+        }
+
+        private boolean isHealthy(long now) {
+            return consecutiveFailures.get() == 0 || now - downUntilNanos >= 0;
+        }
+
+        private void onSuccess(long elapsedNanos) {
+            consecutiveFailures.set(0);
+            long previous = latencyNanos.get();
+            long updated = previous == 0
+                    ? elapsedNanos
+                    : previous + ((elapsedNanos - previous) >> EWMA_SHIFT);
+            latencyNanos.set(updated);
+        }
+
+        private void onFailure() {
+            int failures = consecutiveFailures.incrementAndGet();
+            long backoff = Math.min(MAX_BACKOFF_NANOS, MIN_BACKOFF_NANOS << Math.min(failures - 1, 5));
+            downUntilNanos = System.nanoTime() + backoff;
+        }
+    }
+}
@@ -0,0 +1,424 @@
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 按 JSON-RPC 方法统计的请求指标：延迟直方图（p50/p99/p999）、请求/响应字节数、错误数和在途请求数。
+ * 记录路径上只有计数器累加和一次字符串查找，可以在生产环境中常开。
+ * 错误包括传输失败和 HTTP 200 但带有 "error" 成员的 JSON-RPC 响应（批量请求中任意一个元素出错即记一次）；
+ * 后者在响应流经过时逐字节识别，不额外解析响应。
+ */
+public class RpcMetrics {
+
+    // 批量请求统一记为该方法名
+    public static final String BATCH_METHOD = "batch";
+    private static final String UNKNOWN_METHOD = "unknown";
+    private static final String METHOD_FIELD = "\"method\":\"";
+    private static final byte[] ERROR_FIELD = {'e', 'r', 'r', 'o', 'r'};
+
+    // 直方图：每个 2 的幂区间再分成 8 个子桶，相对误差不超过 12.5%，单位为微秒
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final Map<String, MethodStats> methods = new ConcurrentHashMap<>();
+    private ScheduledExecutorService reporter;
+
+    /**
+     * 开始记录一次请求。
+     *
+     * @param payload JSON-RPC 请求体
+     */
+    public Call begin(String payload) {
+        MethodStats stats = methods.computeIfAbsent(methodName(payload), MethodStats::new);
+        stats.requests.increment();
+        // 请求体基本为 ASCII，按字符数近似字节数
+        stats.requestBytes.add(payload.length());
+        stats.inFlight.incrementAndGet();
+        return new Call(stats);
+    }
+
+    /**
+     * 当前所有方法的指标快照，按请求数从高到低排列。
+     */
+    public List<MethodSnapshot> snapshot() {
+        List<MethodSnapshot> result = new ArrayList<>(methods.size());
+        for (MethodStats stats : methods.values()) {
+            result.add(stats.snapshot());
+        }
+        result.sort((a, b) -> Long.compare(b.requests, a.requests));
+        return result;
+    }
+
+    /**
+     * 指定方法的指标快照，没有记录时返回 null。
+     */
+    public MethodSnapshot snapshot(String method) {
+        MethodStats stats = methods.get(method);
+        return stats == null ? null : stats.snapshot();
+    }
+
+    /**
+     * 以文本表格输出当前指标。
+     */
+    public String dump() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(String.format("%-32s %9s %7s %6s %10s %10s %10s %12s %12s%n",
+                "method", "requests", "errors", "flight", "p50(ms)", "p99(ms)", "p999(ms)", "sent(B)", "recv(B)"));
+        for (MethodSnapshot snapshot : snapshot()) {
+            builder.append(String.format("%-32s %9d %7d %6d %10.2f %10.2f %10.2f %12d %12d%n",
+                    snapshot.method, snapshot.requests, snapshot.errors, snapshot.inFlight,
+                    snapshot.p50Micros / 1000.0, snapshot.p99Micros / 1000.0, snapshot.p999Micros / 1000.0,
+                    snapshot.requestBytes, snapshot.responseBytes));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * 按固定间隔把指标输出到标准输出。
+     */
+    public synchronized void startReporting(long interval, TimeUnit unit) {
+        if (reporter != null) {
+            return;
+        }
+        reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "rpc-metrics-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reporter.scheduleAtFixedRate(() -> System.out.print(dump()), interval, interval, unit);
+    }
+
+    public synchronized void stopReporting() {
+        if (reporter != null) {
+            reporter.shutdownNow();
+            reporter = null;
+        }
+    }
+
+    /**
+     * 从请求体中取出方法名，批量请求返回 "batch"。
+     */
+    static String methodName(String payload) {
+        for (int i = 0; i < payload.length(); i++) {
+            char c = payload.charAt(i);
+            if (c == '[') {
+                return BATCH_METHOD;
+            }
+            if (!Character.isWhitespace(c)) {
+                break;
+            }
+        }
+        int start = payload.indexOf(METHOD_FIELD);
+        if (start < 0) {
+            return UNKNOWN_METHOD;
+        }
+        start += METHOD_FIELD.length();
+        int end = payload.indexOf('"', start);
+        return end < 0 ? UNKNOWN_METHOD : payload.substring(start, end);
+    }
+
+    static int bucketIndex(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) Math.max(micros, 0);
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS
+                + (int) ((micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1));
+    }
+
+    /**
+     * 桶的代表值（区间中点）。
+     */
+    static long bucketValue(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        int shift = exponent - SUB_BUCKET_BITS;
+        long lower = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+        return lower + ((1L << shift) >> 1);
+    }
+
+    /**
+     * 一次进行中的请求。响应流关闭时记录延迟（响应中有 "error" 成员时同时记为错误），请求失败时调用 fail。
+     */
+    public static final class Call {
+        private final MethodStats stats;
+        private final long startNanos = System.nanoTime();
+        private boolean finished;
+
+        private Call(MethodStats stats) {
+            this.stats = stats;
+        }
+
+        /**
+         * 包装响应流：统计读取的字节数并识别 JSON-RPC 错误，流关闭时记录延迟。
+         */
+        public InputStream wrap(InputStream response) {
+            return new CountingInputStream(response, this);
+        }
+
+        /**
+         * 记录请求失败。
+         */
+        public void fail() {
+            if (finish()) {
+                stats.errors.increment();
+            }
+        }
+
+        private void complete(long responseBytes, boolean rpcError) {
+            if (finish()) {
+                stats.responseBytes.add(responseBytes);
+                if (rpcError) {
+                    stats.errors.increment();
+                }
+            }
+        }
+
+        private boolean finish() {
+            if (finished) {
+                return false;
+            }
+            finished = true;
+            stats.inFlight.decrementAndGet();
+            stats.histogram.incrementAndGet(bucketIndex((System.nanoTime() - startNanos) / 1000));
+            return true;
+        }
+    }
+
+    /**
+     * 单个方法的指标快照。
+     */
+    public static final class MethodSnapshot {
+        private final String method;
+        private final long requests;
+        private final long errors;
+        private final long inFlight;
+        private final long requestBytes;
+        private final long responseBytes;
+        private final long p50Micros;
+        private final long p99Micros;
+        private final long p999Micros;
+
+        private MethodSnapshot(String method, long requests, long errors, long inFlight, long requestBytes,
+                               long responseBytes, long p50Micros, long p99Micros, long p999Micros) {
+            this.method = method;
+            this.requests = requests;
+            this.errors = errors;
+            this.inFlight = inFlight;
+            this.requestBytes = requestBytes;
+            this.responseBytes = responseBytes;
+            this.p50Micros = p50Micros;
+            this.p99Micros = p99Micros;
+            this.p999Micros = p999Micros;
+        }
+
+        public String getMethod() {
+            return method;
+        }
+
+        public long getRequests() {
+            return requests;
+        }
+
+        public long getErrors() {
+            return errors;
+        }
+
+        public long getInFlight() {
+            return inFlight;
+        }
+
+        public long getRequestBytes() {
+            return requestBytes;
+        }
+
+        public long getResponseBytes() {
+            return responseBytes;
+        }
+
+        public long getP50Micros() {
+            return p50Micros;
+        }
+
+        public long getP99Micros() {
+            return p99Micros;
+        }
+
+        public long getP999Micros() {
+            return p999Micros;
+        }
+    }
+
+    /**
+     * 单个方法的累计指标。
+     */
+    private static final class MethodStats {
+        private final String method;
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder requestBytes = new LongAdder();
+        private final LongAdder responseBytes = new LongAdder();
+        private final AtomicLong inFlight = new AtomicLong();
+        private final AtomicLongArray histogram = new AtomicLongArray(BUCKET_COUNT);
+
+        private MethodStats(String method) {
+            this.method = method;
+        }
+
+        private MethodSnapshot snapshot() {
+            long[] counts = new long[BUCKET_COUNT];
+            long total = 0;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                counts[i] = histogram.get(i);
+                total += counts[i];
+            }
+            return new MethodSnapshot(method, requests.sum(), errors.sum(), inFlight.get(),
+                    requestBytes.sum(), responseBytes.sum(),
+                    percentile(counts, total, 0.5), percentile(counts, total, 0.99), percentile(counts, total, 0.999));
+        }
+
+        private static long percentile(long[] counts, long total, double quantile) {
+            if (total == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(total * quantile);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return bucketValue(i);
+                }
+            }
+            return bucketValue(counts.length - 1);
+        }
+    }
+
+    /**
+     * 统计读取字节数的响应流，同时扫描经过的字节，识别 JSON-RPC 响应对象的 "error" 成员。
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+        private final Call call;
+        private long count;
+
+        // 扫描状态：嵌套深度、是否在字符串中、当前字符串与 "error" 已匹配的长度（-1 表示不匹配）
+        private int depth;
+        private boolean batch;
+        private boolean inString;
+        private boolean escape;
+        private int matched = -1;
+        private boolean errorKey;
+        private boolean rpcError;
+
+        private CountingInputStream(InputStream in, Call call) {
+            super(in);
+            this.call = call;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+                scan(b);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0) {
+                count += n;
+                for (int i = offset; i < offset + n && !rpcError; i++) {
+                    scan(buffer[i]);
+                }
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                call.complete(count, rpcError);
+            }
+        }
+
+        /**
+         * 处理一个字节。响应对象（批量请求时为数组中的对象）的成员名为 "error" 时记录错误，嵌套对象中的同名成员不计。
+         */
+        private void scan(int b) {
+            if (inString) {
+                if (escape) {
+                    escape = false;
+                    matched = -1;
+                } else if (b == '\\') {
+                    escape = true;
+                    matched = -1;
+                } else if (b == '"') {
+                    inString = false;
+                    errorKey = matched == ERROR_FIELD.length;
+                } else if (matched >= 0 && matched < ERROR_FIELD.length && b == ERROR_FIELD[matched]) {
+                    matched++;
+                } else {
+                    matched = -1;
+                }
+                return;
+            }
+            switch (b) {
+                case '"':
+                    inString = true;
+                    matched = depth == (batch ? 2 : 1) ? 0 : -1;
+                    break;
+                case ':':
+                    if (errorKey) {
+                        rpcError = true;
+                    }
+                    errorKey = false;
+                    break;
+                case '{':
+                case '[':
+                    if (depth == 0) {
+                        batch = b == '[';
+                    }
+                    depth++;
+                    errorKey = false;
+                    break;
+                case '}':
+                case ']':
+                    depth--;
+                    errorKey = false;
+                    break;
+                case ' ':
+                case '\t':
+                case '\r':
+                case '\n':
+                    break;
+                default:
+                    errorKey = false;
+                    break;
+            }
+        }
+    }
+}
@@ -0,0 +1,352 @@
+import io.reactivex.BackpressureOverflowStrategy;
+import io.reactivex.Flowable;
+import io.reactivex.schedulers.Schedulers;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameter;
+import org.web3j.protocol.core.methods.request.EthFilter;
+import org.web3j.protocol.core.methods.response.EthBlock;
+import org.web3j.protocol.core.methods.response.EthLog;
+import org.web3j.protocol.core.methods.response.Log;
+import org.web3j.protocol.core.methods.response.Transaction;
+import org.web3j.protocol.rx.JsonRpc2_0Rx;
+import org.web3j.utils.Async;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 共享的新区块轮询器。
+ * 整个进程只轮询一次最新区块号（配置了 WebSocket 节点时改为 newHeads 订阅），每个新区块只获取一次，
+ * 有日志订阅者时每个区块再发一次 eth_getLogs，然后分发给所有区块、交易和日志订阅者并在本地过滤；
+ * 增加订阅者不会增加 RPC 请求。每个订阅者有独立的有界缓冲区和溢出策略，慢订阅者不会拖住其他订阅者。
+ * 交易池新交易哈希同样只有一个共享的过滤器（或 newPendingTransactions 订阅），按相同的间隔轮询。
+ */
+public class SharedBlockPoller {
+
+    public static final long DEFAULT_POLL_INTERVAL_MILLIS = 2_000;
+    public static final int DEFAULT_BUFFER_SIZE = 1024;
+    private static final int FETCH_RETRIES = 3;
+
+    /**
+     * 订阅者缓冲区满时的处理方式。
+     */
+    public enum OverflowPolicy {
+        // 丢弃缓冲区中最旧的事件
+        DROP_OLDEST,
+        // 丢弃新到的事件
+        DROP_LATEST,
+        // 以 MissingBackpressureException 结束该订阅
+        ERROR,
+        // 不丢弃，暂停共享轮询直到该订阅者处理完（会同时拖慢其他订阅者）
+        BACKPRESSURE
+    }
+
+    private final Web3j web3j;
+    private final Flowable<BlockData> shared;
+    private final Flowable<String> pendingHashes;
+    // 当前所有日志订阅者的过滤条件，为空时不请求 eth_getLogs
+    private final List<EthFilter> logFilters = new CopyOnWriteArrayList<>();
+    private final LongAdder blocksFetched = new LongAdder();
+    private final LongAdder logRequests = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    // 已分发的最高区块号，只在轮询线程中访问
+    private long lastBlock = -1;
+
+    public SharedBlockPoller(Web3j web3j) {
+        this(web3j, DEFAULT_POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @param web3j        Web3j 实例
+     * @param pollInterval 轮询最新区块号的间隔（使用 WebSocket 订阅时忽略）
+     * @param unit         时间单位
+     */
+    public SharedBlockPoller(Web3j web3j, long pollInterval, TimeUnit unit) {
+        if (pollInterval <= 0) {
+            throw new IllegalArgumentException("pollInterval must be positive");
+        }
+        this.web3j = web3j;
+        WebSocketEventSource webSocketSource = Web3Utils.getWebSocketSource(web3j);
+        Flowable<BlockData> blocks;
+        Flowable<String> hashes;
+        if (webSocketSource != null) {
+            hashes = webSocketSource.pendingTransactionHashFlowable();
+            blocks = webSocketSource.blockFlowable(true)
+                    .doOnNext(block -> blocksFetched.increment())
+                    .concatMap(block -> Flowable.fromCallable(() -> new BlockData(block, fetchLogs(block.getBlock())))
+                            .subscribeOn(Schedulers.io())
+                            .retry(FETCH_RETRIES));
+        } else {
+            hashes = new JsonRpc2_0Rx(web3j, Async.defaultExecutorService())
+                    .ethPendingTransactionHashFlowable(unit.toMillis(pollInterval));
+            // 订阅者全部处理不过来时丢弃轮询时刻，下一次轮询会补上期间的所有区块
+            blocks = Flowable.interval(0, pollInterval, unit, Schedulers.io())
+                    .onBackpressureDrop()
+                    .concatMapIterable(tick -> pollNewBlocks(), 1)
+                    .doOnCancel(() -> lastBlock = -1);
+        }
+        // 第一个订阅者出现时开始轮询，最后一个订阅者取消时停止
+        this.shared = blocks.publish().refCount();
+        this.pendingHashes = hashes.publish().refCount();
+    }
+
+    public Flowable<EthBlock> blockFlowable() {
+        return blockFlowable(DEFAULT_BUFFER_SIZE, OverflowPolicy.DROP_OLDEST);
+    }
+
+    /**
+     * 新区块（包含完整交易对象）。
+     *
+     * @param bufferSize 该订阅者的缓冲区大小
+     * @param policy     缓冲区满时的处理方式
+     */
+    public Flowable<EthBlock> blockFlowable(int bufferSize, OverflowPolicy policy) {
+        return buffered(shared.map(data -> data.block), bufferSize, policy);
+    }
+
+    public Flowable<Transaction> transactionFlowable() {
+        return transactionFlowable(DEFAULT_BUFFER_SIZE, OverflowPolicy.DROP_OLDEST);
+    }
+
+    /**
+     * 新区块中的交易。
+     *
+     * @param bufferSize 该订阅者的缓冲区大小（按交易计）
+     * @param policy     缓冲区满时的处理方式
+     */
+    public Flowable<Transaction> transactionFlowable(int bufferSize, OverflowPolicy policy) {
+        return buffered(shared
+                .concatMapIterable(data -> data.block.getBlock().getTransactions())
+                .map(result -> (Transaction) result.get()), bufferSize, policy);
+    }
+
+    public Flowable<String> pendingTransactionHashFlowable() {
+        return pendingTransactionHashFlowable(DEFAULT_BUFFER_SIZE, OverflowPolicy.DROP_OLDEST);
+    }
+
+    /**
+     * 进入交易池的新交易哈希，交易池无法回溯，订阅之前的交易不会补发。
+     *
+     * @param bufferSize 该订阅者的缓冲区大小
+     * @param policy     缓冲区满时的处理方式
+     */
+    public Flowable<String> pendingTransactionHashFlowable(int bufferSize, OverflowPolicy policy) {
+        return buffered(pendingHashes, bufferSize, policy);
+    }
+
+    /**
+     * 从 fromBlock 开始的历史区块（包含完整交易对象），接着是新区块，替代 web3j 的 replayPastAndFutureBlocksFlowable。
+     * 先订阅新区块并暂存，用 ParallelBlockReplayer 回放到当前最新区块后再从暂存的新区块继续；
+     * 两段之间缺少的区块（如缓冲区溢出时丢弃的）单独补齐，已输出的区块号不再输出。
+     */
+    public Flowable<EthBlock> replayPastAndFutureBlocks(long fromBlock) {
+        ParallelBlockReplayer replayer = new ParallelBlockReplayer(web3j);
+        return Flowable.defer(() -> {
+            // 下一个应输出的区块号
+            long[] next = {fromBlock};
+            Flowable<EthBlock> past = Flowable.defer(() -> {
+                long head = web3j.ethBlockNumber().send().getBlockNumber().longValueExact();
+                return replayer.replayBlocks(fromBlock, head, true);
+            }).subscribeOn(Schedulers.io());
+            // 同时订阅两段，回放期间的新区块暂存在 future 的缓冲区中
+            return Flowable.concatEager(Arrays.asList(past, blockFlowable()))
+                    .concatMap(block -> {
+                        long number = block.getBlock().getNumber().longValueExact();
+                        if (number < next[0]) {
+                            return Flowable.<EthBlock>empty();
+                        }
+                        Flowable<EthBlock> gap = replayer.replayBlocks(next[0], number - 1, true);
+                        next[0] = number + 1;
+                        return Flowable.concat(gap, Flowable.just(block));
+                    });
+        });
+    }
+
+    /**
+     * 从 fromBlock 开始的历史交易，接着是新区块中的交易，替代 web3j 的 replayPastAndFutureTransactionsFlowable。
+     */
+    public Flowable<Transaction> replayPastAndFutureTransactions(long fromBlock) {
+        return replayPastAndFutureBlocks(fromBlock)
+                .concatMapIterable(ethBlock -> ethBlock.getBlock().getTransactions())
+                .map(result -> (Transaction) result.get());
+    }
+
+    public Flowable<Log> logFlowable(EthFilter filter) {
+        return logFlowable(filter, DEFAULT_BUFFER_SIZE, OverflowPolicy.DROP_OLDEST);
+    }
+
+    /**
+     * 新区块中符合条件的日志，只使用 filter 的地址和 topics，区块范围被忽略。
+     * 订阅后从下一个获取的区块开始接收。
+     *
+     * @param filter     过滤条件
+     * @param bufferSize 该订阅者的缓冲区大小（按日志计）
+     * @param policy     缓冲区满时的处理方式
+     */
+    public Flowable<Log> logFlowable(EthFilter filter, int bufferSize, OverflowPolicy policy) {
+        Flowable<Log> logs = Flowable.defer(() -> {
+            logFilters.add(filter);
+            return shared
+                    .concatMapIterable(data -> data.logs)
+                    .filter(log -> WebSocketEventSource.matches(log, filter))
+                    .doFinally(() -> logFilters.remove(filter));
+        });
+        return buffered(logs, bufferSize, policy);
+    }
+
+    /**
+     * 已获取的区块数。
+     */
+    public long getBlocksFetched() {
+        return blocksFetched.sum();
+    }
+
+    /**
+     * 已发送的 eth_getLogs 请求数。
+     */
+    public long getLogRequests() {
+        return logRequests.sum();
+    }
+
+    /**
+     * 所有订阅者因缓冲区满丢弃的事件数。
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * 给订阅者加上独立的缓冲区，并在单独的线程上投递，使慢订阅者不影响共享轮询。
+     */
+    private <T> Flowable<T> buffered(Flowable<T> source, int bufferSize, OverflowPolicy policy) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("bufferSize must be positive");
+        }
+        switch (policy) {
+            case DROP_OLDEST:
+                return source.onBackpressureBuffer(bufferSize, dropped::increment, BackpressureOverflowStrategy.DROP_OLDEST)
+                        .observeOn(Schedulers.io(), false, 1);
+            case DROP_LATEST:
+                return source.onBackpressureBuffer(bufferSize, dropped::increment, BackpressureOverflowStrategy.DROP_LATEST)
+                        .observeOn(Schedulers.io(), false, 1);
+            case ERROR:
+                return source.onBackpressureBuffer(bufferSize).observeOn(Schedulers.io(), false, 1);
+            default:
+                return source.observeOn(Schedulers.io(), false, bufferSize);
+        }
+    }
+
+    /**
+     * 查询最新区块号，获取上次分发之后的所有区块。
+     * 某个区块获取失败时只返回它之前的区块，下次轮询从失败的区块继续。
+     */
+    private List<BlockData> pollNewBlocks() {
+        long head;
+        try {
+            head = web3j.ethBlockNumber().send().getBlockNumber().longValueExact();
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Shared block poller failed to fetch block number: " + e.getMessage());
+            return Collections.emptyList();
+        }
+        // 首次轮询从当前区块开始
+        long from = lastBlock < 0 ? head : lastBlock + 1;
+        List<BlockData> result = new ArrayList<>();
+        for (long number = from; number <= head; number++) {
+            try {
+                result.add(fetchBlock(number));
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Shared block poller failed to fetch block " + number + ": " + e.getMessage());
+                break;
+            }
+            lastBlock = number;
+        }
+        return result;
+    }
+
+    private BlockData fetchBlock(long number) throws IOException {
+        IOException failure = null;
+        for (int attempt = 0; attempt <= FETCH_RETRIES; attempt++) {
+            try {
+                EthBlock response = web3j.ethGetBlockByNumber(
+                        DefaultBlockParameter.valueOf(BigInteger.valueOf(number)), true).send();
+                if (response.hasError()) {
+                    throw new IOException(response.getError().getMessage());
+                }
+                if (response.getBlock() == null) {
+                    throw new IOException("Block not found");
+                }
+                blocksFetched.increment();
+                return new BlockData(response, fetchLogs(response.getBlock()));
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        throw failure;
+    }
+
+    /**
+     * 用一个 eth_getLogs 获取区块中所有日志订阅者可能需要的日志，没有日志订阅者时不请求。
+     */
+    private List<Log> fetchLogs(EthBlock.Block block) throws IOException {
+        if (logFilters.isEmpty()) {
+            return Collections.emptyList();
+        }
+        DefaultBlockParameter number = DefaultBlockParameter.valueOf(block.getNumber());
+        EthFilter filter = new EthFilter(number, number, unionOfAddresses());
+        EthLog response = web3j.ethGetLogs(filter).send();
+        logRequests.increment();
+        if (response.hasError()) {
+            throw new IOException("Failed to fetch logs for block " + block.getNumber() + ": "
+                    + response.getError().getMessage());
+        }
+        List<Log> logs = new ArrayList<>(response.getLogs().size());
+        for (EthLog.LogResult<?> result : response.getLogs()) {
+            Log log = (Log) result.get();
+            // 区块在两次请求之间被重组替换
+            if (!block.getHash().equalsIgnoreCase(log.getBlockHash())) {
+                throw new IOException("Block " + block.getNumber() + " was reorganized while fetching logs");
+            }
+            logs.add(log);
+        }
+        return logs;
+    }
+
+    /**
+     * 所有日志订阅者的合约地址；有订阅者不限地址时返回空列表，即获取区块中的全部日志。
+     */
+    private List<String> unionOfAddresses() {
+        Set<String> addresses = new LinkedHashSet<>();
+        for (EthFilter filter : logFilters) {
+            if (filter.getAddress() == null || filter.getAddress().isEmpty()) {
+                return Collections.emptyList();
+            }
+            for (String address : filter.getAddress()) {
+                addresses.add(address.toLowerCase());
+            }
+        }
+        return new ArrayList<>(addresses);
+    }
+
+    /**
+     * 一个区块及其日志。
+     */
+    private static final class BlockData {
+        private final EthBlock block;
+        private final List<Log> logs;
+
+        private BlockData(EthBlock block, List<Log> logs) {
+            this.block = block;
+            this.logs = logs;
+        }
+    }
+}
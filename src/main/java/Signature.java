@@ -6,13 +6,18 @@ import org.web3j.utils.Numeric;
 
 import java.math.BigInteger;
 import java.security.SignatureException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 /**
  * 用于演示如何在 Java 中实现以太坊消息签名及验证。
  */
 public class Signature {
 
+    // 批量验证共用的验证器，缓存最近恢复出的签名者地址
+    private static final SignatureVerifier VERIFIER = new SignatureVerifier();
+
     /**
      * 验证指定的消息签名是否有效，并匹配给定的钱包地址。
      *
@@ -60,6 +65,16 @@ public class Signature {
         return parsedAddress.equalsIgnoreCase(walletAddress);
     }
 
+    /**
+     * 批量验证签名，验证任务分散到所有 CPU 核心，重复的签名直接命中缓存。
+     *
+     * @param requests 待验证的签名（字节数组形式）
+     * @return 与输入顺序一致的验证结果
+     */
+    public static boolean[] areSignaturesValid(List<SignatureVerifier.Request> requests) {
+        return VERIFIER.verifyAll(requests);
+    }
+
     /**
      * 使用私钥对消息进行签名，并返回签名的十六进制字符串。
      * 在签名前会对消息添加以太坊特定的前缀。
@@ -109,5 +124,34 @@ public class Signature {
         // 输出结果
         System.out.println("Signature: " + signature);
         System.out.println("Is signature valid: " + isValid);
+
+        // 批量验证并统计每个核心的吞吐量
+        int count = 2000;
+        ECKeyPair keyPair = ECKeyPair.create(new BigInteger(privateKeyHex, CommonConstant.PRIVATE_KEY_RADIX));
+        byte[] address = Numeric.hexStringToByteArray(walletAddress);
+        List<SignatureVerifier.Request> requests = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            byte[] data = (message + "-" + i).getBytes();
+            Sign.SignatureData signatureData = Sign.signPrefixedMessage(data, keyPair);
+            byte[] signatureBytes = new byte[CommonConstant.SIGNATURE_BYTE_LENGTH];
+            System.arraycopy(signatureData.getR(), 0, signatureBytes, CommonConstant.R_START_INDEX, 32);
+            System.arraycopy(signatureData.getS(), 0, signatureBytes, CommonConstant.S_START_INDEX, 32);
+            signatureBytes[CommonConstant.V_INDEX] = signatureData.getV()[0];
+            requests.add(SignatureVerifier.Request.ofPrefixedMessage(data, signatureBytes, address));
+        }
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (String round : new String[]{"cold", "cached"}) {
+            long start = System.nanoTime();
+            boolean[] results = areSignaturesValid(requests);
+            double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+            int valid = 0;
+            for (boolean result : results) {
+                if (result) {
+                    valid++;
+                }
+            }
+            System.out.printf("Batch verify (%s): %d/%d valid, %.0f sig/s, %.0f sig/s per core (%d cores)%n",
+                    round, valid, count, count / seconds, count / seconds / cores, cores);
+        }
     }
 }
@@ -0,0 +1,230 @@
+import org.web3j.crypto.ECDSASignature;
+import org.web3j.crypto.Hash;
+import org.web3j.crypto.Keys;
+import org.web3j.crypto.Sign;
+import org.web3j.utils.Numeric;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+
+/**
+ * 批量以太坊签名验证器。
+ * 直接处理字节数组，不经过十六进制字符串；验证任务分散到所有 CPU 核心，
+ * 并缓存最近的（消息哈希，签名）→ 恢复出的地址，重复验证时跳过椭圆曲线运算。
+ */
+public class SignatureVerifier {
+
+    public static final int DEFAULT_CACHE_SIZE = 65_536;
+    private static final int CACHE_STRIPES = 16;
+    private static final byte[] MESSAGE_PREFIX = "\u0019Ethereum Signed Message:\n".getBytes(StandardCharsets.UTF_8);
+    // 恢复失败时缓存的占位值
+    private static final byte[] INVALID = new byte[0];
+
+    private final ForkJoinPool pool;
+    private final Map<CacheKey, byte[]>[] stripes;
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder recoveries = new LongAdder();
+
+    public SignatureVerifier() {
+        this(DEFAULT_CACHE_SIZE, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param cacheSize   缓存条目数上限
+     * @param parallelism 批量验证使用的线程数
+     */
+    @SuppressWarnings("unchecked")
+    public SignatureVerifier(int cacheSize, int parallelism) {
+        this.pool = new ForkJoinPool(parallelism);
+        this.stripes = new Map[CACHE_STRIPES];
+        int stripeCapacity = Math.max(1, cacheSize / CACHE_STRIPES);
+        for (int i = 0; i < CACHE_STRIPES; i++) {
+            stripes[i] = new LinkedHashMap<CacheKey, byte[]>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<CacheKey, byte[]> eldest) {
+                    return size() > stripeCapacity;
+                }
+            };
+        }
+    }
+
+    /**
+     * 计算带以太坊前缀的消息哈希：keccak256("\x19Ethereum Signed Message:\n" + len + message)。
+     */
+    public static byte[] prefixedMessageHash(byte[] message) {
+        byte[] length = String.valueOf(message.length).getBytes(StandardCharsets.UTF_8);
+        byte[] data = new byte[MESSAGE_PREFIX.length + length.length + message.length];
+        System.arraycopy(MESSAGE_PREFIX, 0, data, 0, MESSAGE_PREFIX.length);
+        System.arraycopy(length, 0, data, MESSAGE_PREFIX.length, length.length);
+        System.arraycopy(message, 0, data, MESSAGE_PREFIX.length + length.length, message.length);
+        return Hash.sha3(data);
+    }
+
+    /**
+     * 根据消息哈希和 65 字节签名（r | s | v）恢复签名者地址。
+     *
+     * @return 20 字节地址（新数组，调用方可以修改）；签名无效时返回 null
+     */
+    public byte[] recoverAddress(byte[] messageHash, byte[] signature) {
+        if (messageHash.length != 32 || signature.length != CommonConstant.SIGNATURE_BYTE_LENGTH) {
+            return null;
+        }
+        CacheKey key = new CacheKey(messageHash, signature);
+        Map<CacheKey, byte[]> stripe = stripes[(key.hash & 0x7fffffff) % CACHE_STRIPES];
+        byte[] cached;
+        synchronized (stripe) {
+            cached = stripe.get(key);
+        }
+        if (cached != null) {
+            cacheHits.increment();
+            return cached == INVALID ? null : cached.clone();
+        }
+
+        // 使用键中的副本，调用方在恢复期间修改输入数组不影响缓存内容
+        byte[] address = doRecover(key.messageHash, key.signature);
+        recoveries.increment();
+        synchronized (stripe) {
+            stripe.put(key, address == null ? INVALID : address);
+        }
+        return address == null ? null : address.clone();
+    }
+
+    /**
+     * 验证签名是否由指定地址对消息哈希签出。
+     *
+     * @param messageHash 32 字节消息哈希（带前缀消息请先用 prefixedMessageHash 计算）
+     * @param signature   65 字节签名
+     * @param address     20 字节地址
+     */
+    public boolean verify(byte[] messageHash, byte[] signature, byte[] address) {
+        byte[] recovered = recoverAddress(messageHash, signature);
+        return recovered != null && Arrays.equals(recovered, address);
+    }
+
+    /**
+     * 并行验证一批签名。
+     *
+     * @param requests 待验证的签名
+     * @return 与输入顺序一致的验证结果
+     */
+    public boolean[] verifyAll(List<Request> requests) {
+        boolean[] results = new boolean[requests.size()];
+        try {
+            pool.submit(() -> IntStream.range(0, requests.size()).parallel().forEach(i -> {
+                Request request = requests.get(i);
+                results[i] = verify(request.messageHash, request.signature, request.address);
+            })).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Signature verification interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Signature verification failed", e.getCause());
+        }
+        return results;
+    }
+
+    public long getCacheHits() {
+        return cacheHits.sum();
+    }
+
+    /**
+     * 实际执行椭圆曲线公钥恢复的次数。
+     */
+    public long getRecoveries() {
+        return recoveries.sum();
+    }
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    private static byte[] doRecover(byte[] messageHash, byte[] signature) {
+        int v = signature[CommonConstant.V_INDEX] & 0xFF;
+        if (v < CommonConstant.V_LOWER_BOUND) {
+            v += CommonConstant.V_BASE;
+        }
+        int recId = v - CommonConstant.V_BASE;
+        if (recId < 0 || recId > 3) {
+            return null;
+        }
+        BigInteger r = new BigInteger(1, Arrays.copyOfRange(signature, CommonConstant.R_START_INDEX, CommonConstant.R_END_INDEX));
+        BigInteger s = new BigInteger(1, Arrays.copyOfRange(signature, CommonConstant.S_START_INDEX, CommonConstant.S_END_INDEX));
+        if (r.signum() == 0 || s.signum() == 0) {
+            return null;
+        }
+        BigInteger publicKey;
+        try {
+            publicKey = Sign.recoverFromSignature(recId, new ECDSASignature(r, s), messageHash);
+        } catch (RuntimeException e) {
+            return null;
+        }
+        if (publicKey == null) {
+            return null;
+        }
+        return Keys.getAddress(Numeric.toBytesPadded(publicKey, 64));
+    }
+
+    /**
+     * 一条待验证的签名。
+     */
+    public static final class Request {
+        private final byte[] messageHash;
+        private final byte[] signature;
+        private final byte[] address;
+
+        /**
+         * @param messageHash 32 字节消息哈希
+         * @param signature   65 字节签名（r | s | v）
+         * @param address     20 字节期望签名者地址
+         */
+        public Request(byte[] messageHash, byte[] signature, byte[] address) {
+            this.messageHash = messageHash;
+            this.signature = signature;
+            this.address = address;
+        }
+
+        /**
+         * 根据原始消息创建请求，消息会按以太坊签名消息格式加前缀后哈希。
+         */
+        public static Request ofPrefixedMessage(byte[] message, byte[] signature, byte[] address) {
+            return new Request(prefixedMessageHash(message), signature, address);
+        }
+    }
+
+    /**
+     * 缓存键：消息哈希 + 签名，保存输入数组的副本。
+     */
+    private static final class CacheKey {
+        private final byte[] messageHash;
+        private final byte[] signature;
+        private final int hash;
+
+        private CacheKey(byte[] messageHash, byte[] signature) {
+            this.messageHash = messageHash.clone();
+            this.signature = signature.clone();
+            this.hash = 31 * Arrays.hashCode(messageHash) + Arrays.hashCode(signature);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof CacheKey)) {
+                return false;
+            }
+            CacheKey other = (CacheKey) o;
+            return Arrays.equals(messageHash, other.messageHash) && Arrays.equals(signature, other.signature);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
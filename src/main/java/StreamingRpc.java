@@ -0,0 +1,231 @@
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.web3j.protocol.ObjectMapperFactory;
+import org.web3j.protocol.core.DefaultBlockParameter;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.Response;
+import org.web3j.protocol.core.methods.request.EthFilter;
+import org.web3j.protocol.core.methods.response.EthBlock;
+import org.web3j.protocol.core.methods.response.Log;
+import org.web3j.protocol.core.methods.response.Transaction;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 流式解析的 JSON-RPC 调用。
+ * 直接在 RoutingHttpService 返回的响应流上用 Jackson JsonParser 逐个解析 eth_getLogs 的日志和区块中的交易，
+ * 每解析出一个对象就交给调用方，不把整个响应读入内存；内存占用只与单个日志或交易的大小有关，与响应大小无关。
+ * 流式读取期间节点连接一直被占用，调用方应尽快处理每个对象或者在处理完后关闭游标。
+ */
+public class StreamingRpc {
+
+    private final RoutingHttpService service;
+    private final ObjectMapper objectMapper = ObjectMapperFactory.getObjectMapper();
+
+    public StreamingRpc(RoutingHttpService service) {
+        this.service = service;
+    }
+
+    /**
+     * 逐个读取对象的游标，关闭时释放响应流。
+     */
+    public interface Cursor<T> extends Closeable {
+        /**
+         * 读取下一个对象。
+         *
+         * @return 下一个对象，读完时返回 null（此时响应流已关闭）
+         * @throws IOException 如果读取或解析失败
+         */
+        T next() throws IOException;
+    }
+
+    /**
+     * 节点返回的 JSON-RPC 错误。
+     */
+    public static class RpcException extends IOException {
+        private final int code;
+
+        public RpcException(int code, String message) {
+            super(message);
+            this.code = code;
+        }
+
+        public int getCode() {
+            return code;
+        }
+    }
+
+    /**
+     * 发送 eth_getLogs，返回日志游标。节点按（区块号，日志序号）顺序返回日志。
+     *
+     * @throws RpcException 如果节点返回错误（如结果过多）
+     */
+    public Cursor<Log> openLogs(EthFilter filter) throws IOException {
+        JsonParser parser = open("eth_getLogs", Collections.singletonList(filter));
+        try {
+            if (!enterResult(parser) || parser.currentToken() != JsonToken.START_ARRAY) {
+                parser.close();
+                return new ArrayCursor<>(null, Log.class);
+            }
+            return new ArrayCursor<>(parser, Log.class);
+        } catch (IOException | RuntimeException e) {
+            parser.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 发送 eth_getBlockByNumber（包含完整交易对象），返回区块中交易的游标，区块头字段被跳过。
+     *
+     * @throws IOException 如果区块不存在或节点返回错误
+     */
+    public Cursor<Transaction> openBlockTransactions(long blockNumber) throws IOException {
+        JsonParser parser = open("eth_getBlockByNumber", blockParams(blockNumber));
+        try {
+            if (!enterResult(parser)) {
+                throw new IOException("Block " + blockNumber + " not found");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+                if ("transactions".equals(field) && parser.currentToken() == JsonToken.START_ARRAY) {
+                    return new ArrayCursor<>(parser, Transaction.class);
+                }
+                parser.skipChildren();
+            }
+            parser.close();
+            return new ArrayCursor<>(null, Transaction.class);
+        } catch (IOException | RuntimeException e) {
+            parser.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 流式获取日志并依次交给 consumer。
+     *
+     * @return 日志数
+     */
+    public int streamLogs(EthFilter filter, Consumer<Log> consumer) throws IOException {
+        int count = 0;
+        try (Cursor<Log> logs = openLogs(filter)) {
+            Log log;
+            while ((log = logs.next()) != null) {
+                consumer.accept(log);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 流式获取区块，交易依次交给 consumer。
+     *
+     * @return 区块头（交易列表为空），区块不存在时返回 null
+     */
+    public EthBlock.Block streamBlock(long blockNumber, Consumer<Transaction> consumer) throws IOException {
+        try (JsonParser parser = open("eth_getBlockByNumber", blockParams(blockNumber))) {
+            if (!enterResult(parser)) {
+                return null;
+            }
+            // 区块头字段很少，先收集成树，最后再转换，交易出现在哪个位置都不影响
+            ObjectNode header = objectMapper.createObjectNode();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+                if ("transactions".equals(field) && parser.currentToken() == JsonToken.START_ARRAY) {
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        consumer.accept(objectMapper.readValue(parser, Transaction.class));
+                    }
+                    header.putArray(field);
+                } else {
+                    header.set(field, objectMapper.readTree(parser));
+                }
+            }
+            return objectMapper.treeToValue(header, EthBlock.Block.class);
+        }
+    }
+
+    private static List<Object> blockParams(long blockNumber) {
+        return Arrays.asList(DefaultBlockParameter.valueOf(BigInteger.valueOf(blockNumber)).getValue(), true);
+    }
+
+    private JsonParser open(String method, List<?> params) throws IOException {
+        Request<?, Response> request = new Request<>(method, params, null, Response.class);
+        InputStream in = service.openStream(objectMapper.writeValueAsString(request));
+        try {
+            return objectMapper.getFactory().createParser(in);
+        } catch (IOException | RuntimeException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 把解析器移动到 result 的值上。
+     *
+     * @return result 为 null 时返回 false
+     * @throws RpcException 如果响应中是 error
+     */
+    private boolean enterResult(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new IOException("Invalid JSON-RPC response");
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            if ("result".equals(field)) {
+                return value != JsonToken.VALUE_NULL;
+            }
+            if ("error".equals(field) && value == JsonToken.START_OBJECT) {
+                Response.Error error = objectMapper.readValue(parser, Response.Error.class);
+                throw new RpcException(error.getCode(), error.getMessage());
+            }
+            parser.skipChildren();
+        }
+        throw new IOException("JSON-RPC response has neither result nor error");
+    }
+
+    /**
+     * JSON 数组元素的游标，parser 为 null 表示空数组。
+     */
+    private final class ArrayCursor<T> implements Cursor<T> {
+        private final Class<T> type;
+        private JsonParser parser;
+
+        private ArrayCursor(JsonParser parser, Class<T> type) {
+            this.parser = parser;
+            this.type = type;
+        }
+
+        @Override
+        public T next() throws IOException {
+            if (parser == null) {
+                return null;
+            }
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                close();
+                return null;
+            }
+            return objectMapper.readValue(parser, type);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (parser != null) {
+                JsonParser closing = parser;
+                parser = null;
+                closing.close();
+            }
+        }
+    }
+}
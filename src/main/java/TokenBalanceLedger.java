@@ -0,0 +1,420 @@
+import org.web3j.utils.Numeric;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * 由 Transfer 事件推导出的 ERC20 持有人余额账本。
+ * 余额存放在以 20 字节原始地址为键的开放寻址哈希表中：地址、long 余额和占用标记分别存放在连续的基本类型数组里，
+ * 每个槽位 29 字节，装载因子在 0.375 到 0.75 之间，即每个持有人约 39 到 78 字节，没有对象头和 BigInteger；
+ * 只有余额超出 long 范围的地址才放入 BigInteger 溢出表。
+ * 零地址视为铸造和销毁，不记余额，只计入总供应量。
+ */
+public class TokenBalanceLedger {
+
+    private static final int ADDRESS_LENGTH = TokenTransferRecord.ADDRESS_LENGTH;
+    private static final int DEFAULT_INITIAL_CAPACITY = 1024;
+    private static final double LOAD_FACTOR = 0.75;
+    private static final byte[] ZERO_ADDRESS = new byte[ADDRESS_LENGTH];
+
+    private Table table;
+    private BigInteger totalSupply = BigInteger.ZERO;
+    private long blockNumber = -1;
+    private long appliedCount;
+
+    public TokenBalanceLedger() {
+        this(DEFAULT_INITIAL_CAPACITY);
+    }
+
+    /**
+     * @param expectedHolders 预计的持有人数量，用于确定初始容量
+     */
+    public TokenBalanceLedger(int expectedHolders) {
+        this.table = new Table(Table.capacityFor(expectedHolders));
+    }
+
+    /**
+     * 从事件索引重建指定区块结束时的余额。
+     *
+     * @param index   Transfer 事件索引
+     * @param toBlock 快照区块（包含）
+     */
+    public static TokenBalanceLedger fromIndex(TransferEventIndex index, long toBlock) {
+        TokenBalanceLedger ledger = new TokenBalanceLedger();
+        for (TokenTransferRecord record : index.queryBlocks(0, toBlock)) {
+            ledger.apply(record);
+        }
+        return ledger;
+    }
+
+    /**
+     * 应用一个事件，Approval 事件被忽略。余额变化满足交换律，事件顺序不影响结果。
+     */
+    public synchronized void apply(TokenTransferRecord record) {
+        if (!record.isTransfer()) {
+            return;
+        }
+        byte[] payload = record.payload();
+        boolean fitsInLong = record.amountFitsInLong();
+        long amount = fitsInLong ? record.amountAsLong() : 0;
+        BigInteger bigAmount = fitsInLong ? null : record.amount();
+
+        boolean mint = isZeroAddress(payload, TokenTransferRecord.FROM_OFFSET);
+        boolean burn = isZeroAddress(payload, TokenTransferRecord.TO_OFFSET);
+        if (!mint) {
+            table.add(payload, TokenTransferRecord.FROM_OFFSET, amount, bigAmount, true);
+        } else {
+            totalSupply = totalSupply.add(fitsInLong ? BigInteger.valueOf(amount) : bigAmount);
+        }
+        if (!burn) {
+            table.add(payload, TokenTransferRecord.TO_OFFSET, amount, bigAmount, false);
+        } else {
+            totalSupply = totalSupply.subtract(fitsInLong ? BigInteger.valueOf(amount) : bigAmount);
+        }
+        if (table.size > table.threshold) {
+            table = table.resize(table.capacity * 2);
+        }
+        blockNumber = Math.max(blockNumber, record.getBlockNumber());
+        appliedCount++;
+    }
+
+    /**
+     * 复制当前余额作为快照，之后的事件不影响快照。
+     */
+    public synchronized Snapshot snapshot() {
+        return new Snapshot(table.copy(), totalSupply, blockNumber);
+    }
+
+    public synchronized BigInteger balanceOf(String address) {
+        return table.balanceOf(Numeric.hexStringToByteArray(address));
+    }
+
+    public synchronized BigInteger balanceOf(byte[] address) {
+        return table.balanceOf(address);
+    }
+
+    /**
+     * 余额最高的 n 个持有人，按余额从高到低排列。
+     */
+    public synchronized List<Holder> topHolders(int n) {
+        return table.topHolders(n);
+    }
+
+    /**
+     * 余额不为零的持有人数。
+     */
+    public synchronized int getHolderCount() {
+        return table.nonZeroCount();
+    }
+
+    /**
+     * 铸造减去销毁的总量（只统计已应用的事件）。
+     */
+    public synchronized BigInteger getTotalSupply() {
+        return totalSupply;
+    }
+
+    /**
+     * 已应用事件中的最高区块号，没有事件时为 -1。
+     */
+    public synchronized long getBlockNumber() {
+        return blockNumber;
+    }
+
+    public synchronized long getAppliedCount() {
+        return appliedCount;
+    }
+
+    /**
+     * 哈希表占用的大致字节数（不含溢出表）。
+     */
+    public synchronized long getTableBytes() {
+        return table.bytes();
+    }
+
+    private static boolean isZeroAddress(byte[] bytes, int offset) {
+        for (int i = 0; i < ADDRESS_LENGTH; i++) {
+            if (bytes[offset + i] != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 某一区块结束时的余额快照，只读。
+     */
+    public static final class Snapshot {
+        private final Table table;
+        private final BigInteger totalSupply;
+        private final long blockNumber;
+
+        private Snapshot(Table table, BigInteger totalSupply, long blockNumber) {
+            this.table = table;
+            this.totalSupply = totalSupply;
+            this.blockNumber = blockNumber;
+        }
+
+        public long getBlockNumber() {
+            return blockNumber;
+        }
+
+        public BigInteger balanceOf(String address) {
+            return table.balanceOf(Numeric.hexStringToByteArray(address));
+        }
+
+        public BigInteger balanceOf(byte[] address) {
+            return table.balanceOf(address);
+        }
+
+        public List<Holder> topHolders(int n) {
+            return table.topHolders(n);
+        }
+
+        public int getHolderCount() {
+            return table.nonZeroCount();
+        }
+
+        public BigInteger getTotalSupply() {
+            return totalSupply;
+        }
+    }
+
+    /**
+     * 一个持有人及其余额。
+     */
+    public static final class Holder {
+        private final String address;
+        private final BigInteger balance;
+
+        private Holder(String address, BigInteger balance) {
+            this.address = address;
+            this.balance = balance;
+        }
+
+        public String getAddress() {
+            return address;
+        }
+
+        public BigInteger getBalance() {
+            return balance;
+        }
+
+        @Override
+        public String toString() {
+            return address + "=" + balance;
+        }
+    }
+
+    /**
+     * 开放寻址（线性探测）哈希表。槽位 i 的地址位于 keys[i * 20, i * 20 + 20)，余额为 balances[i]；
+     * balances[i] 为 OVERFLOW 时实际余额在 overflow 中。余额归零的地址保留在表中，不做删除。
+     */
+    private static final class Table {
+        private static final long OVERFLOW = Long.MIN_VALUE;
+        private static final BigInteger LONG_MIN = BigInteger.valueOf(Long.MIN_VALUE);
+        private static final BigInteger LONG_MAX = BigInteger.valueOf(Long.MAX_VALUE);
+
+        private final int capacity;
+        private final int mask;
+        private final int threshold;
+        private final byte[] keys;
+        private final long[] balances;
+        private final boolean[] used;
+        // 余额超出 (Long.MIN_VALUE, Long.MAX_VALUE] 的槽位
+        private final Map<Integer, BigInteger> overflow;
+        private int size;
+
+        private Table(int capacity) {
+            this(capacity, new byte[capacity * ADDRESS_LENGTH], new long[capacity], new boolean[capacity], new HashMap<>(), 0);
+        }
+
+        private Table(int capacity, byte[] keys, long[] balances, boolean[] used, Map<Integer, BigInteger> overflow, int size) {
+            this.capacity = capacity;
+            this.mask = capacity - 1;
+            this.threshold = (int) (capacity * LOAD_FACTOR);
+            this.keys = keys;
+            this.balances = balances;
+            this.used = used;
+            this.overflow = overflow;
+            this.size = size;
+        }
+
+        private static int capacityFor(int expected) {
+            int needed = (int) Math.min(1L << 30, (long) Math.ceil(Math.max(expected, 1) / LOAD_FACTOR));
+            return Integer.highestOneBit(needed - 1) << 1;
+        }
+
+        /**
+         * 把 20 字节地址折叠成 5 个 int 再用 MurmurHash3 的 fmix32 收尾。
+         * 不能只取前几个字节：靓号地址和 CREATE2 挖出的地址前缀相同，会全部落在同一段探测链上。
+         */
+        private static int hash(byte[] bytes, int offset) {
+            int h = 0;
+            for (int i = 0; i < ADDRESS_LENGTH; i += 4) {
+                int word = ((bytes[offset + i] & 0xff) << 24) | ((bytes[offset + i + 1] & 0xff) << 16)
+                        | ((bytes[offset + i + 2] & 0xff) << 8) | (bytes[offset + i + 3] & 0xff);
+                h = 31 * h + word;
+            }
+            h ^= h >>> 16;
+            h *= 0x85ebca6b;
+            h ^= h >>> 13;
+            h *= 0xc2b2ae35;
+            h ^= h >>> 16;
+            return h;
+        }
+
+        private boolean keyEquals(int slot, byte[] bytes, int offset) {
+            int base = slot * ADDRESS_LENGTH;
+            for (int i = 0; i < ADDRESS_LENGTH; i++) {
+                if (keys[base + i] != bytes[offset + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * 查找地址所在槽位；不存在时返回 -(插入位置 + 1)。
+         */
+        private int find(byte[] bytes, int offset) {
+            int slot = hash(bytes, offset) & mask;
+            while (used[slot]) {
+                if (keyEquals(slot, bytes, offset)) {
+                    return slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return -(slot + 1);
+        }
+
+        private void add(byte[] bytes, int offset, long amount, BigInteger bigAmount, boolean subtract) {
+            int slot = find(bytes, offset);
+            if (slot < 0) {
+                slot = -slot - 1;
+                used[slot] = true;
+                System.arraycopy(bytes, offset, keys, slot * ADDRESS_LENGTH, ADDRESS_LENGTH);
+                size++;
+            }
+            long current = balances[slot];
+            if (bigAmount == null && current != OVERFLOW) {
+                try {
+                    long updated = subtract ? Math.subtractExact(current, amount) : Math.addExact(current, amount);
+                    if (updated != OVERFLOW) {
+                        balances[slot] = updated;
+                        return;
+                    }
+                } catch (ArithmeticException e) {
+                    // 超出 long 范围，改用 BigInteger
+                }
+            }
+            BigInteger delta = bigAmount != null ? bigAmount : BigInteger.valueOf(amount);
+            BigInteger updated = subtract ? balance(slot).subtract(delta) : balance(slot).add(delta);
+            setBalance(slot, updated);
+        }
+
+        private BigInteger balance(int slot) {
+            long value = balances[slot];
+            return value == OVERFLOW ? overflow.get(slot) : BigInteger.valueOf(value);
+        }
+
+        private void setBalance(int slot, BigInteger value) {
+            if (value.compareTo(LONG_MIN) > 0 && value.compareTo(LONG_MAX) <= 0) {
+                balances[slot] = value.longValue();
+                overflow.remove(slot);
+            } else {
+                balances[slot] = OVERFLOW;
+                overflow.put(slot, value);
+            }
+        }
+
+        private BigInteger balanceOf(byte[] address) {
+            if (address.length != ADDRESS_LENGTH) {
+                throw new IllegalArgumentException("Address must be " + ADDRESS_LENGTH + " bytes");
+            }
+            if (Arrays.equals(address, ZERO_ADDRESS)) {
+                return BigInteger.ZERO;
+            }
+            int slot = find(address, 0);
+            return slot < 0 ? BigInteger.ZERO : balance(slot);
+        }
+
+        private int compareSlots(int a, int b) {
+            long x = balances[a];
+            long y = balances[b];
+            if (x != OVERFLOW && y != OVERFLOW) {
+                return Long.compare(x, y);
+            }
+            return balance(a).compareTo(balance(b));
+        }
+
+        private List<Holder> topHolders(int n) {
+            if (n <= 0) {
+                return Collections.emptyList();
+            }
+            // 大小为 n 的最小堆，堆顶是当前第 n 名
+            PriorityQueue<Integer> heap = new PriorityQueue<>(Math.min(n, Math.max(size, 1)) + 1, this::compareSlots);
+            for (int slot = 0; slot < capacity; slot++) {
+                if (!used[slot] || balances[slot] == 0) {
+                    continue;
+                }
+                if (heap.size() < n) {
+                    heap.add(slot);
+                } else if (compareSlots(slot, heap.peek()) > 0) {
+                    heap.poll();
+                    heap.add(slot);
+                }
+            }
+            List<Holder> result = new ArrayList<>(heap.size());
+            while (!heap.isEmpty()) {
+                int slot = heap.poll();
+                result.add(new Holder(
+                        Numeric.toHexString(keys, slot * ADDRESS_LENGTH, ADDRESS_LENGTH, true), balance(slot)));
+            }
+            Collections.reverse(result);
+            return result;
+        }
+
+        private int nonZeroCount() {
+            int count = 0;
+            for (int slot = 0; slot < capacity; slot++) {
+                if (used[slot] && balances[slot] != 0) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        private Table resize(int newCapacity) {
+            Table resized = new Table(newCapacity);
+            for (int slot = 0; slot < capacity; slot++) {
+                if (!used[slot]) {
+                    continue;
+                }
+                int target = -resized.find(keys, slot * ADDRESS_LENGTH) - 1;
+                resized.used[target] = true;
+                System.arraycopy(keys, slot * ADDRESS_LENGTH, resized.keys, target * ADDRESS_LENGTH, ADDRESS_LENGTH);
+                resized.balances[target] = balances[slot];
+                if (balances[slot] == OVERFLOW) {
+                    resized.overflow.put(target, overflow.get(slot));
+                }
+                resized.size++;
+            }
+            return resized;
+        }
+
+        private Table copy() {
+            return new Table(capacity, keys.clone(), balances.clone(), used.clone(), new HashMap<>(overflow), size);
+        }
+
+        private long bytes() {
+            return (long) capacity * (ADDRESS_LENGTH + 8 + 1);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+import org.web3j.utils.Numeric;
+
+import java.math.BigInteger;
+
+/**
+ * 解码后的 ERC20 Transfer / Approval 事件。
+ * 地址和金额以定长字节保存在一个数组中：from(20) | to(20) | amount(32, 大端)。
+ * 对于 Approval 事件，from 为 owner，to 为 spender。
+ */
+public final class TokenTransferRecord {
+
+    public static final int ADDRESS_LENGTH = 20;
+    public static final int AMOUNT_LENGTH = 32;
+    public static final int FROM_OFFSET = 0;
+    public static final int TO_OFFSET = FROM_OFFSET + ADDRESS_LENGTH;
+    public static final int AMOUNT_OFFSET = TO_OFFSET + ADDRESS_LENGTH;
+    public static final int PAYLOAD_LENGTH = AMOUNT_OFFSET + AMOUNT_LENGTH;
+
+    public static final byte TRANSFER = 0;
+    public static final byte APPROVAL = 1;
+
+    private final byte kind;
+    private final long blockNumber;
+    private final int logIndex;
+    private final byte[] payload;
+
+    /**
+     * @param kind        事件类型（TRANSFER 或 APPROVAL）
+     * @param blockNumber 区块号
+     * @param logIndex    日志在区块中的序号
+     * @param payload     from | to | amount，长度为 PAYLOAD_LENGTH，不做拷贝
+     */
+    public TokenTransferRecord(byte kind, long blockNumber, int logIndex, byte[] payload) {
+        if (payload.length != PAYLOAD_LENGTH) {
+            throw new IllegalArgumentException("Payload must be " + PAYLOAD_LENGTH + " bytes");
+        }
+        this.kind = kind;
+        this.blockNumber = blockNumber;
+        this.logIndex = logIndex;
+        this.payload = payload;
+    }
+
+    public byte getKind() {
+        return kind;
+    }
+
+    public boolean isTransfer() {
+        return kind == TRANSFER;
+    }
+
+    public long getBlockNumber() {
+        return blockNumber;
+    }
+
+    public int getLogIndex() {
+        return logIndex;
+    }
+
+    /**
+     * 返回内部字节数组（不拷贝），调用方不应修改。
+     */
+    public byte[] payload() {
+        return payload;
+    }
+
+    /**
+     * 金额是否可以用非负 long 表示。
+     */
+    public boolean amountFitsInLong() {
+        for (int i = AMOUNT_OFFSET; i < AMOUNT_OFFSET + AMOUNT_LENGTH - 8; i++) {
+            if (payload[i] != 0) {
+                return false;
+            }
+        }
+        return payload[AMOUNT_OFFSET + AMOUNT_LENGTH - 8] >= 0;
+    }
+
+    /**
+     * 以 long 返回金额，仅在 amountFitsInLong 为 true 时有效。
+     */
+    public long amountAsLong() {
+        long value = 0;
+        for (int i = AMOUNT_OFFSET + AMOUNT_LENGTH - 8; i < AMOUNT_OFFSET + AMOUNT_LENGTH; i++) {
+            value = (value << 8) | (payload[i] & 0xFF);
+        }
+        return value;
+    }
+
+    /**
+     * 以 BigInteger 返回金额（会分配新对象）。
+     */
+    public BigInteger amount() {
+        byte[] amount = new byte[AMOUNT_LENGTH];
+        System.arraycopy(payload, AMOUNT_OFFSET, amount, 0, AMOUNT_LENGTH);
+        return new BigInteger(1, amount);
+    }
+
+    /**
+     * 交换 from 和 to 的反向事件，应用后抵消原事件对余额的影响（如撤回被重组替换的转账）。
+     */
+    public TokenTransferRecord reversed() {
+        byte[] swapped = payload.clone();
+        System.arraycopy(payload, TO_OFFSET, swapped, FROM_OFFSET, ADDRESS_LENGTH);
+        System.arraycopy(payload, FROM_OFFSET, swapped, TO_OFFSET, ADDRESS_LENGTH);
+        return new TokenTransferRecord(kind, blockNumber, logIndex, swapped);
+    }
+
+    public String fromHex() {
+        return Numeric.toHexString(payload, FROM_OFFSET, ADDRESS_LENGTH, true);
+    }
+
+    public String toHex() {
+        return Numeric.toHexString(payload, TO_OFFSET, ADDRESS_LENGTH, true);
+    }
+
+    @Override
+    public String toString() {
+        return (kind == TRANSFER ? "Transfer" : "Approval")
+                + "{block=" + blockNumber + ", logIndex=" + logIndex
+                + ", from=" + fromHex() + ", to=" + toHex() + ", amount=" + amount() + "}";
+    }
+}
@@ -1,19 +1,18 @@
 import org.web3j.crypto.Credentials;
-import org.web3j.crypto.RawTransaction;
-import org.web3j.crypto.TransactionEncoder;
 import org.web3j.protocol.Web3j;
 import org.web3j.protocol.core.DefaultBlockParameterName;
-import org.web3j.protocol.core.methods.response.EthChainId;
-import org.web3j.protocol.core.methods.response.EthGasPrice;
-import org.web3j.protocol.core.methods.response.EthGetTransactionCount;
 import org.web3j.protocol.core.methods.response.EthSendTransaction;
+import org.web3j.protocol.core.methods.response.TransactionReceipt;
 import org.web3j.protocol.http.HttpService;
 import org.web3j.utils.Convert;
-import org.web3j.utils.Numeric;
 
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
 
 /**
  * 用于演示如何在 Java 中使用 Web3j 进行以太坊余额查询和 ETH 转账操作。
@@ -36,6 +35,35 @@ public class Transfer {
         return Convert.fromWei(new BigDecimal(balanceInWei), Convert.Unit.ETHER);
     }
 
+    /**
+     * 并发获取多个地址的 ETH 余额（单位为 Ether），每个地址一个 eth_getBalance 调用，运行在虚拟线程上。
+     * 适合节点不支持批量请求的场景；任一查询失败时取消其余查询。
+     *
+     * @param addresses 钱包地址列表
+     * @return 与输入顺序一致的余额
+     * @throws IOException 如果任一查询失败
+     */
+    public static List<BigDecimal> getETHBalances(List<String> addresses) throws IOException {
+        List<Callable<BigDecimal>> calls = new ArrayList<>(addresses.size());
+        for (String address : addresses) {
+            calls.add(() -> getETHBalance(address));
+        }
+        return Web3Utils.getBlockingExecutor().invokeAll(calls);
+    }
+
+    /**
+     * 批量获取多个地址的 ETH 余额（单位为 Ether），所有余额对应同一个区块高度。
+     *
+     * @param addresses   钱包地址集合
+     * @param batchSize   每个 JSON-RPC 批量请求包含的地址数
+     * @param concurrency 同时发送的批量请求数
+     * @return 返回查询结果，包含区块高度、余额和失败的地址
+     * @throws IOException 如果与节点通信失败
+     */
+    public static BatchBalanceFetcher.Result getETHBalances(Collection<String> addresses, int batchSize, int concurrency) throws IOException {
+        return new BatchBalanceFetcher(web3j, batchSize, concurrency).fetch(addresses);
+    }
+
     /**
      * 向目标地址转账 ETH。
      *
@@ -46,46 +74,47 @@ public class Transfer {
      * @throws IOException 如果与节点通信失败
      */
     public static String transfer(String senderPrivateKey, String recipientAddress, BigDecimal amountInEther) throws IOException {
-        // 获取当前链 ID（用于防止重放攻击）
-        EthChainId chainIdResponse = web3j.ethChainId().send();
-        long chainId = chainIdResponse.getChainId().longValue();
-
         /* 设置发送方账户信息 */
         // 根据私钥创建凭证对象
         Credentials credentials = Credentials.create(senderPrivateKey);
-        String senderAddress = credentials.getAddress();
-        // 获取发送方当前的 nonce 值（用于标识交易顺序）
-        EthGetTransactionCount ethGetTransactionCount = web3j.ethGetTransactionCount(
-                senderAddress, DefaultBlockParameterName.LATEST).send();
-        BigInteger nonce = ethGetTransactionCount.getTransactionCount();
+        // 链 ID（用于防止重放攻击）在进程内缓存，nonce 由本地 NonceManager 分配
+        ManagedNonceTransactionManager transactionManager =
+                new ManagedNonceTransactionManager(web3j, credentials, Web3Utils.getChainId(web3j));
 
-        /* 设置交易参数：金额、Gas价格和Gas上限 */
+        /* 设置交易参数：金额、手续费和Gas上限 */
         // 将转账金额从 Ether 转换为 Wei
         BigInteger value = Convert.toWei(amountInEther, Convert.Unit.ETHER).toBigInteger();
-        // 获取当前 Gas 价格
-        EthGasPrice ethGasPrice = web3j.ethGasPrice().send();
-        BigInteger gasPrice = ethGasPrice.getGasPrice();
+        // 手续费由后台按区块刷新的预言机提供
+        FeeOracle feeOracle = Web3Utils.getFeeOracle(web3j);
         // 标准 ETH 转账 Gas 上限为 21000
         BigInteger gasLimit = BigInteger.valueOf(21000);
 
-        /* 构建交易并发送 */
-        // 创建原始交易对象
-        RawTransaction rawTransaction = RawTransaction.createEtherTransaction(
-                nonce, gasPrice, gasLimit, recipientAddress, value);
-        // 签名交易数据
-        byte[] signedMessage = TransactionEncoder.signMessage(rawTransaction, chainId, credentials);
-        String hexValue = Numeric.toHexString(signedMessage);
-        // 发送签名后的交易
-        EthSendTransaction ethSendTransaction = web3j.ethSendRawTransaction(hexValue).send();
+        /* 构建、签名并发送交易，只需一次 RPC；节点支持时发送 EIP-1559 交易，只按实际基础费用加小费扣费 */
+        EthSendTransaction ethSendTransaction = feeOracle.supportsEip1559()
+                ? transactionManager.sendTransactionEIP1559(feeOracle.getMaxPriorityFeePerGas(),
+                        feeOracle.getMaxFeePerGas(), gasLimit, recipientAddress, "", value)
+                : transactionManager.sendTransaction(feeOracle.getGasPrice(null), gasLimit, recipientAddress, "", value);
         // 返回交易哈希（可用于追踪交易状态）
         return ethSendTransaction.getTransactionHash();
     }
 
+    /**
+     * 批量发放 ETH：连续分配 nonce、并行签名，并以 JSON-RPC 批量请求提交。
+     *
+     * @param senderPrivateKey 发送方私钥（注意保密）
+     * @param payouts          收款地址和金额列表
+     * @return 每一笔发放的结果，与输入顺序一致，附带签名和提交耗时
+     * @throws IOException 如果获取链 ID、nonce 或手续费失败
+     */
+    public static PayoutPipeline.Report payout(String senderPrivateKey, List<PayoutPipeline.Payout> payouts) throws IOException {
+        return new PayoutPipeline(web3j, Credentials.create(senderPrivateKey)).pay(payouts);
+    }
+
     /**
      * 主函数，执行以下步骤：
      * 1. 查询收款人地址的初始余额
      * 2. 向收款人地址转账 0.001 ETH
-     * 3. 等待 15 秒后再次查询收款人地址余额，确认转账是否到账
+     * 3. 等待交易回执后再次查询收款人地址余额，确认转账是否到账
      */
     public static void main(String[] args) throws Exception {
         // 发送方私钥（请替换为自己的私钥）
@@ -103,8 +132,9 @@ public class Transfer {
         String transactionHash = Transfer.transfer(privateKey, recipientAddress, amountInEther);
         System.out.println("Transaction Hash: " + transactionHash);
 
-        // 等待交易确认（可手动通过区块浏览器验证）
-        Thread.sleep(15000); // 等待 15 秒
+        // 等待交易上链
+        TransactionReceipt receipt = Web3Utils.getReceiptTracker(web3j).track(transactionHash).get();
+        System.out.println("Transaction mined in block " + receipt.getBlockNumber() + ", status " + receipt.getStatus());
 
         // 查询转账后收款人余额
         BigDecimal after = getETHBalance(recipientAddress);
@@ -0,0 +1,718 @@
+import org.web3j.utils.Numeric;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 持久化的 Transfer 事件索引。
+ * 事件以定长记录追加写入内存映射的段文件，检查点文件记录已提交的记录数和最后完整处理的区块号，
+ * 重启后从检查点继续。支持按区块范围查询（在段文件上二分）和按地址查询（地址倒排索引）。
+ * 地址倒排索引在检查点时把新追加记录的索引写成一个只追加的 postings 段，已有的段不重写；
+ * 提交检查点后两个相同层级的段合并成高一层的段（二进制计数器的进位方式），段数保持在 O(log n)，
+ * 每条记录的索引在整个生命周期中只被重写 O(log n) 次。打开时直接映射所有段，不需要扫描段文件重建；
+ * 内存中只保存上一个检查点之后追加的记录的索引。查询只返回已提交的记录。
+ */
+public class TransferEventIndex implements Closeable {
+
+    private static final String SEGMENT_FILE = "transfers.seg";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+    private static final String POSTINGS_PREFIX = "addresses-";
+    private static final String POSTINGS_SUFFIX = ".idx";
+
+    // 记录格式：blockNumber(8) | logIndex(4) | kind(1) | 保留(3) | from(20) | to(20) | amount(32)
+    static final int RECORD_SIZE = 16 + TokenTransferRecord.PAYLOAD_LENGTH;
+    private static final int PAYLOAD_OFFSET = 16;
+    // 每个映射区域包含的记录数（约 88MB），避免单个映射超过 2GB
+    private static final int RECORDS_PER_REGION = 1 << 20;
+    private static final long REGION_BYTES = (long) RECORDS_PER_REGION * RECORD_SIZE;
+
+    // postings 段格式：firstOrdinal(8) | endOrdinal(8) | entryCount(4) | level(4) | 目录项 * entryCount | 记录位置(4) * N
+    // 目录项：address(20) | 记录位置数(4) | 第一个记录位置的下标(8)，按地址的无符号字节序排序
+    // 所有 int 和 long 字段都按自身长度对齐，按区域映射时不会跨越区域边界
+    private static final int POSTINGS_HEADER = 24;
+    private static final int DIRECTORY_ENTRY = TokenTransferRecord.ADDRESS_LENGTH + 12;
+
+    private final Path directory;
+    private final FileChannel channel;
+    private final List<MappedByteBuffer> regions = new ArrayList<>();
+    // 尚未写入 postings 段的记录的地址索引
+    private final Map<AddressKey, IntList> addressIndex = new HashMap<>();
+    // 按记录位置从小到大排列的 postings 段，依次覆盖 [0, indexedCount)
+    private final List<PostingsSegment> segments = new ArrayList<>();
+    private long nextSegmentId;
+    // postings 段覆盖的记录数
+    private int indexedCount;
+
+    private int recordCount;
+    private int committedCount;
+    private long checkpointBlock;
+
+    private TransferEventIndex(Path directory) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+        this.channel = FileChannel.open(directory.resolve(SEGMENT_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        loadCheckpoint();
+        // 检查点之后写入的记录未提交，重启后会被覆盖
+        recordCount = committedCount;
+        loadPostings();
+        // postings 段之后提交的记录（或者没有可用的 postings 段时的所有记录）在内存中建索引
+        for (int i = indexedCount; i < recordCount; i++) {
+            ByteBuffer buffer = region(i);
+            int base = offsetInRegion(i) + PAYLOAD_OFFSET;
+            indexAddress(buffer, base + TokenTransferRecord.FROM_OFFSET, i);
+            indexAddress(buffer, base + TokenTransferRecord.TO_OFFSET, i);
+        }
+    }
+
+    /**
+     * 打开（或创建）指定目录下的索引。
+     *
+     * @param directory 索引目录
+     */
+    public static TransferEventIndex open(Path directory) throws IOException {
+        return new TransferEventIndex(directory);
+    }
+
+    /**
+     * 追加一条事件。事件需按区块顺序追加，调用 checkpoint 之前不会持久化。
+     */
+    public synchronized void append(TokenTransferRecord record) throws IOException {
+        int ordinal = recordCount;
+        ByteBuffer buffer = region(ordinal);
+        int offset = offsetInRegion(ordinal);
+        buffer.putLong(offset, record.getBlockNumber());
+        buffer.putInt(offset + 8, record.getLogIndex());
+        buffer.put(offset + 12, record.getKind());
+        for (int i = 0; i < TokenTransferRecord.PAYLOAD_LENGTH; i++) {
+            buffer.put(offset + PAYLOAD_OFFSET + i, record.payload()[i]);
+        }
+        indexAddress(buffer, offset + PAYLOAD_OFFSET + TokenTransferRecord.FROM_OFFSET, ordinal);
+        indexAddress(buffer, offset + PAYLOAD_OFFSET + TokenTransferRecord.TO_OFFSET, ordinal);
+        recordCount++;
+    }
+
+    /**
+     * 提交检查点：把新追加的记录刷到磁盘，把内存中的地址索引写成新的 postings 段，
+     * 并记录 blockNumber 及之前的区块已经完整处理。没有新记录时只更新检查点文件。
+     * postings 段先于检查点文件写入，两者之间崩溃时重新打开会忽略覆盖了未提交记录的段，从段文件重建这部分索引。
+     *
+     * @param blockNumber 最后一个完整处理的区块号
+     */
+    public synchronized void checkpoint(long blockNumber) throws IOException {
+        if (recordCount > committedCount) {
+            int first = committedCount / RECORDS_PER_REGION;
+            int last = (recordCount - 1) / RECORDS_PER_REGION;
+            for (int i = first; i <= last; i++) {
+                regions.get(i).force();
+            }
+        }
+        if (!addressIndex.isEmpty()) {
+            writePostings();
+        }
+        ByteBuffer content = ByteBuffer.allocate(16);
+        content.putLong(recordCount).putLong(blockNumber).flip();
+        Path temp = directory.resolve(CHECKPOINT_FILE + ".tmp");
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            out.write(content);
+            out.force(true);
+        }
+        Files.move(temp, directory.resolve(CHECKPOINT_FILE),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        committedCount = recordCount;
+        checkpointBlock = blockNumber;
+        // 检查点提交后再合并，合并中途崩溃时原有的段仍然有效
+        mergeSegments();
+    }
+
+    /**
+     * 最后一个完整处理的区块号，没有检查点时返回 -1。
+     */
+    public synchronized long getCheckpoint() {
+        return checkpointBlock;
+    }
+
+    /**
+     * 已追加的记录数，包括尚未提交的记录。
+     */
+    public synchronized int size() {
+        return recordCount;
+    }
+
+    /**
+     * 当前的 postings 段数。
+     */
+    public synchronized int getPostingsSegmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * 查询 [fromBlock, toBlock] 范围内已提交的事件。
+     */
+    public synchronized List<TokenTransferRecord> queryBlocks(long fromBlock, long toBlock) {
+        List<TokenTransferRecord> result = new ArrayList<>();
+        for (int i = lowerBound(fromBlock); i < committedCount; i++) {
+            if (blockAt(i) > toBlock) {
+                break;
+            }
+            result.add(read(i));
+        }
+        return result;
+    }
+
+    /**
+     * 查询与指定地址相关（作为 from 或 to）的已提交事件，按写入顺序返回。
+     *
+     * @param address 20 字节地址
+     */
+    public synchronized List<TokenTransferRecord> queryAddress(byte[] address) {
+        List<TokenTransferRecord> result = new ArrayList<>();
+        int previous = -1;
+        // 段按记录位置排列，内存索引中的位置又都大于段中的位置，依次读取即为写入顺序
+        for (PostingsSegment segment : segments) {
+            int entry = segment.find(address);
+            if (entry < 0) {
+                continue;
+            }
+            int count = segment.count(entry);
+            for (int i = 0; i < count; i++) {
+                previous = collect(segment.ordinal(entry, i), previous, result);
+            }
+        }
+        IntList ordinals = addressIndex.get(new AddressKey(address));
+        if (ordinals != null) {
+            for (int i = 0; i < ordinals.size; i++) {
+                previous = collect(ordinals.values[i], previous, result);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 把已提交的记录加入结果，返回更新后的 previous。自己转给自己时同一记录会出现两次。
+     */
+    private int collect(int ordinal, int previous, List<TokenTransferRecord> result) {
+        if (ordinal != previous && ordinal < committedCount) {
+            result.add(read(ordinal));
+        }
+        return ordinal;
+    }
+
+    /**
+     * 查询与指定地址相关的事件。
+     *
+     * @param address 带 "0x" 前缀的十六进制地址
+     */
+    public List<TokenTransferRecord> queryAddress(String address) {
+        return queryAddress(Numeric.hexStringToByteArray(address));
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+        regions.clear();
+        addressIndex.clear();
+        segments.clear();
+    }
+
+    private void loadCheckpoint() throws IOException {
+        Path file = directory.resolve(CHECKPOINT_FILE);
+        if (!Files.exists(file)) {
+            committedCount = 0;
+            checkpointBlock = -1;
+            return;
+        }
+        ByteBuffer content = ByteBuffer.wrap(Files.readAllBytes(file));
+        committedCount = (int) content.getLong();
+        checkpointBlock = content.getLong();
+    }
+
+    /**
+     * 按编号顺序映射 postings 段，保留从记录 0 开始、首尾相接且只覆盖已提交记录的段。
+     * 写入段后、提交检查点前崩溃留下的段，以及合并后、删除旧段前崩溃留下的重复段不再使用并删除。
+     */
+    private void loadPostings() throws IOException {
+        indexedCount = 0;
+        segments.clear();
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, POSTINGS_PREFIX + "*" + POSTINGS_SUFFIX)) {
+            for (Path file : stream) {
+                files.add(file);
+            }
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, POSTINGS_PREFIX + "*" + POSTINGS_SUFFIX + ".tmp")) {
+            for (Path file : stream) {
+                Files.delete(file);
+            }
+        }
+        files.sort(Comparator.comparingLong(TransferEventIndex::segmentId));
+        boolean valid = true;
+        for (Path file : files) {
+            nextSegmentId = Math.max(nextSegmentId, segmentId(file) + 1);
+            PostingsSegment segment = valid ? PostingsSegment.open(file) : null;
+            if (segment != null && segment.firstOrdinal == indexedCount && segment.endOrdinal <= committedCount) {
+                segments.add(segment);
+                indexedCount = (int) segment.endOrdinal;
+            } else {
+                valid = false;
+                Files.delete(file);
+            }
+        }
+    }
+
+    private static long segmentId(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(POSTINGS_PREFIX.length(), name.length() - POSTINGS_SUFFIX.length()));
+    }
+
+    /**
+     * 把内存中的地址索引写成新的 postings 段并清空内存索引。
+     */
+    private void writePostings() throws IOException {
+        List<AddressKey> keys = new ArrayList<>(addressIndex.keySet());
+        Collections.sort(keys);
+        Postings pending = new Postings() {
+            @Override
+            public int entries() {
+                return keys.size();
+            }
+
+            @Override
+            public byte[] address(int entry) {
+                return keys.get(entry).bytes;
+            }
+
+            @Override
+            public int count(int entry) {
+                return addressIndex.get(keys.get(entry)).size;
+            }
+
+            @Override
+            public int ordinal(int entry, int i) {
+                return addressIndex.get(keys.get(entry)).values[i];
+            }
+        };
+        segments.add(writeSegment(Collections.singletonList(pending), indexedCount, recordCount, 0));
+        indexedCount = recordCount;
+        addressIndex.clear();
+    }
+
+    /**
+     * 最后两个段层级相同时合并成高一层的段，直到层级互不相同。
+     */
+    private void mergeSegments() throws IOException {
+        while (segments.size() >= 2
+                && segments.get(segments.size() - 1).level == segments.get(segments.size() - 2).level) {
+            PostingsSegment newer = segments.get(segments.size() - 1);
+            PostingsSegment older = segments.get(segments.size() - 2);
+            PostingsSegment merged = writeSegment(Arrays.asList(older, newer),
+                    older.firstOrdinal, newer.endOrdinal, older.level + 1);
+            segments.subList(segments.size() - 2, segments.size()).clear();
+            segments.add(merged);
+            // 先删较新的段：中途崩溃时剩下的段仍然首尾相接，合并后的段因起点不连续被丢弃
+            Files.delete(newer.file);
+            Files.delete(older.file);
+        }
+    }
+
+    /**
+     * 把若干来源按地址归并写入新的段文件。来源按记录位置从小到大排列，同一地址的记录位置按来源顺序拼接。
+     * 第一遍统计地址数，第二遍写目录，第三遍写记录位置，全部顺序写入。
+     */
+    private PostingsSegment writeSegment(List<? extends Postings> sources, long firstOrdinal, long endOrdinal,
+                                         int level) throws IOException {
+        int entries = 0;
+        MergeCursor cursor = new MergeCursor(sources);
+        while (cursor.next()) {
+            entries++;
+        }
+
+        Path file = directory.resolve(String.format("%s%016d%s", POSTINGS_PREFIX, nextSegmentId++, POSTINGS_SUFFIX));
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.deleteIfExists(temp);
+        try (SegmentWriter out = new SegmentWriter(temp)) {
+            out.putLong(firstOrdinal);
+            out.putLong(endOrdinal);
+            out.putInt(entries);
+            out.putInt(level);
+
+            long start = 0;
+            cursor = new MergeCursor(sources);
+            while (cursor.next()) {
+                int count = 0;
+                for (int s = 0; s < sources.size(); s++) {
+                    if (cursor.matched[s]) {
+                        count += sources.get(s).count(cursor.positions[s]);
+                    }
+                }
+                out.put(cursor.address);
+                out.putInt(count);
+                out.putLong(start);
+                start += count;
+            }
+
+            cursor = new MergeCursor(sources);
+            while (cursor.next()) {
+                for (int s = 0; s < sources.size(); s++) {
+                    if (cursor.matched[s]) {
+                        Postings source = sources.get(s);
+                        int entry = cursor.positions[s];
+                        int count = source.count(entry);
+                        for (int i = 0; i < count; i++) {
+                            out.putInt(source.ordinal(entry, i));
+                        }
+                    }
+                }
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+        return PostingsSegment.open(file);
+    }
+
+    /**
+     * 找到第一个区块号不小于 blockNumber 的已提交记录位置。
+     */
+    private int lowerBound(long blockNumber) {
+        int low = 0;
+        int high = committedCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (blockAt(mid) < blockNumber) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private long blockAt(int ordinal) {
+        return region(ordinal).getLong(offsetInRegion(ordinal));
+    }
+
+    private TokenTransferRecord read(int ordinal) {
+        ByteBuffer buffer = region(ordinal);
+        int offset = offsetInRegion(ordinal);
+        byte[] payload = new byte[TokenTransferRecord.PAYLOAD_LENGTH];
+        for (int i = 0; i < payload.length; i++) {
+            payload[i] = buffer.get(offset + PAYLOAD_OFFSET + i);
+        }
+        return new TokenTransferRecord(buffer.get(offset + 12), buffer.getLong(offset), buffer.getInt(offset + 8), payload);
+    }
+
+    private void indexAddress(ByteBuffer buffer, int offset, int ordinal) {
+        byte[] address = new byte[TokenTransferRecord.ADDRESS_LENGTH];
+        for (int i = 0; i < address.length; i++) {
+            address[i] = buffer.get(offset + i);
+        }
+        addressIndex.computeIfAbsent(new AddressKey(address), key -> new IntList()).add(ordinal);
+    }
+
+    /**
+     * 返回记录所在的映射区域，必要时映射新的区域（会扩展文件）。
+     */
+    private MappedByteBuffer region(int ordinal) {
+        int index = ordinal / RECORDS_PER_REGION;
+        try {
+            while (regions.size() <= index) {
+                regions.add(channel.map(FileChannel.MapMode.READ_WRITE, regions.size() * REGION_BYTES, REGION_BYTES));
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to map index segment", e);
+        }
+        return regions.get(index);
+    }
+
+    private static int offsetInRegion(int ordinal) {
+        return (ordinal % RECORDS_PER_REGION) * RECORD_SIZE;
+    }
+
+    /**
+     * 按地址排序的倒排表：内存中尚未写出的索引或一个 postings 段。
+     */
+    private interface Postings {
+        int entries();
+
+        byte[] address(int entry);
+
+        int count(int entry);
+
+        int ordinal(int entry, int i);
+    }
+
+    /**
+     * 在若干个 Postings 上按地址归并，每次前进到下一个地址，matched 标记哪些来源包含该地址。
+     */
+    private static final class MergeCursor {
+        private final List<? extends Postings> sources;
+        private final int[] positions;
+        private final boolean[] matched;
+        private byte[] address;
+
+        private MergeCursor(List<? extends Postings> sources) {
+            this.sources = sources;
+            this.positions = new int[sources.size()];
+            this.matched = new boolean[sources.size()];
+        }
+
+        private boolean next() {
+            for (int s = 0; s < matched.length; s++) {
+                if (matched[s]) {
+                    positions[s]++;
+                }
+            }
+            address = null;
+            for (int s = 0; s < positions.length; s++) {
+                Postings source = sources.get(s);
+                if (positions[s] < source.entries()) {
+                    byte[] candidate = source.address(positions[s]);
+                    if (address == null || compareBytes(candidate, address) < 0) {
+                        address = candidate;
+                    }
+                }
+            }
+            for (int s = 0; s < positions.length; s++) {
+                Postings source = sources.get(s);
+                matched[s] = address != null && positions[s] < source.entries()
+                        && compareBytes(source.address(positions[s]), address) == 0;
+            }
+            return address != null;
+        }
+    }
+
+    /**
+     * 一个只读的 postings 段，按 1GB 的区域映射，文件可以超过 2GB。
+     */
+    private static final class PostingsSegment implements Postings {
+        private static final long MAPPED_REGION_BYTES = 1L << 30;
+
+        private final Path file;
+        private final MappedByteBuffer[] mapped;
+        private final long firstOrdinal;
+        private final long endOrdinal;
+        private final int entryCount;
+        private final int level;
+        private final long ordinalsStart;
+
+        private PostingsSegment(Path file, MappedByteBuffer[] mapped) {
+            this.file = file;
+            this.mapped = mapped;
+            this.firstOrdinal = getLong(0);
+            this.endOrdinal = getLong(8);
+            this.entryCount = getInt(16);
+            this.level = getInt(20);
+            this.ordinalsStart = POSTINGS_HEADER + (long) entryCount * DIRECTORY_ENTRY;
+        }
+
+        /**
+         * 映射段文件；文件不完整时返回 null。
+         */
+        private static PostingsSegment open(Path file) throws IOException {
+            try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+                long size = in.size();
+                if (size < POSTINGS_HEADER) {
+                    return null;
+                }
+                MappedByteBuffer[] mapped = new MappedByteBuffer[(int) ((size + MAPPED_REGION_BYTES - 1) / MAPPED_REGION_BYTES)];
+                for (int i = 0; i < mapped.length; i++) {
+                    long position = i * MAPPED_REGION_BYTES;
+                    mapped[i] = in.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAPPED_REGION_BYTES, size - position));
+                }
+                PostingsSegment segment = new PostingsSegment(file, mapped);
+                long expected = segment.ordinalsStart + 4 * (segment.endOrdinal - segment.firstOrdinal) * 2;
+                return expected == size ? segment : null;
+            }
+        }
+
+        @Override
+        public int entries() {
+            return entryCount;
+        }
+
+        @Override
+        public byte[] address(int entry) {
+            byte[] address = new byte[TokenTransferRecord.ADDRESS_LENGTH];
+            long position = POSTINGS_HEADER + (long) entry * DIRECTORY_ENTRY;
+            for (int i = 0; i < address.length; i++) {
+                address[i] = getByte(position + i);
+            }
+            return address;
+        }
+
+        @Override
+        public int count(int entry) {
+            return getInt(POSTINGS_HEADER + (long) entry * DIRECTORY_ENTRY + TokenTransferRecord.ADDRESS_LENGTH);
+        }
+
+        @Override
+        public int ordinal(int entry, int i) {
+            long start = getLong(POSTINGS_HEADER + (long) entry * DIRECTORY_ENTRY + TokenTransferRecord.ADDRESS_LENGTH + 4);
+            return getInt(ordinalsStart + (start + i) * 4);
+        }
+
+        /**
+         * 在目录中二分查找地址，返回目录项下标，找不到时返回 -1。
+         */
+        private int find(byte[] address) {
+            int low = 0;
+            int high = entryCount - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int order = compareAddress(POSTINGS_HEADER + (long) mid * DIRECTORY_ENTRY, address);
+                if (order < 0) {
+                    low = mid + 1;
+                } else if (order > 0) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * 按无符号字节序比较 position 处的地址和 address。
+         */
+        private int compareAddress(long position, byte[] address) {
+            for (int i = 0; i < TokenTransferRecord.ADDRESS_LENGTH; i++) {
+                int order = Integer.compare(getByte(position + i) & 0xff, address[i] & 0xff);
+                if (order != 0) {
+                    return order;
+                }
+            }
+            return 0;
+        }
+
+        private byte getByte(long position) {
+            return mapped[(int) (position / MAPPED_REGION_BYTES)].get((int) (position % MAPPED_REGION_BYTES));
+        }
+
+        private int getInt(long position) {
+            return mapped[(int) (position / MAPPED_REGION_BYTES)].getInt((int) (position % MAPPED_REGION_BYTES));
+        }
+
+        private long getLong(long position) {
+            return mapped[(int) (position / MAPPED_REGION_BYTES)].getLong((int) (position % MAPPED_REGION_BYTES));
+        }
+    }
+
+    /**
+     * 通过缓冲区顺序写入段文件，关闭时刷到磁盘。
+     */
+    private static final class SegmentWriter implements Closeable {
+        private final FileChannel out;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16);
+
+        private SegmentWriter(Path file) throws IOException {
+            this.out = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        }
+
+        private void put(byte[] bytes) throws IOException {
+            ensure(bytes.length);
+            buffer.put(bytes);
+        }
+
+        private void putInt(int value) throws IOException {
+            ensure(4);
+            buffer.putInt(value);
+        }
+
+        private void putLong(long value) throws IOException {
+            ensure(8);
+            buffer.putLong(value);
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+                out.force(true);
+            } finally {
+                out.close();
+            }
+        }
+    }
+
+    private static int compareBytes(byte[] a, byte[] b) {
+        for (int i = 0; i < a.length; i++) {
+            int order = Integer.compare(a[i] & 0xff, b[i] & 0xff);
+            if (order != 0) {
+                return order;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * 20 字节地址键。
+     */
+    private static final class AddressKey implements Comparable<AddressKey> {
+        private final byte[] bytes;
+        private final int hash;
+
+        private AddressKey(byte[] bytes) {
+            this.bytes = bytes;
+            this.hash = Arrays.hashCode(bytes);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof AddressKey && Arrays.equals(bytes, ((AddressKey) o).bytes);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public int compareTo(AddressKey other) {
+            return compareBytes(bytes, other.bytes);
+        }
+    }
+
+    /**
+     * 可增长的 int 数组，用于保存地址对应的记录位置。
+     */
+    private static final class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        private void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+}
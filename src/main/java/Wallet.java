@@ -2,7 +2,9 @@ import org.web3j.crypto.ECKeyPair;
 import org.web3j.crypto.Keys;
 import org.web3j.crypto.WalletUtils;
 
+import java.io.IOException;
 import java.math.BigInteger;
+import java.nio.file.Path;
 import java.security.InvalidAlgorithmParameterException;
 import java.security.NoSuchAlgorithmException;
 import java.security.NoSuchProviderException;
@@ -24,6 +26,33 @@ public class Wallet {
         return ecKeyPair.getPrivateKey().toString(CommonConstant.PRIVATE_KEY_RADIX);
     }
 
+    /**
+     * 使用所有 CPU 核心批量生成随机私钥及其地址，写入文件。
+     * 文件由定长记录组成：私钥 32 字节 + 地址 20 字节，可用 BulkKeyGenerator.read 读取。
+     *
+     * @param count 生成数量
+     * @param file  输出文件
+     * @throws IOException 如果写入文件失败
+     */
+    public static void createRandomKeys(long count, Path file) throws IOException {
+        new BulkKeyGenerator().generate(count, file);
+    }
+
+    /**
+     * 根据助记词按 BIP-44 路径 m/44'/60'/0'/0/index 派生钱包地址。
+     * 每次调用都从种子重新派生，不在进程中保留助记词或账户节点。
+     * 需要派生大量地址时由调用方创建并持有 HdWallet，复用其账户节点并行派生，用完后关闭。
+     *
+     * @param mnemonic BIP-39 助记词
+     * @param index    地址索引
+     * @return 返回带有 "0x" 前缀的以太坊钱包地址。
+     */
+    public static String getWalletAddressFromMnemonic(String mnemonic, int index) {
+        try (HdWallet wallet = HdWallet.fromMnemonic(mnemonic, null)) {
+            return wallet.getAddress(index);
+        }
+    }
+
     /**
      * 根据给定的私钥生成以太坊钱包地址。
      *
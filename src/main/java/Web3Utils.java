@@ -1,19 +1,243 @@
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
 import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
 import org.web3j.protocol.Web3j;
-import org.web3j.protocol.http.HttpService;
+import org.web3j.protocol.core.methods.response.EthChainId;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
+/**
+ * Web3j 客户端工厂。
+ * 所有 Web3j 实例共享同一个 OkHttpClient（连接池和调度器），
+ * 并通过 RoutingHttpService 在多个 RPC 节点之间按延迟路由和故障切换。
+ */
 public class Web3Utils {
     private static final String projectId = CommonConstant.PROJECT_ID;
 
-    public static Web3j getWeb3j() {
-        OkHttpClient okHttpClient = new OkHttpClient.Builder()
+    // 通过 -Dweb3.rpc.endpoints=url1,url2 配置默认节点列表
+    private static final String ENDPOINTS_PROPERTY = "web3.rpc.endpoints";
+
+    // 通过 -Dweb3.ws.endpoint=wss://... 启用 WebSocket 订阅，未配置时使用 HTTP 轮询
+    private static final String WS_ENDPOINT_PROPERTY = "web3.ws.endpoint";
+
+    // 通过 -Dweb3.rpc.maxInFlight=N 配置每个节点同时在途的最大请求数（同步 send() 和异步请求都受限）
+    private static final String MAX_IN_FLIGHT_PROPERTY = "web3.rpc.maxInFlight";
+
+    private static final int KEEP_ALIVE_MINUTES = 5;
+    private static final int MAX_REQUESTS = 256;
+    private static final int MAX_REQUESTS_PER_HOST = 64;
+    private static final int MAX_IN_FLIGHT_PER_ENDPOINT = Integer.getInteger(MAX_IN_FLIGHT_PROPERTY, MAX_REQUESTS_PER_HOST);
+    // 空闲连接数与单节点在途上限一致，满负荷运行时不会反复建立连接
+    private static final int MAX_IDLE_CONNECTIONS = MAX_IN_FLIGHT_PER_ENDPOINT;
+
+    private static final OkHttpClient httpClient = createHttpClient();
+
+    // 所有共享 Web3j 实例的请求指标
+    private static final RpcMetrics metrics = new RpcMetrics();
+
+    // 以节点列表为键缓存 Web3j 实例，相同配置只创建一次
+    private static final Map<List<String>, Web3j> clients = new ConcurrentHashMap<>();
+
+    // Web3j 实例对应的底层服务，用于发送 web3j 未内置的 JSON-RPC 方法
+    private static final Map<Web3j, RoutingHttpService> services = new ConcurrentHashMap<>();
+
+    // 每个 Web3j 实例对应的链 ID，进程内只查询一次
+    private static final Map<Web3j, Long> chainIds = new ConcurrentHashMap<>();
+
+    // 每个 Web3j 实例共享一个后台刷新的手续费预言机
+    private static final Map<Web3j, FeeOracle> feeOracles = new ConcurrentHashMap<>();
+
+    // 每个 Web3j 实例共享一个新区块轮询器
+    private static final Map<Web3j, SharedBlockPoller> blockPollers = new ConcurrentHashMap<>();
+
+    // 每个 Web3j 实例共享一个交易回执跟踪器
+    private static final Map<Web3j, ReceiptTracker> receiptTrackers = new ConcurrentHashMap<>();
+
+    // 阻塞 RPC 调用共用的执行器，首次使用时创建
+    private static volatile BlockingRpcExecutor blockingExecutor;
+
+    // 每个 Web3j 实例对应的 WebSocket 事件源
+    private static final Map<Web3j, WebSocketEventSource> webSocketSources = new ConcurrentHashMap<>();
+
+    private static OkHttpClient createHttpClient() {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(MAX_REQUESTS);
+        dispatcher.setMaxRequestsPerHost(MAX_REQUESTS_PER_HOST);
+
+        OkHttpClient.Builder builder = new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_MINUTES, TimeUnit.MINUTES))
+                .dispatcher(dispatcher)
+                .retryOnConnectionFailure(true)
                 .connectTimeout(30, TimeUnit.SECONDS)
                 .readTimeout(30, TimeUnit.SECONDS)
-                .writeTimeout(30, TimeUnit.SECONDS)
-                .build();
+                .writeTimeout(30, TimeUnit.SECONDS);
+        if (BlockingRpcExecutor.isVirtualThreadsSupported()) {
+            // 虚拟线程在 HTTP/2 流上等待响应时会钉住载体线程，只使用 HTTP/1.1
+            builder.protocols(Collections.singletonList(Protocol.HTTP_1_1));
+        }
+        return builder.build();
+    }
+
+    /**
+     * 获取连接默认节点列表的共享 Web3j 实例。
+     */
+    public static Web3j getWeb3j() {
+        return getWeb3j(getDefaultEndpoints());
+    }
+
+    /**
+     * 获取连接指定节点的共享 Web3j 实例。
+     *
+     * @param endpoints RPC 节点地址，按顺序作为初始优先级
+     */
+    public static Web3j getWeb3j(String... endpoints) {
+        return getWeb3j(Arrays.asList(endpoints));
+    }
+
+    /**
+     * 获取连接指定节点的共享 Web3j 实例。
+     *
+     * @param endpoints RPC 节点地址列表
+     */
+    public static Web3j getWeb3j(List<String> endpoints) {
+        List<String> key = Collections.unmodifiableList(new ArrayList<>(endpoints));
+        return clients.computeIfAbsent(key, urls -> {
+            RoutingHttpService service = new RoutingHttpService(urls, httpClient, metrics, MAX_IN_FLIGHT_PER_ENDPOINT);
+            Web3j web3j = Web3j.build(service);
+            services.put(web3j, service);
+            return web3j;
+        });
+    }
+
+    /**
+     * 获取通过本类创建的 Web3j 实例的底层服务。
+     *
+     * @throws IllegalArgumentException 如果 Web3j 实例不是由本类创建的
+     */
+    public static RoutingHttpService getService(Web3j web3j) {
+        RoutingHttpService service = services.get(web3j);
+        if (service == null) {
+            throw new IllegalArgumentException("Web3j instance was not created by Web3Utils");
+        }
+        return service;
+    }
+
+    /**
+     * 获取节点共享的手续费预言机，首次读取费用时开始在后台按区块刷新。
+     *
+     * @param web3j 通过本类创建的 Web3j 实例
+     */
+    public static FeeOracle getFeeOracle(Web3j web3j) {
+        return feeOracles.computeIfAbsent(web3j, client -> new FeeOracle(client, getService(client), getBlockPoller(client)));
+    }
+
+    /**
+     * 获取节点共享的新区块轮询器，进程内所有按区块驱动的组件共用一次轮询。
+     *
+     * @param web3j Web3j 实例
+     */
+    public static SharedBlockPoller getBlockPoller(Web3j web3j) {
+        return blockPollers.computeIfAbsent(web3j, SharedBlockPoller::new);
+    }
+
+    /**
+     * 获取节点的链 ID，首次查询后缓存在进程内。
+     *
+     * @param web3j Web3j 实例
+     * @return 链 ID
+     * @throws IOException 如果首次查询失败
+     */
+    public static long getChainId(Web3j web3j) throws IOException {
+        Long cached = chainIds.get(web3j);
+        if (cached != null) {
+            return cached;
+        }
+        EthChainId response = web3j.ethChainId().send();
+        if (response.hasError()) {
+            throw new IOException("Failed to fetch chain id: " + response.getError().getMessage());
+        }
+        long chainId = response.getChainId().longValue();
+        chainIds.put(web3j, chainId);
+        return chainId;
+    }
+
+    /**
+     * 获取节点共享的交易回执跟踪器，所有待确认交易每个区块只需一个批量请求。
+     *
+     * @param web3j Web3j 实例
+     */
+    public static ReceiptTracker getReceiptTracker(Web3j web3j) {
+        return receiptTrackers.computeIfAbsent(web3j, ReceiptTracker::new);
+    }
+
+    /**
+     * 获取 WebSocket 事件源：订阅走系统属性 web3.ws.endpoint 配置的节点，区块和断线补齐走 web3j。
+     * WebSocket 节点必须与 web3j 在同一条链上。
+     *
+     * @param web3j Web3j 实例
+     * @return 事件源；未配置 WebSocket 节点时返回 null，调用方应使用 HTTP 轮询
+     */
+    public static WebSocketEventSource getWebSocketSource(Web3j web3j) {
+        String url = System.getProperty(WS_ENDPOINT_PROPERTY);
+        if (url == null || url.trim().isEmpty()) {
+            return null;
+        }
+        return webSocketSources.computeIfAbsent(web3j, client -> new WebSocketEventSource(url.trim(), client));
+    }
+
+    /**
+     * 获取共享的阻塞 RPC 执行器（JDK 21+ 使用虚拟线程），用于大量并发的 send() 调用。
+     */
+    public static BlockingRpcExecutor getBlockingExecutor() {
+        BlockingRpcExecutor executor = blockingExecutor;
+        if (executor == null) {
+            synchronized (Web3Utils.class) {
+                executor = blockingExecutor;
+                if (executor == null) {
+                    executor = new BlockingRpcExecutor();
+                    blockingExecutor = executor;
+                }
+            }
+        }
+        return executor;
+    }
+
+    /**
+     * 获取共享的 OkHttpClient，可用于需要直接发送 HTTP 请求的场景。
+     */
+    public static OkHttpClient getHttpClient() {
+        return httpClient;
+    }
+
+    /**
+     * 获取共享 Web3j 实例的请求指标，可调用 snapshot 读取或 startReporting 定期输出。
+     */
+    public static RpcMetrics getMetrics() {
+        return metrics;
+    }
 
-        return Web3j.build(new HttpService("https://sepolia.infura.io/v3/" + projectId, okHttpClient, false));
+    /**
+     * 读取默认节点列表：优先使用系统属性，否则使用 Infura Sepolia 节点。
+     */
+    public static List<String> getDefaultEndpoints() {
+        String configured = System.getProperty(ENDPOINTS_PROPERTY);
+        if (configured != null && !configured.trim().isEmpty()) {
+            List<String> urls = new ArrayList<>();
+            for (String url : configured.split(",")) {
+                if (!url.trim().isEmpty()) {
+                    urls.add(url.trim());
+                }
+            }
+            return urls;
+        }
+        return Collections.singletonList("https://sepolia.infura.io/v3/" + projectId);
     }
 }
@@ -0,0 +1,358 @@
+import io.reactivex.BackpressureStrategy;
+import io.reactivex.Flowable;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.functions.Function;
+import io.reactivex.processors.UnicastProcessor;
+import io.reactivex.schedulers.Schedulers;
+import org.java_websocket.exceptions.WebsocketNotConnectedException;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameter;
+import org.web3j.protocol.core.DefaultBlockParameterNumber;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.Response;
+import org.web3j.protocol.core.methods.request.EthFilter;
+import org.web3j.protocol.core.methods.response.EthBlock;
+import org.web3j.protocol.core.methods.response.EthSubscribe;
+import org.web3j.protocol.core.methods.response.Log;
+import org.web3j.protocol.core.methods.response.Transaction;
+import org.web3j.protocol.websocket.WebSocketService;
+import org.web3j.protocol.websocket.events.NewHead;
+import org.web3j.protocol.websocket.events.Notification;
+import org.web3j.protocol.websocket.events.PendingTransactionNotification;
+import org.web3j.utils.Numeric;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 基于 WebSocket eth_subscribe 的事件源，替代 HTTP 轮询的 blockFlowable、transactionFlowable 和 ethLogFlowable。
+ * 连接断开后按指数退避自动重连；重连后通过 HTTP 补齐断线期间的区块（eth_getBlockByNumber）和日志（eth_getLogs），
+ * 订阅者看到的仍是连续、不重复的事件序列。
+ * 日志按（区块哈希，logIndex）去重，重组撤回的日志以 removed = true 再次发出。
+ */
+public class WebSocketEventSource {
+
+    private static final long MIN_RECONNECT_DELAY_MILLIS = 500;
+    private static final long MAX_RECONNECT_DELAY_MILLIS = 30_000;
+    private static final int FETCH_RETRIES = 3;
+    // 日志去重记录保留的区块数，超过重组深度即可
+    private static final int RETAINED_LOG_BLOCKS = 128;
+
+    private final String url;
+    private final Web3j httpWeb3j;
+
+    /**
+     * @param url       WebSocket 节点地址（ws:// 或 wss://）
+     * @param httpWeb3j 同一条链的 HTTP Web3j 实例，用于获取区块和补齐断线期间的日志
+     */
+    public WebSocketEventSource(String url, Web3j httpWeb3j) {
+        this.url = url;
+        this.httpWeb3j = httpWeb3j;
+    }
+
+    /**
+     * 新区块（newHeads）。重连后会补发断线期间的区块；同一高度的区块被重组替换时会再次发出。
+     *
+     * @param fullTransactionObjects 是否返回完整交易对象
+     */
+    public Flowable<EthBlock> blockFlowable(boolean fullTransactionObjects) {
+        return Flowable.defer(() -> {
+            // 已发出的最高区块号，跨越重连保留
+            long[] lastBlock = {-1};
+            return reconnecting(service -> Web3j.build(service).newHeadsNotifications()
+                    .map(notification -> notification.getParams().getResult())
+                    .concatMap(head -> {
+                        long number = Numeric.decodeQuantity(head.getNumber()).longValueExact();
+                        if (lastBlock[0] >= 0 && number <= lastBlock[0]) {
+                            // 重组替换了已发出的区块
+                            return fetchBlock(DefaultBlockParameter.valueOf(BigInteger.valueOf(number)), head, fullTransactionObjects);
+                        }
+                        long from = lastBlock[0] < 0 ? number : lastBlock[0] + 1;
+                        return Flowable.rangeLong(from, number - from + 1)
+                                .concatMap(n -> fetchBlock(DefaultBlockParameter.valueOf(BigInteger.valueOf(n)), null, fullTransactionObjects))
+                                .doOnNext(block -> lastBlock[0] = Math.max(lastBlock[0], block.getBlock().getNumber().longValueExact()));
+                    }));
+        });
+    }
+
+    /**
+     * 新区块中的交易。
+     */
+    public Flowable<Transaction> transactionFlowable() {
+        return blockFlowable(true)
+                .concatMapIterable(ethBlock -> ethBlock.getBlock().getTransactions())
+                .map(result -> (Transaction) result.get());
+    }
+
+    /**
+     * 进入交易池的新交易哈希（newPendingTransactions）。交易池无法回溯，断线期间的交易不会补发。
+     */
+    public Flowable<String> pendingTransactionHashFlowable() {
+        return reconnecting(service -> service.subscribe(
+                new Request<>("eth_subscribe", Collections.singletonList("newPendingTransactions"),
+                        service, EthSubscribe.class),
+                "eth_unsubscribe",
+                PendingTransactionNotification.class)
+                .map(notification -> notification.getParams().getResult()));
+    }
+
+    /**
+     * 符合条件的日志（logs）。
+     * filter 的起始区块为具体区块号时，先补齐从该区块到最新区块的历史日志；重连后补齐断线期间的日志。
+     * 已发出的日志被重组撤回时，节点推送的 removed = true 的日志会原样发出，订阅者应撤销之前的处理。
+     *
+     * @param filter 合约地址、topics 和起始区块；结束区块被忽略
+     */
+    public Flowable<Log> logFlowable(EthFilter filter) {
+        Map<String, Object> params = subscriptionParams(filter);
+        return Flowable.defer(() -> {
+            // 已发出的日志，跨越重连保留
+            EmittedLogs emitted = new EmittedLogs();
+            // 还没有发出任何日志时，重连后从这个区块开始补齐；-1 表示首次连接，只接收新日志
+            long[] resumeFrom = {-1};
+            DefaultBlockParameter fromBlock = filter.getFromBlock();
+            if (fromBlock instanceof DefaultBlockParameterNumber) {
+                resumeFrom[0] = ((DefaultBlockParameterNumber) fromBlock).getBlockNumber().longValueExact();
+            }
+            return reconnecting(service -> {
+                // 先订阅，补齐历史期间收到的新日志暂存在 live 中
+                // web3j 的 logsNotifications 解析出的日志没有 removed 字段，这里直接解析成 response.Log
+                UnicastProcessor<Log> live = UnicastProcessor.create();
+                Disposable subscription = service.subscribe(
+                        new Request<>("eth_subscribe", Arrays.asList("logs", params), service, EthSubscribe.class),
+                        "eth_unsubscribe",
+                        LogsNotification.class)
+                        .map(notification -> notification.getParams().getResult())
+                        .subscribe(live::onNext, live::onError, live::onComplete);
+                // 从已发出日志的最高区块开始补齐，其中已发出的日志由下面的去重跳过
+                long highest = emitted.highestBlock();
+                long from = highest >= 0 ? highest : resumeFrom[0];
+                return Flowable.concat(backfill(filter, from, resumeFrom), live).doFinally(subscription::dispose);
+            }).filter(log -> matches(log, filter) && emitted.accept(log));
+        });
+    }
+
+    /**
+     * 用 HTTP eth_getLogs 补齐 [fromBlock, 最新区块] 的日志。
+     * fromBlock 为 -1 时不补齐，只把 resumeFrom 设为最新区块的下一个区块，供断线重连时使用。
+     */
+    private Flowable<Log> backfill(EthFilter filter, long fromBlock, long[] resumeFrom) {
+        return Flowable.<Log>create(emitter -> {
+            long head = httpWeb3j.ethBlockNumber().send().getBlockNumber().longValueExact();
+            if (fromBlock < 0) {
+                resumeFrom[0] = head + 1;
+            } else if (fromBlock <= head) {
+                new LogScanner(httpWeb3j).scan(filter, fromBlock, head, emitter::onNext);
+            }
+            emitter.onComplete();
+        }, BackpressureStrategy.BUFFER).subscribeOn(Schedulers.io());
+    }
+
+    /**
+     * 建立连接并运行 session；连接断开或出错时按指数退避重新建立连接并再次运行 session。
+     */
+    private <T> Flowable<T> reconnecting(Function<WebSocketService, Flowable<T>> session) {
+        AtomicInteger failures = new AtomicInteger();
+        return Flowable.using(
+                this::connect,
+                service -> session.apply(service).doOnNext(item -> failures.set(0)),
+                WebSocketService::close)
+                .retryWhen(errors -> errors.flatMap(error -> {
+                    long delay = Math.min(MAX_RECONNECT_DELAY_MILLIS,
+                            MIN_RECONNECT_DELAY_MILLIS << Math.min(failures.getAndIncrement(), 6));
+                    System.err.println("WebSocket " + url + " disconnected (" + error.getMessage()
+                            + "), reconnecting in " + delay + "ms");
+                    return Flowable.timer(delay, TimeUnit.MILLISECONDS);
+                }));
+    }
+
+    private WebSocketService connect() throws IOException {
+        WebSocketService service = new DisconnectTolerantService(url);
+        service.connect();
+        return service;
+    }
+
+    private Flowable<EthBlock> fetchBlock(DefaultBlockParameter number, NewHead head, boolean fullTransactionObjects) {
+        return Flowable.fromCallable(() -> {
+            EthBlock response = head != null
+                    ? httpWeb3j.ethGetBlockByHash(head.getHash(), fullTransactionObjects).send()
+                    : httpWeb3j.ethGetBlockByNumber(number, fullTransactionObjects).send();
+            if (response.hasError()) {
+                throw new IOException("Failed to fetch block: " + response.getError().getMessage());
+            }
+            if (response.getBlock() == null) {
+                throw new IOException("Block not found: " + (head != null ? head.getHash() : number.getValue()));
+            }
+            return response;
+        }).subscribeOn(Schedulers.io()).retry(FETCH_RETRIES);
+    }
+
+    /**
+     * logs 订阅的参数，与 web3j 的 logsNotifications 相同。
+     */
+    private static Map<String, Object> subscriptionParams(EthFilter filter) {
+        Map<String, Object> params = new HashMap<>();
+        if (filter.getAddress() != null && !filter.getAddress().isEmpty()) {
+            params.put("address", filter.getAddress());
+        }
+        List<String> topics = subscriptionTopics(filter);
+        if (!topics.isEmpty()) {
+            params.put("topics", topics);
+        }
+        return params;
+    }
+
+    /**
+     * 把 EthFilter 的 topics 转成 eth_subscribe 的参数。
+     * 只有一个候选值的位置原样传给节点，多个候选值的位置订阅时放空，收到后在本地过滤。
+     */
+    private static List<String> subscriptionTopics(EthFilter filter) {
+        List<String> topics = new ArrayList<>();
+        for (List<String> candidates : topicCandidates(filter)) {
+            topics.add(candidates != null && candidates.size() == 1 ? candidates.get(0) : null);
+        }
+        // 末尾的通配位置可以省略
+        while (!topics.isEmpty() && topics.get(topics.size() - 1) == null) {
+            topics.remove(topics.size() - 1);
+        }
+        return topics;
+    }
+
+    /**
+     * 每个位置的候选 topic，null 表示任意值。
+     */
+    @SuppressWarnings("unchecked")
+    static List<List<String>> topicCandidates(EthFilter filter) {
+        List<List<String>> result = new ArrayList<>();
+        for (org.web3j.protocol.core.methods.request.Filter.FilterTopic<?> topic : filter.getTopics()) {
+            Object value = topic.getValue();
+            if (value == null) {
+                result.add(null);
+            } else if (value instanceof String) {
+                result.add(Collections.singletonList((String) value));
+            } else {
+                List<String> values = new ArrayList<>();
+                for (Object item : (List<Object>) value) {
+                    Object single = item instanceof org.web3j.protocol.core.methods.request.Filter.FilterTopic
+                            ? ((org.web3j.protocol.core.methods.request.Filter.FilterTopic<?>) item).getValue()
+                            : item;
+                    if (single != null) {
+                        values.add(single.toString());
+                    }
+                }
+                result.add(values.isEmpty() ? null : values);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 判断日志是否符合过滤条件的地址和 topics，不检查区块范围。
+     */
+    static boolean matches(Log log, EthFilter filter) {
+        List<String> addresses = filter.getAddress();
+        if (addresses != null && !addresses.isEmpty()) {
+            boolean found = false;
+            for (String address : addresses) {
+                if (address.equalsIgnoreCase(log.getAddress())) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        List<List<String>> candidates = topicCandidates(filter);
+        for (int i = 0; i < candidates.size(); i++) {
+            List<String> allowed = candidates.get(i);
+            if (allowed == null) {
+                continue;
+            }
+            if (i >= log.getTopics().size()) {
+                return false;
+            }
+            boolean found = false;
+            for (String topic : allowed) {
+                if (topic.equalsIgnoreCase(log.getTopics().get(i))) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 连接断开后发送请求（如取消订阅时的 eth_unsubscribe）返回失败的 Future，而不是抛出 WebsocketNotConnectedException。
+     * WebSocketService 只处理 IOException，运行时异常会从取消订阅中抛出，变成无法投递的 RxJava 错误。
+     */
+    private static final class DisconnectTolerantService extends WebSocketService {
+
+        private DisconnectTolerantService(String url) {
+            super(url, false);
+        }
+
+        @Override
+        public <T extends Response> CompletableFuture<T> sendAsync(Request request, Class<T> responseType) {
+            try {
+                return super.sendAsync(request, responseType);
+            } catch (WebsocketNotConnectedException e) {
+                CompletableFuture<T> failed = new CompletableFuture<>();
+                failed.completeExceptionally(new IOException("WebSocket is not connected", e));
+                return failed;
+            }
+        }
+    }
+
+    /**
+     * logs 订阅的通知，结果解析成带 removed 字段的 response.Log。
+     */
+    public static class LogsNotification extends Notification<Log> {
+    }
+
+    /**
+     * 已发出日志的（区块哈希，logIndex），只保留最近 RETAINED_LOG_BLOCKS 个区块。
+     * 重组后同一区块号、同一 logIndex 可能是另一条日志，所以不能只按区块号和 logIndex 的位置去重。
+     */
+    private static final class EmittedLogs {
+        private final TreeMap<Long, Set<String>> byBlock = new TreeMap<>();
+
+        long highestBlock() {
+            return byBlock.isEmpty() ? -1 : byBlock.lastKey();
+        }
+
+        /**
+         * 判断日志是否应该发出并记录：新日志只发出一次，撤回的日志只在之前发出过时发出。
+         */
+        boolean accept(Log log) {
+            long block = log.getBlockNumber().longValueExact();
+            String key = log.getBlockHash().toLowerCase() + ":" + log.getLogIndex();
+            if (log.isRemoved()) {
+                Set<String> keys = byBlock.get(block);
+                return keys != null && keys.remove(key);
+            }
+            long oldest = highestBlock() - RETAINED_LOG_BLOCKS;
+            if (block <= oldest || !byBlock.computeIfAbsent(block, number -> new HashSet<>()).add(key)) {
+                return false;
+            }
+            byBlock.headMap(block - RETAINED_LOG_BLOCKS, true).clear();
+            return true;
+        }
+    }
+}
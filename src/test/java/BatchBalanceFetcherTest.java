@@ -0,0 +1,170 @@
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.web3j.protocol.Web3j;
+import org.web3j.utils.Convert;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * BatchBalanceFetcher 在模拟节点上的批量 id 对应、单地址重试和整批失败重试。
+ */
+class BatchBalanceFetcherTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final BigInteger BLOCK = BigInteger.valueOf(0x1234);
+
+    private MockWebServer server;
+    private BalanceNode node;
+    private Web3j web3j;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        node = new BalanceNode();
+        server = new MockWebServer();
+        server.setDispatcher(node);
+        server.start();
+        web3j = Web3j.build(new RoutingHttpService(
+                Collections.singletonList(server.url("/").toString()), new OkHttpClient()));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    void matchesResponsesById() {
+        List<String> addresses = addresses(250);
+        BatchBalanceFetcher.Result result = new BatchBalanceFetcher(web3j, 100, 3).fetch(addresses, BLOCK);
+
+        assertEquals(BLOCK, result.getBlockNumber());
+        assertTrue(result.getFailures().isEmpty());
+        assertEquals(addresses, new ArrayList<>(result.getBalances().keySet()));
+        for (Map.Entry<String, BigDecimal> entry : result.getBalances().entrySet()) {
+            assertEquals(0, expectedEther(entry.getKey()).compareTo(entry.getValue()), entry.getKey());
+        }
+        // 每个批次一个 HTTP 请求，所有查询都在同一区块高度上
+        assertEquals(3, server.getRequestCount());
+        assertEquals(Collections.singleton("0x1234"), node.blocks);
+    }
+
+    @Test
+    void retriesOnlyFailedAddresses() {
+        List<String> addresses = addresses(50);
+        String flaky = addresses.get(7);
+        String missing = addresses.get(20);
+        String broken = addresses.get(33);
+        node.failOnce.add(flaky);
+        node.omitOnce.add(missing);
+        node.alwaysFail.add(broken);
+
+        BatchBalanceFetcher.Result result = new BatchBalanceFetcher(web3j, 100, 1).fetch(addresses, BLOCK);
+
+        assertEquals(49, result.getBalances().size());
+        assertEquals(0, expectedEther(flaky).compareTo(result.getBalances().get(flaky)));
+        assertEquals(0, expectedEther(missing).compareTo(result.getBalances().get(missing)));
+        assertFalse(result.getBalances().containsKey(broken));
+        assertEquals(Collections.singletonMap(broken, "execution reverted"), result.getFailures());
+        // 第一次请求整批，第二次只请求三个失败的地址，第三次只剩永久失败的地址
+        assertEquals(Arrays.asList(50, 3, 1), node.batchSizes);
+    }
+
+    @Test
+    void retriesWholeBatchOnTransportFailure() {
+        node.httpFailures.set(1);
+        List<String> addresses = addresses(10);
+
+        BatchBalanceFetcher.Result result = new BatchBalanceFetcher(web3j, 100, 1).fetch(addresses, BLOCK);
+
+        assertTrue(result.getFailures().isEmpty());
+        assertEquals(10, result.getBalances().size());
+        assertEquals(2, server.getRequestCount());
+    }
+
+    private static List<String> addresses(int count) {
+        List<String> addresses = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            addresses.add(String.format("0x%040x", i));
+        }
+        return addresses;
+    }
+
+    private static BigInteger balanceOf(String address) {
+        return new BigInteger(address.substring(2), 16).multiply(BigInteger.TEN.pow(15));
+    }
+
+    private static BigDecimal expectedEther(String address) {
+        return Convert.fromWei(new BigDecimal(balanceOf(address)), Convert.Unit.ETHER);
+    }
+
+    /**
+     * 只支持批量 eth_getBalance 的模拟节点，响应按请求的逆序返回。
+     */
+    private static final class BalanceNode extends Dispatcher {
+        private final Set<String> failOnce = ConcurrentHashMap.newKeySet();
+        private final Set<String> omitOnce = ConcurrentHashMap.newKeySet();
+        private final Set<String> alwaysFail = ConcurrentHashMap.newKeySet();
+        private final Set<String> blocks = ConcurrentHashMap.newKeySet();
+        private final List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+        private final AtomicInteger httpFailures = new AtomicInteger();
+
+        @Override
+        public MockResponse dispatch(RecordedRequest request) {
+            if (httpFailures.getAndDecrement() > 0) {
+                return new MockResponse().setResponseCode(500);
+            }
+            try {
+                JsonNode batch = MAPPER.readTree(request.getBody().readUtf8());
+                batchSizes.add(batch.size());
+                ArrayNode responses = MAPPER.createArrayNode();
+                for (int i = batch.size() - 1; i >= 0; i--) {
+                    JsonNode call = batch.get(i);
+                    String address = call.get("params").get(0).asText();
+                    blocks.add(call.get("params").get(1).asText());
+                    if (omitOnce.remove(address)) {
+                        continue;
+                    }
+                    ObjectNode response = responses.addObject();
+                    response.put("jsonrpc", "2.0");
+                    response.set("id", call.get("id"));
+                    if (failOnce.remove(address) || alwaysFail.contains(address)) {
+                        ObjectNode error = response.putObject("error");
+                        error.put("code", -32000);
+                        error.put("message", "execution reverted");
+                    } else {
+                        response.put("result", "0x" + balanceOf(address).toString(16));
+                    }
+                }
+                return new MockResponse()
+                        .setHeader("Content-Type", "application/json")
+                        .setBody(MAPPER.writeValueAsString(responses));
+            } catch (IOException e) {
+                return new MockResponse().setResponseCode(400);
+            }
+        }
+    }
+}
@@ -0,0 +1,189 @@
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.web3j.protocol.Web3j;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * CallResultCache 在模拟节点上的 LRU 淘汰、在途请求合并和随共享轮询器出现新区块时的失效。
+ */
+class CallResultCacheTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final String FROM = "0x000000000000000000000000000000000000beef";
+    private static final String CONTRACT = "0x00000000000000000000000000000000000000aa";
+
+    private MockWebServer server;
+    private CallNode node;
+    private Web3j web3j;
+    private SharedBlockPoller blockPoller;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        node = new CallNode();
+        server = new MockWebServer();
+        server.setDispatcher(node);
+        server.start();
+        web3j = Web3j.build(new RoutingHttpService(
+                Collections.singletonList(server.url("/").toString()), new OkHttpClient()));
+        blockPoller = new SharedBlockPoller(web3j, 50, TimeUnit.MILLISECONDS);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        node.gate.countDown();
+        server.shutdown();
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedEntry() throws IOException {
+        CallResultCache cache = cache(2);
+        try {
+            cache.call(FROM, CONTRACT, "0x01");
+            cache.call(FROM, CONTRACT, "0x02");
+            // 0x01 被访问后 0x02 成为最久未使用的条目，加入 0x03 时被淘汰
+            assertEquals(value("0x01"), cache.call(FROM, CONTRACT, "0x01"));
+            cache.call(FROM, CONTRACT, "0x03");
+            cache.call(FROM, CONTRACT, "0x01");
+            cache.call(FROM, CONTRACT, "0x02");
+
+            assertEquals(Arrays.asList("0x01@0x10", "0x02@0x10", "0x03@0x10", "0x02@0x10"), node.calls);
+            assertEquals(2, cache.getHits());
+            assertEquals(4, cache.getMisses());
+        } finally {
+            cache.stop();
+        }
+    }
+
+    @Test
+    void sendsConcurrentIdenticalCallsOnce() throws Exception {
+        CallResultCache cache = cache(16);
+        cache.start();
+        node.gate = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                results.add(executor.submit(() -> cache.call(FROM, CONTRACT, "0x07")));
+            }
+            // 第一个调用停在节点上，其余三个等待它的结果
+            await(() -> cache.getDeduplicated() == 3);
+            node.gate.countDown();
+
+            for (Future<String> result : results) {
+                assertEquals(value("0x07"), result.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(Collections.singletonList("0x07@0x10"), node.calls);
+            assertEquals(1, cache.getMisses());
+        } finally {
+            executor.shutdownNow();
+            cache.stop();
+        }
+    }
+
+    @Test
+    void invalidatesWhenSharedPollerReportsNewBlock() throws Exception {
+        CallResultCache cache = cache(16);
+        try {
+            cache.call(FROM, CONTRACT, "0x01");
+            assertEquals(value("0x01"), cache.call(FROM, CONTRACT, "0x01"));
+
+            node.head = 0x11;
+            await(() -> BigInteger.valueOf(0x11).equals(cache.getCurrentBlock()));
+            cache.call(FROM, CONTRACT, "0x01");
+
+            // 新区块之后的调用固定在新区块上，不再读取旧状态
+            assertEquals(Arrays.asList("0x01@0x10", "0x01@0x11"), node.calls);
+            assertEquals(1, cache.getInvalidations());
+            assertEquals(1, cache.getHits());
+        } finally {
+            cache.stop();
+        }
+    }
+
+    private CallResultCache cache(int maxEntries) {
+        return new CallResultCache(web3j, blockPoller, maxEntries);
+    }
+
+    private static String value(String data) {
+        return String.format("0x%064x", Long.decode(data) + 100);
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("Condition not reached");
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * 模拟节点：返回最新区块号和空区块，记录每次 eth_call 的调用数据和区块号，gate 打开前 eth_call 不返回。
+     */
+    private static final class CallNode extends Dispatcher {
+        private final List<String> calls = Collections.synchronizedList(new ArrayList<>());
+        private volatile long head = 0x10;
+        private volatile CountDownLatch gate = new CountDownLatch(0);
+
+        @Override
+        public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+            try {
+                JsonNode call = MAPPER.readTree(request.getBody().readUtf8());
+                ObjectNode response = MAPPER.createObjectNode();
+                response.put("jsonrpc", "2.0");
+                response.set("id", call.get("id"));
+                JsonNode params = call.get("params");
+                switch (call.get("method").asText()) {
+                    case "eth_blockNumber":
+                        response.put("result", "0x" + Long.toHexString(head));
+                        break;
+                    case "eth_getBlockByNumber":
+                        ObjectNode block = response.putObject("result");
+                        block.put("number", params.get(0).asText());
+                        block.put("hash", String.format("0x%064x", Long.decode(params.get(0).asText())));
+                        block.putArray("transactions");
+                        break;
+                    case "eth_call":
+                        gate.await(5, TimeUnit.SECONDS);
+                        String data = params.get(0).get("data").asText();
+                        calls.add(data + "@" + params.get(1).asText());
+                        response.put("result", value(data));
+                        break;
+                    default:
+                        ObjectNode error = response.putObject("error");
+                        error.put("code", -32601);
+                        error.put("message", "method not found");
+                }
+                return new MockResponse()
+                        .setHeader("Content-Type", "application/json")
+                        .setBody(MAPPER.writeValueAsString(response));
+            } catch (IOException e) {
+                return new MockResponse().setResponseCode(400);
+            }
+        }
+    }
+}
@@ -0,0 +1,221 @@
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.Test;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.methods.request.EthFilter;
+import org.web3j.protocol.core.methods.response.Log;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * ConfirmedEventStream 在模拟分叉链上的确认、撤回和超出历史深度的重组。
+ */
+class ConfirmedEventStreamTest {
+
+    private static final String TOKEN = "0x00000000000000000000000000000000000000a1";
+
+    @Test
+    void retractsAndReemitsReplacedBlocks() throws IOException {
+        SimulatedChain chain = new SimulatedChain();
+        chain.extend(5);
+        RecordingListener listener = new RecordingListener();
+        ConfirmedEventStream stream = new ConfirmedEventStream(chain, 2, 8, 1, listener);
+
+        stream.poll();
+        assertEquals(chain.hashes(1, 4), listener.confirmedBlocks);
+
+        // 区块 4、5 被替换，新链比旧链多一个区块
+        chain.fork(3);
+        chain.extend(3);
+        listener.clear();
+        stream.poll();
+
+        assertEquals(chain.hashes(4, 5), listener.confirmedBlocks);
+        assertEquals(Collections.singletonList(chain.abandoned(4)), listener.retractedBlocks);
+        assertEquals(Collections.singletonList("retract " + chain.abandoned(4)), listener.retractedLogs);
+        assertTrue(listener.gaps.isEmpty());
+    }
+
+    @Test
+    void resyncsAndReportsGapWhenReorgExceedsHistory() throws IOException {
+        SimulatedChain chain = new SimulatedChain();
+        chain.extend(10);
+        RecordingListener listener = new RecordingListener();
+        ConfirmedEventStream stream = new ConfirmedEventStream(chain, 1, 4, 1, listener);
+        stream.poll();
+        assertEquals(10, listener.confirmedBlocks.size());
+
+        // 从区块 3 开始全部被替换，超过 4 个区块的历史窗口
+        chain.fork(2);
+        chain.extend(9);
+        listener.clear();
+        stream.poll();
+
+        // 窗口内的 7-10 被撤回，从 7 开始按新链重新发出，7 之前的区块报告为无法核对
+        assertEquals(4, listener.retractedBlocks.size());
+        assertEquals(Collections.singletonList(7L), listener.gaps);
+        assertEquals(chain.hashes(7, 11), listener.confirmedBlocks);
+
+        // 之后的轮询正常进行，不会重复报错
+        chain.extend(1);
+        listener.clear();
+        stream.poll();
+        assertEquals(chain.hashes(12, 12), listener.confirmedBlocks);
+        assertTrue(listener.gaps.isEmpty());
+    }
+
+    @Test
+    void web3jSourceQueriesLogsByBlockHash() throws IOException, InterruptedException {
+        MockWebServer server = new MockWebServer();
+        server.enqueue(json("\"result\":[]"));
+        server.enqueue(json("\"error\":{\"code\":-32000,\"message\":\"unknown block\"}"));
+        server.start();
+        try {
+            Web3j web3j = Web3j.build(new RoutingHttpService(
+                    Collections.singletonList(server.url("/").toString()), new OkHttpClient()));
+            ConfirmedEventStream.ChainSource source = ConfirmedEventStream.web3jSource(web3j, new EthFilter(null, null, TOKEN));
+
+            // 区块中没有日志时返回空列表，找不到区块时返回 null
+            String hash = SimulatedChain.hash(7, 0);
+            assertNotNull(source.logs(7, hash));
+            assertNull(source.logs(7, hash));
+
+            JsonNode filter = new ObjectMapper().readTree(server.takeRequest().getBody().readUtf8()).get("params").get(0);
+            assertEquals(hash, filter.get("blockHash").asText());
+            assertFalse(filter.has("fromBlock"));
+            assertFalse(filter.has("toBlock"));
+            assertEquals(TOKEN, filter.get("address").get(0).asText());
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    private static MockResponse json(String payload) {
+        return new MockResponse()
+                .setHeader("Content-Type", "application/json")
+                .setBody("{\"jsonrpc\":\"2.0\",\"id\":1," + payload + "}");
+    }
+
+    /**
+     * 可以分叉的本地模拟链，每个区块包含一条日志。分叉后被替换的区块仍可按哈希查询日志。
+     */
+    private static final class SimulatedChain implements ConfirmedEventStream.ChainSource {
+        private final List<ConfirmedEventStream.BlockHeader> blocks = new ArrayList<>();
+        private final Map<String, ConfirmedEventStream.BlockHeader> known = new HashMap<>();
+        private final Map<Long, String> abandoned = new HashMap<>();
+        private int generation;
+
+        private static String hash(long number, int generation) {
+            return String.format("0x%032x%032x", generation, number);
+        }
+
+        void extend(int count) {
+            for (int i = 0; i < count; i++) {
+                long number = blocks.size() + 1;
+                String parent = blocks.isEmpty() ? hash(0, 0) : blocks.get(blocks.size() - 1).getHash();
+                ConfirmedEventStream.BlockHeader header =
+                        new ConfirmedEventStream.BlockHeader(number, hash(number, generation), parent);
+                blocks.add(header);
+                known.put(header.getHash(), header);
+            }
+        }
+
+        /**
+         * 丢弃 height 之后的区块，之后 extend 生成的区块哈希不同。
+         */
+        void fork(long height) {
+            while (blocks.size() > height) {
+                ConfirmedEventStream.BlockHeader removed = blocks.remove(blocks.size() - 1);
+                abandoned.put(removed.getNumber(), removed.getHash());
+            }
+            generation++;
+        }
+
+        String abandoned(long number) {
+            return abandoned.get(number);
+        }
+
+        List<String> hashes(long from, long to) {
+            List<String> hashes = new ArrayList<>();
+            for (long number = from; number <= to; number++) {
+                hashes.add(blocks.get((int) number - 1).getHash());
+            }
+            return hashes;
+        }
+
+        @Override
+        public long latestBlockNumber() {
+            return blocks.size();
+        }
+
+        @Override
+        public ConfirmedEventStream.BlockHeader header(long number) {
+            return number >= 1 && number <= blocks.size() ? blocks.get((int) number - 1) : null;
+        }
+
+        @Override
+        public List<Log> logs(long number, String blockHash) {
+            ConfirmedEventStream.BlockHeader header = known.get(blockHash);
+            if (header == null) {
+                return null;
+            }
+            Log log = new Log();
+            log.setBlockNumber("0x" + Long.toHexString(number));
+            log.setBlockHash(blockHash);
+            log.setLogIndex("0x0");
+            log.setAddress(TOKEN);
+            return Collections.singletonList(log);
+        }
+    }
+
+    /**
+     * 记录所有回调的监听器。
+     */
+    private static final class RecordingListener implements ConfirmedEventStream.Listener {
+        private final List<String> confirmedBlocks = new ArrayList<>();
+        private final List<String> retractedBlocks = new ArrayList<>();
+        private final List<String> retractedLogs = new ArrayList<>();
+        private final List<Long> gaps = new ArrayList<>();
+
+        void clear() {
+            confirmedBlocks.clear();
+            retractedBlocks.clear();
+            retractedLogs.clear();
+            gaps.clear();
+        }
+
+        @Override
+        public void onBlockConfirmed(ConfirmedEventStream.BlockHeader header) {
+            confirmedBlocks.add(header.getHash());
+        }
+
+        @Override
+        public void onLogRetracted(Log log) {
+            retractedLogs.add("retract " + log.getBlockHash());
+        }
+
+        @Override
+        public void onBlockRetracted(ConfirmedEventStream.BlockHeader header) {
+            retractedBlocks.add(header.getHash());
+        }
+
+        @Override
+        public void onHistoryGap(long resumeBlock) {
+            gaps.add(resumeBlock);
+        }
+    }
+}
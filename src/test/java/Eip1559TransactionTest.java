@@ -0,0 +1,91 @@
+import org.junit.jupiter.api.Test;
+import org.web3j.crypto.Credentials;
+import org.web3j.crypto.Keys;
+import org.web3j.crypto.Sign;
+import org.web3j.rlp.RlpDecoder;
+import org.web3j.rlp.RlpList;
+import org.web3j.rlp.RlpString;
+import org.web3j.rlp.RlpType;
+import org.web3j.utils.Numeric;
+
+import java.math.BigInteger;
+import java.security.SignatureException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Eip1559Transaction 的编码：类型前缀、字段顺序、签名可以恢复出发送方地址。
+ */
+class Eip1559TransactionTest {
+
+    private static final Credentials CREDENTIALS = Credentials.create(
+            "0x4c0883a69102937d6231471b5dbb6204fe5129617082792ae468d01a3f362318");
+    private static final String RECIPIENT = "0x000000000000000000000000000000000000dead";
+
+    @Test
+    void encodesFieldsInSpecOrderAfterTypePrefix() {
+        Eip1559Transaction transaction = new Eip1559Transaction(11155420L, BigInteger.valueOf(9),
+                BigInteger.valueOf(1_000_000L), BigInteger.valueOf(3_000_000L), BigInteger.valueOf(21000),
+                RECIPIENT, BigInteger.TEN, "0x1234");
+        byte[] signed = transaction.sign(CREDENTIALS);
+
+        assertEquals(0x02, signed[0]);
+        List<RlpType> values = fields(signed);
+        assertEquals(12, values.size());
+        assertEquals(BigInteger.valueOf(11155420L), number(values, 0));
+        assertEquals(BigInteger.valueOf(9), number(values, 1));
+        assertEquals(BigInteger.valueOf(1_000_000L), number(values, 2));
+        assertEquals(BigInteger.valueOf(3_000_000L), number(values, 3));
+        assertEquals(BigInteger.valueOf(21000), number(values, 4));
+        assertEquals(RECIPIENT, ((RlpString) values.get(5)).asString());
+        assertEquals(BigInteger.TEN, number(values, 6));
+        assertEquals("0x1234", ((RlpString) values.get(7)).asString());
+        assertTrue(((RlpList) values.get(8)).getValues().isEmpty());
+        assertTrue(number(values, 9).intValue() <= 1);
+    }
+
+    @Test
+    void signatureRecoversSender() throws SignatureException {
+        Eip1559Transaction transaction = new Eip1559Transaction(1, BigInteger.ZERO, BigInteger.ONE,
+                BigInteger.valueOf(100), BigInteger.valueOf(21000), RECIPIENT, BigInteger.ZERO, null);
+        List<RlpType> values = fields(transaction.sign(CREDENTIALS));
+
+        Sign.SignatureData signature = new Sign.SignatureData(
+                (byte) (number(values, 9).intValue() + 27),
+                Numeric.toBytesPadded(number(values, 10), 32),
+                Numeric.toBytesPadded(number(values, 11), 32));
+        BigInteger publicKey = Sign.signedMessageHashToKey(transaction.signingHash(), signature);
+        assertEquals(CREDENTIALS.getAddress(), "0x" + Keys.getAddress(publicKey));
+    }
+
+    @Test
+    void decodesWhatItSigns() {
+        Eip1559Transaction original = new Eip1559Transaction(10, BigInteger.valueOf(42), BigInteger.ONE,
+                BigInteger.valueOf(7), BigInteger.valueOf(50_000), null, BigInteger.ZERO, "0x60806040");
+        String signed = original.signAsHex(CREDENTIALS);
+
+        Eip1559Transaction decoded = Eip1559Transaction.decode(signed);
+        assertEquals(10, decoded.getChainId());
+        assertEquals(BigInteger.valueOf(42), decoded.getNonce());
+        assertEquals(BigInteger.ONE, decoded.getMaxPriorityFeePerGas());
+        assertEquals(BigInteger.valueOf(7), decoded.getMaxFeePerGas());
+        assertEquals(BigInteger.valueOf(50_000), decoded.getGasLimit());
+        assertNull(decoded.getTo());
+        assertEquals("0x60806040", decoded.getData());
+        assertThrows(IllegalArgumentException.class, () -> Eip1559Transaction.decode("0xf86c"));
+    }
+
+    private static List<RlpType> fields(byte[] signed) {
+        byte[] payload = Arrays.copyOfRange(signed, 1, signed.length);
+        return ((RlpList) RlpDecoder.decode(payload).getValues().get(0)).getValues();
+    }
+
+    private static BigInteger number(List<RlpType> values, int index) {
+        return ((RlpString) values.get(index)).asPositiveBigInteger();
+    }
+}
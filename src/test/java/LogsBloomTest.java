@@ -0,0 +1,128 @@
+import org.junit.jupiter.api.Test;
+import org.web3j.crypto.Hash;
+import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.core.methods.request.EthFilter;
+import org.web3j.utils.Numeric;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * LogsBloom 的位布局和 Query 的命中、排除。
+ * 区块头 logsBloom 按黄皮书的定义单独实现（把 2048 位看作一个大端整数，位号从最低位数起），
+ * 用主网合约地址和事件 topic 构造，与 LogsBloom 的实现互相校验。
+ */
+class LogsBloomTest {
+
+    private static final String USDT = "0xdac17f958d2ee523a2206206994597c13d831ec7";
+    private static final String WETH = "0xc02aaa39b223fe8d0a0e5c4f27ead9083c756cc2";
+    private static final String USDC = "0xa0b86991c6218b36c1d19d4a2e9eb0ce3606eb48";
+    private static final String TRANSFER = "0xddf252ad1be2c89b69c2b068fc378daa952ba7f163c4a11628f55a4df523b3ef";
+    private static final String APPROVAL = Hash.sha3String("Approval(address,address,uint256)");
+    private static final String DEPOSIT = Hash.sha3String("Deposit(address,uint256)");
+    private static final String SENDER = "0x000000000000000000000000" + "28c6c06298d514db089934071355e5743bf21d60";
+    private static final String RECIPIENT = "0x000000000000000000000000" + "3f5ce5fbfe3e9af3971dd833d26ba9b5c936f0be";
+
+    // 一个区块：一笔 USDT 转账和一笔 WETH 存入
+    private static final List<String> BLOCK_VALUES = Arrays.asList(
+            USDT, TRANSFER, SENDER, RECIPIENT,
+            WETH, DEPOSIT, RECIPIENT);
+
+    @Test
+    void matchesYellowPaperBitLayout() {
+        assertEquals(TRANSFER, Hash.sha3String("Transfer(address,address,uint256)"));
+
+        LogsBloom bloom = new LogsBloom();
+        for (String value : BLOCK_VALUES) {
+            bloom.add(Numeric.hexStringToByteArray(value));
+        }
+        assertEquals(referenceBloom(BLOCK_VALUES), bloom.toHex());
+    }
+
+    @Test
+    void containsAddressesAndTopicsOfTheBlock() {
+        LogsBloom bloom = LogsBloom.fromHex(referenceBloom(BLOCK_VALUES));
+        for (String value : BLOCK_VALUES) {
+            assertTrue(bloom.mightContain(Numeric.hexStringToByteArray(value)), value);
+        }
+        assertFalse(bloom.mightContain(Numeric.hexStringToByteArray(USDC)));
+        assertFalse(bloom.mightContain(Numeric.hexStringToByteArray(APPROVAL)));
+    }
+
+    @Test
+    void queryHitsAndKnownNegatives() {
+        String header = referenceBloom(BLOCK_VALUES);
+
+        assertMatch(true, header, query(Collections.singletonList(USDT), TRANSFER));
+        assertMatch(true, header, query(Arrays.asList(USDC, WETH), DEPOSIT));
+        // 同一位置的候选值为“或”
+        assertMatch(true, header, query(Collections.singletonList(USDT), APPROVAL, TRANSFER));
+        // 只按 topic 过滤，任意地址
+        assertMatch(true, header, query(Collections.emptyList(), TRANSFER));
+
+        assertMatch(false, header, query(Collections.singletonList(USDC), TRANSFER));
+        assertMatch(false, header, query(Collections.singletonList(USDT), APPROVAL));
+        assertMatch(false, header, query(Collections.emptyList(), APPROVAL));
+    }
+
+    @Test
+    void emptyBloomOnlyMatchesWildcard() {
+        // 没有日志的区块 logsBloom 全为 0
+        String empty = referenceBloom(Collections.emptyList());
+
+        assertMatch(false, empty, query(Collections.singletonList(USDT)));
+        assertMatch(false, empty, query(Collections.emptyList(), TRANSFER));
+        assertMatch(true, empty, query(Collections.emptyList()));
+    }
+
+    @Test
+    void acceptsHeaderHexWithoutPrefixAndRejectsWrongLength() {
+        String header = referenceBloom(BLOCK_VALUES);
+        LogsBloom.Query query = query(Collections.singletonList(USDT), TRANSFER);
+
+        assertTrue(query.mightMatch(header.substring(2).toUpperCase()));
+        assertThrows(IllegalArgumentException.class, () -> query.mightMatch(header.substring(4)));
+        assertThrows(IllegalArgumentException.class, () -> LogsBloom.fromHex("0x00"));
+    }
+
+    /**
+     * 十六进制和字节数组两条路径的结果必须一致。
+     */
+    private static void assertMatch(boolean expected, String header, LogsBloom.Query query) {
+        assertEquals(expected, query.mightMatch(header));
+        assertEquals(expected, query.mightMatch(Numeric.hexStringToByteArray(header)));
+        assertEquals(expected, query.mightMatch(LogsBloom.fromHex(header)));
+    }
+
+    private static LogsBloom.Query query(List<String> addresses, String... topic0) {
+        EthFilter filter = new EthFilter(DefaultBlockParameterName.EARLIEST, DefaultBlockParameterName.LATEST, addresses);
+        if (topic0.length == 1) {
+            filter.addSingleTopic(topic0[0]);
+        } else if (topic0.length > 1) {
+            filter.addOptionalTopics(topic0);
+        }
+        return new LogsBloom.Query(filter);
+    }
+
+    /**
+     * 黄皮书 M3:2048：对每个值的 keccak256，取前 3 对字节的低 11 位作为位号，在 2048 位整数中置位。
+     */
+    private static String referenceBloom(List<String> values) {
+        BigInteger bloom = BigInteger.ZERO;
+        for (String value : values) {
+            byte[] hash = Hash.sha3(Numeric.hexStringToByteArray(value));
+            for (int i = 0; i < 6; i += 2) {
+                int bit = new BigInteger(1, Arrays.copyOfRange(hash, i, i + 2)).intValue() % 2048;
+                bloom = bloom.setBit(bit);
+            }
+        }
+        return Numeric.toHexStringWithPrefixZeroPadded(bloom, 512);
+    }
+}
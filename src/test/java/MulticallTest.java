@@ -0,0 +1,218 @@
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.web3j.abi.FunctionEncoder;
+import org.web3j.abi.TypeReference;
+import org.web3j.abi.datatypes.Address;
+import org.web3j.abi.datatypes.Function;
+import org.web3j.abi.datatypes.Type;
+import org.web3j.abi.datatypes.Utf8String;
+import org.web3j.abi.datatypes.generated.Uint256;
+import org.web3j.abi.datatypes.generated.Uint8;
+import org.web3j.protocol.Web3j;
+import org.web3j.utils.Numeric;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Multicall 在模拟 Multicall3 节点上的 aggregate3 编码、部分失败和整体回滚。
+ */
+class MulticallTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final String FROM = "0x00000000000000000000000000000000000000f0";
+    private static final String TOKEN = "0x00000000000000000000000000000000000000a1";
+    // 不支持 decimals() 的合约，调用会回滚
+    private static final String BROKEN = "0x00000000000000000000000000000000000000b2";
+    private static final String HOLDER = "0x00000000000000000000000000000000000000c3";
+    private static final String BALANCE_OF = "0x70a08231";
+    private static final String REVERT_REASON = "decimals not supported";
+
+    private MockWebServer server;
+    private MulticallNode node;
+    private Web3j web3j;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        node = new MulticallNode();
+        server = new MockWebServer();
+        server.setDispatcher(node);
+        server.start();
+        web3j = Web3j.build(new RoutingHttpService(
+                Collections.singletonList(server.url("/").toString()), new OkHttpClient()));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    void decodesMixedSuccessAndFailure() throws IOException {
+        List<Multicall.Result> results = new Multicall(web3j, FROM)
+                .add(TOKEN, balanceOf(HOLDER))
+                .add(BROKEN, decimals())
+                .add(TOKEN, decimals())
+                .execute();
+
+        assertEquals(3, results.size());
+        assertTrue(results.get(0).isSuccess());
+        assertEquals(balanceOf(TOKEN, HOLDER), results.get(0).getValues().get(0).getValue());
+
+        assertFalse(results.get(1).isSuccess());
+        assertTrue(results.get(1).getValues().isEmpty());
+        assertEquals(revertData(REVERT_REASON), results.get(1).getReturnData());
+
+        assertTrue(results.get(2).isSuccess());
+        assertEquals(BigInteger.valueOf(18), results.get(2).getValues().get(0).getValue());
+
+        // 三个调用合并为一次发往 Multicall3 的 eth_call
+        assertEquals(1, server.getRequestCount());
+        assertEquals(Multicall.MULTICALL3_ADDRESS.toLowerCase(), node.lastTarget);
+        assertEquals(Arrays.asList(true, true, true), node.allowFailures);
+    }
+
+    @Test
+    void failsWhenDisallowedCallReverts() {
+        Multicall multicall = new Multicall(web3j, FROM)
+                .add(TOKEN, balanceOf(HOLDER))
+                .add(BROKEN, decimals(), false);
+
+        IOException error = assertThrows(IOException.class, multicall::execute);
+        assertTrue(error.getMessage().contains("execution reverted"), error.getMessage());
+        assertEquals(Arrays.asList(true, false), node.allowFailures);
+    }
+
+    @Test
+    void skipsRequestWhenEmpty() throws IOException {
+        assertTrue(new Multicall(web3j, FROM).execute().isEmpty());
+        assertEquals(0, server.getRequestCount());
+    }
+
+    private static Function balanceOf(String holder) {
+        return new Function("balanceOf", Collections.<Type>singletonList(new Address(holder)),
+                Collections.<TypeReference<?>>singletonList(new TypeReference<Uint256>() {}));
+    }
+
+    private static Function decimals() {
+        return new Function("decimals", Collections.<Type>emptyList(),
+                Collections.<TypeReference<?>>singletonList(new TypeReference<Uint8>() {}));
+    }
+
+    private static BigInteger balanceOf(String token, String holder) {
+        return new BigInteger(token.substring(2), 16).shiftLeft(64).add(new BigInteger(holder.substring(2), 16));
+    }
+
+    private static String revertData(String reason) {
+        return FunctionEncoder.encode(new Function("Error",
+                Collections.<Type>singletonList(new Utf8String(reason)), Collections.<TypeReference<?>>emptyList()));
+    }
+
+    /**
+     * 只支持 eth_call 到 Multicall3 的模拟节点，在本地执行 aggregate3 中的 balanceOf 和 decimals 调用。
+     */
+    private static final class MulticallNode extends Dispatcher {
+        private volatile String lastTarget;
+        private final List<Boolean> allowFailures = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public MockResponse dispatch(RecordedRequest request) {
+            try {
+                JsonNode call = MAPPER.readTree(request.getBody().readUtf8()).get("params").get(0);
+                lastTarget = call.get("to").asText().toLowerCase();
+                byte[] input = Numeric.hexStringToByteArray(call.get("data").asText());
+                String payload;
+                try {
+                    payload = "\"result\":\"" + aggregate3(input) + "\"";
+                } catch (IllegalStateException e) {
+                    payload = "\"error\":{\"code\":3,\"message\":\"execution reverted\"}";
+                }
+                return new MockResponse()
+                        .setHeader("Content-Type", "application/json")
+                        .setBody("{\"jsonrpc\":\"2.0\",\"id\":1," + payload + "}");
+            } catch (IOException e) {
+                return new MockResponse().setResponseCode(400);
+            }
+        }
+
+        /**
+         * 解析 aggregate3((address,bool,bytes)[]) 调用，逐个执行，返回编码后的 (bool,bytes)[]。
+         */
+        private String aggregate3(byte[] input) {
+            int args = 4;
+            int array = args + word(input, args);
+            int count = word(input, array);
+            List<byte[]> returns = new ArrayList<>();
+            List<Boolean> successes = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                int tuple = array + 32 + word(input, array + 32 + i * 32);
+                String target = Numeric.toHexString(Arrays.copyOfRange(input, tuple + 12, tuple + 32));
+                boolean allowFailure = word(input, tuple + 32) != 0;
+                int bytes = tuple + word(input, tuple + 64);
+                byte[] data = Arrays.copyOfRange(input, bytes + 32, bytes + 32 + word(input, bytes));
+                allowFailures.add(allowFailure);
+
+                String selector = Numeric.toHexString(Arrays.copyOf(data, 4));
+                if (BROKEN.equals(target)) {
+                    if (!allowFailure) {
+                        throw new IllegalStateException("call " + i + " reverted");
+                    }
+                    successes.add(false);
+                    returns.add(Numeric.hexStringToByteArray(revertData(REVERT_REASON)));
+                } else if (BALANCE_OF.equals(selector)) {
+                    String holder = Numeric.toHexString(Arrays.copyOfRange(data, 16, 36));
+                    successes.add(true);
+                    returns.add(Numeric.toBytesPadded(balanceOf(target, holder), 32));
+                } else {
+                    successes.add(true);
+                    returns.add(Numeric.toBytesPadded(BigInteger.valueOf(18), 32));
+                }
+            }
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            writeWord(out, 32);
+            writeWord(out, count);
+            int offset = count * 32;
+            for (byte[] data : returns) {
+                writeWord(out, offset);
+                offset += 96 + (data.length + 31) / 32 * 32;
+            }
+            for (int i = 0; i < count; i++) {
+                byte[] data = returns.get(i);
+                writeWord(out, successes.get(i) ? 1 : 0);
+                writeWord(out, 64);
+                writeWord(out, data.length);
+                out.write(data, 0, data.length);
+                out.write(new byte[(32 - data.length % 32) % 32], 0, (32 - data.length % 32) % 32);
+            }
+            return Numeric.toHexString(out.toByteArray());
+        }
+
+        private static int word(byte[] data, int offset) {
+            return new BigInteger(1, Arrays.copyOfRange(data, offset, offset + 32)).intValueExact();
+        }
+
+        private static void writeWord(ByteArrayOutputStream out, long value) {
+            byte[] word = Numeric.toBytesPadded(BigInteger.valueOf(value), 32);
+            out.write(word, 0, word.length);
+        }
+    }
+}
@@ -0,0 +1,210 @@
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.web3j.crypto.Credentials;
+import org.web3j.crypto.Hash;
+import org.web3j.crypto.TransactionDecoder;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.methods.response.EthSendTransaction;
+import org.web3j.protocol.exceptions.ClientConnectionException;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * NonceManager 和 ManagedNonceTransactionManager 在模拟节点上的 nonce 分配、退回和重新同步。
+ */
+class NonceManagerTest {
+
+    private static final Credentials CREDENTIALS = Credentials.create(
+            "0x4c0883a69102937d6231471b5dbb6204fe5129617082792ae468d01a3f362318");
+    private static final BigInteger GAS_PRICE = BigInteger.valueOf(1_000_000_000L);
+    private static final BigInteger GAS_LIMIT = BigInteger.valueOf(21_000);
+    private static final String RECIPIENT = "0x000000000000000000000000000000000000dead";
+
+    private MockWebServer server;
+    private NonceNode node;
+    private Web3j web3j;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        node = new NonceNode();
+        server = new MockWebServer();
+        server.setDispatcher(node);
+        server.start();
+        web3j = web3j();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    void keepsSeparateCountersPerWeb3j() {
+        NonceManager first = NonceManager.forAccount(web3j, CREDENTIALS.getAddress());
+        assertSame(first, NonceManager.forAccount(web3j, CREDENTIALS.getAddress().toUpperCase().replace("0X", "0x")));
+        assertNotSame(first, NonceManager.forAccount(web3j(), CREDENTIALS.getAddress()));
+    }
+
+    @Test
+    void reusesNonceOfRejectedTransaction() throws IOException {
+        node.pendingNonce.set(7);
+        ManagedNonceTransactionManager manager = new ManagedNonceTransactionManager(web3j, CREDENTIALS, 1);
+        node.rejectNext("insufficient funds for gas * price + value");
+
+        EthSendTransaction rejected = manager.sendTransaction(GAS_PRICE, GAS_LIMIT, RECIPIENT, "", BigInteger.ONE);
+        EthSendTransaction accepted = manager.sendTransaction(GAS_PRICE, GAS_LIMIT, RECIPIENT, "", BigInteger.ONE);
+
+        assertTrue(rejected.hasError());
+        assertFalse(accepted.hasError());
+        assertEquals(Arrays.asList(7L, 7L), node.sentNonces);
+    }
+
+    @Test
+    void settlesNonceOfEip1559Transactions() throws IOException {
+        node.pendingNonce.set(7);
+        ManagedNonceTransactionManager manager = new ManagedNonceTransactionManager(web3j, CREDENTIALS, 1);
+        node.rejectNext("insufficient funds for gas * price + value");
+
+        EthSendTransaction rejected = manager.sendTransactionEIP1559(
+                BigInteger.ONE, GAS_PRICE, GAS_LIMIT, RECIPIENT, "", BigInteger.ONE);
+        EthSendTransaction accepted = manager.sendTransactionEIP1559(
+                BigInteger.ONE, GAS_PRICE, GAS_LIMIT, RECIPIENT, "", BigInteger.ONE);
+
+        assertTrue(rejected.hasError());
+        assertFalse(accepted.hasError());
+        assertEquals(Arrays.asList(7L, 7L), node.sentNonces);
+        // 被接受的 nonce 已确认，不在途，重新同步可以回退计数器
+        node.pendingNonce.set(8);
+        manager.getNonceManager().resync();
+        assertEquals(BigInteger.valueOf(8), manager.getNonceManager().allocate());
+    }
+
+    @Test
+    void fillsGapLeftByRejectedTransactionInTheMiddle() throws IOException {
+        node.pendingNonce.set(3);
+        NonceManager nonceManager = NonceManager.forAccount(web3j, CREDENTIALS.getAddress());
+        BigInteger first = nonceManager.allocate();
+        BigInteger second = nonceManager.allocate();
+        BigInteger third = nonceManager.allocate();
+        nonceManager.confirm(first);
+        nonceManager.confirm(third);
+        nonceManager.release(second);
+
+        assertEquals(second, nonceManager.allocate());
+        assertEquals(BigInteger.valueOf(6), nonceManager.allocate());
+    }
+
+    @Test
+    void resyncDoesNotMoveBelowNoncesInFlight() throws IOException {
+        node.pendingNonce.set(10);
+        NonceManager nonceManager = NonceManager.forAccount(web3j, CREDENTIALS.getAddress());
+        BigInteger inFlight = nonceManager.allocate(5);
+        assertEquals(BigInteger.TEN, inFlight);
+
+        // 节点还没有看到在途的交易，pending nonce 仍然是 10
+        nonceManager.resync();
+        assertEquals(BigInteger.valueOf(15), nonceManager.allocate());
+
+        // 节点的 nonce 更高时前移
+        node.pendingNonce.set(20);
+        nonceManager.resync();
+        assertEquals(BigInteger.valueOf(20), nonceManager.allocate());
+    }
+
+    @Test
+    void resyncsAfterNonceTooLowAndRetries() throws IOException {
+        node.pendingNonce.set(4);
+        ManagedNonceTransactionManager manager = new ManagedNonceTransactionManager(web3j, CREDENTIALS, 1);
+        manager.getNonceManager().allocate();
+        node.pendingNonce.set(9);
+        node.rejectNext("nonce too low");
+
+        EthSendTransaction response = manager.sendTransaction(GAS_PRICE, GAS_LIMIT, RECIPIENT, "", BigInteger.ONE);
+
+        assertFalse(response.hasError());
+        assertEquals(Arrays.asList(5L, 9L), node.sentNonces);
+    }
+
+    @Test
+    void propagatesTransportFailureOnFutureAndReleasesNonce() throws IOException {
+        node.pendingNonce.set(2);
+        ManagedNonceTransactionManager manager = new ManagedNonceTransactionManager(web3j, CREDENTIALS, 1);
+        node.failNextSend = true;
+
+        ExecutionException error = assertThrows(ExecutionException.class, () ->
+                manager.sendTransactionAsync(GAS_PRICE, GAS_LIMIT, RECIPIENT, "", BigInteger.ONE).get());
+        assertTrue(error.getCause() instanceof ClientConnectionException);
+        // 节点没有收到交易，nonce 被退回
+        assertEquals(BigInteger.valueOf(2), manager.getNonceManager().allocate());
+    }
+
+    private Web3j web3j() {
+        return Web3j.build(new RoutingHttpService(
+                Collections.singletonList(server.url("/").toString()), new OkHttpClient()));
+    }
+
+    /**
+     * 只支持 eth_getTransactionCount 和 eth_sendRawTransaction 的模拟节点，记录收到的交易 nonce。
+     */
+    private static final class NonceNode extends Dispatcher {
+        private final AtomicLong pendingNonce = new AtomicLong();
+        private final List<Long> sentNonces = Collections.synchronizedList(new ArrayList<>());
+        private volatile String rejection;
+        private volatile boolean failNextSend;
+
+        void rejectNext(String message) {
+            rejection = message;
+        }
+
+        @Override
+        public MockResponse dispatch(RecordedRequest request) {
+            String body = request.getBody().readUtf8();
+            String method = RpcMetrics.methodName(body);
+            String payload;
+            if ("eth_getTransactionCount".equals(method)) {
+                payload = "\"result\":\"0x" + Long.toHexString(pendingNonce.get()) + "\"";
+            } else if ("eth_sendRawTransaction".equals(method)) {
+                if (failNextSend) {
+                    // 节点返回 HTTP 错误，客户端无法确定交易是否已进入交易池
+                    failNextSend = false;
+                    return new MockResponse().setResponseCode(400);
+                }
+                String signed = body.substring(body.indexOf("[\"") + 2, body.indexOf("\"]"));
+                BigInteger nonce = signed.startsWith("0x02")
+                        ? Eip1559Transaction.decode(signed).getNonce()
+                        : TransactionDecoder.decode(signed).getNonce();
+                sentNonces.add(nonce.longValueExact());
+                String message = rejection;
+                rejection = null;
+                payload = message != null
+                        ? "\"error\":{\"code\":-32000,\"message\":\"" + message + "\"}"
+                        : "\"result\":\"" + Hash.sha3(signed) + "\"";
+            } else {
+                payload = "\"error\":{\"code\":-32601,\"message\":\"method not found\"}";
+            }
+            return new MockResponse()
+                    .setHeader("Content-Type", "application/json")
+                    .setBody("{\"jsonrpc\":\"2.0\",\"id\":1," + payload + "}");
+        }
+    }
+}
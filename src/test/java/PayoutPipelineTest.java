@@ -0,0 +1,271 @@
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.web3j.crypto.Credentials;
+import org.web3j.crypto.Hash;
+import org.web3j.crypto.RawTransaction;
+import org.web3j.crypto.TransactionDecoder;
+import org.web3j.protocol.Web3j;
+import org.web3j.utils.Numeric;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * PayoutPipeline 在模拟节点上的 nonce 结算：填补被拒绝交易留下的空缺、退回末尾的 nonce、重试时的 nonce too low，
+ * 以及节点支持 eth_feeHistory 时按预言机手续费签名 EIP-1559 交易。
+ */
+class PayoutPipelineTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final Credentials CREDENTIALS = Credentials.create(
+            "0x4c0883a69102937d6231471b5dbb6204fe5129617082792ae468d01a3f362318");
+    private static final long START_NONCE = 40;
+    private static final BigInteger BASE_FEE = BigInteger.valueOf(1_000_000_000L);
+    private static final BigInteger PRIORITY_FEE = BigInteger.valueOf(2_000_000_000L);
+
+    private MockWebServer server;
+    private PayoutNode node;
+    private Web3j web3j;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        node = new PayoutNode();
+        server = new MockWebServer();
+        server.setDispatcher(node);
+        server.start();
+        // 每个测试使用新端口，Web3Utils 按节点地址缓存的 Web3j、预言机和 NonceManager 互不影响
+        web3j = Web3Utils.getWeb3j(server.url("/").toString());
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        Web3Utils.getFeeOracle(web3j).stop();
+        server.shutdown();
+    }
+
+    @Test
+    void fillsGapLeftByRejectedPayout() throws IOException {
+        List<PayoutPipeline.Payout> payouts = payouts(5);
+        node.rejected.add(payouts.get(2).getRecipient());
+
+        List<PayoutPipeline.Outcome> outcomes = new PayoutPipeline(web3j, CREDENTIALS).pay(payouts);
+
+        assertFalse(outcomes.get(2).isSuccess());
+        assertEquals(4, outcomes.stream().filter(PayoutPipeline.Outcome::isSuccess).count());
+        // 空缺由发给自己的 0 ETH 交易填补，之后的发放可以打包
+        RawTransaction filler = node.pool.get(START_NONCE + 2);
+        assertEquals(CREDENTIALS.getAddress(), filler.getTo());
+        assertEquals(BigInteger.ZERO, filler.getValue());
+        assertEquals(START_NONCE + 5, node.pendingNonce());
+        assertEquals(BigInteger.valueOf(START_NONCE + 5), nonceManager().allocate());
+    }
+
+    @Test
+    void releasesNonceOfRejectedLastPayout() throws IOException {
+        List<PayoutPipeline.Payout> payouts = payouts(4);
+        node.rejected.add(payouts.get(3).getRecipient());
+
+        List<PayoutPipeline.Outcome> outcomes = new PayoutPipeline(web3j, CREDENTIALS).pay(payouts);
+
+        assertFalse(outcomes.get(3).isSuccess());
+        // 之后没有已提交的交易，不需要补发，nonce 直接给下一笔交易使用
+        assertEquals(3, node.pool.size());
+        assertEquals(BigInteger.valueOf(START_NONCE + 3), nonceManager().allocate());
+    }
+
+    @Test
+    void treatsNonceTooLowOnRetryAsDelivered() throws IOException {
+        List<PayoutPipeline.Payout> payouts = payouts(3);
+        // 节点接受了交易但响应超时，重试时交易已打包
+        node.timeoutOnce.add(payouts.get(1).getRecipient());
+
+        PayoutPipeline.Report outcomes = new PayoutPipeline(web3j, CREDENTIALS).pay(payouts);
+
+        for (PayoutPipeline.Outcome outcome : outcomes) {
+            assertTrue(outcome.isSuccess(), outcome.getError());
+        }
+        // 耗时随结果返回，由调用方决定是否输出
+        assertTrue(outcomes.getTotalDuration().compareTo(outcomes.getSignDuration()) >= 0);
+        assertTrue(outcomes.getTransactionsPerSecond() > 0);
+        assertEquals(2, outcomes.get(1).getAttempts());
+        assertEquals(3, node.pool.size());
+        assertEquals(BigInteger.valueOf(START_NONCE + 3), nonceManager().allocate());
+    }
+
+    @Test
+    void signsEip1559PayoutsWithOracleFees() throws IOException {
+        node.feeHistory = true;
+        List<PayoutPipeline.Payout> payouts = payouts(3);
+        node.rejected.add(payouts.get(1).getRecipient());
+
+        List<PayoutPipeline.Outcome> outcomes = new PayoutPipeline(web3j, CREDENTIALS).pay(payouts);
+
+        assertEquals(2, outcomes.stream().filter(PayoutPipeline.Outcome::isSuccess).count());
+        // 补发交易和发放使用同一份手续费：maxFeePerGas = 2 × 基础费用 + 小费，gasPrice 不再按 maxFeePerGas 全额支付
+        for (RawTransaction transaction : node.pool.values()) {
+            assertNull(transaction.getGasPrice());
+            assertEquals(PRIORITY_FEE, transaction.getGasPremium());
+            assertEquals(BASE_FEE.shiftLeft(1).add(PRIORITY_FEE), transaction.getFeeCap());
+        }
+        assertEquals(3, node.pool.size());
+        assertEquals(CREDENTIALS.getAddress(), node.pool.get(START_NONCE + 1).getTo());
+        assertEquals(outcomes.get(0).getTransactionHash(), node.hashes.get(START_NONCE));
+    }
+
+    @Test
+    void pricesLegacyPayoutsJustAboveGasPrice() throws IOException {
+        new PayoutPipeline(web3j, CREDENTIALS).pay(payouts(1));
+
+        // 节点不支持 eth_feeHistory 时直接使用 eth_gasPrice，不再翻倍
+        assertEquals(BASE_FEE, node.pool.get(START_NONCE).getGasPrice());
+    }
+
+    private NonceManager nonceManager() {
+        return NonceManager.forAccount(web3j, CREDENTIALS.getAddress());
+    }
+
+    private static List<PayoutPipeline.Payout> payouts(int count) {
+        List<PayoutPipeline.Payout> payouts = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            payouts.add(new PayoutPipeline.Payout(String.format("0x%040x", i), BigInteger.valueOf(i)));
+        }
+        return payouts;
+    }
+
+    /**
+     * 模拟节点：交易池按 nonce 保存收到的交易，从 START_NONCE 开始连续的交易视为已打包，
+     * 对已打包的 nonce 返回 nonce too low，对 rejected 中的收款地址返回余额不足；
+     * feeHistory 为 true 时支持 eth_feeHistory，type 2 交易转换成 web3j 的 RawTransaction 保存，手续费在 gasPremium 和 feeCap 中。
+     */
+    private static final class PayoutNode extends Dispatcher {
+        private final Map<Long, RawTransaction> pool = new ConcurrentSkipListMap<>();
+        private final Map<Long, String> hashes = new ConcurrentHashMap<>();
+        private volatile boolean feeHistory;
+        private final Set<String> rejected = ConcurrentHashMap.newKeySet();
+        private final Set<String> timeoutOnce = ConcurrentHashMap.newKeySet();
+
+        synchronized long pendingNonce() {
+            long nonce = START_NONCE;
+            while (pool.containsKey(nonce)) {
+                nonce++;
+            }
+            return nonce;
+        }
+
+        @Override
+        public MockResponse dispatch(RecordedRequest request) {
+            try {
+                JsonNode body = MAPPER.readTree(request.getBody().readUtf8());
+                JsonNode responses;
+                if (body.isArray()) {
+                    ArrayNode batch = MAPPER.createArrayNode();
+                    for (JsonNode call : body) {
+                        batch.add(respond(call));
+                    }
+                    responses = batch;
+                } else {
+                    responses = respond(body);
+                }
+                return new MockResponse()
+                        .setHeader("Content-Type", "application/json")
+                        .setBody(MAPPER.writeValueAsString(responses));
+            } catch (IOException e) {
+                return new MockResponse().setResponseCode(400);
+            }
+        }
+
+        private synchronized ObjectNode respond(JsonNode call) {
+            ObjectNode response = MAPPER.createObjectNode();
+            response.put("jsonrpc", "2.0");
+            response.set("id", call.get("id"));
+            String method = call.get("method").asText();
+            switch (method) {
+                case "eth_chainId":
+                    response.put("result", "0x539");
+                    break;
+                case "eth_gasPrice":
+                    response.put("result", Numeric.encodeQuantity(BASE_FEE));
+                    break;
+                case "eth_feeHistory":
+                    if (!feeHistory) {
+                        error(response, "method not found");
+                        break;
+                    }
+                    ObjectNode history = response.putObject("result");
+                    history.put("oldestBlock", "0x1");
+                    history.putArray("baseFeePerGas")
+                            .add(Numeric.encodeQuantity(BASE_FEE)).add(Numeric.encodeQuantity(BASE_FEE));
+                    history.putArray("gasUsedRatio").add(0.5);
+                    history.putArray("reward").addArray().add(Numeric.encodeQuantity(PRIORITY_FEE));
+                    break;
+                case "eth_blockNumber":
+                    response.put("result", "0x1");
+                    break;
+                case "eth_getTransactionCount":
+                    response.put("result", "0x" + Long.toHexString(pendingNonce()));
+                    break;
+                case "eth_sendRawTransaction":
+                    String signed = call.get("params").get(0).asText();
+                    String error = send(decode(signed), Hash.sha3(signed));
+                    if (error == null) {
+                        response.put("result", Hash.sha3(signed));
+                    } else {
+                        error(response, error);
+                    }
+                    break;
+                default:
+                    error(response, "method not found");
+            }
+            return response;
+        }
+
+        private static RawTransaction decode(String signed) {
+            if (!signed.startsWith("0x02")) {
+                return TransactionDecoder.decode(signed);
+            }
+            Eip1559Transaction transaction = Eip1559Transaction.decode(signed);
+            return RawTransaction.createTransaction(transaction.getNonce(), null, transaction.getGasLimit(),
+                    transaction.getTo(), transaction.getValue(), transaction.getData(),
+                    transaction.getMaxPriorityFeePerGas(), transaction.getMaxFeePerGas());
+        }
+
+        private String send(RawTransaction transaction, String hash) {
+            long nonce = transaction.getNonce().longValueExact();
+            if (nonce < pendingNonce()) {
+                return "nonce too low";
+            }
+            if (rejected.contains(transaction.getTo())) {
+                return "insufficient funds for gas * price + value";
+            }
+            pool.put(nonce, transaction);
+            hashes.put(nonce, hash);
+            return timeoutOnce.remove(transaction.getTo()) ? "request timed out" : null;
+        }
+
+        private static void error(ObjectNode response, String message) {
+            ObjectNode error = response.putObject("error");
+            error.put("code", -32000);
+            error.put("message", message);
+        }
+    }
+}
@@ -0,0 +1,231 @@
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.methods.response.TransactionReceipt;
+import org.web3j.protocol.exceptions.TransactionException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * ReceiptTracker 在模拟节点上的批量查询、超时和交易被丢弃的检查，新区块来自共享轮询器。
+ */
+class ReceiptTrackerTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private MockWebServer server;
+    private ReceiptNode node;
+    private Web3j web3j;
+    private SharedBlockPoller blockPoller;
+    private ReceiptTracker tracker;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        node = new ReceiptNode();
+        server = new MockWebServer();
+        server.setDispatcher(node);
+        server.start();
+        web3j = Web3j.build(new RoutingHttpService(
+                Collections.singletonList(server.url("/").toString()), new OkHttpClient()));
+        blockPoller = new SharedBlockPoller(web3j, 50, TimeUnit.MILLISECONDS);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (tracker != null) {
+            tracker.stop();
+        }
+        server.shutdown();
+    }
+
+    @Test
+    void checksAllPendingTransactionsInOneBatchPerBlock() throws Exception {
+        tracker = new ReceiptTracker(web3j, blockPoller, 600, TimeUnit.SECONDS, 1000);
+        List<String> hashes = Arrays.asList(hash(1), hash(2), hash(3));
+        List<CompletableFuture<TransactionReceipt>> futures = new ArrayList<>();
+        for (String hash : hashes) {
+            futures.add(tracker.track(hash));
+        }
+        // 同一交易重复跟踪时共用一个 Future
+        assertSame(futures.get(0), tracker.track(hash(1)));
+
+        mineUntil(() -> node.receiptBatches.contains(3));
+        node.mined.addAll(hashes);
+        mineUntil(() -> futures.stream().allMatch(CompletableFuture::isDone));
+
+        for (int i = 0; i < hashes.size(); i++) {
+            assertEquals(hashes.get(i), futures.get(i).get().getTransactionHash());
+        }
+        // 全部交易开始跟踪后，每个区块一个包含全部交易的批量请求，不逐笔查询
+        List<Integer> batches = new ArrayList<>(node.receiptBatches);
+        for (int size : batches.subList(batches.indexOf(3), batches.size())) {
+            assertEquals(3, size);
+        }
+        assertEquals(0, node.singleReceipts);
+        assertEquals(0, tracker.getPendingCount());
+    }
+
+    @Test
+    void failsTransactionWithoutReceiptAfterTimeout() throws Exception {
+        tracker = new ReceiptTracker(web3j, blockPoller, 200, TimeUnit.MILLISECONDS, 1000);
+        node.known.add(hash(1));
+        CompletableFuture<TransactionReceipt> future = tracker.track(hash(1));
+
+        mineUntil(future::isDone);
+
+        ExecutionException e = assertThrows(ExecutionException.class, future::get);
+        assertTrue(e.getCause() instanceof TransactionException);
+        assertTrue(e.getCause().getMessage().contains("not generated"), e.getCause().getMessage());
+        assertEquals(0, tracker.getPendingCount());
+    }
+
+    @Test
+    void failsTransactionDroppedFromMempool() throws Exception {
+        tracker = new ReceiptTracker(web3j, blockPoller, 600, TimeUnit.SECONDS, 2);
+        // hash(1) 仍在交易池中，hash(2) 已被丢弃
+        node.known.add(hash(1));
+        CompletableFuture<TransactionReceipt> waiting = tracker.track(hash(1));
+        CompletableFuture<TransactionReceipt> dropped = tracker.track(hash(2));
+
+        mineUntil(dropped::isDone);
+
+        ExecutionException e = assertThrows(ExecutionException.class, dropped::get);
+        assertTrue(e.getCause().getMessage().contains("dropped"), e.getCause().getMessage());
+        assertFalse(waiting.isDone());
+        assertEquals(1, tracker.getPendingCount());
+
+        node.mined.add(hash(1));
+        mineUntil(waiting::isDone);
+        assertEquals(hash(1), waiting.get().getTransactionHash());
+    }
+
+    private static String hash(int i) {
+        return String.format("0x%064x", i);
+    }
+
+    /**
+     * 不断出块直到条件成立，每个新区块都会触发一次检查。
+     */
+    private void mineUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("Condition not reached");
+            }
+            node.head++;
+            Thread.sleep(60);
+        }
+    }
+
+    /**
+     * 模拟节点：返回最新区块号和空区块；mined 中的交易有回执，known 中的交易还在交易池中，
+     * 记录每个批量请求包含的 eth_getTransactionReceipt 数和批量之外的单个查询数。
+     */
+    private static final class ReceiptNode extends Dispatcher {
+        private final Set<String> mined = ConcurrentHashMap.newKeySet();
+        private final Set<String> known = ConcurrentHashMap.newKeySet();
+        private final List<Integer> receiptBatches = Collections.synchronizedList(new ArrayList<>());
+        private volatile int singleReceipts;
+        private volatile long head = 0x10;
+
+        @Override
+        public MockResponse dispatch(RecordedRequest request) {
+            try {
+                JsonNode body = MAPPER.readTree(request.getBody().readUtf8());
+                JsonNode responses;
+                if (body.isArray()) {
+                    ArrayNode batch = MAPPER.createArrayNode();
+                    int receipts = 0;
+                    for (JsonNode call : body) {
+                        if ("eth_getTransactionReceipt".equals(call.get("method").asText())) {
+                            receipts++;
+                        }
+                        batch.add(respond(call));
+                    }
+                    if (receipts > 0) {
+                        receiptBatches.add(receipts);
+                    }
+                    responses = batch;
+                } else {
+                    if ("eth_getTransactionReceipt".equals(body.get("method").asText())) {
+                        singleReceipts++;
+                    }
+                    responses = respond(body);
+                }
+                return new MockResponse()
+                        .setHeader("Content-Type", "application/json")
+                        .setBody(MAPPER.writeValueAsString(responses));
+            } catch (IOException e) {
+                return new MockResponse().setResponseCode(400);
+            }
+        }
+
+        private ObjectNode respond(JsonNode call) {
+            ObjectNode response = MAPPER.createObjectNode();
+            response.put("jsonrpc", "2.0");
+            response.set("id", call.get("id"));
+            JsonNode params = call.get("params");
+            switch (call.get("method").asText()) {
+                case "eth_blockNumber":
+                    response.put("result", "0x" + Long.toHexString(head));
+                    break;
+                case "eth_getBlockByNumber":
+                    ObjectNode block = response.putObject("result");
+                    block.put("number", params.get(0).asText());
+                    block.put("hash", String.format("0x%064x", Long.decode(params.get(0).asText())));
+                    block.putArray("transactions");
+                    break;
+                case "eth_getTransactionReceipt":
+                    String receiptHash = params.get(0).asText();
+                    if (mined.contains(receiptHash)) {
+                        ObjectNode receipt = response.putObject("result");
+                        receipt.put("transactionHash", receiptHash);
+                        receipt.put("blockNumber", "0x" + Long.toHexString(head));
+                        receipt.put("status", "0x1");
+                    } else {
+                        response.putNull("result");
+                    }
+                    break;
+                case "eth_getTransactionByHash":
+                    String transactionHash = params.get(0).asText();
+                    if (known.contains(transactionHash) || mined.contains(transactionHash)) {
+                        response.putObject("result").put("hash", transactionHash);
+                    } else {
+                        response.putNull("result");
+                    }
+                    break;
+                default:
+                    ObjectNode error = response.putObject("error");
+                    error.put("code", -32601);
+                    error.put("message", "method not found");
+            }
+            return response;
+        }
+    }
+}
@@ -0,0 +1,184 @@
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.web3j.protocol.Web3j;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * RoutingHttpService 在两个模拟 JSON-RPC 节点上的路由、故障切换、探测和过滤器绑定。
+ */
+class RoutingHttpServiceTest {
+
+    private final OkHttpClient httpClient = new OkHttpClient.Builder()
+            .readTimeout(2, TimeUnit.SECONDS)
+            .build();
+    private MockWebServer slow;
+    private MockWebServer fast;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        slow = new MockWebServer();
+        slow.setDispatcher(new RpcDispatcher("0x1", 30));
+        slow.start();
+        fast = new MockWebServer();
+        fast.setDispatcher(new RpcDispatcher("0x2", 0));
+        fast.start();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        slow.shutdown();
+        fast.shutdown();
+    }
+
+    @Test
+    void routesToLowestLatencyEndpoint() throws IOException {
+        Web3j web3j = web3j(slow, fast);
+        for (int i = 0; i < 30; i++) {
+            web3j.ethBlockNumber().send();
+        }
+        // 两个节点都还没有延迟数据时按列表顺序先尝试慢节点一次，之后全部发往快节点
+        assertEquals(1, slow.getRequestCount());
+        assertEquals(29, fast.getRequestCount());
+    }
+
+    @Test
+    void probesSlowerEndpointPeriodically() throws IOException {
+        Web3j web3j = web3j(slow, fast);
+        for (int i = 0; i < 128; i++) {
+            web3j.ethBlockNumber().send();
+        }
+        // 首次请求加上第 64、128 次请求的探测
+        assertEquals(3, slow.getRequestCount());
+        assertEquals(125, fast.getRequestCount());
+    }
+
+    @Test
+    void failsOverOnConnectionFailure() throws IOException {
+        MockWebServer down = new MockWebServer();
+        down.start();
+        down.shutdown();
+
+        Web3j web3j = web3j(down, fast);
+        assertEquals(BigInteger.valueOf(2), web3j.ethBlockNumber().send().getBlockNumber());
+        // 失败的节点被隔离，后续请求直接发往可用节点
+        assertEquals(BigInteger.valueOf(2), web3j.ethBlockNumber().send().getBlockNumber());
+        assertEquals(2, fast.getRequestCount());
+    }
+
+    @Test
+    void failsOverOnServerErrorAndRateLimit() throws IOException {
+        for (int code : new int[]{500, 503, 429}) {
+            MockWebServer failing = new MockWebServer();
+            failing.enqueue(new MockResponse().setResponseCode(code));
+            failing.start();
+            try {
+                Web3j web3j = web3j(failing, fast);
+                assertEquals(BigInteger.valueOf(2), web3j.ethBlockNumber().send().getBlockNumber());
+                assertEquals(1, failing.getRequestCount());
+            } finally {
+                failing.shutdown();
+            }
+        }
+    }
+
+    @Test
+    void pinsFilterRequestsToCreatingEndpoint() throws IOException, InterruptedException {
+        Web3j web3j = web3j(slow, fast);
+        // 首个请求发往列表中的第一个节点（慢节点），过滤器在该节点上创建
+        BigInteger filterId = web3j.ethNewBlockFilter().send().getFilterId();
+        for (int i = 0; i < 10; i++) {
+            web3j.ethBlockNumber().send();
+        }
+        assertEquals(1, slow.getRequestCount());
+
+        for (int i = 0; i < 5; i++) {
+            web3j.ethGetFilterChanges(filterId).send();
+        }
+        web3j.ethUninstallFilter(filterId).send();
+        assertEquals(7, slow.getRequestCount());
+        assertEquals("eth_newBlockFilter", methodOf(slow.takeRequest()));
+        for (int i = 0; i < 5; i++) {
+            assertEquals("eth_getFilterChanges", methodOf(slow.takeRequest()));
+        }
+        assertEquals("eth_uninstallFilter", methodOf(slow.takeRequest()));
+
+        // 卸载后恢复普通路由
+        web3j.ethGetFilterChanges(filterId).send();
+        assertEquals(7, slow.getRequestCount());
+    }
+
+    @Test
+    void doesNotResendTransactionAfterServerError() throws IOException {
+        MockWebServer failing = new MockWebServer();
+        failing.enqueue(new MockResponse().setResponseCode(502));
+        failing.start();
+        try {
+            Web3j web3j = web3j(failing, fast);
+            assertThrows(IOException.class, () -> web3j.ethSendRawTransaction("0x01").send());
+            assertEquals(0, fast.getRequestCount());
+        } finally {
+            failing.shutdown();
+        }
+    }
+
+    @Test
+    void resendsTransactionAfterConnectionFailure() throws IOException {
+        MockWebServer down = new MockWebServer();
+        down.start();
+        down.shutdown();
+
+        Web3j web3j = web3j(down, fast);
+        assertEquals("0x2", web3j.ethSendRawTransaction("0x01").send().getTransactionHash());
+        assertEquals(1, fast.getRequestCount());
+    }
+
+    private Web3j web3j(MockWebServer... servers) {
+        String[] urls = new String[servers.length];
+        for (int i = 0; i < servers.length; i++) {
+            urls[i] = servers[i].url("/").toString();
+        }
+        return Web3j.build(new RoutingHttpService(Arrays.asList(urls), httpClient));
+    }
+
+    private static String methodOf(RecordedRequest request) {
+        return request == null ? null : RpcMetrics.methodName(request.getBody().readUtf8());
+    }
+
+    /**
+     * 按方法名返回固定结果的 JSON-RPC 节点，result 同时用作区块号、过滤器 ID 和交易哈希。
+     */
+    private static final class RpcDispatcher extends Dispatcher {
+        private final String result;
+        private final long delayMillis;
+
+        private RpcDispatcher(String result, long delayMillis) {
+            this.result = result;
+            this.delayMillis = delayMillis;
+        }
+
+        @Override
+        public MockResponse dispatch(RecordedRequest request) {
+            String method = RpcMetrics.methodName(request.getBody().clone().readUtf8());
+            String value = "eth_getFilterChanges".equals(method) ? "[]"
+                    : "eth_uninstallFilter".equals(method) ? "true"
+                    : "\"" + result + "\"";
+            return new MockResponse()
+                    .setHeader("Content-Type", "application/json")
+                    .setBody("{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":" + value + "}")
+                    .setHeadersDelay(delayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+}
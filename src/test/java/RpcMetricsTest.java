@@ -0,0 +1,71 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * RpcMetrics 对 JSON-RPC 错误响应的计数。
+ */
+class RpcMetricsTest {
+
+    private static final String CALL = "{\"jsonrpc\":\"2.0\",\"method\":\"eth_call\",\"params\":[],\"id\":1}";
+    private static final String BATCH = "[" + CALL + "," + CALL + "]";
+
+    @Test
+    void countsErrorMemberAsError() throws IOException {
+        RpcMetrics metrics = new RpcMetrics();
+        respond(metrics, CALL, "{\"jsonrpc\":\"2.0\",\"id\":1,\"error\":{\"code\":3,\"message\":\"execution reverted\"}}");
+        respond(metrics, CALL, "{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":\"0x01\"}");
+
+        RpcMetrics.MethodSnapshot snapshot = metrics.snapshot("eth_call");
+        assertEquals(2, snapshot.getRequests());
+        assertEquals(1, snapshot.getErrors());
+        assertEquals(0, snapshot.getInFlight());
+    }
+
+    @Test
+    void ignoresErrorTextInsideResults() throws IOException {
+        RpcMetrics metrics = new RpcMetrics();
+        // 结果中的字符串值和嵌套对象的成员名不是 JSON-RPC 错误
+        respond(metrics, CALL, "{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":\"error\"}");
+        respond(metrics, CALL, "{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":{\"error\":null,\"errors\":[]}}");
+        respond(metrics, CALL, "{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":\"\\\"error\\\":\"}");
+
+        assertEquals(0, metrics.snapshot("eth_call").getErrors());
+    }
+
+    @Test
+    void countsBatchWithAnyFailedElementOnce() throws IOException {
+        RpcMetrics metrics = new RpcMetrics();
+        respond(metrics, BATCH, "[{\"id\":1,\"result\":\"0x\"},{\"id\":2,\"error\":{\"code\":-32000,\"message\":\"x\"}}]");
+        respond(metrics, BATCH, "[{\"id\":1,\"result\":\"0x\"},{\"id\":2,\"result\":{\"error\":1}}]");
+
+        RpcMetrics.MethodSnapshot snapshot = metrics.snapshot(RpcMetrics.BATCH_METHOD);
+        assertEquals(2, snapshot.getRequests());
+        assertEquals(1, snapshot.getErrors());
+    }
+
+    @Test
+    void countsTransportFailureOnce() {
+        RpcMetrics metrics = new RpcMetrics();
+        RpcMetrics.Call call = metrics.begin(CALL);
+        call.fail();
+        call.fail();
+
+        assertEquals(1, metrics.snapshot("eth_call").getErrors());
+    }
+
+    private static void respond(RpcMetrics metrics, String payload, String response) throws IOException {
+        try (InputStream in = metrics.begin(payload).wrap(
+                new ByteArrayInputStream(response.getBytes(StandardCharsets.UTF_8)))) {
+            byte[] buffer = new byte[7];
+            while (in.read(buffer, 0, buffer.length) >= 0) {
+                // 按小块读取，覆盖成员名跨越读取边界的情况
+            }
+        }
+    }
+}
@@ -0,0 +1,73 @@
+import org.junit.jupiter.api.Test;
+import org.web3j.crypto.Credentials;
+import org.web3j.crypto.ECKeyPair;
+import org.web3j.crypto.Sign;
+import org.web3j.utils.Numeric;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * SignatureVerifier 的缓存不受调用方修改输入或返回数组的影响。
+ */
+class SignatureVerifierTest {
+
+    private static final ECKeyPair KEY_PAIR = Credentials.create(
+            "0x4c0883a69102937d6231471b5dbb6204fe5129617082792ae468d01a3f362318").getEcKeyPair();
+    private static final byte[] ADDRESS = Numeric.hexStringToByteArray(Credentials.create(KEY_PAIR).getAddress());
+
+    @Test
+    void cacheKeepsCopyOfReusedInputBuffers() {
+        SignatureVerifier verifier = new SignatureVerifier(1024, 1);
+        byte[] firstHash = SignatureVerifier.prefixedMessageHash("first".getBytes(StandardCharsets.UTF_8));
+        byte[] secondHash = SignatureVerifier.prefixedMessageHash("second".getBytes(StandardCharsets.UTF_8));
+        byte[] firstSignature = sign(firstHash);
+
+        // 调用方复用同一组缓冲区验证不同的消息
+        byte[] hashBuffer = firstHash.clone();
+        byte[] signatureBuffer = firstSignature.clone();
+        assertTrue(verifier.verify(hashBuffer, signatureBuffer, ADDRESS));
+
+        System.arraycopy(secondHash, 0, hashBuffer, 0, hashBuffer.length);
+        System.arraycopy(sign(secondHash), 0, signatureBuffer, 0, signatureBuffer.length);
+        assertTrue(verifier.verify(hashBuffer, signatureBuffer, ADDRESS));
+
+        // 第一条签名仍然命中自己的缓存条目，而不是被改写后的键
+        assertTrue(verifier.verify(firstHash, firstSignature, ADDRESS));
+        assertEquals(2, verifier.getRecoveries());
+        assertEquals(1, verifier.getCacheHits());
+
+        // 被修改过的缓冲区不能命中原来的签名
+        hashBuffer[0] ^= 1;
+        assertFalse(verifier.verify(hashBuffer, firstSignature, ADDRESS));
+    }
+
+    @Test
+    void returnedAddressCannotCorruptCache() {
+        SignatureVerifier verifier = new SignatureVerifier(1024, 1);
+        byte[] hash = SignatureVerifier.prefixedMessageHash("message".getBytes(StandardCharsets.UTF_8));
+        byte[] signature = sign(hash);
+
+        byte[] recovered = verifier.recoverAddress(hash, signature);
+        assertArrayEquals(ADDRESS, recovered);
+        Arrays.fill(recovered, (byte) 0);
+
+        byte[] cached = verifier.recoverAddress(hash, signature);
+        assertArrayEquals(ADDRESS, cached);
+        assertEquals(1, verifier.getCacheHits());
+    }
+
+    private static byte[] sign(byte[] messageHash) {
+        Sign.SignatureData data = Sign.signMessage(messageHash, KEY_PAIR, false);
+        byte[] signature = new byte[65];
+        System.arraycopy(data.getR(), 0, signature, 0, 32);
+        System.arraycopy(data.getS(), 0, signature, 32, 32);
+        signature[64] = data.getV()[0];
+        return signature;
+    }
+}
@@ -0,0 +1,175 @@
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.core.methods.request.EthFilter;
+import org.web3j.protocol.core.methods.response.Log;
+import org.web3j.protocol.core.methods.response.Transaction;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * StreamingRpc 的响应在数组中途断开时的行为：游标抛出错误，回放和日志扫描重新请求并跳过已交付的对象。
+ */
+class StreamingRpcTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final long BLOCK = 0x100;
+    // 足够多的对象，使响应的前半部分落在数组中间
+    private static final int ITEMS = 60;
+
+    private MockWebServer server;
+    private TruncatingNode node;
+    private Web3j web3j;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        node = new TruncatingNode();
+        server = new MockWebServer();
+        server.setDispatcher(node);
+        server.start();
+        // 流式调用需要 Web3Utils 创建的实例；每个测试使用新端口，互不影响
+        web3j = Web3Utils.getWeb3j(server.url("/").toString());
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    void cursorFailsWhenResponseIsCutMidArray() throws IOException {
+        node.truncations.set(1);
+        StreamingRpc rpc = new StreamingRpc(Web3Utils.getService(web3j));
+
+        List<Transaction> read = new ArrayList<>();
+        assertThrows(IOException.class, () -> {
+            try (StreamingRpc.Cursor<Transaction> cursor = rpc.openBlockTransactions(BLOCK)) {
+                Transaction transaction;
+                while ((transaction = cursor.next()) != null) {
+                    read.add(transaction);
+                }
+            }
+        });
+        // 断开前已经解析出一部分交易，但没有读完
+        assertTrue(read.size() > 0 && read.size() < ITEMS, "read " + read.size());
+    }
+
+    @Test
+    void replayResumesBlockWithoutDuplicates() {
+        node.truncations.set(1);
+
+        List<String> hashes = new ArrayList<>();
+        new ParallelBlockReplayer(web3j).replayTransactionsStreaming(BLOCK, BLOCK)
+                .blockingForEach(transaction -> hashes.add(transaction.getHash()));
+
+        assertEquals(expectedHashes(), hashes);
+        assertEquals(2, node.requests.get());
+    }
+
+    @Test
+    void logScanResumesRangeWithoutDuplicates() throws IOException {
+        node.truncations.set(1);
+        EthFilter filter = new EthFilter(DefaultBlockParameterName.EARLIEST, DefaultBlockParameterName.LATEST,
+                "0x00000000000000000000000000000000000000aa");
+
+        List<String> hashes = new ArrayList<>();
+        new LogScanner(web3j).scanStreaming(filter, BLOCK, BLOCK, new LogScanner.LogHandler() {
+            @Override
+            public void onLog(Log log) {
+                hashes.add(log.getTransactionHash());
+            }
+        });
+
+        assertEquals(expectedHashes(), hashes);
+        assertEquals(2, node.requests.get());
+    }
+
+    private static List<String> expectedHashes() {
+        List<String> hashes = new ArrayList<>(ITEMS);
+        for (int i = 0; i < ITEMS; i++) {
+            hashes.add(hash(i));
+        }
+        return hashes;
+    }
+
+    private static String hash(int i) {
+        return String.format("0x%064x", i + 1);
+    }
+
+    /**
+     * 返回一个区块的交易或日志的模拟节点；truncations 次数内的响应在发送一半后断开连接。
+     */
+    private static final class TruncatingNode extends Dispatcher {
+        private final AtomicInteger truncations = new AtomicInteger();
+        private final AtomicInteger requests = new AtomicInteger();
+
+        @Override
+        public MockResponse dispatch(RecordedRequest request) {
+            try {
+                JsonNode call = MAPPER.readTree(request.getBody().readUtf8());
+                String method = call.get("method").asText();
+                ObjectNode response = MAPPER.createObjectNode();
+                response.put("jsonrpc", "2.0");
+                response.set("id", call.get("id"));
+                if ("eth_getBlockByNumber".equals(method)) {
+                    ObjectNode block = response.putObject("result");
+                    block.put("number", "0x" + Long.toHexString(BLOCK));
+                    block.put("hash", String.format("0x%064x", BLOCK));
+                    ArrayNode transactions = block.putArray("transactions");
+                    for (int i = 0; i < ITEMS; i++) {
+                        ObjectNode transaction = transactions.addObject();
+                        transaction.put("hash", hash(i));
+                        transaction.put("blockNumber", "0x" + Long.toHexString(BLOCK));
+                        transaction.put("transactionIndex", "0x" + Integer.toHexString(i));
+                        transaction.put("nonce", "0x" + Integer.toHexString(i));
+                        transaction.put("input", "0x");
+                    }
+                } else if ("eth_getLogs".equals(method)) {
+                    ArrayNode logs = response.putArray("result");
+                    for (int i = 0; i < ITEMS; i++) {
+                        ObjectNode log = logs.addObject();
+                        log.put("blockNumber", "0x" + Long.toHexString(BLOCK));
+                        log.put("blockHash", String.format("0x%064x", BLOCK));
+                        log.put("logIndex", "0x" + Integer.toHexString(i));
+                        log.put("transactionHash", hash(i));
+                        log.put("address", "0x00000000000000000000000000000000000000aa");
+                        log.put("data", "0x");
+                        log.set("topics", MAPPER.createArrayNode());
+                    }
+                } else {
+                    ObjectNode error = response.putObject("error");
+                    error.put("code", -32601);
+                    error.put("message", "method not found");
+                }
+                requests.incrementAndGet();
+                MockResponse mock = new MockResponse()
+                        .setHeader("Content-Type", "application/json")
+                        .setBody(MAPPER.writeValueAsString(response));
+                if (truncations.getAndDecrement() > 0) {
+                    mock.setSocketPolicy(SocketPolicy.DISCONNECT_DURING_RESPONSE_BODY);
+                }
+                return mock;
+            } catch (IOException e) {
+                return new MockResponse().setResponseCode(400);
+            }
+        }
+    }
+}
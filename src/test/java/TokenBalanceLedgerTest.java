@@ -0,0 +1,180 @@
+import org.junit.jupiter.api.Test;
+import org.web3j.utils.Numeric;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * TokenBalanceLedger 的 long 余额和 BigInteger 溢出表之间的切换、OVERFLOW 哨兵值、扩容、快照隔离和 topHolders。
+ */
+class TokenBalanceLedgerTest {
+
+    private static final int ZERO = 0;
+    private static final BigInteger LONG_MAX = BigInteger.valueOf(Long.MAX_VALUE);
+    private static final BigInteger LONG_MIN = BigInteger.valueOf(Long.MIN_VALUE);
+
+    @Test
+    void tracksBalancesAndSupplyInPackedLongs() {
+        TokenBalanceLedger ledger = new TokenBalanceLedger();
+        ledger.apply(transfer(ZERO, 1, 100, 5));
+        ledger.apply(transfer(1, 2, 30, 6));
+        ledger.apply(transfer(2, ZERO, 10, 7));
+        // Approval 不影响余额
+        ledger.apply(new TokenTransferRecord(TokenTransferRecord.APPROVAL, 8, 0, payload(1, 2, BigInteger.TEN)));
+
+        assertEquals(BigInteger.valueOf(70), ledger.balanceOf(address(1)));
+        assertEquals(BigInteger.valueOf(20), ledger.balanceOf(Numeric.toHexString(address(2))));
+        assertEquals(BigInteger.ZERO, ledger.balanceOf(address(ZERO)));
+        assertEquals(BigInteger.valueOf(90), ledger.getTotalSupply());
+        assertEquals(2, ledger.getHolderCount());
+        assertEquals(7, ledger.getBlockNumber());
+        assertEquals(3, ledger.getAppliedCount());
+
+        // 重组撤回时反向应用，余额回到转账之前
+        ledger.apply(transfer(1, 2, 30, 6).reversed());
+        assertEquals(BigInteger.valueOf(100), ledger.balanceOf(address(1)));
+        assertEquals(BigInteger.valueOf(-10), ledger.balanceOf(address(2)));
+    }
+
+    @Test
+    void fallsBackToBigIntegerOutsideLongRange() {
+        TokenBalanceLedger ledger = new TokenBalanceLedger();
+        ledger.apply(transfer(ZERO, 1, LONG_MAX, 1));
+        ledger.apply(transfer(ZERO, 1, BigInteger.ONE, 2));
+        assertEquals(LONG_MAX.add(BigInteger.ONE), ledger.balanceOf(address(1)));
+
+        // 余额回到 long 范围后重新存为 long
+        ledger.apply(transfer(1, 2, BigInteger.ONE, 3));
+        assertEquals(LONG_MAX, ledger.balanceOf(address(1)));
+
+        // 单笔金额超出 long 范围
+        BigInteger huge = BigInteger.ONE.shiftLeft(100);
+        ledger.apply(transfer(ZERO, 3, huge, 4));
+        ledger.apply(transfer(3, 2, huge.subtract(BigInteger.ONE), 5));
+        assertEquals(BigInteger.ONE, ledger.balanceOf(address(3)));
+        assertEquals(huge, ledger.balanceOf(address(2)));
+        assertEquals(LONG_MAX.add(BigInteger.ONE).add(huge), ledger.getTotalSupply());
+    }
+
+    @Test
+    void keepsLongMinValueOutOfPackedSlot() {
+        TokenBalanceLedger ledger = new TokenBalanceLedger();
+        // 没有转入就转出的地址余额为负，恰好等于 Long.MIN_VALUE 时不能与 OVERFLOW 哨兵值混淆
+        ledger.apply(transfer(1, 2, LONG_MAX, 1));
+        ledger.apply(transfer(1, 2, BigInteger.ONE, 2));
+        assertEquals(LONG_MIN, ledger.balanceOf(address(1)));
+
+        ledger.apply(transfer(1, 2, BigInteger.ONE, 3));
+        assertEquals(LONG_MIN.subtract(BigInteger.ONE), ledger.balanceOf(address(1)));
+
+        ledger.apply(transfer(2, 1, BigInteger.valueOf(2), 4));
+        assertEquals(LONG_MIN.add(BigInteger.ONE), ledger.balanceOf(address(1)));
+        assertEquals(LONG_MAX, ledger.balanceOf(address(2)));
+    }
+
+    @Test
+    void resizeKeepsPackedAndOverflowBalances() {
+        TokenBalanceLedger ledger = new TokenBalanceLedger(1);
+        long initialBytes = ledger.getTableBytes();
+        BigInteger huge = BigInteger.ONE.shiftLeft(80);
+        ledger.apply(transfer(ZERO, 1, huge, 1));
+        for (int id = 2; id <= 5000; id++) {
+            ledger.apply(transfer(ZERO, id, id, id));
+        }
+
+        assertTrue(ledger.getTableBytes() > initialBytes);
+        assertEquals(5000, ledger.getHolderCount());
+        assertEquals(huge, ledger.balanceOf(address(1)));
+        for (int id = 2; id <= 5000; id++) {
+            assertEquals(BigInteger.valueOf(id), ledger.balanceOf(address(id)));
+        }
+    }
+
+    @Test
+    void snapshotIsIsolatedFromLaterTransfers() {
+        TokenBalanceLedger ledger = new TokenBalanceLedger(1);
+        ledger.apply(transfer(ZERO, 1, 50, 1));
+        ledger.apply(transfer(ZERO, 2, LONG_MAX, 2));
+        TokenBalanceLedger.Snapshot snapshot = ledger.snapshot();
+
+        ledger.apply(transfer(1, 3, 20, 3));
+        ledger.apply(transfer(ZERO, 2, BigInteger.ONE, 4));
+        // 快照之后的扩容也不影响快照
+        for (int id = 10; id < 100; id++) {
+            ledger.apply(transfer(ZERO, id, 1, 5));
+        }
+
+        assertEquals(2, snapshot.getBlockNumber());
+        assertEquals(BigInteger.valueOf(50), snapshot.balanceOf(address(1)));
+        assertEquals(LONG_MAX, snapshot.balanceOf(address(2)));
+        assertEquals(BigInteger.ZERO, snapshot.balanceOf(address(3)));
+        assertEquals(2, snapshot.getHolderCount());
+        assertEquals(LONG_MAX.add(BigInteger.valueOf(50)), snapshot.getTotalSupply());
+        assertEquals(BigInteger.valueOf(30), ledger.balanceOf(address(1)));
+        assertEquals(LONG_MAX.add(BigInteger.ONE), ledger.balanceOf(address(2)));
+    }
+
+    @Test
+    void topHoldersOrdersByBalanceAndSkipsEmptyAccounts() {
+        TokenBalanceLedger ledger = new TokenBalanceLedger();
+        ledger.apply(transfer(ZERO, 1, 10, 1));
+        ledger.apply(transfer(ZERO, 2, LONG_MAX, 1));
+        ledger.apply(transfer(ZERO, 2, BigInteger.ONE, 1));
+        ledger.apply(transfer(ZERO, 3, 30, 1));
+        ledger.apply(transfer(ZERO, 4, 20, 1));
+        // 地址 5 的余额归零
+        ledger.apply(transfer(ZERO, 5, 40, 1));
+        ledger.apply(transfer(5, ZERO, 40, 2));
+
+        assertEquals(Arrays.asList(hex(2), hex(3), hex(4)), addresses(ledger.topHolders(3)));
+        assertEquals(LONG_MAX.add(BigInteger.ONE), ledger.topHolders(1).get(0).getBalance());
+        assertEquals(Arrays.asList(hex(2), hex(3), hex(4), hex(1)), addresses(ledger.topHolders(10)));
+        assertEquals(Collections.emptyList(), ledger.topHolders(0));
+        assertEquals(addresses(ledger.topHolders(10)), addresses(ledger.snapshot().topHolders(10)));
+    }
+
+    private static TokenTransferRecord transfer(int from, int to, long amount, long block) {
+        return transfer(from, to, BigInteger.valueOf(amount), block);
+    }
+
+    private static TokenTransferRecord transfer(int from, int to, BigInteger amount, long block) {
+        return new TokenTransferRecord(TokenTransferRecord.TRANSFER, block, 0, payload(from, to, amount));
+    }
+
+    private static byte[] payload(int from, int to, BigInteger amount) {
+        byte[] payload = new byte[TokenTransferRecord.PAYLOAD_LENGTH];
+        System.arraycopy(address(from), 0, payload, TokenTransferRecord.FROM_OFFSET, TokenTransferRecord.ADDRESS_LENGTH);
+        System.arraycopy(address(to), 0, payload, TokenTransferRecord.TO_OFFSET, TokenTransferRecord.ADDRESS_LENGTH);
+        System.arraycopy(Numeric.toBytesPadded(amount, TokenTransferRecord.AMOUNT_LENGTH), 0,
+                payload, TokenTransferRecord.AMOUNT_OFFSET, TokenTransferRecord.AMOUNT_LENGTH);
+        return payload;
+    }
+
+    /**
+     * 编号为 id 的测试地址，0 为零地址；前缀相同，只有最后 4 个字节不同。
+     */
+    private static byte[] address(int id) {
+        byte[] address = new byte[TokenTransferRecord.ADDRESS_LENGTH];
+        if (id != ZERO) {
+            address[0] = (byte) 0xab;
+        }
+        for (int i = 0; i < 4; i++) {
+            address[TokenTransferRecord.ADDRESS_LENGTH - 1 - i] = (byte) (id >>> (8 * i));
+        }
+        return address;
+    }
+
+    private static String hex(int id) {
+        return Numeric.toHexString(address(id));
+    }
+
+    private static List<String> addresses(List<TokenBalanceLedger.Holder> holders) {
+        return holders.stream().map(TokenBalanceLedger.Holder::getAddress).collect(Collectors.toList());
+    }
+}
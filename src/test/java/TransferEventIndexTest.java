@@ -0,0 +1,189 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * TransferEventIndex 的 postings 段持久化和合并、重新打开后的地址查询和未提交记录的可见性。
+ */
+class TransferEventIndexTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void addressQueriesSurviveReopen() throws IOException {
+        try (TransferEventIndex index = TransferEventIndex.open(directory)) {
+            index.append(record(100, 0, 1, 2));
+            index.append(record(100, 1, 3, 1));
+            index.checkpoint(100);
+            // 第二个检查点写出与第一个段层级相同的段，两者合并成一个段
+            index.append(record(101, 0, 2, 4));
+            index.append(record(102, 0, 1, 1));
+            index.checkpoint(102);
+        }
+        assertEquals(1, postingsFiles().size());
+
+        try (TransferEventIndex index = TransferEventIndex.open(directory)) {
+            assertEquals(102, index.getCheckpoint());
+            assertEquals(keys(record(100, 0, 1, 2), record(100, 1, 3, 1), record(102, 0, 1, 1)),
+                    keys(index.queryAddress(address(1))));
+            assertEquals(keys(record(100, 0, 1, 2), record(101, 0, 2, 4)), keys(index.queryAddress(address(2))));
+            assertEquals(keys(record(101, 0, 2, 4)), keys(index.queryAddress(address(4))));
+            assertTrue(index.queryAddress(address(9)).isEmpty());
+
+            // 重新打开后追加的记录在内存索引中，与 postings 文件中的记录一起按写入顺序返回
+            index.append(record(103, 0, 5, 1));
+            index.checkpoint(103);
+            assertEquals(4, index.queryAddress(address(1)).size());
+            assertEquals(keys(record(103, 0, 5, 1)), keys(index.queryAddress(address(5))));
+        }
+    }
+
+    @Test
+    void queriesExcludeUncommittedRecords() throws IOException {
+        try (TransferEventIndex index = TransferEventIndex.open(directory)) {
+            index.append(record(100, 0, 1, 2));
+            index.checkpoint(100);
+            index.append(record(101, 0, 1, 3));
+
+            assertEquals(2, index.size());
+            assertEquals(1, index.queryAddress(address(1)).size());
+            assertTrue(index.queryAddress(address(3)).isEmpty());
+            assertEquals(1, index.queryBlocks(0, 200).size());
+
+            index.checkpoint(101);
+            assertEquals(2, index.queryAddress(address(1)).size());
+            assertEquals(2, index.queryBlocks(0, 200).size());
+        }
+    }
+
+    @Test
+    void dropsUncommittedRecordsOnReopen() throws IOException {
+        try (TransferEventIndex index = TransferEventIndex.open(directory)) {
+            index.append(record(100, 0, 1, 2));
+            index.checkpoint(100);
+            index.append(record(101, 0, 1, 3));
+        }
+        try (TransferEventIndex index = TransferEventIndex.open(directory)) {
+            assertEquals(1, index.size());
+            assertEquals(1, index.queryAddress(address(1)).size());
+            assertTrue(index.queryAddress(address(3)).isEmpty());
+        }
+    }
+
+    @Test
+    void checkpointWithoutNewRecordsWritesNoPostings() throws IOException {
+        try (TransferEventIndex index = TransferEventIndex.open(directory)) {
+            index.append(record(100, 0, 1, 2));
+            index.checkpoint(100);
+            List<Path> before = postingsFiles();
+
+            // 没有新事件的区块只推进检查点
+            index.checkpoint(101);
+            index.checkpoint(102);
+
+            assertEquals(before, postingsFiles());
+            assertEquals(102, index.getCheckpoint());
+        }
+    }
+
+    @Test
+    void mergesSegmentsOfEqualLevelAndKeepsQueryOrder() throws IOException {
+        int checkpoints = 37;
+        try (TransferEventIndex index = TransferEventIndex.open(directory)) {
+            for (int block = 0; block < checkpoints; block++) {
+                index.append(record(block, 0, 1 + block % 3, 7));
+                index.checkpoint(block);
+                // 段数等于检查点次数的二进制表示中 1 的个数
+                assertEquals(Integer.bitCount(block + 1), index.getPostingsSegmentCount());
+            }
+            assertEquals(Integer.bitCount(checkpoints), postingsFiles().size());
+        }
+        try (TransferEventIndex index = TransferEventIndex.open(directory)) {
+            List<TokenTransferRecord> all = index.queryAddress(address(7));
+            assertEquals(checkpoints, all.size());
+            for (int block = 0; block < checkpoints; block++) {
+                assertEquals(block, all.get(block).getBlockNumber());
+            }
+            assertEquals(13, index.queryAddress(address(1)).size());
+            assertEquals(12, index.queryAddress(address(3)).size());
+        }
+    }
+
+    @Test
+    void ignoresSegmentsWrittenAfterLastCheckpoint() throws IOException {
+        try (TransferEventIndex index = TransferEventIndex.open(directory)) {
+            index.append(record(100, 0, 1, 2));
+            index.checkpoint(100);
+        }
+        // 模拟写入 postings 段后、提交检查点前崩溃：把检查点文件换回上一个版本
+        Path checkpoint = directory.resolve("checkpoint");
+        byte[] committed = Files.readAllBytes(checkpoint);
+        try (TransferEventIndex index = TransferEventIndex.open(directory)) {
+            index.append(record(101, 0, 1, 3));
+            index.checkpoint(101);
+        }
+        Files.write(checkpoint, committed);
+
+        try (TransferEventIndex index = TransferEventIndex.open(directory)) {
+            assertEquals(100, index.getCheckpoint());
+            assertEquals(1, index.queryAddress(address(1)).size());
+            assertTrue(index.queryAddress(address(3)).isEmpty());
+
+            index.append(record(101, 0, 1, 4));
+            index.checkpoint(101);
+            assertEquals(keys(record(100, 0, 1, 2), record(101, 0, 1, 4)), keys(index.queryAddress(address(1))));
+        }
+    }
+
+    private List<Path> postingsFiles() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "addresses-*.idx")) {
+            for (Path file : stream) {
+                files.add(file);
+            }
+        }
+        Collections.sort(files);
+        return files;
+    }
+
+    private static TokenTransferRecord record(long block, int logIndex, int from, int to) {
+        byte[] payload = new byte[TokenTransferRecord.PAYLOAD_LENGTH];
+        System.arraycopy(address(from), 0, payload, TokenTransferRecord.FROM_OFFSET, TokenTransferRecord.ADDRESS_LENGTH);
+        System.arraycopy(address(to), 0, payload, TokenTransferRecord.TO_OFFSET, TokenTransferRecord.ADDRESS_LENGTH);
+        payload[TokenTransferRecord.PAYLOAD_LENGTH - 1] = (byte) (block + logIndex);
+        return new TokenTransferRecord(TokenTransferRecord.TRANSFER, block, logIndex, payload);
+    }
+
+    /**
+     * 首字节和末字节都不同的测试地址，覆盖按无符号字节序排序。
+     */
+    private static byte[] address(int id) {
+        byte[] address = new byte[TokenTransferRecord.ADDRESS_LENGTH];
+        address[0] = (byte) (0xf0 - id * 16);
+        address[TokenTransferRecord.ADDRESS_LENGTH - 1] = (byte) id;
+        return address;
+    }
+
+    private static List<String> keys(TokenTransferRecord... records) {
+        List<String> keys = new ArrayList<>();
+        for (TokenTransferRecord record : records) {
+            keys.add(record.getBlockNumber() + ":" + record.getLogIndex());
+        }
+        return keys;
+    }
+
+    private static List<String> keys(List<TokenTransferRecord> records) {
+        return keys(records.toArray(new TokenTransferRecord[0]));
+    }
+}
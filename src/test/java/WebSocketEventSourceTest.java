@@ -0,0 +1,270 @@
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.reactivex.subscribers.TestSubscriber;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.java_websocket.WebSocket;
+import org.java_websocket.handshake.ClientHandshake;
+import org.java_websocket.server.WebSocketServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.core.methods.request.EthFilter;
+import org.web3j.protocol.core.methods.response.Log;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * WebSocketEventSource 在本地 WebSocket 节点上的日志订阅：removed 标记、按（区块哈希，logIndex）去重和断线补齐。
+ */
+class WebSocketEventSourceTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final String CONTRACT = "0x00000000000000000000000000000000000000aa";
+    private static final String HASH_A = "0x" + repeat('a');
+    private static final String HASH_B = "0x" + repeat('b');
+
+    private MockWebServer http;
+    private HistoryNode history;
+    private WsNode ws;
+    private WebSocketEventSource source;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        history = new HistoryNode();
+        http = new MockWebServer();
+        http.setDispatcher(history);
+        http.start();
+        ws = new WsNode();
+        ws.start();
+        assertTrue(ws.started.await(5, TimeUnit.SECONDS));
+        Web3j web3j = Web3j.build(new RoutingHttpService(
+                Collections.singletonList(http.url("/").toString()), new OkHttpClient()));
+        source = new WebSocketEventSource("ws://localhost:" + ws.getPort(), web3j);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        ws.stop(1000);
+        http.shutdown();
+    }
+
+    @Test
+    void carriesRemovedFlagAndDedupesByBlockHash() throws Exception {
+        TestSubscriber<Log> logs = source.logFlowable(filter()).test();
+        ws.awaitSubscriptions(1);
+
+        ws.push(log(0x11, HASH_A, 0, false));
+        ws.push(log(0x11, HASH_A, 0, false));
+        // 重组撤回区块 A 中的日志，区块 B 在同一高度、同一 logIndex 上产生新的日志
+        ws.push(log(0x11, HASH_A, 0, true));
+        ws.push(log(0x11, HASH_B, 0, false));
+
+        logs.awaitCount(3);
+        assertEquals("0x11/a/0/false 0x11/a/0/true 0x11/b/0/false", summary(logs.values()));
+        logs.dispose();
+    }
+
+    @Test
+    void backfillsAfterReconnectWithoutDuplicates() throws Exception {
+        TestSubscriber<Log> logs = source.logFlowable(filter()).test();
+        ws.awaitSubscriptions(1);
+        ws.push(log(0x11, HASH_A, 0, false));
+        logs.awaitCount(1);
+
+        // 断线期间区块 0x11 和 0x12 中又出现了日志，重连后从 0x11 开始补齐
+        history.head = 0x12;
+        history.logs.add(log(0x11, HASH_A, 0, false));
+        history.logs.add(log(0x11, HASH_A, 1, false));
+        history.logs.add(log(0x12, HASH_B, 0, false));
+        ws.dropConnections();
+        ws.awaitSubscriptions(2);
+
+        ws.push(log(0x12, HASH_B, 0, false));
+        ws.push(log(0x13, HASH_A, 0, false));
+
+        logs.awaitCount(4);
+        assertEquals("0x11/a/0/false 0x11/a/1/false 0x12/b/0/false 0x13/a/0/false", summary(logs.values()));
+        logs.dispose();
+    }
+
+    private static EthFilter filter() {
+        return new EthFilter(DefaultBlockParameterName.LATEST, DefaultBlockParameterName.LATEST, CONTRACT);
+    }
+
+    private static ObjectNode log(long block, String blockHash, int logIndex, boolean removed) {
+        ObjectNode log = MAPPER.createObjectNode();
+        log.put("removed", removed);
+        log.put("logIndex", "0x" + Integer.toHexString(logIndex));
+        log.put("transactionIndex", "0x0");
+        log.put("transactionHash", "0x" + repeat('c'));
+        log.put("blockHash", blockHash);
+        log.put("blockNumber", "0x" + Long.toHexString(block));
+        log.put("address", CONTRACT);
+        log.put("data", "0x");
+        log.putArray("topics").add("0x" + repeat('d'));
+        return log;
+    }
+
+    private static String summary(List<Log> logs) {
+        StringBuilder summary = new StringBuilder();
+        for (Log log : logs) {
+            if (summary.length() > 0) {
+                summary.append(' ');
+            }
+            summary.append("0x").append(log.getBlockNumber().toString(16))
+                    .append('/').append(log.getBlockHash().charAt(2))
+                    .append('/').append(log.getLogIndex())
+                    .append('/').append(log.isRemoved());
+        }
+        return summary.toString();
+    }
+
+    private static String repeat(char c) {
+        char[] chars = new char[64];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+
+    /**
+     * 模拟 HTTP 节点：返回最新区块号和历史日志。
+     */
+    private static final class HistoryNode extends Dispatcher {
+        private final List<ObjectNode> logs = Collections.synchronizedList(new ArrayList<>());
+        private volatile long head = 0x10;
+
+        @Override
+        public MockResponse dispatch(RecordedRequest request) {
+            try {
+                JsonNode call = MAPPER.readTree(request.getBody().readUtf8());
+                ObjectNode response = MAPPER.createObjectNode();
+                response.put("jsonrpc", "2.0");
+                response.set("id", call.get("id"));
+                String method = call.get("method").asText();
+                if ("eth_blockNumber".equals(method)) {
+                    response.put("result", "0x" + Long.toHexString(head));
+                } else if ("eth_getLogs".equals(method)) {
+                    JsonNode params = call.get("params").get(0);
+                    long from = Long.decode(params.get("fromBlock").asText());
+                    long to = Long.decode(params.get("toBlock").asText());
+                    ArrayNode result = response.putArray("result");
+                    synchronized (logs) {
+                        for (ObjectNode log : logs) {
+                            long block = Long.decode(log.get("blockNumber").asText());
+                            if (block >= from && block <= to) {
+                                result.add(log);
+                            }
+                        }
+                    }
+                } else {
+                    ObjectNode error = response.putObject("error");
+                    error.put("code", -32601);
+                    error.put("message", "method not found");
+                }
+                return new MockResponse()
+                        .setHeader("Content-Type", "application/json")
+                        .setBody(MAPPER.writeValueAsString(response));
+            } catch (IOException e) {
+                return new MockResponse().setResponseCode(400);
+            }
+        }
+    }
+
+    /**
+     * 模拟 WebSocket 节点：响应 eth_subscribe / eth_unsubscribe，由测试推送 logs 通知。
+     */
+    private static final class WsNode extends WebSocketServer {
+        private final CountDownLatch started = new CountDownLatch(1);
+        private final AtomicInteger subscriptions = new AtomicInteger();
+        private volatile WebSocket current;
+        private volatile String subscriptionId;
+
+        private WsNode() {
+            super(new InetSocketAddress("localhost", 0));
+        }
+
+        void awaitSubscriptions(int count) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (subscriptions.get() < count) {
+                if (System.currentTimeMillis() > deadline) {
+                    throw new AssertionError("No subscription " + count);
+                }
+                Thread.sleep(10);
+            }
+        }
+
+        void push(ObjectNode log) throws IOException {
+            ObjectNode notification = MAPPER.createObjectNode();
+            notification.put("jsonrpc", "2.0");
+            notification.put("method", "eth_subscription");
+            ObjectNode params = notification.putObject("params");
+            params.put("subscription", subscriptionId);
+            params.set("result", log);
+            current.send(MAPPER.writeValueAsString(notification));
+        }
+
+        void dropConnections() {
+            for (WebSocket connection : getConnections()) {
+                connection.close();
+            }
+        }
+
+        @Override
+        public void onMessage(WebSocket connection, String message) {
+            try {
+                JsonNode call = MAPPER.readTree(message);
+                ObjectNode response = MAPPER.createObjectNode();
+                response.put("jsonrpc", "2.0");
+                response.set("id", call.get("id"));
+                if ("eth_subscribe".equals(call.get("method").asText())) {
+                    String id = "0x" + Integer.toHexString(subscriptions.get() + 1);
+                    response.put("result", id);
+                    connection.send(MAPPER.writeValueAsString(response));
+                    current = connection;
+                    subscriptionId = id;
+                    subscriptions.incrementAndGet();
+                } else {
+                    response.put("result", true);
+                    connection.send(MAPPER.writeValueAsString(response));
+                }
+            } catch (IOException e) {
+                connection.close();
+            }
+        }
+
+        @Override
+        public void onStart() {
+            started.countDown();
+        }
+
+        @Override
+        public void onOpen(WebSocket connection, ClientHandshake handshake) {
+        }
+
+        @Override
+        public void onClose(WebSocket connection, int code, String reason, boolean remote) {
+        }
+
+        @Override
+        public void onError(WebSocket connection, Exception e) {
+        }
+    }
+}